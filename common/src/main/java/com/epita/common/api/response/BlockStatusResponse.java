@@ -0,0 +1,31 @@
+package com.epita.common.api.response;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * The block relationships between two users, in both directions.
+ */
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+public class BlockStatusResponse {
+    /**
+     * Whether the first user blocks the second one.
+     */
+    private boolean blocks;
+    /**
+     * Whether the first user is blocked by the second one.
+     */
+    private boolean blockedBy;
+
+    /**
+     * @return true if there is a block in either direction.
+     */
+    @JsonIgnore
+    public boolean isEitherBlocked() {
+        return blocks || blockedBy;
+    }
+}
@@ -0,0 +1,15 @@
+package com.epita.common.api.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * The engagement counters of a post kept by Repo-Social.
+ */
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+public class PostCountsResponse {
+    private long likes;
+}
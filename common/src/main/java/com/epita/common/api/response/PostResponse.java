@@ -16,4 +16,7 @@ public class PostResponse {
     private UUID repostId;
     private UUID replyId;
     private LocalDateTime creationDate;
+    private long replyCount;
+    private long repostCount;
+    private long likeCount;
 }
\ No newline at end of file
@@ -0,0 +1,16 @@
+package com.epita.common.api.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * A post of a conversation thread, with its depth in the reply tree (0 for the root post).
+ */
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+public class ThreadPostResponse {
+    private int depth;
+    private PostResponse post;
+}
@@ -0,0 +1,30 @@
+package com.epita.common.api.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A page of a conversation thread, flattened in conversation order: each post is followed by
+ * its replies, oldest first, before its next sibling.
+ */
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+public class ThreadResponse {
+    private UUID rootId;
+    private int page;
+    private int size;
+    /**
+     * The number of posts in the thread, root included.
+     */
+    private int total;
+    /**
+     * Whether the thread was cut because it exceeds the size limit.
+     */
+    private boolean truncated;
+    private List<ThreadPostResponse> posts;
+}
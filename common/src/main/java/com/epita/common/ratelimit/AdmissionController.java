@@ -0,0 +1,104 @@
+package com.epita.common.ratelimit;
+
+import io.quarkus.redis.datasource.ReactiveRedisDataSource;
+import io.smallrye.mutiny.Uni;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.inject.Instance;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Per-user admission control for write endpoints, based on token buckets.
+ * <p>
+ * Buckets are held in memory by default. When sharing is enabled, they are held in Redis and
+ * updated atomically by a script, so that all the replicas of a service enforce one limit per user;
+ * if Redis fails, the in-memory buckets take over.
+ */
+@ApplicationScoped
+public class AdmissionController {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AdmissionController.class);
+
+    /**
+     * Token bucket in thousandths of a token, refilled using the clock of the Redis server.
+     * Returns the number of milliseconds to wait, 0 if a token was taken.
+     */
+    private static final String TOKEN_BUCKET_SCRIPT = """
+            local capacity = tonumber(ARGV[1])
+            local rate = tonumber(ARGV[2])
+            local time = redis.call('TIME')
+            local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+            local bucket = redis.call('HMGET', KEYS[1], 'tokens', 'ts')
+            local tokens = tonumber(bucket[1]) or capacity
+            local ts = tonumber(bucket[2]) or now
+            tokens = math.min(capacity, tokens + math.max(0, now - ts) * rate)
+            local wait = 0
+            if tokens >= 1000 then
+              tokens = tokens - 1000
+            else
+              wait = math.ceil((1000 - tokens) / rate)
+            end
+            redis.call('HSET', KEYS[1], 'tokens', tostring(tokens), 'ts', tostring(now))
+            redis.call('PEXPIRE', KEYS[1], math.ceil(capacity / rate) + 1000)
+            return wait
+            """;
+
+    @ConfigProperty(name = "epitweet.rate-limit.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @ConfigProperty(name = "epitweet.rate-limit.capacity", defaultValue = "20")
+    long capacity;
+
+    @ConfigProperty(name = "epitweet.rate-limit.refill-per-second", defaultValue = "10")
+    double refillPerSecond;
+
+    @ConfigProperty(name = "epitweet.rate-limit.shared", defaultValue = "false")
+    boolean shared;
+
+    @ConfigProperty(name = "quarkus.application.name")
+    String applicationName;
+
+    @Inject
+    Instance<ReactiveRedisDataSource> redis;
+
+    private TokenBucketRateLimiter localLimiter;
+
+    @PostConstruct
+    void init() {
+        localLimiter = new TokenBucketRateLimiter(capacity, refillPerSecond);
+        LOG.info("Admission control {}: {} requests burst, {} requests/s per user{}", enabled ? "enabled" : "disabled",
+                capacity, refillPerSecond, shared ? ", shared through Redis" : "");
+    }
+
+    /**
+     * Admits a request of a user, or tells how long the user must wait.
+     *
+     * @param userId the ID of the user sending the request.
+     * @return 0 if the request is admitted, otherwise the number of milliseconds until it would be.
+     */
+    public Uni<Long> admit(String userId) {
+        if (!enabled) {
+            return Uni
+                    .createFrom()
+                    .item(0L);
+        }
+        if (!shared) {
+            return Uni
+                    .createFrom()
+                    .item(localLimiter.tryAcquire(userId));
+        }
+        return redis
+                .get()
+                .execute("EVAL", TOKEN_BUCKET_SCRIPT, "1", "rate-limit:" + applicationName + ":" + userId,
+                        String.valueOf(capacity * 1000), String.valueOf(refillPerSecond))
+                .map(response -> response.toLong())
+                .onFailure()
+                .recoverWithItem(e -> {
+                    LOG.warn("Shared admission control unavailable, using local buckets: {}", e.getMessage());
+                    return localLimiter.tryAcquire(userId);
+                });
+    }
+}
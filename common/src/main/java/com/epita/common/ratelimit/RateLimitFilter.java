@@ -0,0 +1,55 @@
+package com.epita.common.ratelimit;
+
+import io.smallrye.mutiny.Uni;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.core.Response;
+import org.jboss.resteasy.reactive.server.ServerRequestFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Request filter applying the admission control to the endpoints annotated with {@link RateLimited}.
+ */
+public class RateLimitFilter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RateLimitFilter.class);
+
+    private static final String USER_ID_HEADER = "X-user-id";
+    private static final int TOO_MANY_REQUESTS = 429;
+
+    @Inject
+    AdmissionController admissionController;
+
+    /**
+     * Rejects the request with a 429 response if its user has no token left.
+     * Requests without user are let through: the endpoint rejects them.
+     *
+     * @param requestContext the incoming request.
+     * @return null to continue processing the request, the rejection response otherwise.
+     */
+    @RateLimited
+    @ServerRequestFilter
+    public Uni<Response> limit(ContainerRequestContext requestContext) {
+        String userId = requestContext.getHeaderString(USER_ID_HEADER);
+        if (userId == null || userId.isBlank()) {
+            return Uni
+                    .createFrom()
+                    .nullItem();
+        }
+        return admissionController
+                .admit(userId)
+                .map(waitMillis -> {
+                    if (waitMillis == 0) {
+                        return null;
+                    }
+                    long retryAfter = Math.max(1, (waitMillis + 999) / 1000);
+                    LOG.warn("Too many requests from user {}, retry in {} s", userId, retryAfter);
+                    return Response
+                            .status(TOO_MANY_REQUESTS)
+                            .header("Retry-After", retryAfter)
+                            .entity("Too many requests, retry in " + retryAfter + " seconds")
+                            .build();
+                });
+    }
+}
@@ -0,0 +1,19 @@
+package com.epita.common.ratelimit;
+
+import jakarta.ws.rs.NameBinding;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks the endpoints subject to per-user admission control.
+ * Requests are attributed to the user of their `X-user-id` header; rejected requests get a
+ * 429 response with a `Retry-After` header.
+ */
+@NameBinding
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.METHOD})
+public @interface RateLimited {
+}
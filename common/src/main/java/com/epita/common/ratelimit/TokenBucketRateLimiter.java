@@ -0,0 +1,118 @@
+package com.epita.common.ratelimit;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * In-memory token bucket rate limiter, one bucket per key.
+ * <p>
+ * Each bucket is a single {@link AtomicLong} packing its token count (in thousandths of a token)
+ * with the time of its last refill, so that acquiring a token is a lock-free compare-and-set.
+ * Buckets are spread over independent stripes; each stripe is swept from time to time to drop
+ * the buckets that are full again, so that idle users do not use memory.
+ */
+public final class TokenBucketRateLimiter {
+
+    private static final int STRIPE_COUNT = 64;
+    private static final long MILLIS_PER_TOKEN_UNIT = 1000;
+    private static final int TOKEN_BITS = 24;
+    private static final long TOKEN_MASK = (1L << TOKEN_BITS) - 1;
+    /**
+     * The maximum capacity, so that the token count fits in its bits.
+     */
+    public static final long MAX_CAPACITY = TOKEN_MASK / MILLIS_PER_TOKEN_UNIT;
+
+    private final Stripe[] stripes = new Stripe[STRIPE_COUNT];
+    private final long capacity;
+    private final double refillPerSecond;
+    private final long sweepIntervalMillis;
+    private final LongSupplier clock;
+    private final long epoch;
+
+    /**
+     * @param capacity        the maximum number of tokens of a bucket, i.e. the allowed burst.
+     * @param refillPerSecond the number of tokens added to a bucket per second, i.e. the sustained rate.
+     */
+    public TokenBucketRateLimiter(long capacity, double refillPerSecond) {
+        this(capacity, refillPerSecond, System::currentTimeMillis);
+    }
+
+    TokenBucketRateLimiter(long capacity, double refillPerSecond, LongSupplier clock) {
+        if (capacity < 1 || capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("capacity must be between 1 and " + MAX_CAPACITY);
+        }
+        if (refillPerSecond <= 0) {
+            throw new IllegalArgumentException("refillPerSecond must be positive");
+        }
+        this.capacity = capacity * MILLIS_PER_TOKEN_UNIT;
+        this.refillPerSecond = refillPerSecond;
+        this.sweepIntervalMillis = Math.max(60_000, refillMillis(this.capacity));
+        this.clock = clock;
+        this.epoch = clock.getAsLong();
+        for (int i = 0; i < STRIPE_COUNT; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * Takes one token from the bucket of a key.
+     *
+     * @param key the key of the bucket, e.g. a user ID.
+     * @return 0 if a token was taken, otherwise the number of milliseconds until one is available.
+     */
+    public long tryAcquire(String key) {
+        long now = clock.getAsLong() - epoch;
+        Stripe stripe = stripes[(key.hashCode() ^ key.hashCode() >>> 16) & STRIPE_COUNT - 1];
+        stripe.sweepIfDue(now);
+
+        AtomicLong bucket = stripe.buckets.computeIfAbsent(key, k -> new AtomicLong(pack(now, capacity)));
+        while (true) {
+            long state = bucket.get();
+            long tokens = refilledTokens(state, now);
+            if (tokens < MILLIS_PER_TOKEN_UNIT) {
+                return refillMillis(MILLIS_PER_TOKEN_UNIT - tokens);
+            }
+            if (bucket.compareAndSet(state, pack(Math.max(now, timeOf(state)), tokens - MILLIS_PER_TOKEN_UNIT))) {
+                return 0;
+            }
+        }
+    }
+
+    private long refilledTokens(long state, long now) {
+        long elapsed = Math.max(0, now - timeOf(state));
+        return Math.min(capacity, (state & TOKEN_MASK) + (long) (elapsed * refillPerSecond));
+    }
+
+    /**
+     * Milliseconds needed to refill a number of token thousandths: the rate in tokens per second
+     * is also the rate in thousandths per millisecond.
+     */
+    private long refillMillis(long tokens) {
+        return (long) Math.ceil(tokens / refillPerSecond);
+    }
+
+    private static long pack(long time, long tokens) {
+        return time << TOKEN_BITS | tokens;
+    }
+
+    private static long timeOf(long state) {
+        return state >>> TOKEN_BITS;
+    }
+
+    private final class Stripe {
+        private final ConcurrentHashMap<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+        private final AtomicLong lastSweep = new AtomicLong();
+
+        void sweepIfDue(long now) {
+            long last = lastSweep.get();
+            if (now - last < sweepIntervalMillis || !lastSweep.compareAndSet(last, now)) {
+                return;
+            }
+            // A bucket removed while being acquired loses that acquisition: at worst one extra token.
+            buckets
+                    .values()
+                    .removeIf(bucket -> refilledTokens(bucket.get(), now) >= capacity);
+        }
+    }
+}
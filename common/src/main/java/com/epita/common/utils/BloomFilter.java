@@ -0,0 +1,92 @@
+package com.epita.common.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A small thread-safe Bloom filter over 64-bit keys.
+ * <p>
+ * {@link #mightContain} never returns false for a key that was put, and returns true for a key that
+ * was not with about the false positive rate the filter was sized for, as long as no more keys than
+ * expected are put. Keys cannot be removed: a filter is rebuilt instead.
+ */
+public class BloomFilter {
+
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+    private final long expectedKeys;
+    private final AtomicLong keys = new AtomicLong();
+
+    /**
+     * @param expectedKeys      the number of keys the filter is sized for.
+     * @param falsePositiveRate the false positive rate once the expected keys are put, e.g. 0.01.
+     */
+    public BloomFilter(long expectedKeys, double falsePositiveRate) {
+        if (expectedKeys <= 0) {
+            throw new IllegalArgumentException("expectedKeys must be positive");
+        }
+        if (falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("falsePositiveRate must be between 0 and 1");
+        }
+        long optimalBits = (long) Math.ceil(-expectedKeys * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int words = (int) Math.min(Integer.MAX_VALUE - 8, (optimalBits + 63) / 64);
+        this.bits = new AtomicLongArray(words);
+        this.bitCount = words * 64L;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedKeys * Math.log(2)));
+        this.expectedKeys = expectedKeys;
+    }
+
+    /**
+     * Adds a key to the filter.
+     *
+     * @param key the key to add.
+     */
+    public void put(long key) {
+        long hash1 = mix(key);
+        long hash2 = mix(hash1 ^ 0x9E3779B97F4A7C15L);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(hash1 + i * hash2, bitCount);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current;
+            do {
+                current = bits.get(word);
+            } while ((current & mask) == 0 && !bits.compareAndSet(word, current, current | mask));
+        }
+        keys.incrementAndGet();
+    }
+
+    /**
+     * @param key the key to look up.
+     * @return false if the key was never put, true if it may have been.
+     */
+    public boolean mightContain(long key) {
+        long hash1 = mix(key);
+        long hash2 = mix(hash1 ^ 0x9E3779B97F4A7C15L);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(hash1 + i * hash2, bitCount);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return true once more keys were put than the filter was sized for: its false positive rate
+     * is then higher than requested.
+     */
+    public boolean isSaturated() {
+        return keys.get() > expectedKeys;
+    }
+
+    /**
+     * The SplitMix64 finalizer: spreads the bits of a key over the whole 64-bit range.
+     */
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+}
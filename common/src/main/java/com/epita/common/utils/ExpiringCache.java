@@ -0,0 +1,107 @@
+package com.epita.common.utils;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A small thread-safe in-memory cache whose entries expire after a time-to-live.
+ * <p>
+ * The cache is bounded: when it is full, expired entries are swept first, then arbitrary entries
+ * are evicted until a quarter of the capacity is free again. Lookups never block.
+ *
+ * @param <K> the type of the keys.
+ * @param <V> the type of the values, never null.
+ */
+public class ExpiringCache<K, V> {
+
+    private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final int maxSize;
+
+    /**
+     * @param maxSize the maximum number of entries kept.
+     */
+    public ExpiringCache(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize must be positive");
+        }
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @param key the key to look up.
+     * @return the cached value, or null if it is absent or expired.
+     */
+    public V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.isExpired(System.nanoTime())) {
+            entries.remove(key, entry);
+            return null;
+        }
+        return entry.value();
+    }
+
+    /**
+     * Caches a value, replacing the previous one.
+     *
+     * @param key   the key of the value.
+     * @param value the value to cache.
+     * @param ttl   how long the value stays valid.
+     */
+    public void put(K key, V value, Duration ttl) {
+        if (entries.size() >= maxSize && !entries.containsKey(key)) {
+            evict();
+        }
+        entries.put(key, new Entry<>(value, System.nanoTime() + ttl.toNanos()));
+    }
+
+    /**
+     * Removes a value from the cache.
+     *
+     * @param key the key of the value.
+     */
+    public void invalidate(K key) {
+        entries.remove(key);
+    }
+
+    /**
+     * Removes all the values from the cache.
+     */
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    /**
+     * @return the number of entries, including expired ones not swept yet.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    private void evict() {
+        long now = System.nanoTime();
+        entries
+                .entrySet()
+                .removeIf(entry -> entry
+                        .getValue()
+                        .isExpired(now));
+        int target = maxSize - maxSize / 4;
+        Iterator<K> keys = entries
+                .keySet()
+                .iterator();
+        while (entries.size() > target && keys.hasNext()) {
+            keys.next();
+            keys.remove();
+        }
+    }
+
+    private record Entry<V>(V value, long expiresAt) {
+        boolean isExpired(long now) {
+            return now - expiresAt >= 0;
+        }
+    }
+}
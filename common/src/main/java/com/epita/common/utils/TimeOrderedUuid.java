@@ -0,0 +1,77 @@
+package com.epita.common.utils;
+
+import java.security.SecureRandom;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generator of time-ordered UUIDs, following the version 7 layout of RFC 9562.
+ * <p>
+ * The 48 most significant bits hold the Unix timestamp in milliseconds, followed by a 12 bits
+ * counter ordering the UUIDs generated within the same millisecond, and 62 random bits.
+ * UUIDs generated by one instance are strictly increasing; across instances they are ordered
+ * by millisecond. Inserting them keeps B-tree indexes append-only, and sorting by ID sorts by
+ * creation time.
+ */
+public final class TimeOrderedUuid {
+
+    private static final int COUNTER_BITS = 12;
+    private static final long COUNTER_MASK = (1L << COUNTER_BITS) - 1;
+    private static final long VERSION_7 = 0x7000L;
+    private static final long VARIANT_MASK = 0x3FFFFFFFFFFFFFFFL;
+    private static final long VARIANT_RFC_9562 = 0x8000000000000000L;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    /**
+     * The last (timestamp, counter) pair used, as timestamp << COUNTER_BITS | counter.
+     */
+    private static final AtomicLong LAST_STATE = new AtomicLong();
+
+    private TimeOrderedUuid() {
+    }
+
+    /**
+     * Generates a new time-ordered UUID.
+     * When the counter of a millisecond overflows, the UUID borrows the next millisecond,
+     * so that ordering is preserved.
+     *
+     * @return a version 7 UUID, greater than any UUID previously generated by this instance.
+     */
+    public static UUID next() {
+        long candidate = System.currentTimeMillis() << COUNTER_BITS;
+        long state = LAST_STATE.updateAndGet(last -> candidate > last ? candidate : last + 1);
+
+        long timestamp = state >>> COUNTER_BITS;
+        long mostSigBits = timestamp << 16 | VERSION_7 | state & COUNTER_MASK;
+        long leastSigBits = RANDOM.nextLong() & VARIANT_MASK | VARIANT_RFC_9562;
+        return new UUID(mostSigBits, leastSigBits);
+    }
+
+    /**
+     * Generates a time-ordered UUID for a given instant, e.g. to backfill past records.
+     * Unlike {@link #next()}, the counter bits are random: UUIDs of the same millisecond are unordered.
+     *
+     * @param timestamp the Unix timestamp in milliseconds.
+     * @return a version 7 UUID carrying the given timestamp.
+     */
+    public static UUID at(long timestamp) {
+        long mostSigBits = timestamp << 16 | VERSION_7 | RANDOM.nextLong() & COUNTER_MASK;
+        long leastSigBits = RANDOM.nextLong() & VARIANT_MASK | VARIANT_RFC_9562;
+        return new UUID(mostSigBits, leastSigBits);
+    }
+
+    /**
+     * Extracts the creation timestamp of a time-ordered UUID.
+     *
+     * @param uuid a version 7 UUID.
+     * @return the Unix timestamp in milliseconds at which the UUID was generated.
+     * @throws IllegalArgumentException if the UUID is not a version 7 UUID.
+     */
+    public static long timestampOf(UUID uuid) {
+        if (uuid.version() != 7) {
+            throw new IllegalArgumentException("UUID " + uuid + " is not time-ordered");
+        }
+        return uuid.getMostSignificantBits() >>> 16;
+    }
+}
@@ -0,0 +1,57 @@
+package com.epita.common.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketRateLimiterTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+
+    @Test
+    void tryAcquire_shouldAllowABurstOfCapacity_thenReportTheWait() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(3, 2, now::get);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, limiter.tryAcquire("user"));
+        }
+        // Two tokens per second: the next one is 500 ms away.
+        assertEquals(500, limiter.tryAcquire("user"));
+
+        now.addAndGet(200);
+        assertEquals(300, limiter.tryAcquire("user"));
+        now.addAndGet(300);
+        assertEquals(0, limiter.tryAcquire("user"));
+        assertEquals(500, limiter.tryAcquire("user"));
+    }
+
+    @Test
+    void tryAcquire_shouldKeepOneBucketPerKey() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(1, 1, now::get);
+
+        assertEquals(0, limiter.tryAcquire("first"));
+        assertTrue(limiter.tryAcquire("first") > 0);
+        assertEquals(0, limiter.tryAcquire("second"));
+    }
+
+    @Test
+    void tryAcquire_shouldNotRefillAboveCapacity() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(2, 10, now::get);
+        assertEquals(0, limiter.tryAcquire("user"));
+
+        // Idle long enough to be swept: the bucket starts full again, not above.
+        now.addAndGet(3_600_000);
+        assertEquals(0, limiter.tryAcquire("user"));
+        assertEquals(0, limiter.tryAcquire("user"));
+        assertEquals(100, limiter.tryAcquire("user"));
+    }
+
+    @Test
+    void constructor_shouldRejectInvalidSettings() {
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucketRateLimiter(0, 1, now::get));
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucketRateLimiter(TokenBucketRateLimiter.MAX_CAPACITY + 1, 1, now::get));
+        assertThrows(IllegalArgumentException.class, () -> new TokenBucketRateLimiter(1, 0, now::get));
+    }
+}
@@ -0,0 +1,85 @@
+package com.epita.common.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpiringCacheTest {
+
+    @Test
+    void get_shouldReturnTheCachedValue_untilItExpires() throws InterruptedException {
+        ExpiringCache<String, Boolean> cache = new ExpiringCache<>(10);
+        cache.put("fresh", true, Duration.ofMinutes(1));
+        cache.put("stale", true, Duration.ofMillis(20));
+
+        assertEquals(true, cache.get("fresh"));
+        assertEquals(true, cache.get("stale"));
+        Thread.sleep(40);
+        assertEquals(true, cache.get("fresh"));
+        assertNull(cache.get("stale"));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void put_shouldReplaceTheValueAndItsTtl() throws InterruptedException {
+        ExpiringCache<String, Boolean> cache = new ExpiringCache<>(10);
+        cache.put("key", true, Duration.ofMillis(20));
+        cache.put("key", false, Duration.ofMinutes(1));
+
+        Thread.sleep(40);
+        assertEquals(false, cache.get("key"));
+    }
+
+    @Test
+    void put_shouldSweepExpiredEntriesFirst_whenFull() throws InterruptedException {
+        ExpiringCache<Integer, Boolean> cache = new ExpiringCache<>(4);
+        cache.put(1, true, Duration.ofMinutes(1));
+        for (int key = 2; key <= 4; key++) {
+            cache.put(key, true, Duration.ofMillis(20));
+        }
+        Thread.sleep(40);
+
+        cache.put(5, true, Duration.ofMinutes(1));
+
+        assertEquals(2, cache.size());
+        assertEquals(true, cache.get(1));
+        assertEquals(true, cache.get(5));
+    }
+
+    @Test
+    void put_shouldEvictAQuarterOfTheCapacity_whenFullOfLiveEntries() {
+        ExpiringCache<Integer, Boolean> cache = new ExpiringCache<>(8);
+        for (int key = 0; key < 8; key++) {
+            cache.put(key, true, Duration.ofMinutes(1));
+        }
+
+        cache.put(8, true, Duration.ofMinutes(1));
+
+        assertEquals(7, cache.size());
+        assertEquals(true, cache.get(8));
+        // Replacing a cached key never evicts.
+        cache.put(8, false, Duration.ofMinutes(1));
+        assertEquals(7, cache.size());
+    }
+
+    @Test
+    void invalidate_shouldRemoveValues() {
+        ExpiringCache<String, Boolean> cache = new ExpiringCache<>(10);
+        cache.put("first", true, Duration.ofMinutes(1));
+        cache.put("second", true, Duration.ofMinutes(1));
+
+        cache.invalidate("first");
+        assertNull(cache.get("first"));
+        assertEquals(true, cache.get("second"));
+
+        cache.invalidateAll();
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void constructor_shouldRejectANonPositiveSize() {
+        assertThrows(IllegalArgumentException.class, () -> new ExpiringCache<String, Boolean>(0));
+    }
+}
@@ -0,0 +1,55 @@
+package com.epita.common.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimeOrderedUuidTest {
+
+    @Test
+    void next_shouldBeStrictlyIncreasing_evenWithinTheSameMillisecond() {
+        UUID previous = TimeOrderedUuid.next();
+        for (int i = 0; i < 10_000; i++) {
+            UUID current = TimeOrderedUuid.next();
+            assertTrue(current.compareTo(previous) > 0, current + " should follow " + previous);
+            // Their text form sorts the same way, e.g. for string indexes.
+            assertTrue(current
+                    .toString()
+                    .compareTo(previous.toString()) > 0);
+            previous = current;
+        }
+    }
+
+    @Test
+    void next_shouldBeAVersion7Uuid_carryingItsCreationTime() {
+        long before = System.currentTimeMillis();
+        UUID uuid = TimeOrderedUuid.next();
+        long after = System.currentTimeMillis();
+
+        assertEquals(7, uuid.version());
+        assertEquals(2, uuid.variant());
+        // After a burst, counter overflows may have borrowed a few milliseconds ahead.
+        long timestamp = TimeOrderedUuid.timestampOf(uuid);
+        assertTrue(timestamp >= before && timestamp <= after + 10);
+    }
+
+    @Test
+    void at_shouldCarryTheGivenTimestamp() {
+        long timestamp = 1_700_000_000_000L;
+
+        UUID uuid = TimeOrderedUuid.at(timestamp);
+
+        assertEquals(7, uuid.version());
+        assertEquals(timestamp, TimeOrderedUuid.timestampOf(uuid));
+        assertTrue(TimeOrderedUuid
+                .at(timestamp + 1)
+                .compareTo(uuid) > 0);
+    }
+
+    @Test
+    void timestampOf_shouldRejectOtherVersions() {
+        assertThrows(IllegalArgumentException.class, () -> TimeOrderedUuid.timestampOf(UUID.randomUUID()));
+    }
+}
@@ -20,6 +20,28 @@ const users = {
     user2: '3fa85f64-5717-4562-b3fc-2c963f66afa2',
 };
 
+// Write endpoints are rate limited per user: a 429 response tells how many seconds to wait before retrying.
+let rateLimitedPosts = 0;
+const createPostHonouringRateLimit = async (userId, text) => {
+    while (true) {
+        const res = await request(baseUrls.post)
+            .post('/api/posts')
+            .set(headers(userId))
+            .type('form')
+            .field('text', text)
+            .field('replyId', '')
+            .field('repostId', '')
+            .field('media', '')
+            .timeout(10000); // Augmenter le timeout à 10 secondes
+        if (res.statusCode !== 429) {
+            return res;
+        }
+        rateLimitedPosts++;
+        const retryAfter = parseInt(res.headers['retry-after'], 10) || 1;
+        await new Promise(resolve => setTimeout(resolve, retryAfter * 1000));
+    }
+};
+
 describe('E2E stress Social Flow', () => {
     it('User1 creates post 1', async () => {
         const res = await request(baseUrls.post)
@@ -52,15 +74,7 @@ describe('E2E stress Social Flow', () => {
             console.log(`Processing batch ${batch + 1}/${batches}: posts ${startIndex + 1}-${endIndex}`);
 
             for (let i = startIndex; i < endIndex; i++) {
-                const postPromise = request(baseUrls.post)
-                    .post('/api/posts')
-                    .set(headers(users.user2))
-                    .type('form')
-                    .field('text', `Hello World ${i + 1}`)
-                    .field('replyId', '')
-                    .field('repostId', '')
-                    .field('media', '')
-                    .timeout(10000) // Augmenter le timeout à 10 secondes
+                const postPromise = createPostHonouringRateLimit(users.user2, `Hello World ${i + 1}`)
                     .then(res => {
                         if (res.statusCode === 201) {
                             successfulPosts++;
@@ -88,10 +102,11 @@ describe('E2E stress Social Flow', () => {
 
         console.log(`Successfully created ${successfulPosts}/${batchSize} posts.`);
         console.log(`Failed to create ${failedPosts}/${batchSize} posts.`);
+        console.log(`${rateLimitedPosts} requests were rate limited and retried.`);
 
         // Vous pouvez ajuster cette assertion selon vos besoins
         expect(successfulPosts).toBeGreaterThanOrEqual(batchSize);
-    }, 40000);
+    }, 180000);
 
 
     it('User1 follows User2', async () => {
@@ -11,6 +11,18 @@ db.createUser(
     }
 );
 db.createCollection("Posts");
+db.Posts.createIndex({ replyId: 1 });
+db.Posts.createIndex({ mediaFileId: 1 }, { sparse: true });
 db.createCollection("Users");
 db.createCollection("userTimelines");
 db.createCollection("HomeTimeline");
+db.createCollection("MediaReferences");
+db.MediaReferences.createIndex({ fileId: 1 });
+db.fs.files.createIndex({ "metadata.derivativeOf": 1, "metadata.variant": 1 });
+db.createCollection("PostOutbox");
+db.PostOutbox.createIndex({ status: 1, _id: 1 });
+db.PostOutbox.createIndex({ processedAt: 1 }, { expireAfterSeconds: 604800 });
+db.createCollection("IdempotencyKeys");
+db.IdempotencyKeys.createIndex({ createdAt: 1 }, { expireAfterSeconds: 86400 });
+db.createCollection("Leases");
+db.createCollection("Migrations");
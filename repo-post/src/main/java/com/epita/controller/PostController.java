@@ -1,15 +1,22 @@
 package com.epita.controller;
 
 import com.epita.common.api.response.PostIdResponse;
-import com.epita.common.api.response.PostResponse;
-import com.epita.common.api.response.UserResponse;
-import com.epita.controller.contracts.FileData;
+import com.epita.common.ratelimit.RateLimited;
+import com.epita.controller.contracts.PostImportReport;
 import com.epita.controller.contracts.PostRequestMultiPart;
 import com.epita.controller.contracts.PostRequestContract;
+import com.epita.repository.entity.IdempotencyRecord;
 import com.epita.repository.entity.User;
 import com.epita.service.FileStorageService;
+import com.epita.service.IdempotencyService;
+import com.epita.service.MediaDerivativeService;
+import com.epita.service.PostImportService;
 import com.epita.service.PostService;
+import com.epita.service.StorageSweeper;
+import com.epita.service.entity.MediaVariant;
 import io.quarkus.logging.Log;
+import io.smallrye.common.annotation.Blocking;
+import io.smallrye.mutiny.Uni;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
@@ -17,12 +24,14 @@ import jakarta.ws.rs.core.Response;
 import org.jboss.logging.Logger;
 
 import java.io.IOException;
-import java.util.List;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.util.UUID;
 
 /**
  * REST controller for managing posts and related operations.
  * Provides endpoints for creating, retrieving, updating, and deleting posts.
+ * Endpoints are non-blocking: they return a {@link Uni} resolved on the event loop.
  */
 @Path("/api")
 public class PostController {
@@ -32,11 +41,28 @@ public class PostController {
     @Inject
     FileStorageService _fileStorageService;
 
+    @Inject
+    MediaDerivativeService _mediaDerivativeService;
+
+    @Inject
+    PostImportService _postImportService;
+
+    @Inject
+    IdempotencyService _idempotencyService;
+
+    @Inject
+    StorageSweeper _storageSweeper;
+
     @Inject
     User user;
 
     private final Logger LOG = Logger.getLogger(PostController.class);
 
+    private static final int MAX_THREAD_PAGE_SIZE = 200;
+    private static final int MAX_THREAD_DEPTH = 50;
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 255;
+    private static final int UNPROCESSABLE_ENTITY = 422;
+
     /**
      * Endpoint to return a simple hello message.
      *
@@ -56,17 +82,14 @@ public class PostController {
      */
     @GET
     @Path("/posts/{postId}")
-    public Response getPost(@PathParam("postId") final UUID postId) {
-        try {
-            return Response
-                    .ok(_postService.getPost(postId))
-                    .build();
-        } catch (IllegalArgumentException e) {
-            return Response
-                    .status(Response.Status.NOT_FOUND)
-                    .entity(e.getMessage())
-                    .build();
-        }
+    public Uni<Response> getPost(@PathParam("postId") final UUID postId) {
+        return _postService
+                .getPost(postId)
+                .map(post -> Response
+                        .ok(post)
+                        .build())
+                .onFailure(IllegalArgumentException.class)
+                .recoverWithItem(PostController::notFound);
     }
 
     /**
@@ -77,19 +100,14 @@ public class PostController {
      */
     @GET
     @Path("/users/{userId}/posts")
-    public Response getPostsByUser(@PathParam("userId") final UUID userId) {
-        try {
-
-            List<PostResponse> posts = _postService.getPostsByUser(userId);
-            return Response
-                    .ok(posts)
-                    .build();
-        } catch (IllegalArgumentException e) {
-            return Response
-                    .status(Response.Status.NOT_FOUND)
-                    .entity(e.getMessage())
-                    .build();
-        }
+    public Uni<Response> getPostsByUser(@PathParam("userId") final UUID userId) {
+        return _postService
+                .getPostsByUser(userId)
+                .map(posts -> Response
+                        .ok(posts)
+                        .build())
+                .onFailure(IllegalArgumentException.class)
+                .recoverWithItem(PostController::notFound);
     }
 
     /**
@@ -100,24 +118,22 @@ public class PostController {
      */
     @GET
     @Path("/users/{userId}")
-    public Response getUser(@PathParam("userId") final UUID userId) {
+    public Uni<Response> getUser(@PathParam("userId") final UUID userId) {
         if (userId == null) {
-            return Response
-                    .status(Response.Status.BAD_REQUEST)
-                    .entity("User ID must not be null")
-                    .build();
-        }
-        try {
-            UserResponse user = _postService.getUserById(userId);
-            return Response
-                    .ok(user)
-                    .build();
-        } catch (IllegalArgumentException e) {
-            return Response
-                    .status(Response.Status.NOT_FOUND)
-                    .entity(e.getMessage())
-                    .build();
+            return Uni
+                    .createFrom()
+                    .item(Response
+                            .status(Response.Status.BAD_REQUEST)
+                            .entity("User ID must not be null")
+                            .build());
         }
+        return _postService
+                .getUserById(userId)
+                .map(user -> Response
+                        .ok(user)
+                        .build())
+                .onFailure(IllegalArgumentException.class)
+                .recoverWithItem(PostController::notFound);
     }
 
     /**
@@ -128,19 +144,15 @@ public class PostController {
      */
     @GET
     @Path("/posts/{postId}/replies")
-    public Response getReplies(@PathParam("postId") final UUID postId) {
-        try {
-            _postService.getPost(postId);
-        } catch (IllegalArgumentException e) {
-            return Response
-                    .status(Response.Status.NOT_FOUND)
-                    .entity(e.getMessage())
-                    .build();
-        }
-        List<PostResponse> replies = _postService.getPostReplies(postId);
-        return Response
-                .ok(replies)
-                .build();
+    public Uni<Response> getReplies(@PathParam("postId") final UUID postId) {
+        return _postService
+                .getPost(postId)
+                .flatMap(post -> _postService.getPostReplies(postId))
+                .map(replies -> Response
+                        .ok(replies)
+                        .build())
+                .onFailure(IllegalArgumentException.class)
+                .recoverWithItem(PostController::notFound);
     }
 
     /**
@@ -151,81 +163,128 @@ public class PostController {
      */
     @GET
     @Path("/posts/{postId}/reposts")
-    public Response getReposts(@PathParam("postId") final UUID postId) {
-        try {
-            _postService.getPost(postId);
-        } catch (IllegalArgumentException e) {
-            return Response
-                    .status(Response.Status.NOT_FOUND)
-                    .entity(e.getMessage())
-                    .build();
+    public Uni<Response> getReposts(@PathParam("postId") final UUID postId) {
+        return _postService
+                .getPost(postId)
+                .flatMap(post -> _postService.getPostReposts(postId))
+                .map(reposts -> Response
+                        .ok(reposts)
+                        .build())
+                .onFailure(IllegalArgumentException.class)
+                .recoverWithItem(PostController::notFound);
+    }
+
+    /**
+     * Retrieves the conversation thread of a post: the post and its replies, recursively,
+     * flattened in conversation order and paginated.
+     *
+     * @param postId the UUID of the root post.
+     * @param page   the index of the page, starting at 0.
+     * @param size   the number of posts per page, at most 200.
+     * @param depth  the maximum depth of the replies, at most 50.
+     * @return a page of the thread or a BAD_REQUEST/NOT_FOUND response.
+     */
+    @GET
+    @Path("/posts/{postId}/thread")
+    public Uni<Response> getThread(@PathParam("postId") final UUID postId,
+                                   @QueryParam("page") @DefaultValue("0") final int page,
+                                   @QueryParam("size") @DefaultValue("50") final int size,
+                                   @QueryParam("depth") @DefaultValue("10") final int depth) {
+        if (page < 0 || size < 1 || size > MAX_THREAD_PAGE_SIZE || depth < 1 || depth > MAX_THREAD_DEPTH) {
+            return badRequest("page must be positive, size between 1 and " + MAX_THREAD_PAGE_SIZE
+                    + " and depth between 1 and " + MAX_THREAD_DEPTH);
         }
-        List<PostResponse> reposts = _postService.getPostReposts(postId);
-        return Response
-                .ok(reposts)
-                .build();
+        return _postService
+                .getThread(postId, page, size, depth)
+                .map(thread -> Response
+                        .ok(thread)
+                        .build())
+                .onFailure(IllegalArgumentException.class)
+                .recoverWithItem(PostController::notFound);
     }
 
     /**
      * Retrieves the media associated with a specific post.
      *
-     * @param postId the UUID of the post.
-     * @return the media file or a NOT_FOUND/INTERNAL_SERVER_ERROR response if an error occurs.
+     * @param postId  the UUID of the post.
+     * @param variant the optional variant to retrieve (`thumb` or `medium`), the original file if absent.
+     * @return the media file or a BAD_REQUEST/NOT_FOUND/INTERNAL_SERVER_ERROR response if an error occurs.
      */
     @GET
     @Path("/posts/{postId}/media")
-    public Response getPostMedia(@PathParam("postId") final UUID postId) {
-        try {
-            PostResponse post = _postService.getPost(postId);
-            if (post.getMedia() == null) {
-                return Response
-                        .status(Response.Status.NOT_FOUND)
-                        .entity("No media found for this post : " + postId)
-                        .build();
-            }
-            FileData file = _fileStorageService.getFile(post.getMedia());
-            return Response
-                    .ok(file
-                            .getInputStream()
-                            .readAllBytes())
-                    .type(file.getContentType())
-                    .header("Content-Disposition", "attachment; filename=\"" + file.getFileName() + "\"")
-                    .build();
-        } catch (WebApplicationException e) {
-            if (e
-                    .getResponse()
-                    .getStatus() == Response.Status.NOT_FOUND.getStatusCode()) {
-                return Response
-                        .status(Response.Status.NOT_FOUND)
-                        .entity(e.getMessage())
-                        .build();
-            } else {
-                return Response
-                        .status(Response.Status.INTERNAL_SERVER_ERROR)
-                        .entity("An unexpected error occurred when getting file")
-                        .build();
+    public Uni<Response> getPostMedia(@PathParam("postId") final UUID postId, @QueryParam("variant") final String variant) {
+        MediaVariant mediaVariant = null;
+        if (variant != null && !variant.isEmpty()) {
+            try {
+                mediaVariant = MediaVariant.fromName(variant);
+            } catch (IllegalArgumentException e) {
+                return Uni
+                        .createFrom()
+                        .item(Response
+                                .status(Response.Status.BAD_REQUEST)
+                                .entity(e.getMessage())
+                                .build());
             }
-        } catch (IOException e) {
-            throw new RuntimeException(e);
         }
+        MediaVariant requestedVariant = mediaVariant;
+        return _postService
+                .getPost(postId)
+                .flatMap(post -> {
+                    if (post.getMedia() == null) {
+                        return Uni
+                                .createFrom()
+                                .item(Response
+                                        .status(Response.Status.NOT_FOUND)
+                                        .entity("No media found for this post : " + postId)
+                                        .build());
+                    }
+                    return _fileStorageService
+                            .getFile(post.getMedia(), requestedVariant)
+                            .map(file -> {
+                                try {
+                                    return Response
+                                            .ok(file
+                                                    .getInputStream()
+                                                    .readAllBytes())
+                                            .type(file.getContentType())
+                                            .header("Content-Disposition", "attachment; filename=\"" + file.getFileName() + "\"")
+                                            .build();
+                                } catch (IOException e) {
+                                    throw new UncheckedIOException(e);
+                                }
+                            });
+                })
+                .onFailure(WebApplicationException.class)
+                .recoverWithItem(e -> {
+                    if (status(e) == Response.Status.NOT_FOUND.getStatusCode()) {
+                        return notFound(e);
+                    }
+                    return Response
+                            .status(Response.Status.INTERNAL_SERVER_ERROR)
+                            .entity("An unexpected error occurred when getting file")
+                            .build();
+                });
     }
 
     /**
      * Creates a new post.
      *
-     * @param userId       the UUID of the user creating the post.
-     * @param postsRequest the post request containing the post details.
+     * A request sent with an `Idempotency-Key` header is processed once: retries with the same key
+     * and content get the ID of the post already created, without any write.
+     *
+     * @param userId         the UUID of the user creating the post.
+     * @param idempotencyKey the optional key identifying retries of the same request.
+     * @param postsRequest   the post request containing the post details.
      * @return a CREATED response with the post ID or an error response if validation fails.
      */
     @POST
     @Path("/posts")
+    @RateLimited
     @Consumes(MediaType.MULTIPART_FORM_DATA)
-    public Response createPost(@HeaderParam("X-user-id") UUID userId, PostRequestMultiPart postsRequest) {
+    public Uni<Response> createPost(@HeaderParam("X-user-id") UUID userId, @HeaderParam("Idempotency-Key") String idempotencyKey,
+                                    PostRequestMultiPart postsRequest) {
         if (userId == null || postsRequest == null) {
-            return Response
-                    .status(Response.Status.BAD_REQUEST)
-                    .entity("User ID and post content must not be null")
-                    .build();
+            return badRequest("User ID and post content must not be null");
         }
 
         // Check that replyId and repostId, if not empty/null, are valid UUIDs
@@ -235,88 +294,162 @@ public class PostController {
             try {
                 replyId = UUID.fromString(postsRequest.replyId);
             } catch (IllegalArgumentException e) {
-                return Response
-                        .status(Response.Status.BAD_REQUEST)
-                        .entity("Invalid reply ID")
-                        .build();
+                return badRequest("Invalid reply ID");
             }
         }
         if (postsRequest.repostId != null && !postsRequest.repostId.isEmpty()) {
             try {
                 repostId = UUID.fromString(postsRequest.repostId);
             } catch (IllegalArgumentException e) {
-                return Response
-                        .status(Response.Status.BAD_REQUEST)
-                        .entity("Invalid repost ID")
-                        .build();
+                return badRequest("Invalid repost ID");
             }
         }
-        try {
+        UUID validReplyId = replyId;
+        UUID validRepostId = repostId;
+
+        if (idempotencyKey == null || idempotencyKey.isEmpty()) {
+            return storeAndCreatePost(userId, postsRequest, validReplyId, validRepostId);
+        }
+        if (idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+            return badRequest("Idempotency-Key must not exceed " + MAX_IDEMPOTENCY_KEY_LENGTH + " characters");
+        }
+
+        String fingerprint = _idempotencyService.fingerprint(postsRequest);
+        return _idempotencyService
+                .reserve(userId, idempotencyKey, fingerprint)
+                .flatMap(previous -> {
+                    if (previous == null) {
+                        return storeAndCreatePost(userId, postsRequest, validReplyId, validRepostId)
+                                .call(response -> response.getStatus() == Response.Status.CREATED.getStatusCode()
+                                        ? _idempotencyService.complete(userId, idempotencyKey, ((PostIdResponse) response.getEntity()).getPostId())
+                                        : _idempotencyService.release(userId, idempotencyKey));
+                    }
+                    return Uni
+                            .createFrom()
+                            .item(replayPost(previous, fingerprint));
+                })
+                .onFailure()
+                .recoverWithItem(PostController::createPostFailure);
+    }
 
-            // Store the file if it exists:
-            LOG.info("Trying to store file: ");
-            _postService.canPost(replyId, repostId, userId);
-            String mediaId = _fileStorageService.storeFile(postsRequest.media);
-            PostIdResponse postIdResponse = _postService.createPost(userId, new PostRequestContract(postsRequest.text, mediaId, repostId, replyId));
+    /**
+     * Validates the post and stores its media concurrently, then creates the post.
+     * The upload is not wasted on a rejected post: if the validation or the creation fails, the
+     * reference taken on the stored media is released once the upload completes.
+     */
+    private Uni<Response> storeAndCreatePost(UUID userId, PostRequestMultiPart postsRequest, UUID replyId, UUID repostId) {
+        // Store the file if it exists:
+        LOG.info("Trying to store file: ");
+        Uni<String> upload = _fileStorageService
+                .storeFile(postsRequest.media)
+                .memoize()
+                .indefinitely();
+        return Uni
+                .combine()
+                .all()
+                .unis(_postService.canPost(replyId, repostId, userId), upload)
+                .combinedWith((allowed, mediaId) -> mediaId)
+                .flatMap(mediaId -> _postService.createPost(userId, new PostRequestContract(postsRequest.text, mediaId, repostId, replyId))
+                        .invoke(created -> _mediaDerivativeService.generateAsync(mediaId)))
+                .onFailure()
+                .invoke(e -> releaseUpload(upload))
+                .map(postIdResponse -> Response
+                        .status(Response.Status.CREATED)
+                        .entity(postIdResponse)
+                        .build())
+                .onFailure()
+                .recoverWithItem(PostController::createPostFailure);
+    }
+
+    /**
+     * Releases the media of a post that could not be created, in the background so that the error
+     * is answered without waiting for the upload.
+     */
+    private void releaseUpload(Uni<String> upload) {
+        upload
+                .onFailure()
+                .recoverWithNull()
+                .onItem()
+                .ifNotNull()
+                .transformToUni(mediaId -> _fileStorageService.deleteFile(mediaId))
+                .subscribe()
+                .with(released -> {
+                }, e -> LOG.warn("Could not release the media of a rejected post: " + e.getMessage()));
+    }
+
+    /**
+     * Answers a retry of a request already processed (or being processed) with the same Idempotency-Key.
+     */
+    private static Response replayPost(IdempotencyRecord previous, String fingerprint) {
+        if (!previous
+                .getFingerprint()
+                .equals(fingerprint)) {
             return Response
-                    .status(Response.Status.CREATED)
-                    .entity(postIdResponse)
+                    .status(UNPROCESSABLE_ENTITY)
+                    .entity("Idempotency-Key already used for a different request")
                     .build();
-        } catch (IllegalArgumentException e) {
+        }
+        if (previous.getStatus() != IdempotencyRecord.Status.COMPLETED) {
+            return Response
+                    .status(Response.Status.CONFLICT)
+                    .entity("A request with this Idempotency-Key is still in progress")
+                    .build();
+        }
+        return Response
+                .status(Response.Status.CREATED)
+                .entity(new PostIdResponse(previous.getPostId()))
+                .header("Idempotent-Replayed", "true")
+                .build();
+    }
+
+    private static Response createPostFailure(Throwable e) {
+        if (e instanceof IllegalArgumentException) {
             return Response
                     .status(Response.Status.BAD_REQUEST)
                     .entity(e.getMessage())
                     .build();
-
-        } catch (WebApplicationException e) {
-            if (e
-                    .getResponse()
-                    .getStatus() == Response.Status.FORBIDDEN.getStatusCode()) {
-                return Response
-                        .status(Response.Status.FORBIDDEN)
-                        .entity("Cannot create post because the user is blocked")
-                        .build();
-            } else if (e
-                    .getResponse()
-                    .getStatus() == Response.Status.NOT_FOUND.getStatusCode()) {
-                return Response
-                        .status(Response.Status.NOT_FOUND)
-                        .entity(e.getMessage())
-                        .build();
-            } else if (e
-                    .getResponse()
-                    .getStatus() == Response.Status.SERVICE_UNAVAILABLE.getStatusCode()) {
-                return Response
-                        .status(Response.Status.SERVICE_UNAVAILABLE)
-                        .entity("RepoSocial request failed: " + e.getLocalizedMessage())
-                        .build();
-            } else {
-                Log.info(e
-                        .getResponse()
-                        .getStatus());
-                return Response
-                        .status(Response.Status.INTERNAL_SERVER_ERROR)
-                        .entity("An unexpected error occurred: " + e.getMessage())
-                        .build();
-            }
-        } catch (Exception e) {
+        }
+        if (!(e instanceof WebApplicationException webException)) {
             return Response
                     .status(Response.Status.INTERNAL_SERVER_ERROR)
                     .entity("An unexpected error occurred" + e.getMessage())
                     .build();
         }
+        if (status(webException) == Response.Status.FORBIDDEN.getStatusCode()) {
+            return Response
+                    .status(Response.Status.FORBIDDEN)
+                    .entity("Cannot create post because the user is blocked")
+                    .build();
+        } else if (status(webException) == Response.Status.NOT_FOUND.getStatusCode()) {
+            return notFound(webException);
+        } else if (status(webException) == Response.Status.SERVICE_UNAVAILABLE.getStatusCode()) {
+            return Response
+                    .status(Response.Status.SERVICE_UNAVAILABLE)
+                    .entity("RepoSocial request failed: " + webException.getLocalizedMessage())
+                    .build();
+        } else {
+            Log.info(status(webException));
+            return Response
+                    .status(Response.Status.INTERNAL_SERVER_ERROR)
+                    .entity("An unexpected error occurred: " + webException.getMessage())
+                    .build();
+        }
     }
 
     /**
-     * Deletes a post by its ID.
+     * Imports posts of the calling user in bulk from an NDJSON stream, one JSON post per line.
+     * Reading the stream blocks, so this endpoint runs on a worker thread.
      *
-     * @param userId the UUID of the user attempting to delete the post.
-     * @param postId the UUID of the post to delete.
-     * @return a NO_CONTENT response if successful or an error response if validation fails.
+     * @param userId the UUID of the user importing their posts.
+     * @param ndjson the NDJSON stream of posts.
+     * @return an OK response with the import report, including the throughput in posts per second.
      */
-    @DELETE
-    @Path("/posts/{postId}")
-    public Response deletePost(@HeaderParam("X-user-id") UUID userId, @PathParam("postId") final UUID postId) {
+    @POST
+    @Path("/posts/import")
+    @Consumes("application/x-ndjson")
+    @Blocking
+    @RateLimited
+    public Response importPosts(@HeaderParam("X-user-id") UUID userId, InputStream ndjson) {
         if (userId == null) {
             return Response
                     .status(Response.Status.BAD_REQUEST)
@@ -324,37 +457,93 @@ public class PostController {
                     .build();
         }
         try {
-            PostResponse post = _postService.getPost(postId);
-            _postService.deletePost(userId, postId);
-            // Delete the file if it exists:
-            if (post.getMedia() != null) {
-                _fileStorageService.deleteFile(post.getMedia());
-            }
-
+            PostImportReport report = _postImportService.importPosts(userId, ndjson);
             return Response
-                    .status(Response.Status.NO_CONTENT)
+                    .ok(report)
                     .build();
-        } catch (WebApplicationException e) {
-            if (e
-                    .getResponse()
-                    .getStatus() == Response.Status.FORBIDDEN.getStatusCode()) {
-                return Response
-                        .status(Response.Status.FORBIDDEN)
-                        .entity("User forbidden from deleting this post")
-                        .build();
-            } else if (e
-                    .getResponse()
-                    .getStatus() == Response.Status.NOT_FOUND.getStatusCode()) {
-                return Response
-                        .status(Response.Status.NOT_FOUND)
-                        .entity(e.getMessage())
-                        .build();
-            } else {
-                return Response
-                        .status(Response.Status.INTERNAL_SERVER_ERROR)
-                        .entity("An unexpected error occurred")
-                        .build();
-            }
+        } catch (IOException e) {
+            return Response
+                    .status(Response.Status.INTERNAL_SERVER_ERROR)
+                    .entity("An unexpected error occurred while reading the import: " + e.getMessage())
+                    .build();
+        }
+    }
+
+    /**
+     * Deletes a post by its ID.
+     *
+     * @param userId the UUID of the user attempting to delete the post.
+     * @param postId the UUID of the post to delete.
+     * @return a NO_CONTENT response if successful or an error response if validation fails.
+     */
+    @DELETE
+    @Path("/posts/{postId}")
+    @RateLimited
+    public Uni<Response> deletePost(@HeaderParam("X-user-id") UUID userId, @PathParam("postId") final UUID postId) {
+        if (userId == null) {
+            return badRequest("User ID must not be null");
         }
+        return _postService
+                .getPost(postId)
+                .flatMap(post -> _postService
+                        .deletePost(userId, postId)
+                        // Delete the file if it exists:
+                        .flatMap(deleted -> post.getMedia() != null ? _fileStorageService.deleteFile(post.getMedia()) : Uni
+                                .createFrom()
+                                .voidItem()))
+                .map(deleted -> Response
+                        .status(Response.Status.NO_CONTENT)
+                        .build())
+                .onFailure(WebApplicationException.class)
+                .recoverWithItem(e -> {
+                    if (status(e) == Response.Status.FORBIDDEN.getStatusCode()) {
+                        return Response
+                                .status(Response.Status.FORBIDDEN)
+                                .entity("User forbidden from deleting this post")
+                                .build();
+                    } else if (status(e) == Response.Status.NOT_FOUND.getStatusCode()) {
+                        return notFound(e);
+                    } else {
+                        return Response
+                                .status(Response.Status.INTERNAL_SERVER_ERROR)
+                                .entity("An unexpected error occurred")
+                                .build();
+                    }
+                });
+    }
+
+    /**
+     * Endpoint to monitor the storage sweeper, e.g. the number of bytes it reclaimed.
+     *
+     * @return the cumulated work of the sweeper since the service started.
+     */
+    @GET
+    @Path("/maintenance/sweeper")
+    public Response getSweeperStats() {
+        return Response
+                .ok(_storageSweeper.getStats())
+                .build();
+    }
+
+    private static int status(Throwable e) {
+        return ((WebApplicationException) e)
+                .getResponse()
+                .getStatus();
+    }
+
+    private static Response notFound(Throwable e) {
+        return Response
+                .status(Response.Status.NOT_FOUND)
+                .entity(e.getMessage())
+                .build();
+    }
+
+    private static Uni<Response> badRequest(String message) {
+        return Uni
+                .createFrom()
+                .item(Response
+                        .status(Response.Status.BAD_REQUEST)
+                        .entity(message)
+                        .build());
     }
 }
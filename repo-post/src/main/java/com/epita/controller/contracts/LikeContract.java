@@ -0,0 +1,17 @@
+package com.epita.controller.contracts;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.UUID;
+
+/**
+ * Represents a like event published by the Repo-Social service.
+ */
+@AllArgsConstructor
+@Getter
+public class LikeContract {
+    private UUID userId;
+    private UUID postId;
+    private TypeLikes typeLikes;
+}
@@ -0,0 +1,35 @@
+package com.epita.controller.contracts;
+
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Represents one line of a bulk NDJSON post import.
+ * The ID and creation date are optional: when absent, they are generated as for a regular post.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+public class PostImportLine {
+
+    private UUID id;
+
+    private UUID authorId;
+
+    private String text;
+
+    /**
+     * The ID of an already stored media file, if applicable.
+     */
+    private String mediaId;
+
+    private UUID repostId;
+
+    private UUID replyId;
+
+    private LocalDateTime creationDate;
+}
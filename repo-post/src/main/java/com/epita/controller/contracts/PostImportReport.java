@@ -0,0 +1,32 @@
+package com.epita.controller.contracts;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Represents the outcome of a bulk NDJSON post import.
+ */
+@Getter
+@AllArgsConstructor
+public class PostImportReport {
+
+    /**
+     * The number of non-blank lines read.
+     */
+    private long received;
+
+    private long imported;
+
+    private long rejected;
+
+    private long durationMs;
+
+    private double postsPerSecond;
+
+    /**
+     * The first rejection reasons, prefixed by their line number.
+     */
+    private List<String> errors;
+}
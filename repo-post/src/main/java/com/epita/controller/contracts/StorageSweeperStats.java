@@ -0,0 +1,42 @@
+package com.epita.controller.contracts;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Represents the cumulated work of the storage sweeper since the service started.
+ */
+@Getter
+@AllArgsConstructor
+public class StorageSweeperStats {
+
+    private long runs;
+
+    /**
+     * Original media files no post used anymore, deleted with their variants.
+     */
+    private long filesReclaimed;
+
+    /**
+     * Variants left behind by an original file deleted while they were generated.
+     */
+    private long variantsReclaimed;
+
+    private long bytesReclaimed;
+
+    /**
+     * Reply and repost references to deleted posts that were removed.
+     */
+    private long referencesCleared;
+
+    /**
+     * Plain reposts (no text, no media) of deleted posts, deleted with them.
+     */
+    private long repostsDeleted;
+
+    private LocalDateTime lastRunAt;
+
+    private long lastRunDurationMs;
+}
@@ -0,0 +1,6 @@
+package com.epita.controller.contracts;
+
+public enum TypeLikes {
+    LIKE,
+    UNLIKE
+}
@@ -0,0 +1,60 @@
+package com.epita.controller.subscriber;
+
+import com.epita.controller.contracts.LikeContract;
+import com.epita.controller.contracts.TypeLikes;
+import com.epita.service.PostCounterBuffer;
+import com.epita.service.PostCounterReconciler;
+import com.epita.service.entity.PostCounter;
+import io.quarkus.redis.datasource.RedisDataSource;
+import io.quarkus.redis.datasource.pubsub.PubSubCommands;
+import io.quarkus.runtime.Startup;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.function.Consumer;
+
+/**
+ * Subscriber keeping the like counters of posts up to date from the like events of Repo-Social.
+ * Redis pub/sub delivers each event to every subscribed instance, so only the replica running the
+ * {@link PostCounterReconciler} applies them. Events missed meanwhile are healed by the reconciler.
+ */
+@Startup
+@ApplicationScoped
+public class LikeSubscriber implements Consumer<LikeContract> {
+    private static final Logger LOG = LoggerFactory.getLogger(LikeSubscriber.class);
+    private static final String CHANNEL = "queue-likes-events";
+    private final PubSubCommands.RedisSubscriber subscriber;
+
+    @Inject
+    PostCounterBuffer postCounterBuffer;
+
+    @Inject
+    PostCounterReconciler postCounterReconciler;
+
+    public LikeSubscriber(final RedisDataSource ds) {
+        LOG.info("Initializing LikeSubscriber and subscribing to channel: {}", CHANNEL);
+        subscriber = ds
+                .pubsub(LikeContract.class)
+                .subscribe(CHANNEL, this);
+        LOG.info("Successfully subscribed to channel: {}", CHANNEL);
+    }
+
+    @Override
+    public void accept(final LikeContract contract) {
+        LOG.debug("Received {} on post {} from user {}", contract.getTypeLikes(), contract.getPostId(), contract.getUserId());
+        if (!postCounterReconciler.appliesLikeEvents()) {
+            return;
+        }
+        postCounterBuffer.increment(contract.getPostId(), PostCounter.LIKES, contract.getTypeLikes() == TypeLikes.LIKE ? 1 : -1);
+    }
+
+    @PreDestroy
+    public void terminate() {
+        LOG.info("Unsubscribing from channel: {} and terminating LikeSubscriber.", CHANNEL);
+        subscriber.unsubscribe();
+        LOG.info("Successfully unsubscribed from channel: {}", CHANNEL);
+    }
+}
@@ -0,0 +1,110 @@
+package com.epita.repository;
+
+import com.epita.common.command.PostEventCommand;
+import com.epita.repository.entity.OutboxEvent;
+import com.epita.repository.entity.Post;
+import io.smallrye.mutiny.Uni;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Writes the documents of post creations, either one by one or, when group commit is enabled,
+ * in short windows shared by concurrent requests (see {@link GroupCommitter}).
+ * <p>
+ * Group commit trades a few milliseconds of latency for a much higher write throughput under
+ * bursts, since every single write otherwise waits for its own majority acknowledgement.
+ */
+@ApplicationScoped
+public class GroupCommitWriter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GroupCommitWriter.class);
+
+    private static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(5);
+
+    @ConfigProperty(name = "epitweet.group-commit.enabled", defaultValue = "false")
+    boolean enabled;
+
+    @ConfigProperty(name = "epitweet.group-commit.window-millis", defaultValue = "2")
+    long windowMillis;
+
+    @ConfigProperty(name = "epitweet.group-commit.max-batch-size", defaultValue = "500")
+    int maxBatchSize;
+
+    @Inject
+    PostRepository postRepository;
+
+    @Inject
+    OutboxRepository outboxRepository;
+
+    private ScheduledExecutorService timer;
+    private GroupCommitter<Post> posts;
+    private GroupCommitter<OutboxEvent> outboxEvents;
+
+    @PostConstruct
+    void init() {
+        if (!enabled) {
+            return;
+        }
+        timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "group-commit");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Duration window = Duration.ofMillis(windowMillis);
+        posts = new GroupCommitter<>("Posts", postRepository::insertAll, window, maxBatchSize, timer);
+        outboxEvents = new GroupCommitter<>("PostOutbox", outboxRepository::insertAll, window, maxBatchSize, timer);
+        LOGGER.info("Group commit enabled: windows of {} ms, up to {} documents", windowMillis, maxBatchSize);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (!enabled) {
+            return;
+        }
+        // Outbox entries are written before their posts, as in a request.
+        outboxEvents.flush(SHUTDOWN_TIMEOUT);
+        posts.flush(SHUTDOWN_TIMEOUT);
+        timer.shutdown();
+    }
+
+    /**
+     * Appends a post event to the outbox.
+     *
+     * @param command the event to relay.
+     * @return the stored outbox entry.
+     */
+    public Uni<OutboxEvent> appendOutbox(PostEventCommand command) {
+        if (!enabled) {
+            return outboxRepository.append(command);
+        }
+        OutboxEvent event = new OutboxEvent(command);
+        return outboxEvents
+                .submit(event)
+                .replaceWith(event);
+    }
+
+    /**
+     * Inserts a new post.
+     *
+     * @param post the post to insert.
+     * @return the ID of the post.
+     */
+    public Uni<UUID> createPost(Post post) {
+        if (!enabled) {
+            return postRepository.createPost(post);
+        }
+        return posts
+                .submit(post)
+                .replaceWith(post.getId());
+    }
+}
@@ -0,0 +1,177 @@
+package com.epita.repository;
+
+import com.mongodb.bulk.BulkWriteError;
+import io.smallrye.mutiny.Uni;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * Collects concurrent single-document writes into short windows and writes each window with one
+ * bulk insert, so that concurrent requests share a single write acknowledgement.
+ * <p>
+ * A window is written once it is full or once it has been open for the window duration,
+ * whichever comes first. Every writer completes only when the bulk insert holding its document is
+ * acknowledged, with the same write concern as a single insert: durability is unchanged.
+ * A document rejected by the bulk insert fails its own writer only.
+ *
+ * @param <T> the type of the documents.
+ */
+final class GroupCommitter<T> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(GroupCommitter.class);
+
+    private final String name;
+    private final Function<List<T>, Uni<List<BulkWriteError>>> bulkInsert;
+    private final Duration window;
+    private final int maxBatchSize;
+    private final ScheduledExecutorService timer;
+
+    private final Object lock = new Object();
+    private List<PendingWrite<T>> pending = new ArrayList<>();
+    private long windowNumber;
+
+    /**
+     * @param name         the name of the written collection, for logs.
+     * @param bulkInsert   the unordered bulk insert, returning the errors of the rejected documents.
+     * @param window       how long a window stays open after its first document.
+     * @param maxBatchSize the number of documents that closes a window early.
+     * @param timer        the scheduler closing the windows.
+     */
+    GroupCommitter(String name, Function<List<T>, Uni<List<BulkWriteError>>> bulkInsert, Duration window, int maxBatchSize,
+                   ScheduledExecutorService timer) {
+        this.name = name;
+        this.bulkInsert = bulkInsert;
+        this.window = window;
+        this.maxBatchSize = maxBatchSize;
+        this.timer = timer;
+    }
+
+    /**
+     * Adds a document to the current window.
+     *
+     * @param document the document to insert.
+     * @return completes once the document is acknowledged.
+     */
+    Uni<Void> submit(T document) {
+        return Uni
+                .createFrom()
+                .completionStage(() -> enqueue(document));
+    }
+
+    /**
+     * Writes the current window right away, e.g. on shutdown, and waits for its acknowledgement.
+     *
+     * @param timeout how long to wait for the bulk insert to be acknowledged.
+     */
+    void flush(Duration timeout) {
+        List<PendingWrite<T>> batch;
+        synchronized (lock) {
+            batch = closeWindow();
+        }
+        try {
+            write(batch).get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            LOGGER.warn("Group commit of {} documents into {} not acknowledged after {} ms", batch.size(), name, timeout.toMillis());
+        } catch (InterruptedException e) {
+            Thread
+                    .currentThread()
+                    .interrupt();
+        } catch (ExecutionException e) {
+            // Not raised: a failed bulk insert fails the writers of the window, not the window itself.
+        }
+    }
+
+    private CompletableFuture<Void> enqueue(T document) {
+        CompletableFuture<Void> acknowledged = new CompletableFuture<>();
+        List<PendingWrite<T>> fullBatch = null;
+        synchronized (lock) {
+            pending.add(new PendingWrite<>(document, acknowledged));
+            if (pending.size() >= maxBatchSize) {
+                fullBatch = closeWindow();
+            } else if (pending.size() == 1) {
+                long openedWindow = windowNumber;
+                timer.schedule(() -> flushWindow(openedWindow), window.toNanos(), TimeUnit.NANOSECONDS);
+            }
+        }
+        if (fullBatch != null) {
+            write(fullBatch);
+        }
+        return acknowledged;
+    }
+
+    private void flushWindow(long expectedWindow) {
+        List<PendingWrite<T>> batch;
+        synchronized (lock) {
+            // The window may already have been written because it was full.
+            if (windowNumber != expectedWindow) {
+                return;
+            }
+            batch = closeWindow();
+        }
+        write(batch);
+    }
+
+    private List<PendingWrite<T>> closeWindow() {
+        List<PendingWrite<T>> batch = pending;
+        pending = new ArrayList<>();
+        windowNumber++;
+        return batch;
+    }
+
+    /**
+     * @return completes once the bulk insert is over, whether it succeeded or not.
+     */
+    private CompletableFuture<Void> write(List<PendingWrite<T>> batch) {
+        CompletableFuture<Void> written = new CompletableFuture<>();
+        if (batch.isEmpty()) {
+            written.complete(null);
+            return written;
+        }
+        List<T> documents = batch
+                .stream()
+                .map(PendingWrite::document)
+                .toList();
+        bulkInsert
+                .apply(documents)
+                .subscribe()
+                .with(errors -> {
+                    Map<Integer, BulkWriteError> rejected = new HashMap<>();
+                    errors.forEach(error -> rejected.put(error.getIndex(), error));
+                    for (int i = 0; i < batch.size(); i++) {
+                        BulkWriteError error = rejected.get(i);
+                        CompletableFuture<Void> acknowledged = batch
+                                .get(i)
+                                .acknowledged();
+                        if (error == null) {
+                            acknowledged.complete(null);
+                        } else {
+                            acknowledged.completeExceptionally(new RuntimeException("Error while inserting into " + name + ": " + error.getMessage()));
+                        }
+                    }
+                    LOGGER.debug("Group commit of {} documents into {} ({} rejected)", batch.size(), name, errors.size());
+                    written.complete(null);
+                }, e -> {
+                    LOGGER.error("Error while group committing {} documents into {}: {}", batch.size(), name, e.getMessage());
+                    batch.forEach(write -> write
+                            .acknowledged()
+                            .completeExceptionally(e));
+                    written.complete(null);
+                });
+        return written;
+    }
+
+    private record PendingWrite<T>(T document, CompletableFuture<Void> acknowledged) {
+    }
+}
@@ -0,0 +1,92 @@
+package com.epita.repository;
+
+import com.epita.repository.entity.IdempotencyRecord;
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoWriteException;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Updates;
+import io.quarkus.mongodb.panache.reactive.ReactivePanacheMongoRepositoryBase;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@ApplicationScoped
+public class IdempotencyRepository implements ReactivePanacheMongoRepositoryBase<IdempotencyRecord, String> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(IdempotencyRepository.class);
+
+    /**
+     * Reserves a key for a request.
+     * A pending record older than the stale delay belongs to a request that never finished,
+     * e.g. because its instance crashed: it is taken over by a request with the same fingerprint.
+     *
+     * @param id          the scoped key.
+     * @param fingerprint the fingerprint of the request.
+     * @param staleAfter  the delay after which a pending record can be taken over.
+     * @return null if the key is now reserved for this request, the existing record otherwise.
+     */
+    public Uni<IdempotencyRecord> reserve(String id, String fingerprint, Duration staleAfter) {
+        return persist(new IdempotencyRecord(id, fingerprint))
+                .map(reserved -> (IdempotencyRecord) null)
+                .onFailure(IdempotencyRepository::isDuplicateKey)
+                .recoverWithUni(() -> mongoCollection()
+                        .findOneAndUpdate(
+                                Filters.and(
+                                        Filters.eq("_id", id),
+                                        Filters.eq("status", IdempotencyRecord.Status.PENDING.name()),
+                                        Filters.eq("fingerprint", fingerprint),
+                                        Filters.lt("createdAt", LocalDateTime
+                                                .now()
+                                                .minus(staleAfter))),
+                                Updates.set("createdAt", LocalDateTime.now()))
+                        .flatMap(takenOver -> {
+                            if (takenOver != null) {
+                                LOGGER.warn("Taking over stale idempotency key {}", id);
+                                return Uni
+                                        .createFrom()
+                                        .nullItem();
+                            }
+                            // The holder may have released the key in the meantime: try to reserve it again.
+                            return findById(id).flatMap(existing -> existing != null ? Uni
+                                    .createFrom()
+                                    .item(existing) : reserve(id, fingerprint, staleAfter));
+                        }));
+    }
+
+    /**
+     * Records the outcome of a request.
+     *
+     * @param id     the scoped key.
+     * @param postId the ID of the created post.
+     */
+    public Uni<Void> complete(String id, UUID postId) {
+        return mongoCollection()
+                .updateOne(Filters.eq("_id", id), Updates.combine(
+                        Updates.set("status", IdempotencyRecord.Status.COMPLETED.name()),
+                        Updates.set("postId", postId)))
+                .replaceWithVoid();
+    }
+
+    /**
+     * Frees a key whose request failed, so that a retry can run it again.
+     *
+     * @param id the scoped key.
+     */
+    public Uni<Void> release(String id) {
+        return mongoCollection()
+                .deleteOne(Filters.and(Filters.eq("_id", id), Filters.eq("status", IdempotencyRecord.Status.PENDING.name())))
+                .replaceWithVoid();
+    }
+
+    private static boolean isDuplicateKey(Throwable e) {
+        return e instanceof MongoWriteException writeException
+                && writeException
+                .getError()
+                .getCategory() == ErrorCategory.DUPLICATE_KEY;
+    }
+}
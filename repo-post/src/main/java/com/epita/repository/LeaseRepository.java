@@ -0,0 +1,82 @@
+package com.epita.repository;
+
+import com.epita.repository.entity.Lease;
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoCommandException;
+import com.mongodb.MongoWriteException;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.Updates;
+import io.quarkus.mongodb.panache.reactive.ReactivePanacheMongoRepositoryBase;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+@ApplicationScoped
+public class LeaseRepository implements ReactivePanacheMongoRepositoryBase<Lease, String> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LeaseRepository.class);
+
+    /**
+     * Takes a lease, or renews it if the owner already holds it.
+     *
+     * @param name     the name of the locked resource.
+     * @param owner    the identifier of the instance taking the lease.
+     * @param duration how long the lease is held without being renewed.
+     * @return true if the owner now holds the lease, false if another owner holds it.
+     */
+    public Uni<Boolean> acquire(String name, String owner, Duration duration) {
+        LocalDateTime now = LocalDateTime.now();
+        // Upserting a lease held by another owner collides with it on _id.
+        return mongoCollection()
+                .findOneAndUpdate(
+                        Filters.and(Filters.eq("_id", name), Filters.or(Filters.eq("owner", owner), Filters.lt("expiresAt", now))),
+                        Updates.combine(Updates.set("owner", owner), Updates.set("expiresAt", now.plus(duration))),
+                        new FindOneAndUpdateOptions()
+                                .upsert(true)
+                                .returnDocument(ReturnDocument.AFTER))
+                .map(lease -> true)
+                .onFailure(LeaseRepository::isDuplicateKey)
+                .recoverWithItem(() -> {
+                    LOGGER.debug("Lease {} is held by another instance", name);
+                    return false;
+                });
+    }
+
+    /**
+     * Gives a lease up, if the owner still holds it.
+     *
+     * @param name  the name of the locked resource.
+     * @param owner the identifier of the instance holding the lease.
+     */
+    public Uni<Void> release(String name, String owner) {
+        return mongoCollection()
+                .deleteOne(Filters.and(Filters.eq("_id", name), Filters.eq("owner", owner)))
+                .replaceWithVoid();
+    }
+
+    /**
+     * @param prefix the prefix of the lease names.
+     * @return true if a lease whose name starts with the prefix is held by any instance.
+     */
+    public Uni<Boolean> anyHeld(String prefix) {
+        return mongoCollection()
+                .countDocuments(Filters.and(Filters.regex("_id", "^" + prefix), Filters.gt("expiresAt", LocalDateTime.now())))
+                .map(held -> held > 0);
+    }
+
+    private static boolean isDuplicateKey(Throwable e) {
+        if (e instanceof MongoWriteException writeException) {
+            return writeException
+                    .getError()
+                    .getCategory() == ErrorCategory.DUPLICATE_KEY;
+        }
+        return e instanceof MongoCommandException commandException
+                && ErrorCategory.fromErrorCode(commandException.getErrorCode()) == ErrorCategory.DUPLICATE_KEY;
+    }
+}
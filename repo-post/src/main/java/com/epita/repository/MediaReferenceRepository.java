@@ -0,0 +1,173 @@
+package com.epita.repository;
+
+import com.epita.repository.entity.MediaReference;
+import com.mongodb.ErrorCategory;
+import com.mongodb.MongoWriteException;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+import io.quarkus.mongodb.panache.reactive.ReactivePanacheMongoRepositoryBase;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@ApplicationScoped
+public class MediaReferenceRepository implements ReactivePanacheMongoRepositoryBase<MediaReference, String> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MediaReferenceRepository.class);
+
+    private static final FindOneAndUpdateOptions RETURN_AFTER = new FindOneAndUpdateOptions().returnDocument(ReturnDocument.AFTER);
+
+    /**
+     * Atomically takes one more reference on the content with the given hash.
+     *
+     * @param hash the content hash.
+     * @return the updated reference, or null if this content is not stored yet.
+     */
+    public Uni<MediaReference> acquire(String hash) {
+        return mongoCollection().findOneAndUpdate(
+                Filters.eq("_id", hash),
+                Updates.combine(Updates.inc("refCount", 1), Updates.set("lastAcquiredAt", LocalDateTime.now())),
+                RETURN_AFTER);
+    }
+
+    /**
+     * Atomically takes references on GridFS files in a single unordered bulk write, e.g. for imported posts.
+     *
+     * @param counts the number of references to take, by GridFS file ID.
+     * @return the IDs of the files that are reference-counted: no reference is taken on the others.
+     */
+    public Uni<Set<String>> acquireAll(Map<String, Integer> counts) {
+        if (counts.isEmpty()) {
+            return Uni
+                    .createFrom()
+                    .item(Set.of());
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<WriteModel<MediaReference>> increments = counts
+                .entrySet()
+                .stream()
+                .<WriteModel<MediaReference>>map(count -> new UpdateOneModel<>(
+                        Filters.eq("fileId", count.getKey()),
+                        Updates.combine(Updates.inc("refCount", count.getValue()), Updates.set("lastAcquiredAt", now))))
+                .toList();
+        // Read back once incremented: a reference found now can no longer be removed as unused.
+        return mongoCollection()
+                .bulkWrite(increments, new BulkWriteOptions().ordered(false))
+                .flatMap(result -> mongoCollection()
+                        .find(Filters.in("fileId", counts.keySet()))
+                        .map(MediaReference::getFileId)
+                        .collect()
+                        .in(HashSet<String>::new, Set::add)
+                        .onFailure()
+                        .call(() -> releaseAll(counts)));
+    }
+
+    /**
+     * Atomically drops references on GridFS files in a single unordered bulk write.
+     * Files left without references are reclaimed by the storage sweeper.
+     *
+     * @param counts the number of references to drop, by GridFS file ID.
+     */
+    public Uni<Void> releaseAll(Map<String, Integer> counts) {
+        if (counts.isEmpty()) {
+            return Uni
+                    .createFrom()
+                    .voidItem();
+        }
+        List<WriteModel<MediaReference>> decrements = counts
+                .entrySet()
+                .stream()
+                .<WriteModel<MediaReference>>map(count -> new UpdateOneModel<>(
+                        Filters.eq("fileId", count.getKey()),
+                        Updates.inc("refCount", -count.getValue())))
+                .toList();
+        return mongoCollection()
+                .bulkWrite(decrements, new BulkWriteOptions().ordered(false))
+                .replaceWithVoid();
+    }
+
+    /**
+     * Registers freshly uploaded content with a single reference.
+     *
+     * @param reference the reference to insert.
+     * @return false if another upload registered the same hash first.
+     */
+    public Uni<Boolean> register(MediaReference reference) {
+        return persist(reference)
+                .map(persisted -> {
+                    LOGGER.info("Media reference created for hash {}", reference.getHash());
+                    return true;
+                })
+                .onFailure(MediaReferenceRepository::isDuplicateKey)
+                .recoverWithItem(() -> {
+                    LOGGER.info("Media reference for hash {} already registered", reference.getHash());
+                    return false;
+                });
+    }
+
+    /**
+     * Atomically drops one reference on the given GridFS file.
+     *
+     * @param fileId the GridFS file ID.
+     * @return the updated reference, or null if the file is not reference-counted.
+     */
+    public Uni<MediaReference> release(String fileId) {
+        return mongoCollection().findOneAndUpdate(
+                Filters.eq("fileId", fileId),
+                Updates.inc("refCount", -1),
+                RETURN_AFTER);
+    }
+
+    /**
+     * Removes the reference if nobody re-acquired it in the meantime.
+     *
+     * @param hash the content hash.
+     * @return true if the reference was removed and the underlying file can be deleted.
+     */
+    public Uni<Boolean> removeIfUnused(String hash) {
+        return mongoCollection()
+                .deleteOne(Filters.and(Filters.eq("_id", hash), Filters.lte("refCount", 0)))
+                .map(result -> result.getDeletedCount() > 0);
+    }
+
+    /**
+     * Removes the reference of a file no post uses, unless it was acquired recently.
+     *
+     * @param fileId         the GridFS file ID.
+     * @param acquiredBefore the reference is kept if it was acquired at or after this date.
+     * @return true if the file has no reference anymore and can be deleted.
+     */
+    public Uni<Boolean> removeIfIdle(String fileId, LocalDateTime acquiredBefore) {
+        return mongoCollection()
+                .deleteOne(Filters.and(Filters.eq("fileId", fileId), Filters.not(Filters.gte("lastAcquiredAt", acquiredBefore))))
+                .flatMap(result -> {
+                    if (result.getDeletedCount() > 0) {
+                        LOGGER.info("Removed idle media reference for file {}", fileId);
+                        return Uni
+                                .createFrom()
+                                .item(true);
+                    }
+                    // Nothing removed: either the file was never registered, or it is in use again.
+                    return count("fileId", fileId).map(remaining -> remaining == 0);
+                });
+    }
+
+    private static boolean isDuplicateKey(Throwable e) {
+        return e instanceof MongoWriteException writeException
+                && writeException
+                .getError()
+                .getCategory() == ErrorCategory.DUPLICATE_KEY;
+    }
+}
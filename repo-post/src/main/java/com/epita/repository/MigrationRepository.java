@@ -0,0 +1,29 @@
+package com.epita.repository;
+
+import com.epita.repository.entity.Migration;
+import io.quarkus.mongodb.panache.reactive.ReactivePanacheMongoRepositoryBase;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+
+@ApplicationScoped
+public class MigrationRepository implements ReactivePanacheMongoRepositoryBase<Migration, String> {
+
+    /**
+     * @param name the name of the migration.
+     * @return true if the migration was already applied.
+     */
+    public Uni<Boolean> isApplied(String name) {
+        return findById(name)
+                .map(migration -> migration != null);
+    }
+
+    /**
+     * Records a migration as applied.
+     *
+     * @param name the name of the migration.
+     */
+    public Uni<Void> markApplied(String name) {
+        return persist(new Migration(name))
+                .replaceWithVoid();
+    }
+}
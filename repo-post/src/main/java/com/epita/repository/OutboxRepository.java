@@ -0,0 +1,180 @@
+package com.epita.repository;
+
+import com.epita.common.command.PostEventCommand;
+import com.epita.repository.entity.OutboxEvent;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.Updates;
+import io.quarkus.mongodb.FindOptions;
+import io.quarkus.mongodb.panache.reactive.ReactivePanacheMongoRepositoryBase;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@ApplicationScoped
+public class OutboxRepository implements ReactivePanacheMongoRepositoryBase<OutboxEvent, ObjectId> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OutboxRepository.class);
+
+    /**
+     * Appends a post event to the outbox.
+     *
+     * @param command the event to relay.
+     * @return the stored outbox entry.
+     */
+    public Uni<OutboxEvent> append(PostEventCommand command) {
+        return persist(new OutboxEvent(command))
+                .invoke(event -> LOGGER.info("Outbox event {} appended for post {}", event.getType(), event.getPostId()))
+                .onFailure()
+                .transform(e -> {
+                    LOGGER.error("Error while appending outbox event: {}", e.getMessage());
+                    return new RuntimeException("Error while appending outbox event: " + e.getMessage(), e);
+                });
+    }
+
+    /**
+     * Appends a batch of post events to the outbox in a single round trip.
+     * The entries are created already leased to the given owner, so that relays leave them
+     * alone until the owner either releases or completes them, or the lease expires.
+     *
+     * @param commands the events to relay.
+     * @param owner    the identifier of the writer holding the entries.
+     * @param lease    how long the entries stay reserved to this owner.
+     * @return the stored outbox entries, in the order of the commands.
+     */
+    public Uni<List<OutboxEvent>> appendAll(List<PostEventCommand> commands, String owner, Duration lease) {
+        LocalDateTime lockedUntil = LocalDateTime
+                .now()
+                .plus(lease);
+        List<OutboxEvent> events = commands
+                .stream()
+                .map(command -> {
+                    OutboxEvent event = new OutboxEvent(command);
+                    event.setLockedBy(owner);
+                    event.setLockedUntil(lockedUntil);
+                    return event;
+                })
+                .collect(Collectors.toList());
+        if (events.isEmpty()) {
+            return Uni
+                    .createFrom()
+                    .item(events);
+        }
+        return mongoCollection()
+                .insertMany(events)
+                .map(result -> events)
+                .invoke(() -> LOGGER.info("{} outbox events appended", events.size()));
+    }
+
+    /**
+     * Inserts prepared outbox entries in a single unordered round trip: one failed entry does not
+     * prevent the others from being inserted.
+     *
+     * @param events the entries to insert.
+     * @return the errors of the entries that could not be inserted, empty if all were.
+     */
+    public Uni<List<BulkWriteError>> insertAll(List<OutboxEvent> events) {
+        return mongoCollection()
+                .insertMany(events, new InsertManyOptions().ordered(false))
+                .map(result -> List.<BulkWriteError>of())
+                .onFailure(MongoBulkWriteException.class)
+                .recoverWithItem(e -> {
+                    List<BulkWriteError> errors = ((MongoBulkWriteException) e).getWriteErrors();
+                    LOGGER.warn("{} of {} outbox events could not be appended", errors.size(), events.size());
+                    return errors;
+                });
+    }
+
+    /**
+     * Releases entries held by their writer or by a relay, making them claimable by the relays again.
+     *
+     * @param ids the IDs of the entries.
+     */
+    public Uni<Void> release(List<ObjectId> ids) {
+        if (ids.isEmpty()) {
+            return Uni
+                    .createFrom()
+                    .voidItem();
+        }
+        return mongoCollection()
+                .updateMany(Filters.in("_id", ids), Updates.combine(Updates.unset("lockedBy"), Updates.unset("lockedUntil")))
+                .replaceWithVoid();
+    }
+
+    /**
+     * Leases the oldest pending entries to a relay instance, so that concurrent relays
+     * running on other replicas do not publish the same events.
+     *
+     * @param owner the identifier of the relay instance.
+     * @param size  the maximum number of entries to lease.
+     * @param lease how long the entries stay reserved to this owner.
+     * @return the leased entries, oldest first.
+     */
+    public Uni<List<OutboxEvent>> claimBatch(String owner, int size, Duration lease) {
+        LocalDateTime now = LocalDateTime.now();
+        Bson claimable = Filters.and(
+                Filters.eq("status", OutboxEvent.Status.PENDING.name()),
+                Filters.or(Filters.eq("lockedUntil", null), Filters.lt("lockedUntil", now)));
+
+        return mongoCollection()
+                .find(claimable, new FindOptions()
+                        .projection(Projections.include("_id"))
+                        .sort(Sorts.ascending("_id"))
+                        .limit(size))
+                .map(OutboxEvent::getId)
+                .collect()
+                .asList()
+                .flatMap(candidates -> {
+                    if (candidates.isEmpty()) {
+                        return Uni
+                                .createFrom()
+                                .item(List.<OutboxEvent>of());
+                    }
+                    return mongoCollection()
+                            .updateMany(
+                                    Filters.and(Filters.in("_id", candidates), claimable),
+                                    Updates.combine(Updates.set("lockedBy", owner), Updates.set("lockedUntil", now.plus(lease))))
+                            .flatMap(claimed -> mongoCollection()
+                                    .find(Filters.and(Filters.in("_id", candidates), Filters.eq("lockedBy", owner), Filters.gt("lockedUntil", now)),
+                                            new FindOptions().sort(Sorts.ascending("_id")))
+                                    .collect()
+                                    .asList());
+                });
+    }
+
+    /**
+     * Marks entries as processed, either sent or aborted.
+     *
+     * @param ids    the IDs of the entries.
+     * @param status the final status of the entries.
+     */
+    public Uni<Void> complete(List<ObjectId> ids, OutboxEvent.Status status) {
+        if (ids.isEmpty()) {
+            return Uni
+                    .createFrom()
+                    .voidItem();
+        }
+        return mongoCollection()
+                .updateMany(
+                        Filters.in("_id", ids),
+                        Updates.combine(
+                                Updates.set("status", status.name()),
+                                Updates.set("processedAt", LocalDateTime.now()),
+                                Updates.unset("lockedBy"),
+                                Updates.unset("lockedUntil")))
+                .invoke(() -> LOGGER.debug("{} outbox events marked as {}", ids.size(), status))
+                .replaceWithVoid();
+    }
+}
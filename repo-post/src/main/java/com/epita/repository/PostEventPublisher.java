@@ -2,11 +2,14 @@ package com.epita.repository;
 
 import com.epita.common.command.PostEventCommand;
 import jakarta.enterprise.context.ApplicationScoped;
-import io.quarkus.redis.datasource.RedisDataSource;
-import io.quarkus.redis.datasource.pubsub.PubSubCommands;
+import io.quarkus.redis.datasource.ReactiveRedisDataSource;
+import io.smallrye.mutiny.Uni;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
+import java.util.List;
+
 /**
  * Publisher for post events.
  * This class is responsible for publishing post events to a Redis channel.
@@ -15,16 +18,40 @@ import org.slf4j.LoggerFactory;
 public class PostEventPublisher {
     private static final String CHANNEL = "post_events";
 
+    private static final Duration BATCH_TIMEOUT = Duration.ofSeconds(10);
+
     private static final Logger LOG = LoggerFactory.getLogger(PostEventPublisher.class);
 
-    private final PubSubCommands<PostEventCommand> publisher;
+    private final ReactiveRedisDataSource reactiveDs;
 
-    public PostEventPublisher(final RedisDataSource ds) {
-        publisher = ds.pubsub(PostEventCommand.class);
+    public PostEventPublisher(final ReactiveRedisDataSource reactiveDs) {
+        this.reactiveDs = reactiveDs;
     }
 
-    public void publish(final PostEventCommand message) {
-        LOG.info("Publishing post event: {}", message);
-        publisher.publish(CHANNEL, message);
+    /**
+     * Publishes several events in one pipelined round trip.
+     * All commands go through the same connection, so subscribers receive them in order.
+     *
+     * @param messages the events to publish, in order.
+     */
+    public void publishAll(final List<PostEventCommand> messages) {
+        if (messages.isEmpty()) {
+            return;
+        }
+        LOG.info("Publishing {} post events", messages.size());
+        reactiveDs
+                .withConnection(connection -> {
+                    var pubsub = connection.pubsub(PostEventCommand.class);
+                    return Uni
+                            .join()
+                            .all(messages
+                                    .stream()
+                                    .map(message -> pubsub.publish(CHANNEL, message))
+                                    .toList())
+                            .andFailFast()
+                            .replaceWithVoid();
+                })
+                .await()
+                .atMost(BATCH_TIMEOUT);
     }
 }
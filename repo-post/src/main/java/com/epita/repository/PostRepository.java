@@ -1,47 +1,320 @@
 package com.epita.repository;
 
 import com.epita.repository.entity.Post;
-import io.quarkus.mongodb.panache.PanacheMongoRepositoryBase;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.model.Accumulators;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Field;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.model.MergeOptions;
+import com.mongodb.client.model.UpdateManyModel;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
+import io.quarkus.mongodb.FindOptions;
+import io.quarkus.mongodb.panache.reactive.ReactivePanacheMongoRepositoryBase;
+import io.quarkus.mongodb.reactive.ReactiveMongoClient;
+import io.smallrye.mutiny.Uni;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import mutiny.zero.flow.adapters.AdaptersToFlow;
+import org.bson.Document;
+import org.bson.conversions.Bson;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 @ApplicationScoped
-public class PostRepository implements PanacheMongoRepositoryBase<Post, UUID> {
+public class PostRepository implements ReactivePanacheMongoRepositoryBase<Post, UUID> {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(PostRepository.class);
 
-    public boolean deletePost(UUID postId) {
+    @Inject
+    ReactiveMongoClient mongoClient;
+
+    public Uni<Boolean> deletePost(UUID postId) {
         return deleteById(postId);
     }
 
-    public UUID createPost(Post post) {
-        try {
-            persist(post);
-            LOGGER.info("Post created");
-            return post.getId();
-        } catch (Exception e) {
-            LOGGER.error("Error while creating post: {}", e.getMessage());
-            throw new RuntimeException("Error while creating post: " + e.getMessage(), e);
-        }
+    public Uni<UUID> createPost(Post post) {
+        return persist(post)
+                .map(persisted -> {
+                    LOGGER.info("Post created");
+                    return persisted.getId();
+                })
+                .onFailure()
+                .transform(e -> {
+                    LOGGER.error("Error while creating post: {}", e.getMessage());
+                    return new RuntimeException("Error while creating post: " + e.getMessage(), e);
+                });
     }
 
-    public List<Post> getUserPosts(UUID userId) {
+    public Uni<List<Post>> getUserPosts(UUID userId) {
         return list("authorId", userId);
     }
 
-    public Post getPostById(UUID postId) {
+    public Uni<Post> getPostById(UUID postId) {
         return find("_id", postId).firstResult();
     }
 
-    public List<Post> getPostReplies(UUID postId) {
+    public Uni<List<Post>> getPostReplies(UUID postId) {
         return list("replyId", postId);
     }
 
-    public List<Post> getPostReposts(UUID postId) {
+    public Uni<List<Post>> getPostReposts(UUID postId) {
         return list("repostId", postId);
     }
+
+    /**
+     * Resolves the reply tree of a post breadth-first, with one query on the replyId index per depth level.
+     * Each level only reads the replies still fitting in the limit, so that the shallowest replies are kept.
+     *
+     * @param rootId   the UUID of the root post.
+     * @param maxDepth the maximum depth of the replies, 1 for direct replies only.
+     * @param maxSize  the maximum number of replies.
+     * @return the replies of the tree, root excluded, sorted by depth then creation date.
+     */
+    public Uni<List<Post>> getThreadReplies(UUID rootId, int maxDepth, int maxSize) {
+        Set<UUID> seen = new HashSet<>();
+        seen.add(rootId);
+        return getThreadReplies(List.of(rootId), maxDepth, maxSize, seen, new ArrayList<>());
+    }
+
+    private Uni<List<Post>> getThreadReplies(List<UUID> parentIds, int remainingDepth, int maxSize, Set<UUID> seen, List<Post> replies) {
+        if (parentIds.isEmpty() || remainingDepth == 0 || replies.size() >= maxSize) {
+            return Uni
+                    .createFrom()
+                    .item(replies);
+        }
+        return mongoCollection()
+                .find(Filters.in("replyId", parentIds), new FindOptions()
+                        .sort(Sorts.ascending("creationDate"))
+                        .limit(maxSize - replies.size()))
+                .collect()
+                .asList()
+                .flatMap(level -> {
+                    // Skipping posts already seen guards against replyId cycles, e.g. from imported posts.
+                    List<Post> newReplies = level
+                            .stream()
+                            .filter(reply -> seen.add(reply.getId()))
+                            .toList();
+                    replies.addAll(newReplies);
+                    return getThreadReplies(newReplies
+                            .stream()
+                            .map(Post::getId)
+                            .toList(), remainingDepth - 1, maxSize, seen, replies);
+                });
+    }
+
+    public Uni<Set<UUID>> getExistingPostIds(Collection<UUID> postIds) {
+        return mongoCollection()
+                .find(Filters.in("_id", postIds), new FindOptions().projection(Projections.include("_id")))
+                .map(Post::getId)
+                .collect()
+                .in(HashSet::new, Set::add);
+    }
+
+    /**
+     * @param postIds the UUIDs of the posts.
+     * @return the UUID of the author of each post found, by post UUID.
+     */
+    public Uni<Map<UUID, UUID>> getAuthorIds(Collection<UUID> postIds) {
+        return mongoCollection()
+                .find(Filters.in("_id", postIds), new FindOptions().projection(Projections.include("_id", "authorId")))
+                .collect()
+                .asMap(Post::getId, Post::getAuthorId);
+    }
+
+    /**
+     * Inserts a batch of posts in a single unordered round trip: one invalid post does not prevent
+     * the others from being inserted.
+     *
+     * @param posts the posts to insert.
+     * @return the errors of the posts that could not be inserted, empty if all were.
+     */
+    public Uni<List<BulkWriteError>> insertAll(List<Post> posts) {
+        if (posts.isEmpty()) {
+            return Uni
+                    .createFrom()
+                    .item(List.of());
+        }
+        return mongoCollection()
+                .insertMany(posts, new InsertManyOptions().ordered(false))
+                .map(result -> List.<BulkWriteError>of())
+                .onFailure(MongoBulkWriteException.class)
+                .recoverWithItem(e -> {
+                    List<BulkWriteError> errors = ((MongoBulkWriteException) e).getWriteErrors();
+                    LOGGER.warn("{} of {} posts could not be inserted", errors.size(), posts.size());
+                    return errors;
+                });
+    }
+
+    /**
+     * Applies counter increments to many posts in a single unordered bulk write.
+     * Posts that no longer exist are ignored.
+     *
+     * @param increments for each post, the increment of each counter field.
+     */
+    public Uni<Void> incrementCounters(Map<UUID, Map<String, Long>> increments) {
+        if (increments.isEmpty()) {
+            return Uni
+                    .createFrom()
+                    .voidItem();
+        }
+        List<WriteModel<Post>> updates = increments
+                .entrySet()
+                .stream()
+                .<WriteModel<Post>>map(entry -> {
+                    List<Bson> fieldIncrements = entry
+                            .getValue()
+                            .entrySet()
+                            .stream()
+                            .map(field -> Updates.inc(field.getKey(), field.getValue()))
+                            .toList();
+                    return new UpdateOneModel<>(Filters.eq("_id", entry.getKey()), Updates.combine(fieldIncrements));
+                })
+                .toList();
+        return mongoCollection()
+                .bulkWrite(updates, new BulkWriteOptions().ordered(false))
+                .invoke(result -> LOGGER.debug("Counters updated on {} posts", result.getModifiedCount()))
+                .replaceWithVoid();
+    }
+
+    /**
+     * Sets the like counters of many posts in a single unordered bulk write.
+     * Posts that no longer exist, or whose counter is already right, are left untouched.
+     *
+     * @param likeCounts the number of likes of each post.
+     * @return the number of posts whose counter was corrected.
+     */
+    public Uni<Long> setLikeCounts(Map<UUID, Long> likeCounts) {
+        if (likeCounts.isEmpty()) {
+            return Uni
+                    .createFrom()
+                    .item(0L);
+        }
+        List<WriteModel<Post>> updates = likeCounts
+                .entrySet()
+                .stream()
+                .<WriteModel<Post>>map(entry -> new UpdateOneModel<>(
+                        Filters.and(Filters.eq("_id", entry.getKey()), Filters.ne("likeCount", entry.getValue())),
+                        Updates.set("likeCount", entry.getValue())))
+                .toList();
+        return mongoCollection()
+                .bulkWrite(updates, new BulkWriteOptions().ordered(false))
+                .map(result -> (long) result.getModifiedCount());
+    }
+
+    /**
+     * Recomputes the reply and repost counters of every post from the posts referencing it, e.g.
+     * for posts created before the counters existed. Each counter is computed by one aggregation
+     * merged back into the posts, without loading them in the service.
+     */
+    public Uni<Void> recomputeReferenceCounters() {
+        return recomputeCounter("replyId", "replyCount")
+                .chain(() -> recomputeCounter("repostId", "repostCount"));
+    }
+
+    private Uni<Void> recomputeCounter(String referenceField, String counterField) {
+        List<Bson> pipeline = List.of(
+                Aggregates.match(Filters.ne(referenceField, null)),
+                Aggregates.group("$" + referenceField, Accumulators.sum("count", 1)),
+                Aggregates.merge(mongoCollection()
+                        .getNamespace()
+                        .getCollectionName(), new MergeOptions()
+                        .whenMatched(MergeOptions.WhenMatched.PIPELINE)
+                        .whenMatchedPipeline(List.of(Aggregates.set(new Field<>(counterField, "$$new.count"))))
+                        .whenNotMatched(MergeOptions.WhenNotMatched.DISCARD)));
+        // Run as a write: iterating the aggregation would read the whole target collection back.
+        return Uni
+                .createFrom()
+                .publisher(AdaptersToFlow.publisher(mongoClient
+                        .unwrap()
+                        .getDatabase(mongoDatabase().getName())
+                        .getCollection(mongoCollection()
+                                .getNamespace()
+                                .getCollectionName())
+                        .aggregate(pipeline)
+                        .toCollection()))
+                .replaceWithVoid()
+                .invoke(() -> LOGGER.info("Recomputed {} of all posts", counterField));
+    }
+
+    /**
+     * Lists post IDs in ID order.
+     *
+     * @param after resume after this post ID, or null to start from the first post.
+     * @param limit the maximum number of IDs.
+     * @return the post IDs.
+     */
+    public Uni<List<UUID>> getPostIds(UUID after, int limit) {
+        return mongoCollection()
+                .find(after == null ? new Document() : Filters.gt("_id", after), new FindOptions()
+                        .projection(Projections.include("_id"))
+                        .sort(Sorts.ascending("_id"))
+                        .limit(limit))
+                .map(Post::getId)
+                .collect()
+                .asList();
+    }
+
+    /**
+     * Checks which of the given media files are used by a post.
+     *
+     * @param mediaIds the IDs of the media files.
+     * @return the IDs of the media files used by at least one post.
+     */
+    public Uni<Set<String>> getReferencedMediaIds(Collection<String> mediaIds) {
+        return mongoCollection()
+                .find(Filters.in("mediaFileId", mediaIds), new FindOptions().projection(Projections.include("mediaFileId")))
+                .map(Post::getMediaFileId)
+                .collect()
+                .in(HashSet::new, Set::add);
+    }
+
+    /**
+     * Lists, in ID order, the posts replying to or reposting another post.
+     *
+     * @param after resume after this post ID, or null to start from the first post.
+     * @param limit the maximum number of posts.
+     * @return the posts with a reply or repost reference.
+     */
+    public Uni<List<Post>> getPostsWithReferences(UUID after, int limit) {
+        Bson withReference = Filters.or(Filters.ne("replyId", null), Filters.ne("repostId", null));
+        Bson filter = after == null ? withReference : Filters.and(Filters.gt("_id", after), withReference);
+        return mongoCollection()
+                .find(filter, new FindOptions()
+                        .sort(Sorts.ascending("_id"))
+                        .limit(limit))
+                .collect()
+                .asList();
+    }
+
+    /**
+     * Removes the reply and repost references of posts to posts that do not exist anymore.
+     *
+     * @param postIds    the posts holding the references.
+     * @param missingIds the posts that do not exist anymore.
+     * @return the number of references removed.
+     */
+    public Uni<Long> clearDanglingReferences(Collection<UUID> postIds, Collection<UUID> missingIds) {
+        List<WriteModel<Post>> updates = List.of(
+                new UpdateManyModel<>(Filters.and(Filters.in("_id", postIds), Filters.in("replyId", missingIds)), Updates.unset("replyId")),
+                new UpdateManyModel<>(Filters.and(Filters.in("_id", postIds), Filters.in("repostId", missingIds)), Updates.unset("repostId")));
+        return mongoCollection()
+                .bulkWrite(updates, new BulkWriteOptions().ordered(false))
+                .map(result -> (long) result.getModifiedCount());
+    }
 }
@@ -1,64 +1,100 @@
 package com.epita.repository;
 
-import com.epita.common.api.response.BlockedUserIdResponse;
+import com.epita.common.api.response.BlockStatusResponse;
+import com.epita.common.api.response.PostCountsResponse;
+import com.epita.common.utils.ExpiringCache;
+import io.smallrye.mutiny.Uni;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.ws.rs.WebApplicationException;
 import jakarta.ws.rs.client.Client;
 import jakarta.ws.rs.client.ClientBuilder;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
 import java.util.UUID;
 
 @ApplicationScoped
 public class RepoSocialRestClient {
     private static final String REPO_SOCIAL_URL = "http://repo-social/api/repo-social";
 
+    /**
+     * How long a block check is trusted: a block or unblock may take this long to affect new posts.
+     */
+    private static final Duration BLOCK_STATUS_TTL = Duration.ofSeconds(5);
+    private static final int BLOCK_STATUS_CACHE_SIZE = 10_000;
+
     private final Client client = ClientBuilder.newClient();
 
-    private static final Logger LOG = LoggerFactory.getLogger(RepoSocialRestClient.class);
+    /**
+     * Block checks by unordered pair of users: blocks are checked in both directions, so (A, B)
+     * and (B, A) share the same answer.
+     */
+    private final ExpiringCache<String, Boolean> blockStatusCache = new ExpiringCache<>(BLOCK_STATUS_CACHE_SIZE);
 
-    public boolean doesUserBlock(UUID userId, UUID blockedUserId) {
-        try {
-            LOG.info("Checking if user {} blocks user {}", userId, blockedUserId);
-            BlockedUserIdResponse[] blockedUsers = client
-                    .target(REPO_SOCIAL_URL + "/users/" + userId + "/blocks")
-                    .request(MediaType.APPLICATION_JSON)
-                    .get(BlockedUserIdResponse[].class);
+    private static final Logger LOG = LoggerFactory.getLogger(RepoSocialRestClient.class);
 
-            for (BlockedUserIdResponse blockedUser : blockedUsers) {
-                if (blockedUser
-                        .getBlockedUserId()
-                        .equals(blockedUserId)) {
-                    return true;
-                }
-            }
-            return false;
-        } catch (Exception e) {
-            LOG.error("Error while checking if user {} blocks user {}", userId, blockedUserId, e);
-            throw e;
+    /**
+     * Checks whether there is a block between two users, in either direction.
+     *
+     * @param userId      the UUID of the first user.
+     * @param otherUserId the UUID of the second user.
+     * @return true if one of the users blocks the other.
+     */
+    public Uni<Boolean> isBlockedEitherWay(UUID userId, UUID otherUserId) {
+        String pair = userId.compareTo(otherUserId) <= 0 ? userId + ":" + otherUserId : otherUserId + ":" + userId;
+        Boolean cached = blockStatusCache.get(pair);
+        if (cached != null) {
+            LOG.debug("Block between users {} and {} found in cache: {}", userId, otherUserId, cached);
+            return Uni
+                    .createFrom()
+                    .item(cached);
         }
-    }
 
-    public boolean isUserBlocked(UUID userId, UUID blockedUserId) {
-        try {
-            LOG.info("Checking if user {} is blocked by user {}", userId, blockedUserId);
-            BlockedUserIdResponse[] blockedUsers = client
-                    .target(REPO_SOCIAL_URL + "/users/" + userId + "/blocked")
-                    .request(MediaType.APPLICATION_JSON)
-                    .get(BlockedUserIdResponse[].class);
+        LOG.info("Checking if users {} and {} block each other", userId, otherUserId);
+        return Uni
+                .createFrom()
+                .completionStage(() -> client
+                        .target(REPO_SOCIAL_URL + "/users/" + userId + "/block-status/" + otherUserId)
+                        .request(MediaType.APPLICATION_JSON)
+                        .rx()
+                        .get(BlockStatusResponse.class))
+                .map(BlockStatusResponse::isEitherBlocked)
+                .invoke(blocked -> blockStatusCache.put(pair, blocked, BLOCK_STATUS_TTL))
+                .onFailure()
+                .invoke(e -> LOG.error("Error while checking if users {} and {} block each other", userId, otherUserId, e));
+    }
 
-            for (BlockedUserIdResponse blockedUser : blockedUsers) {
-                if (blockedUser
-                        .getBlockedUserId()
-                        .equals(blockedUserId)) {
-                    return true;
-                }
-            }
-            return false;
-        } catch (Exception e) {
-            LOG.error("Error while checking if user {} is blocked by user {}", userId, blockedUserId, e);
-            throw e;
-        }
+    /**
+     * Retrieves the number of likes of a post, as counted by Repo-Social.
+     *
+     * @param postId the UUID of the post.
+     * @return the number of likes, 0 for a post Repo-Social does not know, i.e. never liked.
+     */
+    public Uni<Long> getLikeCount(UUID postId) {
+        return Uni
+                .createFrom()
+                .completionStage(() -> client
+                        .target(REPO_SOCIAL_URL + "/posts/" + postId + "/counts")
+                        .request(MediaType.APPLICATION_JSON)
+                        .rx()
+                        .get())
+                .map(response -> {
+                    try {
+                        if (response.getStatus() == Response.Status.NOT_FOUND.getStatusCode()) {
+                            return 0L;
+                        }
+                        if (response.getStatus() != Response.Status.OK.getStatusCode()) {
+                            throw new WebApplicationException("Like count of post " + postId + " not available", response.getStatus());
+                        }
+                        return response
+                                .readEntity(PostCountsResponse.class)
+                                .getLikes();
+                    } finally {
+                        response.close();
+                    }
+                });
     }
 }
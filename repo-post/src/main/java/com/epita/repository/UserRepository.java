@@ -1,33 +1,88 @@
 package com.epita.repository;
 
 import com.epita.repository.entity.User;
-import io.quarkus.mongodb.panache.PanacheMongoRepositoryBase;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+import io.quarkus.mongodb.panache.reactive.ReactivePanacheMongoRepositoryBase;
+import io.smallrye.mutiny.Uni;
 import jakarta.enterprise.context.ApplicationScoped;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
 
 @ApplicationScoped
-public class UserRepository implements PanacheMongoRepositoryBase<User, UUID> {
+public class UserRepository implements ReactivePanacheMongoRepositoryBase<User, UUID> {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(UserRepository.class);
 
-    public User getUserById(UUID userId) {
+    public Uni<User> getUserById(UUID userId) {
         return find("_id", userId).firstResult();
     }
 
-    public void createUser(User user) {
-        try {
-            persist(user);
-            LOGGER.info("User created");
-        } catch (Exception e) {
-            LOGGER.error("Error while creating user: {}", e.getMessage());
-            throw new RuntimeException("Error while creating user: " + e.getMessage(), e);
-        }
+    public Uni<Void> createUser(User user) {
+        return persist(user)
+                .invoke(() -> LOGGER.info("User created"))
+                .onFailure()
+                .transform(e -> {
+                    LOGGER.error("Error while creating user: {}", e.getMessage());
+                    return new RuntimeException("Error while creating user: " + e.getMessage(), e);
+                })
+                .replaceWithVoid();
+    }
+
+    /**
+     * Creates the user if it does not exist yet, in a single atomic upsert.
+     *
+     * @param userId the ID of the user that must exist.
+     * @return the user, as stored.
+     */
+    public Uni<User> ensureExists(UUID userId) {
+        return mongoCollection().findOneAndUpdate(
+                Filters.eq("_id", userId),
+                Updates.setOnInsert("name", ""),
+                new FindOneAndUpdateOptions()
+                        .upsert(true)
+                        .returnDocument(ReturnDocument.AFTER));
     }
 
-    public void deleteUser(UUID userId) {
-        deleteById(userId);
+    public Uni<Boolean> deleteUser(UUID userId) {
+        return deleteById(userId);
+    }
+
+    /**
+     * Creates the users that do not exist yet, in a single unordered bulk write.
+     * Existing users are left untouched.
+     *
+     * @param userIds the IDs of the users that must exist.
+     * @return the number of users created.
+     */
+    public Uni<Integer> ensureExist(Collection<UUID> userIds) {
+        if (userIds.isEmpty()) {
+            return Uni
+                    .createFrom()
+                    .item(0);
+        }
+        List<WriteModel<User>> upserts = userIds
+                .stream()
+                .<WriteModel<User>>map(userId -> new UpdateOneModel<>(
+                        Filters.eq("_id", userId),
+                        Updates.setOnInsert("name", ""),
+                        new UpdateOptions().upsert(true)))
+                .toList();
+        return mongoCollection()
+                .bulkWrite(upserts, new BulkWriteOptions().ordered(false))
+                .map(result -> result
+                        .getUpserts()
+                        .size())
+                .invoke(created -> LOGGER.info("{} users created out of {}", created, userIds.size()));
     }
 }
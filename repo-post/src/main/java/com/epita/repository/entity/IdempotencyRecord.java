@@ -0,0 +1,51 @@
+package com.epita.repository.entity;
+
+import io.quarkus.mongodb.panache.common.MongoEntity;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.bson.codecs.pojo.annotations.BsonId;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Outcome of a post creation request sent with an `Idempotency-Key` header.
+ * Records expire through a TTL index on their creation date.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@MongoEntity(collection = "IdempotencyKeys")
+public class IdempotencyRecord {
+
+    public enum Status {
+        PENDING,
+        COMPLETED,
+    }
+
+    /**
+     * The key, scoped by user: `userId:Idempotency-Key`.
+     */
+    @BsonId
+    private String id;
+
+    /**
+     * Hash of the request content, to detect a key reused for a different request.
+     */
+    private String fingerprint;
+
+    private Status status = Status.PENDING;
+
+    /**
+     * The ID of the created post, once completed.
+     */
+    private UUID postId;
+
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    public IdempotencyRecord(String id, String fingerprint) {
+        this.id = id;
+        this.fingerprint = fingerprint;
+    }
+}
@@ -0,0 +1,33 @@
+package com.epita.repository.entity;
+
+import io.quarkus.mongodb.panache.common.MongoEntity;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.bson.codecs.pojo.annotations.BsonId;
+
+import java.time.LocalDateTime;
+
+/**
+ * Time-bounded lock shared by the replicas, e.g. so that a single instance runs a background job.
+ * A lease whose owner stops renewing it, e.g. because its instance crashed, can be taken once expired.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@MongoEntity(collection = "Leases")
+public class Lease {
+
+    /**
+     * The name of the locked resource.
+     */
+    @BsonId
+    private String name;
+
+    /**
+     * The identifier of the instance holding the lease.
+     */
+    private String owner;
+
+    private LocalDateTime expiresAt;
+}
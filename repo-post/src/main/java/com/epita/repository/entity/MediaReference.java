@@ -0,0 +1,38 @@
+package com.epita.repository.entity;
+
+import io.quarkus.mongodb.panache.common.MongoEntity;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.bson.codecs.pojo.annotations.BsonId;
+
+import java.time.LocalDateTime;
+
+/**
+ * Reference-counted pointer from a media content hash to the GridFS file holding that content.
+ * Identical uploads share a single GridFS file; the count tracks how many posts use it.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@MongoEntity(collection = "MediaReferences")
+public class MediaReference {
+
+    /**
+     * Hex-encoded SHA-256 of the file content.
+     */
+    @BsonId
+    private String hash;
+
+    private String fileId;
+
+    private long refCount;
+
+    /**
+     * Last time a post took a reference on this content: the storage sweeper leaves recently
+     * acquired files alone, since the post using them may not be inserted yet.
+     */
+    private LocalDateTime lastAcquiredAt;
+}
@@ -0,0 +1,31 @@
+package com.epita.repository.entity;
+
+import io.quarkus.mongodb.panache.common.MongoEntity;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.bson.codecs.pojo.annotations.BsonId;
+
+import java.time.LocalDateTime;
+
+/**
+ * One-off data migration already applied to the database, e.g. a backfill of a new field.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@MongoEntity(collection = "Migrations")
+public class Migration {
+
+    /**
+     * The name of the migration.
+     */
+    @BsonId
+    private String name;
+
+    private LocalDateTime appliedAt = LocalDateTime.now();
+
+    public Migration(String name) {
+        this.name = name;
+    }
+}
@@ -0,0 +1,71 @@
+package com.epita.repository.entity;
+
+import com.epita.common.command.PostEventCommand;
+import io.quarkus.mongodb.panache.common.MongoEntity;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.bson.codecs.pojo.annotations.BsonId;
+import org.bson.types.ObjectId;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Post event waiting in the outbox to be relayed to the `post_events` channel.
+ * Entries are written before the post mutation they describe, so an event can never be lost
+ * between the database write and the publication.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@MongoEntity(collection = "PostOutbox")
+public class OutboxEvent {
+
+    public enum Status {
+        PENDING,
+        SENT,
+        ABORTED,
+    }
+
+    /**
+     * ObjectIds are time-ordered, so sorting on them relays events in write order.
+     */
+    @BsonId
+    private ObjectId id = new ObjectId();
+
+    private PostEventCommand.Type type;
+
+    private UUID postId;
+
+    private UUID userId;
+
+    private String text;
+
+    private LocalDateTime eventTime;
+
+    private Status status = Status.PENDING;
+
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    private LocalDateTime processedAt;
+
+    private String lockedBy;
+
+    private LocalDateTime lockedUntil;
+
+    public OutboxEvent(PostEventCommand command) {
+        this.type = command.getType();
+        this.postId = command.getPostId();
+        this.userId = command.getUserId();
+        this.text = command
+                .getText()
+                .orElse(null);
+        this.eventTime = command.getEventTime();
+    }
+
+    public PostEventCommand toCommand() {
+        return new PostEventCommand(type, postId, userId, Optional.ofNullable(text), eventTime);
+    }
+}
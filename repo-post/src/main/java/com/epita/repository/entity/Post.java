@@ -1,5 +1,6 @@
 package com.epita.repository.entity;
 
+import com.epita.common.utils.TimeOrderedUuid;
 import io.quarkus.mongodb.panache.common.MongoEntity;
 import jakarta.enterprise.context.ApplicationScoped;
 import lombok.Getter;
@@ -17,8 +18,11 @@ import java.util.UUID;
 @MongoEntity(collection = "Posts")
 public class Post {
 
+    /**
+     * Time-ordered: new posts are appended at the end of the _id index, and ID order is creation order.
+     */
     @BsonId
-    private UUID id = UUID.randomUUID();
+    private UUID id = TimeOrderedUuid.next();
 
     private UUID authorId;
 
@@ -32,6 +36,16 @@ public class Post {
 
     private LocalDateTime creationDate;
 
+    /**
+     * Denormalized engagement counters, maintained with increments by {@link com.epita.service.PostCounterBuffer}
+     * and repaired by {@link com.epita.service.PostCounterReconciler}.
+     */
+    private long replyCount;
+
+    private long repostCount;
+
+    private long likeCount;
+
     public Post(UUID authorId, String text, String mediaFileId, UUID repostId, UUID replyId) {
         this.authorId = authorId;
         this.text = text;
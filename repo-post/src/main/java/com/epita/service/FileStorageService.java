@@ -2,14 +2,29 @@ package com.epita.service;
 
 import com.epita.common.utils.ErrorCode;
 import com.epita.controller.contracts.FileData;
-import com.mongodb.client.MongoClient;
-import com.mongodb.client.gridfs.GridFSBucket;
-import com.mongodb.client.gridfs.GridFSBuckets;
-import com.mongodb.client.gridfs.GridFSDownloadStream;
+import com.epita.repository.MediaReferenceRepository;
+import com.epita.repository.entity.MediaReference;
+import com.epita.service.entity.MediaVariant;
 import com.mongodb.client.gridfs.model.GridFSFile;
 import com.mongodb.client.gridfs.model.GridFSUploadOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.reactivestreams.client.gridfs.GridFSBucket;
+import com.mongodb.reactivestreams.client.gridfs.GridFSBuckets;
+import com.mongodb.reactivestreams.client.gridfs.GridFSDownloadPublisher;
+import io.quarkus.mongodb.reactive.ReactiveMongoClient;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import io.vertx.core.file.OpenOptions;
+import io.vertx.mutiny.core.Vertx;
+import io.vertx.mutiny.core.buffer.Buffer;
+import jakarta.annotation.PostConstruct;
+import jakarta.ws.rs.WebApplicationException;
 import jakarta.ws.rs.core.MediaType;
+import mutiny.zero.flow.adapters.AdaptersToFlow;
+import mutiny.zero.flow.adapters.AdaptersToReactiveStreams;
 import org.bson.Document;
+import org.bson.conversions.Bson;
 import org.bson.types.ObjectId;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
@@ -17,108 +32,418 @@ import org.jboss.resteasy.reactive.multipart.FileUpload;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.IOException;
-import java.io.InputStream;
-import java.nio.file.Files;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
 import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * Service for handling file storage operations using MongoDB GridFS.
  * Provides methods to store, retrieve, and delete files.
+ * Files are content-addressed: identical uploads are stored once and reference-counted.
+ * All operations are non-blocking: uploads are read from disk through Vert.x and streamed
+ * to the reactive GridFS bucket.
  */
 @ApplicationScoped
 public class FileStorageService {
 
     @Inject
-    MongoClient mongoClient;
+    ReactiveMongoClient mongoClient;
+
+    @Inject
+    Vertx vertx;
+
+    @Inject
+    MediaReferenceRepository mediaReferenceRepository;
 
     private final String databaseName = "Epitweet";
-    private static final Logger LOG = LoggerFactory.getLogger(PostService.class);
+    private static final Logger LOG = LoggerFactory.getLogger(FileStorageService.class);
+
+    private GridFSBucket gridFSBucket;
+
+    @PostConstruct
+    void init() {
+        gridFSBucket = GridFSBuckets.create(mongoClient
+                .unwrap()
+                .getDatabase(databaseName));
+    }
 
     /**
      * Stores a file in the GridFS storage.
+     * If a file with the same content is already stored, its reference count is incremented
+     * and its ID is returned instead of uploading the content again.
      *
      * @param mediaFile the file to be stored, represented as a `FileUpload` object.
-     * @return the ID of the stored file as a string, or null if the operation fails.
+     * @return the ID of the stored file as a string, or null if there is no file to store.
      */
-    public String storeFile(FileUpload mediaFile) {
+    public Uni<String> storeFile(FileUpload mediaFile) {
         if (mediaFile == null || mediaFile.fileName() == null || mediaFile
                 .fileName()
                 .isBlank()) {
             LOG.warn("Invalid file upload: file is null or filename is blank");
-            return null;
+            return Uni
+                    .createFrom()
+                    .nullItem();
         }
         LOG.info("Storing file: {}", mediaFile.fileName());
-        try {
-            Path uploadedPath = mediaFile.uploadedFile();
-            try (InputStream fileStream = Files.newInputStream(uploadedPath)) {
-                GridFSBucket gridFSBucket = GridFSBuckets.create(mongoClient.getDatabase(databaseName));
+        Path uploadedPath = mediaFile.uploadedFile();
+        return hashFile(uploadedPath)
+                .flatMap(hash -> mediaReferenceRepository
+                        .acquire(hash)
+                        .flatMap(existing -> {
+                            if (existing != null) {
+                                LOG.info("File content {} already stored with ID: {}", hash, existing.getFileId());
+                                return Uni
+                                        .createFrom()
+                                        .item(existing.getFileId());
+                            }
+                            return upload(mediaFile, uploadedPath, hash);
+                        }))
+                .onFailure(e -> !(e instanceof WebApplicationException))
+                .transform(e -> {
+                    LOG.error("Error storing file: {}", e.getMessage());
+                    return ErrorCode.FILE_STORAGE_FAILED.get(e.getMessage());
+                });
+    }
 
-                GridFSUploadOptions options = new GridFSUploadOptions()
-                        .metadata(new Document("contentType", mediaFile.contentType()));
+    private Uni<String> upload(FileUpload mediaFile, Path uploadedPath, String hash) {
+        GridFSUploadOptions options = new GridFSUploadOptions()
+                .metadata(new Document("contentType", mediaFile.contentType()).append("sha256", hash));
+        Multi<ByteBuffer> content = readFile(uploadedPath).map(buffer -> ByteBuffer.wrap(buffer.getBytes()));
 
-                ObjectId fileObjectId = gridFSBucket.uploadFromStream(
+        return Uni
+                .createFrom()
+                .publisher(AdaptersToFlow.publisher(gridFSBucket.uploadFromPublisher(
                         mediaFile.fileName(),
-                        fileStream,
-                        options
-                );
-                LOG.info("File stored successfully with ID: {}", fileObjectId.toString());
-                return fileObjectId.toString();
-            }
-        } catch (IOException e) {
-            LOG.error("Error storing file: {}", e.getMessage());
-            ErrorCode.FILE_STORAGE_FAILED.throwException(e.getMessage());
-        }
-        return null;
+                        AdaptersToReactiveStreams.publisher(content),
+                        options)))
+                .flatMap(fileObjectId -> mediaReferenceRepository
+                        .register(new MediaReference(hash, fileObjectId.toHexString(), 1, LocalDateTime.now()))
+                        .flatMap(registered -> {
+                            if (registered) {
+                                LOG.info("File stored successfully with ID: {}", fileObjectId.toHexString());
+                                return Uni
+                                        .createFrom()
+                                        .item(fileObjectId.toHexString());
+                            }
+                            // A concurrent upload of the same content won the race: share its file instead.
+                            return delete(fileObjectId)
+                                    .flatMap(deleted -> mediaReferenceRepository.acquire(hash))
+                                    .map(existing -> {
+                                        if (existing == null) {
+                                            ErrorCode.FILE_STORAGE_FAILED.throwException("media reference vanished for " + hash);
+                                        }
+                                        LOG.info("File content {} stored concurrently with ID: {}", hash, existing.getFileId());
+                                        return existing.getFileId();
+                                    });
+                        }));
     }
 
     /**
-     * Deletes a file from the GridFS storage.
+     * Releases a reference on a file from the GridFS storage.
+     * The file is only deleted once no post references its content anymore.
      *
      * @param mediaId the ID of the file to be deleted.
      */
-    public void deleteFile(String mediaId) {
+    public Uni<Void> deleteFile(String mediaId) {
         LOG.info("Deleting file with ID: {}", mediaId);
-        try {
-            GridFSBucket gridFSBucket = GridFSBuckets.create(mongoClient.getDatabase(databaseName));
-            ObjectId fileId = new ObjectId(mediaId);
-            gridFSBucket.delete(fileId);
-            LOG.info("File with ID {} deleted successfully", mediaId);
-        } catch (Exception e) {
-            LOG.error("Error deleting file with ID {}: {}", mediaId, e.getMessage());
-            ErrorCode.FILE_DELETION_FAILED.throwException(mediaId);
+        return mediaReferenceRepository
+                .release(mediaId)
+                .flatMap(reference -> {
+                    if (reference == null) {
+                        return Uni
+                                .createFrom()
+                                .item(true);
+                    }
+                    if (reference.getRefCount() > 0) {
+                        LOG.info("File with ID {} still referenced {} time(s), keeping it", mediaId, reference.getRefCount());
+                        return Uni
+                                .createFrom()
+                                .item(false);
+                    }
+                    return mediaReferenceRepository
+                            .removeIfUnused(reference.getHash())
+                            .invoke(removed -> {
+                                if (!removed) {
+                                    LOG.info("File with ID {} was re-acquired concurrently, keeping it", mediaId);
+                                }
+                            });
+                })
+                .flatMap(unused -> {
+                    if (!unused) {
+                        return Uni
+                                .createFrom()
+                                .voidItem();
+                    }
+                    return purge(mediaId)
+                            .invoke(() -> LOG.info("File with ID {} deleted successfully", mediaId))
+                            .replaceWithVoid();
+                })
+                .onFailure()
+                .transform(e -> {
+                    LOG.error("Error deleting file with ID {}: {}", mediaId, e.getMessage());
+                    return ErrorCode.FILE_DELETION_FAILED.get(mediaId);
+                });
+    }
+
+    /**
+     * Deletes a file no post references anymore, with its variants, unless a post acquired its
+     * content recently. Used by the storage sweeper.
+     *
+     * @param mediaId        the ID of the original file.
+     * @param acquiredBefore the file is kept if a post acquired it at or after this date.
+     * @return the number of bytes reclaimed, 0 if the file was kept.
+     */
+    public Uni<Long> reclaim(String mediaId, LocalDateTime acquiredBefore) {
+        return mediaReferenceRepository
+                .removeIfIdle(mediaId, acquiredBefore)
+                .flatMap(unused -> unused ? purge(mediaId) : Uni
+                        .createFrom()
+                        .item(0L));
+    }
+
+    /**
+     * Lists stored files in ID order, i.e. in upload order, for background maintenance.
+     *
+     * @param after          resume after this file ID, or null to start from the oldest file.
+     * @param uploadedBefore only files uploaded before this date are listed.
+     * @param variants       true to list variants, false to list original files.
+     * @param limit          the maximum number of files.
+     * @return the files, oldest first.
+     */
+    public Uni<List<GridFSFile>> listFiles(ObjectId after, Date uploadedBefore, boolean variants, int limit) {
+        Bson range = Filters.lt("_id", new ObjectId(uploadedBefore));
+        if (after != null) {
+            range = Filters.and(Filters.gt("_id", after), range);
         }
+        return Multi
+                .createFrom()
+                .publisher(AdaptersToFlow.publisher(gridFSBucket
+                        .find(Filters.and(range, Filters.exists("metadata.derivativeOf", variants)))
+                        .sort(Sorts.ascending("_id"))
+                        .limit(limit)))
+                .collect()
+                .asList();
+    }
+
+    /**
+     * Checks which of the given files are stored.
+     *
+     * @param mediaIds the IDs of the files.
+     * @return the IDs of the stored files.
+     */
+    public Uni<Set<String>> getExistingFileIds(Collection<String> mediaIds) {
+        List<ObjectId> fileIds = mediaIds
+                .stream()
+                .filter(ObjectId::isValid)
+                .map(ObjectId::new)
+                .toList();
+        return Multi
+                .createFrom()
+                .publisher(AdaptersToFlow.publisher(gridFSBucket.find(Filters.in("_id", fileIds))))
+                .map(file -> file
+                        .getObjectId()
+                        .toHexString())
+                .collect()
+                .in(HashSet::new, Set::add);
     }
 
+    /**
+     * Deletes a file, or a variant, from the GridFS storage without looking at its references.
+     *
+     * @param file the file to delete.
+     * @return the number of bytes reclaimed.
+     */
+    public Uni<Long> deleteStoredFile(GridFSFile file) {
+        return delete(file.getObjectId()).map(deleted -> file.getLength());
+    }
+
+    /**
+     * Deletes an original file and all its variants.
+     *
+     * @return the number of bytes reclaimed.
+     */
+    private Uni<Long> purge(String mediaId) {
+        return Multi
+                .createFrom()
+                .publisher(AdaptersToFlow.publisher(gridFSBucket.find(Filters.or(
+                        Filters.eq("_id", new ObjectId(mediaId)),
+                        Filters.eq("metadata.derivativeOf", mediaId)))))
+                .onItem()
+                .transformToUniAndMerge(this::deleteStoredFile)
+                .collect()
+                .with(Collectors.summingLong(Long::longValue));
+    }
 
     /**
      * Retrieves a file from the GridFS storage.
      *
      * @param mediaId the ID of the file to be retrieved.
-     * @return a `FileData` object containing the file's input stream, content type, and file name,
-     * or null if the operation fails.
+     * @return a `FileData` object containing the file's input stream, content type, and file name.
      */
-    public FileData getFile(String mediaId) {
+    public Uni<FileData> getFile(String mediaId) {
         LOG.info("Fetching file with ID: {}", mediaId);
+        return Uni
+                .createFrom()
+                .item(() -> new ObjectId(mediaId))
+                .flatMap(fileId -> {
+                    GridFSDownloadPublisher download = gridFSBucket.downloadToPublisher(fileId);
+                    Uni<GridFSFile> file = Uni
+                            .createFrom()
+                            .publisher(AdaptersToFlow.publisher(download.getGridFSFile()));
+                    Uni<byte[]> content = Multi
+                            .createFrom()
+                            .publisher(AdaptersToFlow.publisher(download))
+                            .collect()
+                            .in(ByteArrayOutputStream::new, (out, chunk) -> {
+                                byte[] bytes = new byte[chunk.remaining()];
+                                chunk.get(bytes);
+                                out.writeBytes(bytes);
+                            })
+                            .map(ByteArrayOutputStream::toByteArray);
+                    return file.flatMap(metadataFile -> content.map(bytes -> toFileData(metadataFile, bytes)));
+                })
+                .invoke(() -> LOG.info("File with ID {} fetched successfully", mediaId))
+                .onFailure()
+                .transform(e -> {
+                    LOG.error("Error fetching file with ID {}: {}", mediaId, e.getMessage());
+                    return ErrorCode.FILE_RETRIEVAL_FAILED.get(e.getMessage());
+                });
+    }
+
+    private static FileData toFileData(GridFSFile file, byte[] content) {
+        Document metadata = file.getMetadata();
+
+        String contentType = metadata != null ? metadata.getString("contentType") : MediaType.APPLICATION_OCTET_STREAM;
+        String fileName = !file
+                .getFilename()
+                .isEmpty() ? file.getFilename() : "file";
+        return new FileData(new ByteArrayInputStream(content), contentType, fileName);
+    }
+
+    /**
+     * Retrieves a variant of a file from the GridFS storage.
+     * Falls back to the original file if the variant does not exist (yet), e.g. for non-image media
+     * or while the variant is still being generated.
+     *
+     * @param mediaId the ID of the original file.
+     * @param variant the variant to retrieve, or null for the original file.
+     * @return a `FileData` object containing the variant's input stream, content type, and file name.
+     */
+    public Uni<FileData> getFile(String mediaId, MediaVariant variant) {
+        if (variant == null) {
+            return getFile(mediaId);
+        }
+        return findVariant(mediaId, variant).flatMap(variantFile -> {
+            if (variantFile == null) {
+                LOG.debug("No {} variant for file with ID {}, serving original", variant.getName(), mediaId);
+                return getFile(mediaId);
+            }
+            return getFile(variantFile
+                    .getObjectId()
+                    .toHexString());
+        });
+    }
+
+    /**
+     * Checks whether a variant of a file has already been stored.
+     *
+     * @param mediaId the ID of the original file.
+     * @param variant the variant to look for.
+     * @return true if the variant exists.
+     */
+    public Uni<Boolean> hasVariant(String mediaId, MediaVariant variant) {
+        return findVariant(mediaId, variant).map(file -> file != null);
+    }
+
+    /**
+     * Stores a variant of a file next to the original in the GridFS storage.
+     *
+     * @param mediaId     the ID of the original file.
+     * @param variant     the variant being stored.
+     * @param content     the encoded content of the variant.
+     * @param contentType the content type of the variant.
+     * @param fileName    the file name of the variant.
+     */
+    public Uni<Void> storeVariant(String mediaId, MediaVariant variant, byte[] content, String contentType, String fileName) {
+        GridFSUploadOptions options = new GridFSUploadOptions()
+                .metadata(new Document("contentType", contentType)
+                        .append("derivativeOf", mediaId)
+                        .append("variant", variant.getName()));
+        Multi<ByteBuffer> source = Multi
+                .createFrom()
+                .item(ByteBuffer.wrap(content));
+        return Uni
+                .createFrom()
+                .publisher(AdaptersToFlow.publisher(gridFSBucket.uploadFromPublisher(fileName, AdaptersToReactiveStreams.publisher(source), options)))
+                .invoke(variantId -> LOG.info("Stored {} variant of file {} with ID: {}", variant.getName(), mediaId, variantId.toHexString()))
+                .replaceWithVoid();
+    }
+
+    private Uni<GridFSFile> findVariant(String mediaId, MediaVariant variant) {
+        return Uni
+                .createFrom()
+                .publisher(AdaptersToFlow.publisher(gridFSBucket
+                        .find(Filters.and(
+                                Filters.eq("metadata.derivativeOf", mediaId),
+                                Filters.eq("metadata.variant", variant.getName())))
+                        .first()));
+    }
+
+    private Uni<Void> delete(ObjectId fileId) {
+        return Uni
+                .createFrom()
+                .publisher(AdaptersToFlow.publisher(gridFSBucket.delete(fileId)))
+                .replaceWithVoid();
+    }
+
+    /**
+     * Reads a local file as a stream of chunks, without blocking the calling thread.
+     *
+     * @param path the path of the file to read.
+     * @return the content of the file, chunk by chunk.
+     */
+    private Multi<Buffer> readFile(Path path) {
+        return vertx
+                .fileSystem()
+                .open(path.toString(), new OpenOptions().setRead(true))
+                .onItem()
+                .transformToMulti(file -> file
+                        .toMulti()
+                        .onTermination()
+                        .call(file::close));
+    }
+
+    /**
+     * Computes the SHA-256 of a file by streaming it, without loading it in memory.
+     *
+     * @param path the path of the file to hash.
+     * @return the hex-encoded digest.
+     */
+    private Uni<String> hashFile(Path path) {
+        return readFile(path)
+                .collect()
+                .in(FileStorageService::sha256, (digest, chunk) -> digest.update(chunk.getBytes()))
+                .map(digest -> HexFormat
+                        .of()
+                        .formatHex(digest.digest()));
+    }
+
+    private static MessageDigest sha256() {
         try {
-            GridFSBucket gridFSBucket = GridFSBuckets.create(mongoClient.getDatabase(databaseName));
-            ObjectId fileId = new ObjectId(mediaId);
-            GridFSDownloadStream downloadStream = gridFSBucket.openDownloadStream(fileId);
-
-            GridFSFile file = downloadStream.getGridFSFile();
-            Document metadata = file.getMetadata();
-
-            String contentType = metadata != null ? metadata.getString("contentType") : MediaType.APPLICATION_OCTET_STREAM;
-            String fileName = !file
-                    .getFilename()
-                    .isEmpty() ? file.getFilename() : "file";
-
-            LOG.info("File with ID {} fetched successfully", mediaId);
-            return new FileData(downloadStream, contentType, fileName);
-        } catch (Exception e) {
-            LOG.error("Error fetching file with ID {}: {}", mediaId, e.getMessage());
-            ErrorCode.FILE_RETRIEVAL_FAILED.throwException(e.getMessage());
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
         }
-        return null;
     }
 }
@@ -0,0 +1,119 @@
+package com.epita.service;
+
+import com.epita.controller.contracts.PostRequestMultiPart;
+import com.epita.repository.IdempotencyRepository;
+import com.epita.repository.entity.IdempotencyRecord;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.UUID;
+
+/**
+ * Service making post creation idempotent for clients sending an `Idempotency-Key` header.
+ * The first request with a key reserves it and records the created post; retries with the same
+ * key and content get the recorded post back without any write.
+ */
+@ApplicationScoped
+public class IdempotencyService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(IdempotencyService.class);
+
+    /**
+     * The delay after which an unfinished request no longer holds its key.
+     */
+    private static final Duration STALE_AFTER = Duration.ofMinutes(1);
+
+    @Inject
+    IdempotencyRepository idempotencyRepository;
+
+    /**
+     * Computes the fingerprint of a post creation request, from its content and media metadata.
+     *
+     * @param request the post creation request.
+     * @return the hex-encoded SHA-256 of the request.
+     */
+    public String fingerprint(PostRequestMultiPart request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            update(digest, request.text);
+            update(digest, request.replyId);
+            update(digest, request.repostId);
+            if (request.media != null) {
+                update(digest, request.media.fileName());
+                update(digest, request.media.contentType());
+                update(digest, String.valueOf(request.media.size()));
+            }
+            return HexFormat
+                    .of()
+                    .formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        if (value != null) {
+            digest.update(value.getBytes(StandardCharsets.UTF_8));
+        }
+        // Separator, so that ("ab", null) and ("a", "b") differ.
+        digest.update((byte) 0);
+    }
+
+    /**
+     * Reserves an idempotency key for a request.
+     *
+     * @param userId      the UUID of the user sending the request; keys are scoped by user.
+     * @param key         the value of the `Idempotency-Key` header.
+     * @param fingerprint the fingerprint of the request.
+     * @return null if the request must be processed, the record of the previous request with this key otherwise.
+     */
+    public Uni<IdempotencyRecord> reserve(UUID userId, String key, String fingerprint) {
+        return idempotencyRepository.reserve(scopedKey(userId, key), fingerprint, STALE_AFTER);
+    }
+
+    /**
+     * Records the post created by the request holding a key.
+     *
+     * @param userId the UUID of the user sending the request.
+     * @param key    the value of the `Idempotency-Key` header.
+     * @param postId the UUID of the created post.
+     */
+    public Uni<Void> complete(UUID userId, String key, UUID postId) {
+        return idempotencyRepository
+                .complete(scopedKey(userId, key), postId)
+                .onFailure()
+                .recoverWithItem(e -> {
+                    // The post exists: only a retry would be at risk, so the request itself succeeds.
+                    LOG.error("Error while recording idempotency key {} of user {}: {}", key, userId, e.getMessage());
+                    return null;
+                });
+    }
+
+    /**
+     * Frees a key whose request failed, so that a retry runs it again.
+     *
+     * @param userId the UUID of the user sending the request.
+     * @param key    the value of the `Idempotency-Key` header.
+     */
+    public Uni<Void> release(UUID userId, String key) {
+        return idempotencyRepository
+                .release(scopedKey(userId, key))
+                .onFailure()
+                .recoverWithItem(e -> {
+                    LOG.error("Error while releasing idempotency key {} of user {}: {}", key, userId, e.getMessage());
+                    return null;
+                });
+    }
+
+    private static String scopedKey(UUID userId, String key) {
+        return userId + ":" + key;
+    }
+}
@@ -0,0 +1,221 @@
+package com.epita.service;
+
+import com.epita.controller.contracts.FileData;
+import com.epita.service.entity.MediaVariant;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Service generating downscaled variants (thumbnails, medium size) of uploaded images.
+ * Generation runs in the background on a bounded pool of CPU workers fed by a bounded queue,
+ * so it never delays post creation. When the queue is full, new jobs are dropped and the
+ * original media keeps being served in place of the missing variants.
+ * Workers are plain threads, so they wait on the reactive storage calls.
+ */
+@ApplicationScoped
+public class MediaDerivativeService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MediaDerivativeService.class);
+
+    private static final int WORKER_COUNT = Math.max(1, Runtime
+            .getRuntime()
+            .availableProcessors() - 1);
+    private static final int QUEUE_CAPACITY = 256;
+
+    /**
+     * The largest image decoded, in pixels. The dimensions come from the image header, so a small
+     * upload declaring huge dimensions is skipped before any pixel is allocated.
+     */
+    static final long MAX_SOURCE_PIXELS = 50_000_000L;
+
+    @Inject
+    FileStorageService fileStorageService;
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    void init() {
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(
+                WORKER_COUNT,
+                WORKER_COUNT,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "media-derivative-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Schedules the generation of all variants of a stored file.
+     * Does nothing for files that already have their variants, e.g. deduplicated uploads.
+     *
+     * @param mediaId the ID of the original file, may be null.
+     */
+    public void generateAsync(String mediaId) {
+        if (mediaId == null) {
+            return;
+        }
+        try {
+            executor.execute(() -> generate(mediaId));
+            LOG.debug("Scheduled variant generation for file {}", mediaId);
+        } catch (RejectedExecutionException e) {
+            LOG.warn("Variant generation queue full, skipping file {}", mediaId);
+        }
+    }
+
+    private void generate(String mediaId) {
+        try {
+            List<MediaVariant> missing = Arrays
+                    .stream(MediaVariant.values())
+                    .filter(variant -> !fileStorageService
+                            .hasVariant(mediaId, variant)
+                            .await()
+                            .indefinitely())
+                    .toList();
+            if (missing.isEmpty()) {
+                LOG.debug("Variants already exist for file {}", mediaId);
+                return;
+            }
+            FileData original = fileStorageService
+                    .getFile(mediaId)
+                    .await()
+                    .indefinitely();
+            if (!original
+                    .getContentType()
+                    .startsWith("image/")) {
+                LOG.debug("File {} is not an image ({}), no variant generated", mediaId, original.getContentType());
+                original
+                        .getInputStream()
+                        .close();
+                return;
+            }
+            int maxVariantSize = missing
+                    .stream()
+                    .mapToInt(MediaVariant::getMaxSize)
+                    .max()
+                    .orElseThrow();
+            BufferedImage image;
+            try (InputStream in = original.getInputStream()) {
+                image = decode(in, maxVariantSize);
+            } catch (IllegalArgumentException e) {
+                LOG.warn("File {} skipped: {}", mediaId, e.getMessage());
+                return;
+            }
+            if (image == null) {
+                LOG.debug("File {} could not be decoded as an image", mediaId);
+                return;
+            }
+
+            boolean hasAlpha = image
+                    .getColorModel()
+                    .hasAlpha();
+            String format = hasAlpha ? "png" : "jpeg";
+            for (MediaVariant variant : missing) {
+                byte[] content = encode(resize(image, variant.getMaxSize(), hasAlpha), format);
+                fileStorageService
+                        .storeVariant(
+                                mediaId,
+                                variant,
+                                content,
+                                "image/" + format,
+                                variant.getName() + "-" + original.getFileName())
+                        .await()
+                        .indefinitely();
+            }
+            LOG.info("Generated variants for file {}", mediaId);
+        } catch (Exception e) {
+            LOG.error("Error while generating variants for file {}: {}", mediaId, e.getMessage());
+        }
+    }
+
+    /**
+     * Decodes an image, subsampled while decoding so that it stays close to the largest variant
+     * instead of holding every source pixel in memory.
+     *
+     * @param in      the encoded image.
+     * @param maxSize the size of the largest variant to generate from the image.
+     * @return the decoded image, or null if no reader supports its format.
+     * @throws IllegalArgumentException if the image has more than {@link #MAX_SOURCE_PIXELS} pixels.
+     */
+    static BufferedImage decode(InputStream in, int maxSize) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(in)) {
+            Iterator<ImageReader> readers = input != null ? ImageIO.getImageReaders(input) : Collections.emptyIterator();
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > MAX_SOURCE_PIXELS) {
+                    throw new IllegalArgumentException("image of " + width + "x" + height + " pixels is too large to decode");
+                }
+                // Twice the variant size is kept, for the quality of the final downscale.
+                int step = Math.max(1, Math.max(width, height) / (2 * maxSize));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    static BufferedImage resize(BufferedImage image, int maxSize, boolean hasAlpha) {
+        double scale = Math.min(1.0, (double) maxSize / Math.max(image.getWidth(), image.getHeight()));
+        int width = Math.max(1, (int) Math.round(image.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(image.getHeight() * scale));
+
+        BufferedImage resized = new BufferedImage(width, height, hasAlpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = resized.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return resized;
+    }
+
+    private static byte[] encode(BufferedImage image, String format) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, format, out);
+        return out.toByteArray();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        LOG.info("Shutting down media variant workers");
+        executor.shutdownNow();
+    }
+}
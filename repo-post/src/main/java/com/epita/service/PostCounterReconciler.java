@@ -0,0 +1,144 @@
+package com.epita.service;
+
+import com.epita.repository.LeaseRepository;
+import com.epita.repository.MigrationRepository;
+import com.epita.repository.PostRepository;
+import com.epita.repository.RepoSocialRestClient;
+import io.quarkus.scheduler.Scheduled;
+import io.smallrye.mutiny.Multi;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Background job keeping the denormalized engagement counters of posts consistent.
+ * <p>
+ * Once, it recomputes the reply and repost counters of the posts created before the counters
+ * existed. Then it walks the posts in ID order, a batch per run, and corrects their like counter
+ * from the count kept by Repo-Social: like events come through Redis pub/sub, at most once, so
+ * events missed during a restart, or buffered increments lost in a crash, are healed by the next
+ * pass. The position is kept between runs.
+ * <p>
+ * A lease in Mongo ensures a single replica runs the job. The holder of the lease is also the only
+ * replica applying like events, since pub/sub delivers each of them to every replica.
+ */
+@ApplicationScoped
+public class PostCounterReconciler {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PostCounterReconciler.class);
+
+    private static final int BATCH_SIZE = 500;
+    private static final int COUNT_CONCURRENCY = 16;
+    private static final String COUNTERS_LEASE = "post-counters";
+    private static final Duration COUNTERS_LEASE_DURATION = Duration.ofMinutes(1);
+    private static final String BACKFILL_MIGRATION = "post-reference-counters-backfill";
+
+    private final String instanceId = "counters-" + UUID.randomUUID();
+
+    @ConfigProperty(name = "epitweet.counters.reconcile.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @Inject
+    PostRepository postRepository;
+
+    @Inject
+    RepoSocialRestClient repoSocialRestClient;
+
+    @Inject
+    LeaseRepository leaseRepository;
+
+    @Inject
+    MigrationRepository migrationRepository;
+
+    private volatile boolean leader;
+    private boolean backfilled;
+    private UUID lastPostId;
+
+    @Scheduled(every = "${epitweet.counters.reconcile.every:10s}", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void reconcile() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            leader = leaseRepository
+                    .acquire(COUNTERS_LEASE, instanceId, COUNTERS_LEASE_DURATION)
+                    .await()
+                    .indefinitely();
+            if (!leader) {
+                return;
+            }
+            if (!backfilled) {
+                backfillReferenceCounters();
+                backfilled = true;
+            }
+            reconcileLikeCounts();
+        } catch (Exception e) {
+            LOG.error("Error while reconciling post counters: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * @return true if this replica applies the like events: it holds the lease, or the job is disabled.
+     */
+    public boolean appliesLikeEvents() {
+        return leader || !enabled;
+    }
+
+    private void backfillReferenceCounters() {
+        boolean applied = migrationRepository
+                .isApplied(BACKFILL_MIGRATION)
+                .await()
+                .indefinitely();
+        if (applied) {
+            return;
+        }
+        LOG.info("Backfilling the reply and repost counters of existing posts");
+        postRepository
+                .recomputeReferenceCounters()
+                .await()
+                .indefinitely();
+        migrationRepository
+                .markApplied(BACKFILL_MIGRATION)
+                .await()
+                .indefinitely();
+    }
+
+    private void reconcileLikeCounts() {
+        List<UUID> postIds = postRepository
+                .getPostIds(lastPostId, BATCH_SIZE)
+                .await()
+                .indefinitely();
+        if (postIds.isEmpty()) {
+            lastPostId = null;
+            return;
+        }
+        Map<UUID, Long> likeCounts = Multi
+                .createFrom()
+                .iterable(postIds)
+                .onItem()
+                .transformToUni(postId -> repoSocialRestClient
+                        .getLikeCount(postId)
+                        .map(likes -> Map.entry(postId, likes)))
+                .merge(COUNT_CONCURRENCY)
+                .collect()
+                .asMap(Map.Entry::getKey, Map.Entry::getValue)
+                .await()
+                .indefinitely();
+        long corrected = postRepository
+                .setLikeCounts(likeCounts)
+                .await()
+                .indefinitely();
+        if (corrected > 0) {
+            LOG.info("Corrected the like counter of {} posts", corrected);
+        }
+        // Start over once the last posts are reached.
+        lastPostId = postIds.size() < BATCH_SIZE ? null : postIds.get(postIds.size() - 1);
+    }
+}
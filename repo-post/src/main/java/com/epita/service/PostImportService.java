@@ -0,0 +1,460 @@
+package com.epita.service;
+
+import com.epita.common.command.PostEventCommand;
+import com.epita.common.utils.TimeOrderedUuid;
+import com.epita.controller.contracts.PostImportLine;
+import com.epita.controller.contracts.PostImportReport;
+import com.epita.controller.contracts.PostRequestContract;
+import com.epita.repository.LeaseRepository;
+import com.epita.repository.MediaReferenceRepository;
+import com.epita.repository.OutboxRepository;
+import com.epita.repository.PostRepository;
+import com.epita.repository.RepoSocialRestClient;
+import com.epita.repository.UserRepository;
+import com.epita.repository.entity.OutboxEvent;
+import com.epita.repository.entity.Post;
+import com.epita.service.entity.PostCounter;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.bulk.BulkWriteError;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Service importing the posts of a user in bulk from an NDJSON stream, e.g. for backfills and migrations.
+ * <p>
+ * Lines are read in batches. Each batch is parsed and validated in parallel, then written with
+ * one bulk update for the references on their media, one unordered insert for the posts, one bulk
+ * upsert for their authors and one insert for their outbox events. Writing a batch overlaps with
+ * reading and validating the next one.
+ * <p>
+ * Imported posts must be authored by the importing user. Like {@link PostService#canPost}, replies
+ * and reposts are rejected when the author of the referenced post blocks the user or is blocked by
+ * them. Referenced posts are not required to exist though: they may come later in the same import.
+ */
+@ApplicationScoped
+public class PostImportService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PostImportService.class);
+
+    private static final int BATCH_SIZE = 1000;
+    private static final int MAX_REPORTED_ERRORS = 100;
+    private static final Duration OUTBOX_LEASE = Duration.ofMinutes(1);
+    private static final String IMPORT_LEASE_PREFIX = "post-import:";
+    private static final Duration IMPORT_LEASE = Duration.ofMinutes(1);
+    private static final int BLOCK_CHECK_CONCURRENCY = 16;
+
+    private final String instanceId = "import-" + UUID.randomUUID();
+
+    @Inject
+    PostService postService;
+
+    @Inject
+    PostRepository postRepository;
+
+    @Inject
+    UserRepository userRepository;
+
+    @Inject
+    UserDirectory userDirectory;
+
+    @Inject
+    OutboxRepository outboxRepository;
+
+    @Inject
+    MediaReferenceRepository mediaReferenceRepository;
+
+    @Inject
+    LeaseRepository leaseRepository;
+
+    @Inject
+    RepoSocialRestClient repoSocialRestClient;
+
+    @Inject
+    PostCounterBuffer postCounterBuffer;
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    /**
+     * Imports the posts of an NDJSON stream, one JSON post per line.
+     * Invalid lines are rejected individually and do not stop the import.
+     *
+     * @param userId the UUID of the importing user, who must be the author of every post.
+     * @param ndjson the NDJSON stream; blank lines are ignored.
+     * @return the import report, with the throughput in posts per second.
+     * @throws IOException if the stream cannot be read.
+     */
+    public PostImportReport importPosts(UUID userId, InputStream ndjson) throws IOException {
+        // Each import holds its own lease, renewed with every batch, so that all the replicas see it running.
+        String lease = IMPORT_LEASE_PREFIX + UUID.randomUUID();
+        leaseRepository
+                .acquire(lease, instanceId, IMPORT_LEASE)
+                .await()
+                .indefinitely();
+        try {
+            return runImport(userId, ndjson, lease);
+        } finally {
+            leaseRepository
+                    .release(lease, instanceId)
+                    .await()
+                    .indefinitely();
+        }
+    }
+
+    /**
+     * @return true while an import is running on any instance: its posts may still reference posts not imported yet.
+     */
+    public Uni<Boolean> isImporting() {
+        return leaseRepository.anyHeld(IMPORT_LEASE_PREFIX);
+    }
+
+    private PostImportReport runImport(UUID userId, InputStream ndjson, String lease) throws IOException {
+        LOG.info("Starting bulk post import for user with ID: {}", userId);
+        long start = System.nanoTime();
+        long received = 0;
+        ImportProgress progress = new ImportProgress();
+
+        CompletableFuture<BatchResult> pending = CompletableFuture.completedFuture(BatchResult.EMPTY);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(ndjson, StandardCharsets.UTF_8))) {
+            List<NumberedLine> batch = new ArrayList<>(BATCH_SIZE);
+            long lineNumber = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                received++;
+                batch.add(new NumberedLine(lineNumber, line));
+                if (batch.size() == BATCH_SIZE) {
+                    leaseRepository
+                            .acquire(lease, instanceId, IMPORT_LEASE)
+                            .await()
+                            .indefinitely();
+                    pending = submitBatch(userId, batch, pending, progress);
+                    batch = new ArrayList<>(BATCH_SIZE);
+                }
+            }
+            pending = submitBatch(userId, batch, pending, progress);
+        }
+        progress.add(pending.join());
+
+        long durationMs = Duration
+                .ofNanos(System.nanoTime() - start)
+                .toMillis();
+        double postsPerSecond = durationMs == 0 ? progress.imported : progress.imported * 1000.0 / durationMs;
+        LOG.info("Bulk import done: {} posts imported, {} rejected in {} ms ({} posts/s)", progress.imported, progress.rejected,
+                durationMs, String.format("%.1f", postsPerSecond));
+        return new PostImportReport(received, progress.imported, progress.rejected, durationMs, postsPerSecond, progress.errors);
+    }
+
+    /**
+     * Parses and validates a batch in parallel, then starts writing it once the previous batch
+     * is written: only one batch is in flight while the next one is read and parsed.
+     */
+    private CompletableFuture<BatchResult> submitBatch(UUID userId, List<NumberedLine> batch, CompletableFuture<BatchResult> previous,
+                                                       ImportProgress progress) {
+        List<ParsedLine> parsed = batch
+                .parallelStream()
+                .map(line -> parse(userId, line))
+                .toList();
+        progress.add(previous.join());
+        return writeBatch(userId, parsed)
+                .subscribeAsCompletionStage();
+    }
+
+    private ParsedLine parse(UUID userId, NumberedLine line) {
+        try {
+            PostImportLine importLine = objectMapper.readValue(line.content(), PostImportLine.class);
+            if (importLine.getAuthorId() == null) {
+                throw new IllegalArgumentException("Post must have an authorId");
+            }
+            if (!importLine
+                    .getAuthorId()
+                    .equals(userId)) {
+                throw new IllegalArgumentException("Post must be authored by the importing user");
+            }
+            postService.validatePost(new PostRequestContract(
+                    importLine.getText(),
+                    importLine.getMediaId(),
+                    importLine.getRepostId(),
+                    importLine.getReplyId()));
+
+            Post post = new Post(
+                    importLine.getAuthorId(),
+                    importLine.getText(),
+                    importLine.getMediaId(),
+                    importLine.getRepostId(),
+                    importLine.getReplyId());
+            if (importLine.getCreationDate() != null) {
+                post.setCreationDate(importLine.getCreationDate());
+                // Keep ID order consistent with creation order for backfilled posts.
+                post.setId(TimeOrderedUuid.at(importLine
+                        .getCreationDate()
+                        .atZone(ZoneId.systemDefault())
+                        .toInstant()
+                        .toEpochMilli()));
+            }
+            if (importLine.getId() != null) {
+                post.setId(importLine.getId());
+            }
+            return new ParsedLine(line.number(), post, null);
+        } catch (JsonProcessingException e) {
+            return new ParsedLine(line.number(), null, "invalid JSON: " + e.getOriginalMessage());
+        } catch (IllegalArgumentException e) {
+            return new ParsedLine(line.number(), null, e.getMessage());
+        }
+    }
+
+    /**
+     * Writes the valid posts of a batch.
+     * Lines referencing a post of a blocked or blocking user are rejected first. References are then
+     * taken on the media of the posts, and lines whose media is not stored are rejected. The outbox events are then appended, leased to this import so that no relay publishes
+     * them before the posts are inserted. Events and media references of posts that could not be
+     * inserted are then aborted and released, and the other events released to the relays.
+     */
+    private Uni<BatchResult> writeBatch(UUID userId, List<ParsedLine> parsed) {
+        List<String> errors = new ArrayList<>();
+        List<ParsedLine> valid = new ArrayList<>();
+        for (ParsedLine line : parsed) {
+            if (line.post() == null) {
+                errors.add("line " + line.number() + ": " + line.error());
+            } else {
+                valid.add(line);
+            }
+        }
+        if (valid.isEmpty()) {
+            return Uni
+                    .createFrom()
+                    .item(new BatchResult(0, errors));
+        }
+
+        // The lines still to be written, reported as failed if the batch fails.
+        List<ParsedLine> pending = new ArrayList<>(valid);
+        return checkBlocks(userId, valid)
+                .flatMap(blocked -> {
+                    pending.removeIf(line -> {
+                        if (!blocked.contains(line.number())) {
+                            return false;
+                        }
+                        errors.add("line " + line.number() + ": the author of the referenced post is blocked or blocks the user");
+                        return true;
+                    });
+                    return mediaReferenceRepository.acquireAll(mediaCounts(pending));
+                })
+                .flatMap(acquired -> {
+                    pending.removeIf(line -> {
+                        String mediaId = line
+                                .post()
+                                .getMediaFileId();
+                        if (mediaId == null || acquired.contains(mediaId)) {
+                            return false;
+                        }
+                        errors.add("line " + line.number() + ": media " + mediaId + " not found");
+                        return true;
+                    });
+                    if (pending.isEmpty()) {
+                        return Uni
+                                .createFrom()
+                                .item(new BatchResult(0, errors));
+                    }
+                    List<ParsedLine> referenced = List.copyOf(pending);
+                    return insertBatch(referenced, errors)
+                            .onFailure()
+                            .call(() -> mediaReferenceRepository.releaseAll(mediaCounts(referenced)));
+                })
+                .onFailure()
+                .recoverWithItem(e -> {
+                    LOG.error("Error while writing an import batch: {}", e.getMessage());
+                    pending.forEach(line -> errors.add("line " + line.number() + ": " + e.getMessage()));
+                    return new BatchResult(0, errors);
+                });
+    }
+
+    private Uni<BatchResult> insertBatch(List<ParsedLine> lines, List<String> errors) {
+        List<Post> posts = lines
+                .stream()
+                .map(ParsedLine::post)
+                .toList();
+        List<PostEventCommand> commands = posts
+                .stream()
+                .map(post -> new PostEventCommand(PostEventCommand.Type.CREATION, post.getId(), post.getAuthorId(),
+                        Optional.ofNullable(post.getText()), post.getCreationDate()))
+                .toList();
+        Set<UUID> authorIds = new HashSet<>();
+        posts.forEach(post -> authorIds.add(post.getAuthorId()));
+
+        return outboxRepository
+                .appendAll(commands, instanceId, OUTBOX_LEASE)
+                .flatMap(events -> Uni
+                        .combine()
+                        .all()
+                        .unis(postRepository.insertAll(posts), userRepository
+                                .ensureExist(authorIds)
+                                .invoke(created -> userDirectory.forget(authorIds)))
+                        .asTuple()
+                        .flatMap(written -> {
+                            List<BulkWriteError> failures = written.getItem1();
+                            Set<Integer> failedIndexes = new HashSet<>();
+                            for (BulkWriteError failure : failures) {
+                                failedIndexes.add(failure.getIndex());
+                                errors.add("line " + lines
+                                        .get(failure.getIndex())
+                                        .number() + ": " + failure.getMessage());
+                            }
+                            List<ObjectId> aborted = new ArrayList<>();
+                            List<ObjectId> released = new ArrayList<>();
+                            List<ParsedLine> failed = new ArrayList<>();
+                            for (int i = 0; i < events.size(); i++) {
+                                OutboxEvent event = events.get(i);
+                                if (failedIndexes.contains(i)) {
+                                    aborted.add(event.getId());
+                                    failed.add(lines.get(i));
+                                } else {
+                                    released.add(event.getId());
+                                    postCounterBuffer.increment(posts
+                                            .get(i)
+                                            .getReplyId(), PostCounter.REPLIES, 1);
+                                    postCounterBuffer.increment(posts
+                                            .get(i)
+                                            .getRepostId(), PostCounter.REPOSTS, 1);
+                                }
+                            }
+                            return Uni
+                                    .combine()
+                                    .all()
+                                    .unis(outboxRepository.complete(aborted, OutboxEvent.Status.ABORTED), outboxRepository.release(released),
+                                            mediaReferenceRepository.releaseAll(mediaCounts(failed)))
+                                    .discardItems()
+                                    .map(done -> new BatchResult(posts.size() - failures.size(), errors));
+                        }));
+    }
+
+    /**
+     * Checks the replies and reposts of a batch against the blocks between the user and the authors
+     * of the referenced posts. Referenced posts not stored yet are skipped: if they come later in the
+     * import, they are the user's own.
+     *
+     * @return the numbers of the lines referencing a post of a blocked or blocking user.
+     */
+    private Uni<Set<Long>> checkBlocks(UUID userId, List<ParsedLine> lines) {
+        Set<UUID> referencedIds = new HashSet<>();
+        for (ParsedLine line : lines) {
+            referencedIds.addAll(referencedIds(line.post()));
+        }
+        if (referencedIds.isEmpty()) {
+            return Uni
+                    .createFrom()
+                    .item(Set.of());
+        }
+        return postRepository
+                .getAuthorIds(referencedIds)
+                .flatMap(authorIds -> {
+                    Set<UUID> otherAuthors = new HashSet<>(authorIds.values());
+                    otherAuthors.remove(userId);
+                    return Multi
+                            .createFrom()
+                            .iterable(otherAuthors)
+                            .onItem()
+                            .transformToUni(authorId -> repoSocialRestClient
+                                    .isBlockedEitherWay(userId, authorId)
+                                    .map(blocked -> Map.entry(authorId, blocked)))
+                            .merge(BLOCK_CHECK_CONCURRENCY)
+                            .filter(Map.Entry::getValue)
+                            .map(Map.Entry::getKey)
+                            .collect()
+                            .in(HashSet<UUID>::new, Set::add)
+                            .map(blockedAuthors -> {
+                                Set<Long> blockedLines = new HashSet<>();
+                                for (ParsedLine line : lines) {
+                                    boolean blocked = referencedIds(line.post())
+                                            .stream()
+                                            .map(authorIds::get)
+                                            .anyMatch(blockedAuthors::contains);
+                                    if (blocked) {
+                                        blockedLines.add(line.number());
+                                    }
+                                }
+                                return blockedLines;
+                            });
+                });
+    }
+
+    private static List<UUID> referencedIds(Post post) {
+        List<UUID> ids = new ArrayList<>(2);
+        if (post.getReplyId() != null) {
+            ids.add(post.getReplyId());
+        }
+        if (post.getRepostId() != null) {
+            ids.add(post.getRepostId());
+        }
+        return ids;
+    }
+
+    /**
+     * @return the number of lines using each media.
+     */
+    private static Map<String, Integer> mediaCounts(List<ParsedLine> lines) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (ParsedLine line : lines) {
+            String mediaId = line
+                    .post()
+                    .getMediaFileId();
+            if (mediaId != null) {
+                counts.merge(mediaId, 1, Integer::sum);
+            }
+        }
+        return counts;
+    }
+
+    private static final class ImportProgress {
+        private long imported;
+        private long rejected;
+        private final List<String> errors = new ArrayList<>();
+
+        void add(BatchResult result) {
+            imported += result.imported();
+            rejected += result
+                    .errors()
+                    .size();
+            result
+                    .errors()
+                    .stream()
+                    .limit(MAX_REPORTED_ERRORS - errors.size())
+                    .forEach(errors::add);
+        }
+    }
+
+    private record NumberedLine(long number, String content) {
+    }
+
+    private record ParsedLine(long number, Post post, String error) {
+    }
+
+    private record BatchResult(long imported, List<String> errors) {
+        static final BatchResult EMPTY = new BatchResult(0, List.of());
+    }
+}
@@ -0,0 +1,128 @@
+package com.epita.service;
+
+import com.epita.common.command.PostEventCommand;
+import com.epita.repository.OutboxRepository;
+import com.epita.repository.PostEventPublisher;
+import com.epita.repository.PostRepository;
+import com.epita.repository.entity.OutboxEvent;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Background relay publishing the post events stored in the outbox.
+ * <p>
+ * Outbox entries are written right before the post mutation they describe. Before publishing,
+ * the relay checks that the mutation actually happened (the post exists for a creation, is gone
+ * for a deletion). Entries whose mutation never happened within the grace period come from a failed
+ * request and are aborted instead of being published.
+ */
+@ApplicationScoped
+public class PostOutboxRelay {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PostOutboxRelay.class);
+
+    private static final int BATCH_SIZE = 200;
+    private static final Duration LEASE_DURATION = Duration.ofSeconds(30);
+    private static final Duration ABORT_GRACE_PERIOD = Duration.ofMinutes(1);
+
+    private final String instanceId = UUID
+            .randomUUID()
+            .toString();
+
+    @Inject
+    OutboxRepository outboxRepository;
+
+    @Inject
+    PostRepository postRepository;
+
+    @Inject
+    PostEventPublisher postEventPublisher;
+
+    @Scheduled(every = "0.5s", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void relay() {
+        try {
+            List<OutboxEvent> batch;
+            boolean drained;
+            do {
+                batch = outboxRepository
+                        .claimBatch(instanceId, BATCH_SIZE, LEASE_DURATION)
+                        .await()
+                        .indefinitely();
+                // Entries still waiting for their write are claimed again first: leave them to the next tick.
+                drained = relayBatch(batch);
+            } while (drained && batch.size() == BATCH_SIZE);
+        } catch (Exception e) {
+            LOG.error("Error while relaying outbox events: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Publishes the entries whose write landed and aborts the stale ones. The lease on the other
+     * entries is released, so that the next tick checks them again.
+     *
+     * @return true if no entry of the batch is still waiting for its write.
+     */
+    private boolean relayBatch(List<OutboxEvent> batch) {
+        if (batch.isEmpty()) {
+            return true;
+        }
+        Set<UUID> existingPosts = postRepository
+                .getExistingPostIds(batch
+                        .stream()
+                        .map(OutboxEvent::getPostId)
+                        .toList())
+                .await()
+                .indefinitely();
+        LocalDateTime abortBefore = LocalDateTime
+                .now()
+                .minus(ABORT_GRACE_PERIOD);
+
+        List<PostEventCommand> toPublish = new ArrayList<>();
+        List<ObjectId> sent = new ArrayList<>();
+        List<ObjectId> aborted = new ArrayList<>();
+        List<ObjectId> waiting = new ArrayList<>();
+        for (OutboxEvent event : batch) {
+            boolean exists = existingPosts.contains(event.getPostId());
+            boolean applied = event.getType() == PostEventCommand.Type.DELETION ? !exists : exists;
+            if (applied) {
+                toPublish.add(event.toCommand());
+                sent.add(event.getId());
+            } else if (event
+                    .getCreatedAt()
+                    .isBefore(abortBefore)) {
+                LOG.warn("Aborting outbox event {} for post {}: the post was never {}", event.getType(), event.getPostId(),
+                        event.getType() == PostEventCommand.Type.DELETION ? "deleted" : "created");
+                aborted.add(event.getId());
+            } else {
+                waiting.add(event.getId());
+            }
+        }
+
+        postEventPublisher.publishAll(toPublish);
+        outboxRepository
+                .complete(sent, OutboxEvent.Status.SENT)
+                .await()
+                .indefinitely();
+        outboxRepository
+                .complete(aborted, OutboxEvent.Status.ABORTED)
+                .await()
+                .indefinitely();
+        outboxRepository
+                .release(waiting)
+                .await()
+                .indefinitely();
+        LOG.info("Relayed {} outbox events ({} aborted, {} waiting)", sent.size(), aborted.size(), waiting.size());
+        return waiting.isEmpty();
+    }
+}
@@ -1,16 +1,19 @@
 package com.epita.service;
 
 import com.epita.common.api.response.PostIdResponse;
+import com.epita.common.api.response.ThreadPostResponse;
+import com.epita.common.api.response.ThreadResponse;
 import com.epita.common.api.response.UserResponse;
 import com.epita.common.command.PostEventCommand;
 import com.epita.common.utils.ErrorCode;
 import com.epita.controller.contracts.PostRequestContract;
-import com.epita.repository.PostEventPublisher;
+import com.epita.repository.GroupCommitWriter;
+import com.epita.repository.OutboxRepository;
 import com.epita.repository.PostRepository;
 import com.epita.repository.RepoSocialRestClient;
-import com.epita.repository.UserRepository;
 import com.epita.repository.entity.Post;
-import com.epita.repository.entity.User;
+import com.epita.service.entity.PostCounter;
+import io.smallrye.mutiny.Uni;
 import jakarta.inject.Inject;
 
 import jakarta.enterprise.context.ApplicationScoped;
@@ -19,13 +22,19 @@ import com.epita.common.api.response.PostResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
 /**
  * Service for managing posts in the Repo-Social service.
  * Provides methods for creating, retrieving, deleting, and validating posts.
+ * All methods are non-blocking and complete once the underlying MongoDB / RepoSocial calls do.
  */
 @ApplicationScoped
 public class PostService {
@@ -34,29 +43,43 @@ public class PostService {
     PostRepository postRepository;
 
     @Inject
-    UserRepository userRepository;
+    UserDirectory userDirectory;
 
     @Inject
-    PostEventPublisher postEventPublisher;
+    OutboxRepository outboxRepository;
+
+    @Inject
+    GroupCommitWriter groupCommitWriter;
 
     @Inject
     RepoSocialRestClient repoSocialRestClient;
 
+    @Inject
+    PostCounterBuffer postCounterBuffer;
+
     private static final Logger LOG = LoggerFactory.getLogger(PostService.class);
 
+    /**
+     * The maximum number of replies resolved for a thread.
+     */
+    static final int MAX_THREAD_SIZE = 1000;
+
     /**
      * Retrieves a post by its ID.
      *
      * @param postId the UUID of the post to retrieve.
      * @return the post response containing post details.
      */
-    public PostResponse getPost(UUID postId) {
+    public Uni<PostResponse> getPost(UUID postId) {
         LOG.info("Fetching post with ID: {}", postId);
-        Post post = postRepository.getPostById(postId);
-        if (post == null)
-            handlePostNotFound(postId);
-        LOG.info("Post with ID {} fetched successfully", postId);
-        return new PostResponse(post.getId(), post.getAuthorId(), post.getText(), post.getMediaFileId(), post.getRepostId(), post.getReplyId(), post.getCreationDate());
+        return postRepository
+                .getPostById(postId)
+                .map(post -> {
+                    if (post == null)
+                        handlePostNotFound(postId);
+                    LOG.info("Post with ID {} fetched successfully", postId);
+                    return toPostResponse(post);
+                });
     }
 
     /**
@@ -65,25 +88,19 @@ public class PostService {
      * @param userId the UUID of the user whose posts are to be retrieved.
      * @return a list of post responses.
      */
-    public List<PostResponse> getPostsByUser(UUID userId) {
+    public Uni<List<PostResponse>> getPostsByUser(UUID userId) {
         LOG.info("Fetching posts for user with ID: {}", userId);
-        User user = userRepository.getUserById(userId);
-        if (user == null)
-            handleUserNotFound(userId);
-        List<Post> posts = postRepository.getUserPosts(userId);
-        LOG.info("Fetched {} posts for user with ID: {}", posts.size(), userId);
-        return posts
-                .stream()
-                .map(post -> new PostResponse(
-                        post.getId(),
-                        post.getAuthorId(),
-                        post.getText(),
-                        post.getMediaFileId(),
-                        post.getRepostId(),
-                        post.getReplyId(),
-                        post.getCreationDate()
-                ))
-                .toList();
+        return userDirectory
+                .getUser(userId)
+                .flatMap(user -> {
+                    if (user == null)
+                        handleUserNotFound(userId);
+                    return postRepository.getUserPosts(userId);
+                })
+                .map(posts -> {
+                    LOG.info("Fetched {} posts for user with ID: {}", posts.size(), userId);
+                    return toPostResponses(posts);
+                });
     }
 
     /**
@@ -92,22 +109,14 @@ public class PostService {
      * @param postId the UUID of the post whose replies are to be retrieved.
      * @return a list of post responses representing the replies.
      */
-    public List<PostResponse> getPostReplies(UUID postId) {
+    public Uni<List<PostResponse>> getPostReplies(UUID postId) {
         LOG.info("Fetching replies for post with ID: {}", postId);
-        List<Post> replies = postRepository.getPostReplies(postId);
-        LOG.info("Fetched {} replies for post with ID: {}", replies.size(), postId);
-        return replies
-                .stream()
-                .map(post -> new PostResponse(
-                        post.getId(),
-                        post.getAuthorId(),
-                        post.getText(),
-                        post.getMediaFileId(),
-                        post.getRepostId(),
-                        post.getReplyId(),
-                        post.getCreationDate()
-                ))
-                .toList();
+        return postRepository
+                .getPostReplies(postId)
+                .map(replies -> {
+                    LOG.info("Fetched {} replies for post with ID: {}", replies.size(), postId);
+                    return toPostResponses(replies);
+                });
     }
 
     /**
@@ -116,22 +125,74 @@ public class PostService {
      * @param postId the UUID of the post whose reposts are to be retrieved.
      * @return a list of post responses representing the reposts.
      */
-    public List<PostResponse> getPostReposts(UUID postId) {
+    public Uni<List<PostResponse>> getPostReposts(UUID postId) {
         LOG.info("Fetching reposts for post with ID: {}", postId);
-        List<Post> reposts = postRepository.getPostReposts(postId);
-        LOG.info("Fetched {} reposts for post with ID: {}", reposts.size(), postId);
-        return reposts
-                .stream()
-                .map(post -> new PostResponse(
-                        post.getId(),
-                        post.getAuthorId(),
-                        post.getText(),
-                        post.getMediaFileId(),
-                        post.getRepostId(),
-                        post.getReplyId(),
-                        post.getCreationDate()
-                ))
-                .toList();
+        return postRepository
+                .getPostReposts(postId)
+                .map(reposts -> {
+                    LOG.info("Fetched {} reposts for post with ID: {}", reposts.size(), postId);
+                    return toPostResponses(reposts);
+                });
+    }
+
+    /**
+     * Retrieves a page of the conversation thread of a post.
+     * The reply tree is resolved one depth level at a time, then flattened in conversation order:
+     * each post is followed by its replies, oldest first, before its next sibling.
+     *
+     * @param postId   the UUID of the root post.
+     * @param page     the index of the page, starting at 0.
+     * @param size     the number of posts per page.
+     * @param maxDepth the maximum depth of the replies.
+     * @return the requested page of the thread.
+     */
+    public Uni<ThreadResponse> getThread(UUID postId, int page, int size, int maxDepth) {
+        LOG.info("Fetching thread of post with ID: {}", postId);
+        return Uni
+                .combine()
+                .all()
+                .unis(postRepository.getPostById(postId), postRepository.getThreadReplies(postId, maxDepth, MAX_THREAD_SIZE))
+                .asTuple()
+                .map(thread -> {
+                    Post root = thread.getItem1();
+                    if (root == null)
+                        handlePostNotFound(postId);
+                    List<Post> replies = thread.getItem2();
+                    List<ThreadPostResponse> flattened = flattenThread(root, replies);
+                    int from = (int) Math.min((long) page * size, flattened.size());
+                    int to = Math.min(from + size, flattened.size());
+                    LOG.info("Fetched thread of {} posts for post with ID: {}", flattened.size(), postId);
+                    return new ThreadResponse(postId, page, size, flattened.size(), replies.size() == MAX_THREAD_SIZE,
+                            new ArrayList<>(flattened.subList(from, to)));
+                });
+    }
+
+    /**
+     * Orders a reply tree depth-first. Replies must be sorted by creation date among siblings.
+     */
+    static List<ThreadPostResponse> flattenThread(Post root, List<Post> replies) {
+        Map<UUID, List<Post>> children = new HashMap<>();
+        for (Post reply : replies) {
+            children
+                    .computeIfAbsent(reply.getReplyId(), parentId -> new ArrayList<>())
+                    .add(reply);
+        }
+
+        List<ThreadPostResponse> flattened = new ArrayList<>(replies.size() + 1);
+        Deque<ThreadPostResponse> stack = new ArrayDeque<>();
+        stack.push(new ThreadPostResponse(0, toPostResponse(root)));
+        while (!stack.isEmpty()) {
+            ThreadPostResponse current = stack.pop();
+            flattened.add(current);
+            List<Post> directReplies = children.getOrDefault(current
+                    .getPost()
+                    .getId(), List.of());
+            // Pushed newest first, so that the oldest reply is visited first.
+            for (int i = directReplies.size() - 1; i >= 0; i--) {
+                stack.push(new ThreadPostResponse(current.getDepth() + 1, toPostResponse(directReplies.get(i))));
+            }
+        }
+        return flattened;
     }
 
     /**
@@ -140,77 +201,102 @@ public class PostService {
      * @param userId the UUID of the user attempting to delete the post.
      * @param postId the UUID of the post to delete.
      */
-    public void deletePost(UUID userId, UUID postId) {
+    public Uni<Void> deletePost(UUID userId, UUID postId) {
         LOG.info("Deleting post with ID: {} by user with ID: {}", postId, userId);
-        Post post = postRepository.getPostById(postId);
-        if (post == null)
-            handlePostNotFound(postId);
-        if (!post
-                .getAuthorId()
-                .equals(userId)) {
-            LOG.warn("User with ID {} is not authorized to delete post with ID: {}", userId, postId);
-            ErrorCode.FORBIDDEN_ACTION.throwException(userId);
-        }
-        postRepository.deletePost(postId);
-        LOG.info("Post with ID {} deleted successfully", postId);
-
-        PostEventCommand postDeletion = new PostEventCommand(PostEventCommand.Type.DELETION, postId, userId, Optional.ofNullable(post.getText()), post.getCreationDate());
-        postEventPublisher.publish(postDeletion);
-        LOG.info("Post deletion event published for post ID: {}", postId);
+        return postRepository
+                .getPostById(postId)
+                .flatMap(post -> {
+                    if (post == null)
+                        handlePostNotFound(postId);
+                    if (!post
+                            .getAuthorId()
+                            .equals(userId)) {
+                        LOG.warn("User with ID {} is not authorized to delete post with ID: {}", userId, postId);
+                        ErrorCode.FORBIDDEN_ACTION.throwException(userId);
+                    }
+                    PostEventCommand postDeletion = new PostEventCommand(PostEventCommand.Type.DELETION, postId, userId, Optional.ofNullable(post.getText()), post.getCreationDate());
+                    return outboxRepository
+                            .append(postDeletion)
+                            .flatMap(event -> postRepository.deletePost(postId))
+                            .invoke(deleted -> {
+                                if (deleted) {
+                                    postCounterBuffer.increment(post.getReplyId(), PostCounter.REPLIES, -1);
+                                    postCounterBuffer.increment(post.getRepostId(), PostCounter.REPOSTS, -1);
+                                }
+                            });
+                })
+                .invoke(() -> LOG.info("Post with ID {} deleted successfully", postId))
+                .replaceWithVoid();
     }
 
     /**
      * Validates whether a user can create a post, considering reply and repost constraints.
+     * Fails with POST_NOT_FOUND if a referenced post does not exist, POST_CREATION_FORBIDDEN if
+     * the user and the author block each other, and REPO_SOCIAL_FAILED if the block check failed.
+     * Each referenced post is fetched once, and both block directions are checked with a single request.
      *
      * @param replyId the UUID of the post being replied to, if applicable.
      * @param repostId the UUID of the post being reposted, if applicable.
      * @param userId the UUID of the user attempting to create the post.
      */
-    public void canPost(UUID replyId, UUID repostId, UUID userId) {
+    public Uni<Void> canPost(UUID replyId, UUID repostId, UUID userId) {
         LOG.info("Checking if user with ID: {} can post", userId);
-        if (replyId != null || repostId != null) {
-            try {
-                if (replyId != null) {
-                    Post replyPost = postRepository.getPostById(replyId);
-                    if (replyPost == null) {
-                        LOG.warn("Reply post with ID {} not found", replyId);
-                        ErrorCode.POST_NOT_FOUND.throwException(replyId);
-                    }
-                }
-                if (repostId != null) {
-                    Post repostPost = postRepository.getPostById(repostId);
-                    if (repostPost == null) {
-                        LOG.warn("Repost with ID {} not found", repostId);
-                        ErrorCode.POST_NOT_FOUND.throwException(repostId);
-                    }
-                }
-
-                UUID authorId = replyId != null ? postRepository
-                        .getPostById(replyId)
-                        .getAuthorId() : postRepository
-                        .getPostById(repostId)
-                        .getAuthorId();
-                if (repoSocialRestClient.doesUserBlock(userId, authorId) || repoSocialRestClient.isUserBlocked(userId, authorId)) {
-                    LOG.warn("User with ID {} is blocked or blocks user with ID: {}", userId, authorId);
-                    ErrorCode.POST_CREATION_FORBIDDEN.throwException(userId, authorId);
-                }
-            } catch (Exception e) {
-                LOG.warn("Caught exception while checking if user is blocked: {}", e.getMessage());
-                ErrorCode.REPO_SOCIAL_FAILED.throwException(e.getMessage());
-            }
+        if (replyId == null && repostId == null) {
+            LOG.info("User with ID: {} can post", userId);
+            return Uni
+                    .createFrom()
+                    .voidItem();
         }
-        LOG.info("User with ID: {} can post", userId);
+        // Both referenced posts are fetched at once.
+        return Uni
+                .combine()
+                .all()
+                .unis(getReferencedPost(replyId, "Reply post"), getReferencedPost(repostId, "Repost"))
+                .combinedWith((replyPost, repostPost) -> replyPost != null ? replyPost : repostPost)
+                .flatMap(referencedPost -> {
+                    UUID authorId = referencedPost.getAuthorId();
+                    return repoSocialRestClient
+                            .isBlockedEitherWay(userId, authorId)
+                            .onFailure()
+                            .transform(e -> {
+                                LOG.warn("Caught exception while checking if user is blocked: {}", e.getMessage());
+                                return ErrorCode.REPO_SOCIAL_FAILED.get(e.getMessage());
+                            })
+                            .invoke(blocked -> {
+                                if (blocked) {
+                                    LOG.warn("User with ID {} is blocked or blocks user with ID: {}", userId, authorId);
+                                    ErrorCode.POST_CREATION_FORBIDDEN.throwException(userId, authorId);
+                                }
+                            });
+                })
+                .invoke(() -> LOG.info("User with ID: {} can post", userId))
+                .replaceWithVoid();
+    }
+
+    private Uni<Post> getReferencedPost(UUID postId, String kind) {
+        if (postId == null) {
+            return Uni
+                    .createFrom()
+                    .nullItem();
+        }
+        return postRepository
+                .getPostById(postId)
+                .invoke(post -> {
+                    if (post == null) {
+                        LOG.warn("{} with ID {} not found", kind, postId);
+                        ErrorCode.POST_NOT_FOUND.throwException(postId);
+                    }
+                });
     }
 
     /**
-     * Creates a new post.
+     * Checks the content rules of a post: at least one and at most two of (text, media, repost),
+     * and a text of at most 160 characters.
      *
-     * @param userId the UUID of the user creating the post.
      * @param post the post request contract containing post details.
-     * @return the ID of the created post.
+     * @throws IllegalArgumentException if the post breaks one of the rules.
      */
-    public PostIdResponse createPost(UUID userId, PostRequestContract post) {
-        LOG.info("Creating post for user with ID: {}", userId);
+    public void validatePost(PostRequestContract post) {
         if (post.getText() == null && post.getMediaId() == null && post.getRepostId() == null) {
             LOG.warn("Post must contain at least one of (text, media, repost)");
             throw new IllegalArgumentException("Post must contain at least one of (text, media, repost)");
@@ -226,11 +312,23 @@ public class PostService {
             LOG.warn("Post text must not exceed 160 characters");
             throw new IllegalArgumentException("Post text must not exceed 160 characters");
         }
+    }
 
-        User user = userRepository.getUserById(userId);
-        if (user == null) {
-            LOG.info("User with ID {} not found, creating new user", userId);
-            userRepository.createUser(new User(userId, ""));
+    /**
+     * Creates a new post.
+     *
+     * @param userId the UUID of the user creating the post.
+     * @param post the post request contract containing post details.
+     * @return the ID of the created post.
+     */
+    public Uni<PostIdResponse> createPost(UUID userId, PostRequestContract post) {
+        LOG.info("Creating post for user with ID: {}", userId);
+        try {
+            validatePost(post);
+        } catch (IllegalArgumentException e) {
+            return Uni
+                    .createFrom()
+                    .failure(e);
         }
 
         Post newPost = new Post(
@@ -239,14 +337,21 @@ public class PostService {
                 post.getMediaId(),
                 post.getRepostId(),
                 post.getReplyId());
-        UUID postId = postRepository.createPost(newPost);
-        LOG.info("Post created with ID: {}", postId);
-
-        PostEventCommand postCreation = new PostEventCommand(PostEventCommand.Type.CREATION, postId, userId, Optional.ofNullable(post.getText()), newPost.getCreationDate());
-        postEventPublisher.publish(postCreation);
-        LOG.info("Post creation event published for post ID: {}", postId);
+        // The event is stored first: the outbox relay publishes it once the post is visible.
+        PostEventCommand postCreation = new PostEventCommand(PostEventCommand.Type.CREATION, newPost.getId(), userId, Optional.ofNullable(post.getText()), newPost.getCreationDate());
 
-        return new PostIdResponse(postId);
+        return userDirectory
+                .ensureExists(userId)
+                .flatMap(ensured -> groupCommitWriter.appendOutbox(postCreation))
+                .flatMap(event -> groupCommitWriter.createPost(newPost))
+                .invoke(postId -> {
+                    postCounterBuffer.increment(newPost.getReplyId(), PostCounter.REPLIES, 1);
+                    postCounterBuffer.increment(newPost.getRepostId(), PostCounter.REPOSTS, 1);
+                })
+                .map(postId -> {
+                    LOG.info("Post created with ID: {}", postId);
+                    return new PostIdResponse(postId);
+                });
     }
 
     /**
@@ -255,13 +360,28 @@ public class PostService {
      * @param userId the UUID of the user to retrieve.
      * @return the user response containing user details.
      */
-    public UserResponse getUserById(UUID userId) {
+    public Uni<UserResponse> getUserById(UUID userId) {
         LOG.info("Fetching user with ID: {}", userId);
-        User user = userRepository.getUserById(userId);
-        if (user == null)
-            handleUserNotFound(userId);
-        LOG.info("User with ID {} fetched successfully", userId);
-        return new UserResponse(user.getId(), user.getName());
+        return userDirectory
+                .getUser(userId)
+                .map(user -> {
+                    if (user == null)
+                        handleUserNotFound(userId);
+                    LOG.info("User with ID {} fetched successfully", userId);
+                    return new UserResponse(user.getId(), user.getName());
+                });
+    }
+
+    private static PostResponse toPostResponse(Post post) {
+        return new PostResponse(post.getId(), post.getAuthorId(), post.getText(), post.getMediaFileId(), post.getRepostId(), post.getReplyId(), post.getCreationDate(),
+                post.getReplyCount(), post.getRepostCount(), post.getLikeCount());
+    }
+
+    private static List<PostResponse> toPostResponses(List<Post> posts) {
+        return posts
+                .stream()
+                .map(PostService::toPostResponse)
+                .toList();
     }
 
     /**
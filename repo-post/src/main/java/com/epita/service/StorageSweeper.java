@@ -0,0 +1,313 @@
+package com.epita.service;
+
+import com.epita.controller.contracts.StorageSweeperStats;
+import com.epita.repository.LeaseRepository;
+import com.epita.repository.PostRepository;
+import com.epita.repository.entity.Post;
+import com.mongodb.client.gridfs.model.GridFSFile;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.core.Response;
+import org.bson.types.ObjectId;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Background sweeper reclaiming storage that normal requests leave behind when they fail halfway:
+ * media files no post uses, variants of deleted media, and reply/repost references to deleted posts.
+ * <p>
+ * Each run walks a bounded number of small batches in ID order and pauses between them, so that
+ * the sweeper never competes with user requests. The position is kept between runs: a full pass
+ * over a large collection is spread over many runs. Anything younger than the grace period is
+ * left alone, since the request using it may still be in flight. A lease in Mongo ensures a single
+ * replica sweeps at a time.
+ */
+@ApplicationScoped
+public class StorageSweeper {
+
+    private static final Logger LOG = LoggerFactory.getLogger(StorageSweeper.class);
+
+    private static final int BATCH_SIZE = 100;
+    private static final int MAX_BATCHES_PER_RUN = 10;
+    private static final Duration BATCH_PAUSE = Duration.ofMillis(200);
+    private static final String SWEEP_LEASE = "storage-sweeper";
+    private static final Duration SWEEP_LEASE_DURATION = Duration.ofMinutes(5);
+
+    private final String instanceId = "sweeper-" + UUID.randomUUID();
+
+    @ConfigProperty(name = "epitweet.sweeper.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @ConfigProperty(name = "epitweet.sweeper.grace-period", defaultValue = "1h")
+    Duration gracePeriod;
+
+    @Inject
+    FileStorageService fileStorageService;
+
+    @Inject
+    PostRepository postRepository;
+
+    @Inject
+    PostService postService;
+
+    @Inject
+    PostImportService postImportService;
+
+    @Inject
+    LeaseRepository leaseRepository;
+
+    private ObjectId lastFileId;
+    private ObjectId lastVariantId;
+    private UUID lastPostId;
+
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLong filesReclaimed = new AtomicLong();
+    private final AtomicLong variantsReclaimed = new AtomicLong();
+    private final AtomicLong bytesReclaimed = new AtomicLong();
+    private final AtomicLong referencesCleared = new AtomicLong();
+    private final AtomicLong repostsDeleted = new AtomicLong();
+    private volatile LocalDateTime lastRunAt;
+    private volatile long lastRunDurationMs;
+
+    @Scheduled(every = "${epitweet.sweeper.every:1m}", delayed = "1m", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void sweep() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        LocalDateTime cutoff = LocalDateTime
+                .now()
+                .minus(gracePeriod);
+        try {
+            // A single replica sweeps at a time; it keeps the lease while it keeps running, and with it its position.
+            boolean leader = leaseRepository
+                    .acquire(SWEEP_LEASE, instanceId, SWEEP_LEASE_DURATION)
+                    .await()
+                    .indefinitely();
+            if (!leader) {
+                return;
+            }
+            sweepFiles(cutoff);
+            sweepVariants(cutoff);
+            // Imported posts may reference posts later in the same import: wait for it to finish.
+            boolean importing = postImportService
+                    .isImporting()
+                    .await()
+                    .indefinitely();
+            if (!importing) {
+                sweepReferences();
+            }
+        } catch (InterruptedException e) {
+            Thread
+                    .currentThread()
+                    .interrupt();
+        } catch (Exception e) {
+            LOG.error("Error while sweeping storage: {}", e.getMessage());
+        }
+        runs.incrementAndGet();
+        lastRunAt = LocalDateTime.now();
+        lastRunDurationMs = Duration
+                .ofNanos(System.nanoTime() - start)
+                .toMillis();
+    }
+
+    /**
+     * @return the cumulated work of the sweeper since the service started.
+     */
+    public StorageSweeperStats getStats() {
+        return new StorageSweeperStats(runs.get(), filesReclaimed.get(), variantsReclaimed.get(), bytesReclaimed.get(),
+                referencesCleared.get(), repostsDeleted.get(), lastRunAt, lastRunDurationMs);
+    }
+
+    /**
+     * Deletes original files that no post uses.
+     */
+    private void sweepFiles(LocalDateTime cutoff) throws InterruptedException {
+        for (int batch = 0; batch < MAX_BATCHES_PER_RUN; batch++) {
+            List<GridFSFile> files = fileStorageService
+                    .listFiles(lastFileId, toDate(cutoff), false, BATCH_SIZE)
+                    .await()
+                    .indefinitely();
+            lastFileId = files.isEmpty() ? null : files
+                    .get(files.size() - 1)
+                    .getObjectId();
+
+            List<String> fileIds = files
+                    .stream()
+                    .map(file -> file
+                            .getObjectId()
+                            .toHexString())
+                    .toList();
+            Set<String> used = fileIds.isEmpty() ? Set.of() : postRepository
+                    .getReferencedMediaIds(fileIds)
+                    .await()
+                    .indefinitely();
+            for (String fileId : fileIds) {
+                if (used.contains(fileId)) {
+                    continue;
+                }
+                long bytes = fileStorageService
+                        .reclaim(fileId, cutoff)
+                        .await()
+                        .indefinitely();
+                if (bytes > 0) {
+                    LOG.info("Reclaimed {} bytes of unused file {}", bytes, fileId);
+                    filesReclaimed.incrementAndGet();
+                    bytesReclaimed.addAndGet(bytes);
+                }
+            }
+            if (!pause(files)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Deletes variants whose original file is gone.
+     */
+    private void sweepVariants(LocalDateTime cutoff) throws InterruptedException {
+        for (int batch = 0; batch < MAX_BATCHES_PER_RUN; batch++) {
+            List<GridFSFile> variants = fileStorageService
+                    .listFiles(lastVariantId, toDate(cutoff), true, BATCH_SIZE)
+                    .await()
+                    .indefinitely();
+            lastVariantId = variants.isEmpty() ? null : variants
+                    .get(variants.size() - 1)
+                    .getObjectId();
+
+            Set<String> originalIds = new HashSet<>();
+            variants.forEach(variant -> originalIds.add(originalIdOf(variant)));
+            Set<String> existing = originalIds.isEmpty() ? Set.of() : fileStorageService
+                    .getExistingFileIds(originalIds)
+                    .await()
+                    .indefinitely();
+            for (GridFSFile variant : variants) {
+                if (existing.contains(originalIdOf(variant))) {
+                    continue;
+                }
+                long bytes = fileStorageService
+                        .deleteStoredFile(variant)
+                        .await()
+                        .indefinitely();
+                LOG.info("Reclaimed {} bytes of orphaned variant {}", bytes, variant.getObjectId());
+                variantsReclaimed.incrementAndGet();
+                bytesReclaimed.addAndGet(bytes);
+            }
+            if (!pause(variants)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Removes reply and repost references to deleted posts. A plain repost of a deleted post has
+     * nothing left to show, so it is deleted like its author would, which also notifies the other
+     * services.
+     */
+    private void sweepReferences() throws InterruptedException {
+        for (int batch = 0; batch < MAX_BATCHES_PER_RUN; batch++) {
+            List<Post> posts = postRepository
+                    .getPostsWithReferences(lastPostId, BATCH_SIZE)
+                    .await()
+                    .indefinitely();
+            lastPostId = posts.isEmpty() ? null : posts
+                    .get(posts.size() - 1)
+                    .getId();
+
+            Set<UUID> targets = new HashSet<>();
+            for (Post post : posts) {
+                if (post.getReplyId() != null) {
+                    targets.add(post.getReplyId());
+                }
+                if (post.getRepostId() != null) {
+                    targets.add(post.getRepostId());
+                }
+            }
+            Set<UUID> existing = targets.isEmpty() ? Set.of() : postRepository
+                    .getExistingPostIds(targets)
+                    .await()
+                    .indefinitely();
+            Set<UUID> missing = new HashSet<>(targets);
+            missing.removeAll(existing);
+
+            List<UUID> danglingPosts = new ArrayList<>();
+            for (Post post : posts) {
+                boolean danglingReply = missing.contains(post.getReplyId());
+                boolean danglingRepost = missing.contains(post.getRepostId());
+                if (danglingRepost && post.getText() == null && post.getMediaFileId() == null) {
+                    boolean deleted = postService
+                            .deletePost(post.getAuthorId(), post.getId())
+                            .replaceWith(true)
+                            .onFailure(StorageSweeper::isNotFound)
+                            .recoverWithItem(false)
+                            .await()
+                            .indefinitely();
+                    if (deleted) {
+                        repostsDeleted.incrementAndGet();
+                    }
+                } else if (danglingReply || danglingRepost) {
+                    danglingPosts.add(post.getId());
+                }
+            }
+            if (!danglingPosts.isEmpty()) {
+                long cleared = postRepository
+                        .clearDanglingReferences(danglingPosts, missing)
+                        .await()
+                        .indefinitely();
+                LOG.info("Cleared {} references to deleted posts", cleared);
+                referencesCleared.addAndGet(cleared);
+            }
+            if (!pause(posts)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Waits between two batches.
+     *
+     * @return false if the batch was the last one of the collection.
+     */
+    private static boolean pause(List<?> batch) throws InterruptedException {
+        if (batch.size() < BATCH_SIZE) {
+            return false;
+        }
+        Thread.sleep(BATCH_PAUSE.toMillis());
+        return true;
+    }
+
+    /**
+     * @return true if the post was already deleted, e.g. by its author meanwhile.
+     */
+    private static boolean isNotFound(Throwable e) {
+        return e instanceof WebApplicationException webException && webException
+                .getResponse()
+                .getStatus() == Response.Status.NOT_FOUND.getStatusCode();
+    }
+
+    private static String originalIdOf(GridFSFile variant) {
+        return variant
+                .getMetadata()
+                .getString("derivativeOf");
+    }
+
+    private static Date toDate(LocalDateTime dateTime) {
+        return Date.from(dateTime
+                .atZone(ZoneId.systemDefault())
+                .toInstant());
+    }
+}
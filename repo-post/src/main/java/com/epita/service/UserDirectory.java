@@ -0,0 +1,95 @@
+package com.epita.service;
+
+import com.epita.common.utils.ExpiringCache;
+import com.epita.repository.UserRepository;
+import com.epita.repository.entity.User;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * In-process directory of the users known to this service, in front of the Users collection.
+ * <p>
+ * Users are only ever created here (lazily, by their first post), so found users are cached for a
+ * long time. Unknown users are cached too, briefly, so that repeated lookups of a missing user do
+ * not reach MongoDB either.
+ */
+@ApplicationScoped
+public class UserDirectory {
+
+    private static final Logger LOG = LoggerFactory.getLogger(UserDirectory.class);
+
+    private static final Duration KNOWN_USER_TTL = Duration.ofMinutes(10);
+    private static final Duration UNKNOWN_USER_TTL = Duration.ofSeconds(5);
+    private static final int MAX_CACHED_USERS = 100_000;
+
+    @Inject
+    UserRepository userRepository;
+
+    private final ExpiringCache<UUID, CachedUser> users = new ExpiringCache<>(MAX_CACHED_USERS);
+
+    /**
+     * Retrieves a user.
+     *
+     * @param userId the UUID of the user.
+     * @return the user, or null if the user does not exist.
+     */
+    public Uni<User> getUser(UUID userId) {
+        CachedUser cached = users.get(userId);
+        if (cached != null) {
+            return Uni
+                    .createFrom()
+                    .item(cached.user());
+        }
+        return userRepository
+                .getUserById(userId)
+                .invoke(user -> remember(userId, user));
+    }
+
+    /**
+     * Makes sure a user exists, creating it if needed. Known users cost no database round trip.
+     *
+     * @param userId the UUID of the user.
+     */
+    public Uni<Void> ensureExists(UUID userId) {
+        CachedUser cached = users.get(userId);
+        if (cached != null && cached.user() != null) {
+            return Uni
+                    .createFrom()
+                    .voidItem();
+        }
+        return userRepository
+                .ensureExists(userId)
+                .invoke(user -> {
+                    LOG.debug("User with ID {} ensured", userId);
+                    remember(userId, user);
+                })
+                .replaceWithVoid();
+    }
+
+    /**
+     * Forgets users created behind the directory's back, e.g. by a bulk import, so that they are
+     * not reported missing until their negative entry expires.
+     *
+     * @param userIds the UUIDs of the users.
+     */
+    public void forget(Collection<UUID> userIds) {
+        userIds.forEach(users::invalidate);
+    }
+
+    private void remember(UUID userId, User user) {
+        users.put(userId, new CachedUser(user), user != null ? KNOWN_USER_TTL : UNKNOWN_USER_TTL);
+    }
+
+    /**
+     * A cache entry, holding null for a user known not to exist.
+     */
+    private record CachedUser(User user) {
+    }
+}
@@ -0,0 +1,44 @@
+package com.epita.service.entity;
+
+import lombok.Getter;
+
+/**
+ * Downscaled variants generated for image media.
+ * Each variant is bounded by a maximum width and height, preserving the aspect ratio.
+ */
+@Getter
+public enum MediaVariant {
+    THUMB("thumb", 160),
+    MEDIUM("medium", 640);
+
+    /**
+     * The name of the variant, as used in the `variant` query parameter and GridFS metadata.
+     */
+    private final String name;
+
+    /**
+     * The maximum width and height of the variant, in pixels.
+     */
+    private final int maxSize;
+
+    MediaVariant(String name, int maxSize) {
+        this.name = name;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Resolves a variant from its name.
+     *
+     * @param name the name of the variant, case-insensitive.
+     * @return the matching variant.
+     * @throws IllegalArgumentException if no variant has this name.
+     */
+    public static MediaVariant fromName(String name) {
+        for (MediaVariant variant : values()) {
+            if (variant.name.equalsIgnoreCase(name)) {
+                return variant;
+            }
+        }
+        throw new IllegalArgumentException("Unknown media variant: " + name);
+    }
+}
@@ -0,0 +1,22 @@
+package com.epita.service.entity;
+
+import lombok.Getter;
+
+/**
+ * Engagement counters denormalized on a post.
+ */
+@Getter
+public enum PostCounter {
+    REPLIES("replyCount"),
+    REPOSTS("repostCount"),
+    LIKES("likeCount");
+
+    /**
+     * The name of the field holding the counter in the post document.
+     */
+    private final String field;
+
+    PostCounter(String field) {
+        this.field = field;
+    }
+}
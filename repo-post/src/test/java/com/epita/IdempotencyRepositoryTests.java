@@ -0,0 +1,84 @@
+package com.epita;
+
+import com.epita.repository.IdempotencyRepository;
+import com.epita.repository.entity.IdempotencyRecord;
+import io.quarkus.test.junit.QuarkusTest;
+import jakarta.inject.Inject;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@QuarkusTest
+public class IdempotencyRepositoryTests {
+    @Inject
+    IdempotencyRepository idempotencyRepository;
+
+    private final String id = UUID.randomUUID() + ":key";
+    private final Duration staleAfter = Duration.ofMinutes(1);
+
+    @Test
+    void reserve_shouldReturnThePendingRecord_toARetry() {
+        assertNull(idempotencyRepository
+                .reserve(id, "fingerprint", staleAfter)
+                .await()
+                .indefinitely());
+        IdempotencyRecord record = idempotencyRepository
+                .reserve(id, "fingerprint", staleAfter)
+                .await()
+                .indefinitely();
+        assertNotNull(record);
+        assertEquals(IdempotencyRecord.Status.PENDING, record.getStatus());
+    }
+
+    @Test
+    void reserve_shouldTakeOverAStaleKey_withTheSameFingerprint() {
+        IdempotencyRecord stale = new IdempotencyRecord(id, "fingerprint");
+        stale.setCreatedAt(LocalDateTime
+                .now()
+                .minusMinutes(5));
+        idempotencyRepository
+                .persist(stale)
+                .await()
+                .indefinitely();
+
+        IdempotencyRecord record = idempotencyRepository
+                .reserve(id, "other fingerprint", staleAfter)
+                .await()
+                .indefinitely();
+        assertNotNull(record);
+        assertNull(idempotencyRepository
+                .reserve(id, "fingerprint", staleAfter)
+                .await()
+                .indefinitely());
+        // Once taken over, the key is fresh again.
+        assertNotNull(idempotencyRepository
+                .reserve(id, "fingerprint", staleAfter)
+                .await()
+                .indefinitely());
+    }
+
+    @Test
+    void reserve_shouldNotTakeOverACompletedKey() {
+        assertNull(idempotencyRepository
+                .reserve(id, "fingerprint", Duration.ZERO)
+                .await()
+                .indefinitely());
+        UUID postId = UUID.randomUUID();
+        idempotencyRepository
+                .complete(id, postId)
+                .await()
+                .indefinitely();
+
+        IdempotencyRecord record = idempotencyRepository
+                .reserve(id, "fingerprint", Duration.ZERO)
+                .await()
+                .indefinitely();
+        assertNotNull(record);
+        assertEquals(IdempotencyRecord.Status.COMPLETED, record.getStatus());
+        assertEquals(postId, record.getPostId());
+    }
+}
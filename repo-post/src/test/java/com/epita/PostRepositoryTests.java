@@ -27,7 +27,10 @@ public class PostRepositoryTests {
     void addPost() {
         Post post = new Post(authorId, "Hello World", null, null, null);
         post.setId(postId);
-        UUID returned_postId = postRepository.createPost(post);
+        UUID returned_postId = postRepository
+                .createPost(post)
+                .await()
+                .indefinitely();
         assertNotNull(returned_postId);
         assertEquals(returned_postId, post.getId());
     }
@@ -36,8 +39,14 @@ public class PostRepositoryTests {
     void getPost() {
         Post post = new Post(authorId, "Hello World", null, null, null);
         post.setId(postId);
-        postRepository.createPost(post);
-        List<Post> posts = postRepository.getUserPosts(authorId);
+        postRepository
+                .createPost(post)
+                .await()
+                .indefinitely();
+        List<Post> posts = postRepository
+                .getUserPosts(authorId)
+                .await()
+                .indefinitely();
         assertNotNull(posts);
         assertFalse(posts.isEmpty());
         assertEquals(posts
@@ -53,8 +62,14 @@ public class PostRepositoryTests {
     void getPostById() {
         Post post = new Post(authorId, "Hello World", null, null, null);
         post.setId(postId);
-        postRepository.createPost(post);
-        Post retrievedPost = postRepository.getPostById(postId);
+        postRepository
+                .createPost(post)
+                .await()
+                .indefinitely();
+        Post retrievedPost = postRepository
+                .getPostById(postId)
+                .await()
+                .indefinitely();
         assertNotNull(retrievedPost);
         assertEquals(retrievedPost.getId(), postId);
         assertEquals(retrievedPost.getAuthorId(), authorId);
@@ -64,15 +79,27 @@ public class PostRepositoryTests {
     void getPostReplies() {
         Post post = new Post(authorId, "Hello World", null, null, null);
         post.setId(postId);
-        postRepository.createPost(post);
-        List<Post> replies = postRepository.getPostReplies(postId);
+        postRepository
+                .createPost(post)
+                .await()
+                .indefinitely();
+        List<Post> replies = postRepository
+                .getPostReplies(postId)
+                .await()
+                .indefinitely();
         assertNotNull(replies);
         assertTrue(replies.isEmpty());
 
         Post reply = new Post(authorId, "Hello World", null, null, postId);
         reply.setId(UUID.randomUUID());
-        postRepository.createPost(reply);
-        replies = postRepository.getPostReplies(postId);
+        postRepository
+                .createPost(reply)
+                .await()
+                .indefinitely();
+        replies = postRepository
+                .getPostReplies(postId)
+                .await()
+                .indefinitely();
         assertNotNull(replies);
         assertFalse(replies.isEmpty());
         assertEquals(replies
@@ -85,10 +112,19 @@ public class PostRepositoryTests {
     void deletePost() {
         Post post = new Post(authorId, "Hello World", null, null, null);
         post.setId(postId);
-        postRepository.createPost(post);
-        boolean deleted = postRepository.deletePost(postId);
+        postRepository
+                .createPost(post)
+                .await()
+                .indefinitely();
+        boolean deleted = postRepository
+                .deletePost(postId)
+                .await()
+                .indefinitely();
         assertTrue(deleted);
-        Post retrievedPost = postRepository.getPostById(postId);
+        Post retrievedPost = postRepository
+                .getPostById(postId)
+                .await()
+                .indefinitely();
         assertNull(retrievedPost);
     }
 
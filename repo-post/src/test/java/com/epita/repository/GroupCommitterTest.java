@@ -0,0 +1,120 @@
+package com.epita.repository;
+
+import com.mongodb.bulk.BulkWriteError;
+import io.smallrye.mutiny.Uni;
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GroupCommitterTest {
+
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+    private final List<List<String>> batches = new CopyOnWriteArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        timer.shutdownNow();
+    }
+
+    private Uni<List<BulkWriteError>> insert(List<String> documents) {
+        batches.add(documents);
+        return Uni
+                .createFrom()
+                .item(List.of());
+    }
+
+    @Test
+    void submit_shouldWriteAFullWindowAtOnce() throws Exception {
+        GroupCommitter<String> committer = new GroupCommitter<>("Posts", this::insert, Duration.ofMinutes(1), 3, timer);
+
+        List<CompletableFuture<Void>> writes = List.of(
+                committer.submit("first").subscribeAsCompletionStage(),
+                committer.submit("second").subscribeAsCompletionStage(),
+                committer.submit("third").subscribeAsCompletionStage());
+
+        for (CompletableFuture<Void> write : writes) {
+            write.get(1, TimeUnit.SECONDS);
+        }
+        assertEquals(List.of(List.of("first", "second", "third")), batches);
+    }
+
+    @Test
+    void submit_shouldWriteTheWindow_onceItsDurationIsOver() throws Exception {
+        GroupCommitter<String> committer = new GroupCommitter<>("Posts", this::insert, Duration.ofMillis(20), 100, timer);
+
+        CompletableFuture<Void> first = committer.submit("first").subscribeAsCompletionStage();
+        CompletableFuture<Void> second = committer.submit("second").subscribeAsCompletionStage();
+
+        first.get(1, TimeUnit.SECONDS);
+        second.get(1, TimeUnit.SECONDS);
+        assertEquals(List.of(List.of("first", "second")), batches);
+    }
+
+    @Test
+    void submit_shouldFailOnlyTheWriterOfARejectedDocument() throws Exception {
+        GroupCommitter<String> committer = new GroupCommitter<>("Posts", documents -> Uni
+                .createFrom()
+                .item(List.of(new BulkWriteError(11000, "duplicate key", new BsonDocument(), 1))), Duration.ofMinutes(1), 2, timer);
+
+        CompletableFuture<Void> accepted = committer.submit("accepted").subscribeAsCompletionStage();
+        CompletableFuture<Void> rejected = committer.submit("rejected").subscribeAsCompletionStage();
+
+        accepted.get(1, TimeUnit.SECONDS);
+        ExecutionException e = assertThrows(ExecutionException.class, () -> rejected.get(1, TimeUnit.SECONDS));
+        assertTrue(e
+                .getCause()
+                .getMessage()
+                .contains("duplicate key"));
+    }
+
+    @Test
+    void submit_shouldFailEveryWriter_whenTheBulkInsertFails() {
+        GroupCommitter<String> committer = new GroupCommitter<>("Posts", documents -> Uni
+                .createFrom()
+                .failure(new IllegalStateException("Mongo unavailable")), Duration.ofMinutes(1), 2, timer);
+
+        CompletableFuture<Void> first = committer.submit("first").subscribeAsCompletionStage();
+        CompletableFuture<Void> second = committer.submit("second").subscribeAsCompletionStage();
+
+        assertThrows(ExecutionException.class, () -> first.get(1, TimeUnit.SECONDS));
+        assertThrows(ExecutionException.class, () -> second.get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void flush_shouldWaitForThePendingWindow() {
+        CompletableFuture<List<BulkWriteError>> acknowledgement = new CompletableFuture<>();
+        GroupCommitter<String> committer = new GroupCommitter<>("Posts", documents -> Uni
+                .createFrom()
+                .completionStage(acknowledgement), Duration.ofMinutes(1), 100, timer);
+        CompletableFuture<Void> write = committer.submit("pending").subscribeAsCompletionStage();
+        timer.schedule(() -> acknowledgement.complete(List.of()), 50, TimeUnit.MILLISECONDS);
+
+        committer.flush(Duration.ofSeconds(1));
+
+        assertTrue(write.isDone());
+        assertFalse(write.isCompletedExceptionally());
+    }
+
+    @Test
+    void flush_shouldGiveUp_afterTheTimeout() {
+        GroupCommitter<String> committer = new GroupCommitter<>("Posts", documents -> Uni
+                .createFrom()
+                .completionStage(new CompletableFuture<>()), Duration.ofMinutes(1), 100, timer);
+        CompletableFuture<Void> write = committer.submit("pending").subscribeAsCompletionStage();
+
+        committer.flush(Duration.ofMillis(50));
+
+        assertFalse(write.isDone());
+    }
+}
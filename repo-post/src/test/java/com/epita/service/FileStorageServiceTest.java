@@ -0,0 +1,116 @@
+package com.epita.service;
+
+import com.epita.repository.MediaReferenceRepository;
+import com.epita.repository.entity.MediaReference;
+import io.smallrye.mutiny.Uni;
+import io.vertx.mutiny.core.Vertx;
+import org.jboss.resteasy.reactive.multipart.FileUpload;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class FileStorageServiceTest {
+
+    @Mock
+    MediaReferenceRepository mediaReferenceRepository;
+
+    @InjectMocks
+    FileStorageService fileStorageService;
+
+    @TempDir
+    Path directory;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        fileStorageService.vertx = Vertx.vertx();
+    }
+
+    @AfterEach
+    void tearDown() {
+        fileStorageService.vertx
+                .close()
+                .await()
+                .indefinitely();
+    }
+
+    private FileUpload upload(String content) throws IOException {
+        Path path = Files.writeString(directory.resolve("upload.txt"), content);
+        FileUpload upload = mock(FileUpload.class);
+        when(upload.fileName()).thenReturn("upload.txt");
+        when(upload.uploadedFile()).thenReturn(path);
+        return upload;
+    }
+
+    private static String sha256(String content) throws NoSuchAlgorithmException {
+        return HexFormat
+                .of()
+                .formatHex(MessageDigest
+                        .getInstance("SHA-256")
+                        .digest(content.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void storeFile_shouldReuseTheStoredFile_whenTheContentIsKnown() throws Exception {
+        String content = "Hello World";
+        when(mediaReferenceRepository.acquire(sha256(content))).thenReturn(Uni
+                .createFrom()
+                .item(new MediaReference(sha256(content), "stored-file-id", 2, null)));
+
+        String fileId = fileStorageService
+                .storeFile(upload(content))
+                .await()
+                .indefinitely();
+
+        // Nothing is uploaded to GridFS, which is never initialized here.
+        assertEquals("stored-file-id", fileId);
+        verify(mediaReferenceRepository).acquire(sha256(content));
+    }
+
+    @Test
+    void storeFile_shouldHashTheWholeFile() throws Exception {
+        String content = "x".repeat(1_000_000);
+        when(mediaReferenceRepository.acquire(any())).thenReturn(Uni
+                .createFrom()
+                .item(new MediaReference(sha256(content), "stored-file-id", 1, null)));
+
+        fileStorageService
+                .storeFile(upload(content))
+                .await()
+                .indefinitely();
+
+        verify(mediaReferenceRepository).acquire(sha256(content));
+    }
+
+    @Test
+    void storeFile_shouldIgnoreMissingUploads() {
+        FileUpload blank = mock(FileUpload.class);
+        when(blank.fileName()).thenReturn(" ");
+
+        assertNull(fileStorageService
+                .storeFile(null)
+                .await()
+                .indefinitely());
+        assertNull(fileStorageService
+                .storeFile(blank)
+                .await()
+                .indefinitely());
+        verifyNoInteractions(mediaReferenceRepository);
+    }
+}
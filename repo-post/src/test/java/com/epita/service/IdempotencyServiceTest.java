@@ -0,0 +1,122 @@
+package com.epita.service;
+
+import com.epita.controller.contracts.PostRequestMultiPart;
+import com.epita.repository.IdempotencyRepository;
+import com.epita.repository.entity.IdempotencyRecord;
+import io.smallrye.mutiny.Uni;
+import org.jboss.resteasy.reactive.multipart.FileUpload;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class IdempotencyServiceTest {
+
+    @Mock
+    IdempotencyRepository idempotencyRepository;
+
+    @InjectMocks
+    IdempotencyService idempotencyService;
+
+    private final UUID userId = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    private static PostRequestMultiPart request(String text, String replyId, String repostId) {
+        PostRequestMultiPart request = new PostRequestMultiPart();
+        request.text = text;
+        request.replyId = replyId;
+        request.repostId = repostId;
+        return request;
+    }
+
+    @Test
+    void fingerprint_shouldBeTheSame_forTheSameRequest() {
+        String fingerprint = idempotencyService.fingerprint(request("Hello World", null, null));
+
+        assertEquals(fingerprint, idempotencyService.fingerprint(request("Hello World", null, null)));
+        assertEquals(64, fingerprint.length());
+        assertNotEquals(fingerprint, idempotencyService.fingerprint(request("Hello World!", null, null)));
+    }
+
+    @Test
+    void fingerprint_shouldDependOnWhichFieldHoldsAValue() {
+        String replyId = UUID
+                .randomUUID()
+                .toString();
+
+        assertNotEquals(idempotencyService.fingerprint(request(null, replyId, null)),
+                idempotencyService.fingerprint(request(null, null, replyId)));
+        assertNotEquals(idempotencyService.fingerprint(request("ab", null, null)),
+                idempotencyService.fingerprint(request("a", "b", null)));
+    }
+
+    @Test
+    void fingerprint_shouldIncludeTheMediaMetadata() {
+        PostRequestMultiPart withMedia = request("Hello World", null, null);
+        withMedia.media = mock(FileUpload.class);
+        when(withMedia.media.fileName()).thenReturn("cat.png");
+        when(withMedia.media.contentType()).thenReturn("image/png");
+        when(withMedia.media.size()).thenReturn(1024L);
+        PostRequestMultiPart otherMedia = request("Hello World", null, null);
+        otherMedia.media = mock(FileUpload.class);
+        when(otherMedia.media.fileName()).thenReturn("cat.png");
+        when(otherMedia.media.contentType()).thenReturn("image/png");
+        when(otherMedia.media.size()).thenReturn(2048L);
+
+        String fingerprint = idempotencyService.fingerprint(withMedia);
+
+        assertNotEquals(idempotencyService.fingerprint(request("Hello World", null, null)), fingerprint);
+        assertNotEquals(idempotencyService.fingerprint(otherMedia), fingerprint);
+    }
+
+    @Test
+    void reserve_shouldScopeTheKeyByUser_andLetStaleKeysBeTakenOver() {
+        IdempotencyRecord previous = new IdempotencyRecord(userId + ":key", "fingerprint");
+        when(idempotencyRepository.reserve(any(), any(), any())).thenReturn(Uni
+                .createFrom()
+                .item(previous));
+
+        IdempotencyRecord record = idempotencyService
+                .reserve(userId, "key", "fingerprint")
+                .await()
+                .indefinitely();
+
+        assertSame(previous, record);
+        verify(idempotencyRepository).reserve(userId + ":key", "fingerprint", Duration.ofMinutes(1));
+    }
+
+    @Test
+    void completeAndRelease_shouldNotFail_whenTheRecordCannotBeWritten() {
+        when(idempotencyRepository.complete(any(), any())).thenReturn(Uni
+                .createFrom()
+                .failure(new IllegalStateException("Mongo unavailable")));
+        when(idempotencyRepository.release(any())).thenReturn(Uni
+                .createFrom()
+                .failure(new IllegalStateException("Mongo unavailable")));
+        UUID postId = UUID.randomUUID();
+
+        assertDoesNotThrow(() -> idempotencyService
+                .complete(userId, "key", postId)
+                .await()
+                .indefinitely());
+        assertDoesNotThrow(() -> idempotencyService
+                .release(userId, "key")
+                .await()
+                .indefinitely());
+        verify(idempotencyRepository).complete(eq(userId + ":key"), eq(postId));
+        verify(idempotencyRepository).release(userId + ":key");
+    }
+}
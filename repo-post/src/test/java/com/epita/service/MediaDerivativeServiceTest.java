@@ -0,0 +1,125 @@
+package com.epita.service;
+
+import com.epita.service.entity.MediaVariant;
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MediaDerivativeServiceTest {
+
+    @Test
+    void resize_shouldBoundTheLongestSide_andKeepTheAspectRatio() {
+        BufferedImage image = new BufferedImage(1920, 1080, BufferedImage.TYPE_INT_RGB);
+
+        BufferedImage resized = MediaDerivativeService.resize(image, MediaVariant.MEDIUM.getMaxSize(), false);
+
+        assertEquals(640, resized.getWidth());
+        assertEquals(360, resized.getHeight());
+        assertEquals(BufferedImage.TYPE_INT_RGB, resized.getType());
+    }
+
+    @Test
+    void resize_shouldNotUpscaleSmallImages() {
+        BufferedImage image = new BufferedImage(100, 50, BufferedImage.TYPE_INT_ARGB);
+
+        BufferedImage resized = MediaDerivativeService.resize(image, MediaVariant.THUMB.getMaxSize(), true);
+
+        assertEquals(100, resized.getWidth());
+        assertEquals(50, resized.getHeight());
+        assertEquals(BufferedImage.TYPE_INT_ARGB, resized.getType());
+    }
+
+    @Test
+    void resize_shouldKeepAtLeastOnePixel_forVeryThinImages() {
+        BufferedImage image = new BufferedImage(4000, 1, BufferedImage.TYPE_INT_RGB);
+
+        BufferedImage resized = MediaDerivativeService.resize(image, MediaVariant.THUMB.getMaxSize(), false);
+
+        assertEquals(160, resized.getWidth());
+        assertEquals(1, resized.getHeight());
+    }
+
+    @Test
+    void fromName_shouldResolveVariants_ignoringCase() {
+        assertEquals(MediaVariant.THUMB, MediaVariant.fromName("THUMB"));
+        assertEquals(MediaVariant.MEDIUM, MediaVariant.fromName("medium"));
+        assertThrows(IllegalArgumentException.class, () -> MediaVariant.fromName("large"));
+    }
+
+    private static byte[] png(BufferedImage image) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+
+    /**
+     * @return the signature and header of a PNG declaring the given dimensions, without any pixel data.
+     */
+    private static byte[] pngHeader(int width, int height) throws IOException {
+        ByteArrayOutputStream chunk = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(chunk);
+        data.write("IHDR".getBytes(StandardCharsets.US_ASCII));
+        data.writeInt(width);
+        data.writeInt(height);
+        // 8-bit RGB, default compression, filter and interlace methods.
+        data.write(new byte[]{8, 2, 0, 0, 0});
+        CRC32 crc = new CRC32();
+        crc.update(chunk.toByteArray());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DataOutputStream png = new DataOutputStream(out);
+        png.write(new byte[]{(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'});
+        png.writeInt(13);
+        png.write(chunk.toByteArray());
+        png.writeInt((int) crc.getValue());
+        return out.toByteArray();
+    }
+
+    @Test
+    void decode_shouldSubsampleLargeImages_downToTwiceTheVariantSize() throws IOException {
+        byte[] content = png(new BufferedImage(4000, 2000, BufferedImage.TYPE_INT_RGB));
+
+        BufferedImage image = MediaDerivativeService.decode(new ByteArrayInputStream(content), MediaVariant.MEDIUM.getMaxSize());
+
+        // Every third pixel is read.
+        assertEquals(1334, image.getWidth());
+        assertEquals(667, image.getHeight());
+    }
+
+    @Test
+    void decode_shouldKeepSmallImagesWhole() throws IOException {
+        byte[] content = png(new BufferedImage(300, 200, BufferedImage.TYPE_INT_ARGB));
+
+        BufferedImage image = MediaDerivativeService.decode(new ByteArrayInputStream(content), MediaVariant.MEDIUM.getMaxSize());
+
+        assertEquals(300, image.getWidth());
+        assertEquals(200, image.getHeight());
+        assertTrue(image
+                .getColorModel()
+                .hasAlpha());
+    }
+
+    @Test
+    void decode_shouldRejectImagesDeclaringTooManyPixels_beforeDecodingThem() throws IOException {
+        byte[] content = pngHeader(20_000, 20_000);
+
+        assertThrows(IllegalArgumentException.class, () -> MediaDerivativeService.decode(new ByteArrayInputStream(content),
+                MediaVariant.MEDIUM.getMaxSize()));
+    }
+
+    @Test
+    void decode_shouldReturnNull_forUnknownFormats() throws IOException {
+        byte[] content = "not an image".getBytes(StandardCharsets.UTF_8);
+
+        assertNull(MediaDerivativeService.decode(new ByteArrayInputStream(content), MediaVariant.MEDIUM.getMaxSize()));
+    }
+}
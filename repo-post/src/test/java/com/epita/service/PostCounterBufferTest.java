@@ -0,0 +1,81 @@
+package com.epita.service;
+
+import com.epita.repository.PostRepository;
+import com.epita.service.entity.PostCounter;
+import com.mongodb.MongoBulkWriteException;
+import io.smallrye.mutiny.Uni;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.Map;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class PostCounterBufferTest {
+
+    @Mock
+    PostRepository postRepository;
+
+    @InjectMocks
+    PostCounterBuffer postCounterBuffer;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(postRepository.incrementCounters(any())).thenReturn(Uni.createFrom().voidItem());
+    }
+
+    @Test
+    void flush_shouldSumTheIncrementsOfEachPost_inOneWrite() {
+        UUID viral = UUID.randomUUID();
+        UUID other = UUID.randomUUID();
+        for (int i = 0; i < 1000; i++) {
+            postCounterBuffer.increment(viral, PostCounter.LIKES, 1);
+        }
+        postCounterBuffer.increment(viral, PostCounter.REPLIES, 1);
+        postCounterBuffer.increment(other, PostCounter.REPOSTS, 1);
+        postCounterBuffer.increment(other, PostCounter.REPOSTS, -1);
+        postCounterBuffer.increment(null, PostCounter.LIKES, 1);
+
+        postCounterBuffer.flush();
+
+        // Increments cancelling out are not written.
+        verify(postRepository).incrementCounters(Map.of(viral, Map.of("likeCount", 1000L, "replyCount", 1L)));
+        postCounterBuffer.flush();
+        verifyNoMoreInteractions(postRepository);
+    }
+
+    @Test
+    void flush_shouldRetryOnNextFlush_whenTheWriteFails() {
+        UUID postId = UUID.randomUUID();
+        when(postRepository.incrementCounters(any()))
+                .thenReturn(Uni.createFrom().failure(new IllegalStateException("Mongo unavailable")))
+                .thenReturn(Uni.createFrom().voidItem());
+        postCounterBuffer.increment(postId, PostCounter.LIKES, 2);
+
+        postCounterBuffer.flush();
+        postCounterBuffer.increment(postId, PostCounter.LIKES, 1);
+        postCounterBuffer.flush();
+
+        verify(postRepository).incrementCounters(Map.of(postId, Map.of("likeCount", 2L)));
+        verify(postRepository).incrementCounters(Map.of(postId, Map.of("likeCount", 3L)));
+    }
+
+    @Test
+    void flush_shouldDropTheBatch_whenTheWriteIsRejected() {
+        UUID postId = UUID.randomUUID();
+        when(postRepository.incrementCounters(any()))
+                .thenReturn(Uni.createFrom().failure(mock(MongoBulkWriteException.class)));
+        postCounterBuffer.increment(postId, PostCounter.LIKES, 2);
+
+        postCounterBuffer.flush();
+        postCounterBuffer.flush();
+
+        verify(postRepository, times(1)).incrementCounters(any());
+    }
+}
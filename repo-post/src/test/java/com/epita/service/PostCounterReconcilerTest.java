@@ -0,0 +1,116 @@
+package com.epita.service;
+
+import com.epita.repository.LeaseRepository;
+import com.epita.repository.MigrationRepository;
+import com.epita.repository.PostRepository;
+import com.epita.repository.RepoSocialRestClient;
+import io.smallrye.mutiny.Uni;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class PostCounterReconcilerTest {
+
+    @Mock
+    PostRepository postRepository;
+
+    @Mock
+    RepoSocialRestClient repoSocialRestClient;
+
+    @Mock
+    LeaseRepository leaseRepository;
+
+    @Mock
+    MigrationRepository migrationRepository;
+
+    @InjectMocks
+    PostCounterReconciler postCounterReconciler;
+
+    private final UUID liked = UUID.randomUUID();
+    private final UUID unknown = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        postCounterReconciler.enabled = true;
+        when(leaseRepository.acquire(any(), any(), any())).thenReturn(Uni
+                .createFrom()
+                .item(true));
+        when(migrationRepository.isApplied(any())).thenReturn(Uni
+                .createFrom()
+                .item(false));
+        when(migrationRepository.markApplied(any())).thenReturn(Uni
+                .createFrom()
+                .voidItem());
+        when(postRepository.recomputeReferenceCounters()).thenReturn(Uni
+                .createFrom()
+                .voidItem());
+        when(postRepository.getPostIds(any(), anyInt())).thenReturn(Uni
+                .createFrom()
+                .item(List.of(liked, unknown)));
+        when(postRepository.setLikeCounts(any())).thenReturn(Uni
+                .createFrom()
+                .item(1L));
+        when(repoSocialRestClient.getLikeCount(liked)).thenReturn(Uni
+                .createFrom()
+                .item(42L));
+        when(repoSocialRestClient.getLikeCount(unknown)).thenReturn(Uni
+                .createFrom()
+                .item(0L));
+    }
+
+    @Test
+    void reconcile_shouldBackfillOnce_thenCorrectTheLikeCounters() {
+        postCounterReconciler.reconcile();
+        postCounterReconciler.reconcile();
+
+        verify(postRepository, times(1)).recomputeReferenceCounters();
+        verify(migrationRepository, times(1)).markApplied(any());
+        verify(postRepository, times(2)).setLikeCounts(Map.of(liked, 42L, unknown, 0L));
+        assertTrue(postCounterReconciler.appliesLikeEvents());
+    }
+
+    @Test
+    void reconcile_shouldStartOver_afterTheLastPosts() {
+        postCounterReconciler.reconcile();
+        postCounterReconciler.reconcile();
+
+        // The batch was not full: the second run starts from the first post again.
+        verify(postRepository, times(2)).getPostIds(eq(null), anyInt());
+    }
+
+    @Test
+    void reconcile_shouldDoNothing_withoutTheLease() {
+        when(leaseRepository.acquire(any(), any(), any())).thenReturn(Uni
+                .createFrom()
+                .item(false));
+
+        postCounterReconciler.reconcile();
+
+        verifyNoInteractions(postRepository, repoSocialRestClient, migrationRepository);
+        assertFalse(postCounterReconciler.appliesLikeEvents());
+    }
+
+    @Test
+    void reconcile_shouldNotWrite_whenRepoSocialFails() {
+        when(repoSocialRestClient.getLikeCount(unknown)).thenReturn(Uni
+                .createFrom()
+                .failure(new IllegalStateException("Connection refused")));
+
+        postCounterReconciler.reconcile();
+
+        verify(postRepository, never()).setLikeCounts(any());
+    }
+}
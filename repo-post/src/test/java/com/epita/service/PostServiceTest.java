@@ -0,0 +1,183 @@
+package com.epita.service;
+
+import com.epita.common.api.response.ThreadPostResponse;
+import com.epita.repository.PostRepository;
+import com.epita.repository.RepoSocialRestClient;
+import com.epita.repository.entity.Post;
+import io.smallrye.mutiny.Uni;
+import jakarta.ws.rs.WebApplicationException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class PostServiceTest {
+
+    @Mock
+    PostRepository postRepository;
+
+    @Mock
+    RepoSocialRestClient repoSocialRestClient;
+
+    @InjectMocks
+    PostService postService;
+
+    private final UUID authorId = UUID.randomUUID();
+    private final UUID userId = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    private Post post(String text, UUID replyId) {
+        Post post = new Post(authorId, text, null, null, replyId);
+        post.setId(UUID.randomUUID());
+        return post;
+    }
+
+    private static List<String> texts(List<ThreadPostResponse> thread) {
+        return thread
+                .stream()
+                .map(threadPost -> threadPost
+                        .getPost()
+                        .getText())
+                .toList();
+    }
+
+    private static List<Integer> depths(List<ThreadPostResponse> thread) {
+        return thread
+                .stream()
+                .map(ThreadPostResponse::getDepth)
+                .toList();
+    }
+
+    @Test
+    void flattenThread_shouldOrderRepliesDepthFirst_oldestFirstAmongSiblings() {
+        Post root = post("root", null);
+        Post first = post("first", root.getId());
+        Post second = post("second", root.getId());
+        Post firstReply = post("first reply", first.getId());
+        Post firstReplyReply = post("first reply reply", firstReply.getId());
+        Post secondReply = post("second reply", second.getId());
+
+        // Replies are fetched level by level, sorted by creation date.
+        List<ThreadPostResponse> thread = PostService.flattenThread(root,
+                List.of(first, second, firstReply, secondReply, firstReplyReply));
+
+        assertEquals(List.of("root", "first", "first reply", "first reply reply", "second", "second reply"), texts(thread));
+        assertEquals(List.of(0, 1, 2, 3, 1, 2), depths(thread));
+    }
+
+    @Test
+    void flattenThread_shouldReturnTheRootAlone_whenItHasNoReplies() {
+        Post root = post("root", null);
+
+        List<ThreadPostResponse> thread = PostService.flattenThread(root, List.of());
+
+        assertEquals(List.of("root"), texts(thread));
+        assertEquals(List.of(0), depths(thread));
+    }
+
+    @Test
+    void flattenThread_shouldHandleADeepChain_withoutRecursion() {
+        Post root = post("root", null);
+        Post parent = root;
+        List<Post> replies = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            Post reply = post("reply " + i, parent.getId());
+            replies.add(reply);
+            parent = reply;
+        }
+
+        List<ThreadPostResponse> thread = PostService.flattenThread(root, replies);
+
+        assertEquals(10_001, thread.size());
+        assertEquals(10_000, thread
+                .get(10_000)
+                .getDepth());
+    }
+
+    private int canPostStatus(UUID replyId) {
+        WebApplicationException e = assertThrows(WebApplicationException.class, () -> postService
+                .canPost(replyId, null, userId)
+                .await()
+                .indefinitely());
+        return e
+                .getResponse()
+                .getStatus();
+    }
+
+    @Test
+    void canPost_shouldNotCallRepoSocial_withoutReferencedPost() {
+        postService
+                .canPost(null, null, userId)
+                .await()
+                .indefinitely();
+
+        verifyNoInteractions(postRepository, repoSocialRestClient);
+    }
+
+    @Test
+    void canPost_shouldCheckBlocksWithTheAuthorOfTheReferencedPost() {
+        Post root = post("root", null);
+        when(postRepository.getPostById(root.getId())).thenReturn(Uni
+                .createFrom()
+                .item(root));
+        when(repoSocialRestClient.isBlockedEitherWay(userId, authorId)).thenReturn(Uni
+                .createFrom()
+                .item(false));
+
+        postService
+                .canPost(root.getId(), null, userId)
+                .await()
+                .indefinitely();
+
+        verify(repoSocialRestClient).isBlockedEitherWay(userId, authorId);
+    }
+
+    @Test
+    void canPost_shouldFailWith404_whenTheReferencedPostIsMissing() {
+        when(postRepository.getPostById(any())).thenReturn(Uni
+                .createFrom()
+                .nullItem());
+
+        assertEquals(404, canPostStatus(UUID.randomUUID()));
+        verifyNoInteractions(repoSocialRestClient);
+    }
+
+    @Test
+    void canPost_shouldFailWith403_whenEitherUserBlocksTheOther() {
+        Post root = post("root", null);
+        when(postRepository.getPostById(root.getId())).thenReturn(Uni
+                .createFrom()
+                .item(root));
+        when(repoSocialRestClient.isBlockedEitherWay(userId, authorId)).thenReturn(Uni
+                .createFrom()
+                .item(true));
+
+        assertEquals(403, canPostStatus(root.getId()));
+    }
+
+    @Test
+    void canPost_shouldFailWith503_whenRepoSocialFails() {
+        Post root = post("root", null);
+        when(postRepository.getPostById(root.getId())).thenReturn(Uni
+                .createFrom()
+                .item(root));
+        when(repoSocialRestClient.isBlockedEitherWay(userId, authorId)).thenReturn(Uni
+                .createFrom()
+                .failure(new IllegalStateException("Connection refused")));
+
+        assertEquals(503, canPostStatus(root.getId()));
+    }
+}
@@ -0,0 +1,137 @@
+package com.epita.service;
+
+import com.epita.repository.UserRepository;
+import com.epita.repository.entity.User;
+import io.smallrye.mutiny.Uni;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class UserDirectoryTest {
+
+    @Mock
+    UserRepository userRepository;
+
+    @InjectMocks
+    UserDirectory userDirectory;
+
+    private final UUID userId = UUID.randomUUID();
+    private final User user = new User(userId, "");
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+    }
+
+    @Test
+    void getUser_shouldOnlyReadAKnownUserOnce() {
+        when(userRepository.getUserById(userId)).thenReturn(Uni
+                .createFrom()
+                .item(user));
+
+        for (int i = 0; i < 3; i++) {
+            assertSame(user, userDirectory
+                    .getUser(userId)
+                    .await()
+                    .indefinitely());
+        }
+        verify(userRepository, times(1)).getUserById(userId);
+    }
+
+    @Test
+    void getUser_shouldRememberMissingUsers() {
+        when(userRepository.getUserById(userId)).thenReturn(Uni
+                .createFrom()
+                .nullItem());
+
+        assertNull(userDirectory
+                .getUser(userId)
+                .await()
+                .indefinitely());
+        assertNull(userDirectory
+                .getUser(userId)
+                .await()
+                .indefinitely());
+        verify(userRepository, times(1)).getUserById(userId);
+    }
+
+    @Test
+    void ensureExists_shouldUpsertUnknownUsers_only() {
+        when(userRepository.ensureExists(userId)).thenReturn(Uni
+                .createFrom()
+                .item(user));
+
+        userDirectory
+                .ensureExists(userId)
+                .await()
+                .indefinitely();
+        userDirectory
+                .ensureExists(userId)
+                .await()
+                .indefinitely();
+
+        verify(userRepository, times(1)).ensureExists(userId);
+        // The upserted user is now known.
+        assertSame(user, userDirectory
+                .getUser(userId)
+                .await()
+                .indefinitely());
+        verify(userRepository, never()).getUserById(userId);
+    }
+
+    @Test
+    void ensureExists_shouldUpsert_whenTheUserIsKnownToBeMissing() {
+        when(userRepository.getUserById(userId)).thenReturn(Uni
+                .createFrom()
+                .nullItem());
+        when(userRepository.ensureExists(userId)).thenReturn(Uni
+                .createFrom()
+                .item(user));
+        userDirectory
+                .getUser(userId)
+                .await()
+                .indefinitely();
+
+        userDirectory
+                .ensureExists(userId)
+                .await()
+                .indefinitely();
+
+        verify(userRepository).ensureExists(userId);
+        assertSame(user, userDirectory
+                .getUser(userId)
+                .await()
+                .indefinitely());
+    }
+
+    @Test
+    void forget_shouldDropTheNegativeEntries() {
+        when(userRepository.getUserById(userId))
+                .thenReturn(Uni
+                        .createFrom()
+                        .nullItem())
+                .thenReturn(Uni
+                        .createFrom()
+                        .item(user));
+        userDirectory
+                .getUser(userId)
+                .await()
+                .indefinitely();
+
+        userDirectory.forget(List.of(userId));
+
+        assertSame(user, userDirectory
+                .getUser(userId)
+                .await()
+                .indefinitely());
+        verify(userRepository, times(2)).getUserById(userId);
+    }
+}
@@ -1,12 +1,20 @@
 package com.epita.controller;
 
+import com.epita.common.ratelimit.RateLimited;
 import com.epita.controller.contract.PostsContract;
+import com.epita.repository.entity.RelationCursor;
+import com.epita.repository.entity.RelationEdge;
+import com.epita.repository.entity.RelationPage;
+import com.epita.service.BulkRelationService;
 import com.epita.service.PostsService;
+import io.smallrye.mutiny.Uni;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 /**
@@ -21,6 +29,9 @@ public class PostsController {
     @Inject
     PostsService postsService;
 
+    @Inject
+    BulkRelationService bulkRelationService;
+
     /**
      * Endpoint to return a simple hello message.
      *
@@ -41,23 +52,23 @@ public class PostsController {
      */
     @POST
     @Path("/like")
-    public Response likePost(@HeaderParam("X-user-id") UUID userId, PostsContract request) {
-        try {
-            postsService.likePost(userId, request.getPostId());
-            return Response
-                    .status(Response.Status.CREATED)
-                    .build();
-        } catch (ForbiddenException e) {
-            return Response
-                    .status(Response.Status.FORBIDDEN)
-                    .entity("User is blocked")
-                    .build();
-        } catch (NotFoundException e) {
-            return Response
-                    .status(Response.Status.NOT_FOUND)
-                    .entity("Post not found")
-                    .build();
-        }
+    @RateLimited
+    public Uni<Response> likePost(@HeaderParam("X-user-id") UUID userId, PostsContract request) {
+        return postsService
+                .likePost(userId, request.getPostId())
+                .map(ignored -> Response
+                        .status(Response.Status.CREATED)
+                        .build())
+                .onFailure(ForbiddenException.class)
+                .recoverWithItem(Response
+                        .status(Response.Status.FORBIDDEN)
+                        .entity("User is blocked")
+                        .build())
+                .onFailure(NotFoundException.class)
+                .recoverWithItem(Response
+                        .status(Response.Status.NOT_FOUND)
+                        .entity("Post not found")
+                        .build());
     }
 
     /**
@@ -69,40 +80,112 @@ public class PostsController {
      */
     @DELETE
     @Path("/unlike")
-    public Response unlikePost(@HeaderParam("X-user-id") UUID userId, PostsContract request) {
-        try {
-            postsService.unlikePost(userId, request.getPostId());
-            return Response
-                    .status(Response.Status.NO_CONTENT)
-                    .build();
-        } catch (NotFoundException e) {
-            return Response
-                    .status(Response.Status.NOT_FOUND)
-                    .entity("Like not found")
-                    .build();
-        }
+    @RateLimited
+    public Uni<Response> unlikePost(@HeaderParam("X-user-id") UUID userId, PostsContract request) {
+        return postsService
+                .unlikePost(userId, request.getPostId())
+                .map(ignored -> Response
+                        .status(Response.Status.NO_CONTENT)
+                        .build())
+                .onFailure(NotFoundException.class)
+                .recoverWithItem(Response
+                        .status(Response.Status.NOT_FOUND)
+                        .entity("Like not found")
+                        .build());
+    }
+
+    /**
+     * Likes posts in bulk, from a single user.
+     * Every edge must start from the user of the request, and at most {@link BulkRelationService#MAX_EDGES} edges are accepted.
+     * Unknown posts are skipped, as are invalid, duplicated and existing edges, as well as posts whose author blocks, or is blocked by, the user.
+     *
+     * @param userId the UUID of the user sending the request.
+     * @param edges  the edges to create, from the user to each liked post.
+     * @return an OK response with the report of the request, or a BAD_REQUEST/FORBIDDEN response.
+     */
+    @POST
+    @Path("/like/bulk")
+    @RateLimited
+    public Uni<Response> likePosts(@HeaderParam("X-user-id") UUID userId, List<RelationEdge> edges) {
+        return bulkRelationService
+                .likeAll(userId, edges)
+                .map(report -> Response
+                        .ok(report)
+                        .build())
+                .onFailure(BadRequestException.class)
+                .recoverWithItem(e -> error(Response.Status.BAD_REQUEST, e))
+                .onFailure(ForbiddenException.class)
+                .recoverWithItem(e -> error(Response.Status.FORBIDDEN, e));
     }
 
     /**
-     * Retrieves the likes for a specific post.
+     * Retrieves a page of the users who liked a specific post, most recent likes first.
      *
      * @param postId the UUID of the post to retrieve likes for.
-     * @return a NO_CONTENT response if the operation is successful, or a NOT_FOUND response if the likes are not found.
+     * @param cursor the cursor returned with the previous page, absent for the first page.
+     * @param size   the number of users per page, at most 200.
+     * @return a page of likers, or a BAD_REQUEST/NOT_FOUND response.
      */
     @GET
     @Path("/{postId}/likes")
-    public Response getLikesOfPostId(@PathParam("postId") UUID postId) {
+    public Uni<Response> getLikesOfPostId(@PathParam("postId") UUID postId, @QueryParam("cursor") String cursor,
+                                          @QueryParam("size") @DefaultValue("50") int size) {
+        if (size < 1 || size > RelationPage.MAX_SIZE) {
+            return Uni
+                    .createFrom()
+                    .item(Response
+                            .status(Response.Status.BAD_REQUEST)
+                            .entity("size must be between 1 and " + RelationPage.MAX_SIZE)
+                            .build());
+        }
+        RelationCursor after;
         try {
-            postsService.getLikesOfPostId(postId);
-            return Response
-                    .status(Response.Status.NO_CONTENT)
-                    .build();
-        } catch (NotFoundException e) {
-            return Response
-                    .status(Response.Status.NOT_FOUND)
-                    .entity("Like not found")
-                    .build();
+            after = RelationCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            return Uni
+                    .createFrom()
+                    .item(Response
+                            .status(Response.Status.BAD_REQUEST)
+                            .entity(e.getMessage())
+                            .build());
         }
+        return postsService
+                .getLikesOfPostId(postId, after, size)
+                .map(page -> Response
+                        .ok(page)
+                        .build())
+                .onFailure(NotFoundException.class)
+                .recoverWithItem(Response
+                        .status(Response.Status.NOT_FOUND)
+                        .entity("Post not found")
+                        .build());
+    }
+
+    /**
+     * Retrieves the number of likes of a specific post.
+     *
+     * @param postId the UUID of the post.
+     * @return the counters of the post, or a NOT_FOUND response if the post is not found.
+     */
+    @GET
+    @Path("/{postId}/counts")
+    public Uni<Response> getCounts(@PathParam("postId") UUID postId) {
+        return postsService
+                .getCounts(postId)
+                .map(counts -> Response
+                        .ok(counts)
+                        .build())
+                .onFailure(NotFoundException.class)
+                .recoverWithItem(Response
+                        .status(Response.Status.NOT_FOUND)
+                        .entity("Post not found")
+                        .build());
     }
 
+    private static Response error(Response.Status status, Throwable e) {
+        return Response
+                .status(status)
+                .entity(Map.of("error", e.getMessage()))
+                .build();
+    }
 }
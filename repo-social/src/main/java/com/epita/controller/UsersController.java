@@ -1,13 +1,22 @@
 package com.epita.controller;
 
+import com.epita.common.ratelimit.RateLimited;
+import com.epita.repository.entity.RelationCursor;
+import com.epita.repository.entity.RelationEdge;
+import com.epita.repository.entity.RelationPage;
+import com.epita.repository.entity.RelationState;
+import com.epita.service.BulkRelationService;
 import com.epita.service.UsersService;
+import io.smallrye.mutiny.Uni;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.function.Function;
 
 /**
  * REST controller for managing user-related operations in the Repo-Social service.
@@ -21,6 +30,9 @@ public class UsersController {
     @Inject
     UsersService usersService;
 
+    @Inject
+    BulkRelationService bulkRelationService;
+
     /**
      * Follows a user.
      *
@@ -30,23 +42,17 @@ public class UsersController {
      */
     @POST
     @Path("/follow")
-    public Response followUser(@HeaderParam("X-user-id") UUID userId, UUID followeeId) {
-        try {
-            usersService.followUser(userId, followeeId);
-            return Response
-                    .status(Response.Status.CREATED)
-                    .build();
-        } catch (ForbiddenException e) {
-            return Response
-                    .status(Response.Status.FORBIDDEN)
-                    .entity(Map.of("error", e.getMessage()))
-                    .build();
-        } catch (NotFoundException e) {
-            return Response
-                    .status(Response.Status.NOT_FOUND)
-                    .entity(Map.of("error", e.getMessage()))
-                    .build();
-        }
+    @RateLimited
+    public Uni<Response> followUser(@HeaderParam("X-user-id") UUID userId, UUID followeeId) {
+        return usersService
+                .followUser(userId, followeeId)
+                .map(ignored -> Response
+                        .status(Response.Status.CREATED)
+                        .build())
+                .onFailure(ForbiddenException.class)
+                .recoverWithItem(e -> error(Response.Status.FORBIDDEN, e))
+                .onFailure(NotFoundException.class)
+                .recoverWithItem(e -> error(Response.Status.NOT_FOUND, e));
     }
 
     /**
@@ -58,18 +64,15 @@ public class UsersController {
      */
     @DELETE
     @Path("/unfollow")
-    public Response unfollowUser(@HeaderParam("X-user-id") UUID userId, UUID followeeId) {
-        try {
-            usersService.unfollowUser(userId, followeeId);
-            return Response
-                    .status(Response.Status.NO_CONTENT)
-                    .build();
-        } catch (NotFoundException e) {
-            return Response
-                    .status(Response.Status.NOT_FOUND)
-                    .entity(Map.of("error", e.getMessage()))
-                    .build();
-        }
+    @RateLimited
+    public Uni<Response> unfollowUser(@HeaderParam("X-user-id") UUID userId, UUID followeeId) {
+        return usersService
+                .unfollowUser(userId, followeeId)
+                .map(ignored -> Response
+                        .status(Response.Status.NO_CONTENT)
+                        .build())
+                .onFailure(NotFoundException.class)
+                .recoverWithItem(e -> error(Response.Status.NOT_FOUND, e));
     }
 
     /**
@@ -81,23 +84,17 @@ public class UsersController {
      */
     @POST
     @Path("/block")
-    public Response blockUser(@HeaderParam("X-user-id") UUID userId, UUID blockedUserId) {
-        try {
-            usersService.blockUser(userId, blockedUserId);
-            return Response
-                    .status(Response.Status.CREATED)
-                    .build();
-        } catch (ForbiddenException e) {
-            return Response
-                    .status(Response.Status.FORBIDDEN)
-                    .entity(Map.of("error", e.getMessage()))
-                    .build();
-        } catch (NotFoundException e) {
-            return Response
-                    .status(Response.Status.NOT_FOUND)
-                    .entity(Map.of("error", e.getMessage()))
-                    .build();
-        }
+    @RateLimited
+    public Uni<Response> blockUser(@HeaderParam("X-user-id") UUID userId, UUID blockedUserId) {
+        return usersService
+                .blockUser(userId, blockedUserId)
+                .map(ignored -> Response
+                        .status(Response.Status.CREATED)
+                        .build())
+                .onFailure(ForbiddenException.class)
+                .recoverWithItem(e -> error(Response.Status.FORBIDDEN, e))
+                .onFailure(NotFoundException.class)
+                .recoverWithItem(e -> error(Response.Status.NOT_FOUND, e));
     }
 
     /**
@@ -109,127 +106,236 @@ public class UsersController {
      */
     @DELETE
     @Path("/unblock")
-    public Response unblockUser(@HeaderParam("X-user-id") UUID userId, UUID blockedUserId) {
-        try {
-            usersService.unblockUser(userId, blockedUserId);
-            return Response
-                    .status(Response.Status.NO_CONTENT)
-                    .build();
-        } catch (NotFoundException e) {
-            return Response
-                    .status(Response.Status.NOT_FOUND)
-                    .entity(Map.of("error", e.getMessage()))
-                    .build();
-        } catch (ForbiddenException e) {
-            return Response
-                    .status(Response.Status.FORBIDDEN)
-                    .entity(Map.of("error", e.getMessage()))
-                    .build();
-        }
+    @RateLimited
+    public Uni<Response> unblockUser(@HeaderParam("X-user-id") UUID userId, UUID blockedUserId) {
+        return usersService
+                .unblockUser(userId, blockedUserId)
+                .map(ignored -> Response
+                        .status(Response.Status.NO_CONTENT)
+                        .build())
+                .onFailure(NotFoundException.class)
+                .recoverWithItem(e -> error(Response.Status.NOT_FOUND, e))
+                .onFailure(ForbiddenException.class)
+                .recoverWithItem(e -> error(Response.Status.FORBIDDEN, e));
+    }
+
+    /**
+     * Follows users in bulk, from a single user.
+     * Every edge must start from the user of the request, and at most {@link BulkRelationService#MAX_EDGES} edges are accepted.
+     * Unknown users are skipped, as are invalid, duplicated and existing edges.
+     *
+     * @param userId the UUID of the user sending the request.
+     * @param edges  the edges to create, from the user to each followee.
+     * @return an OK response with the report of the request, or a BAD_REQUEST/FORBIDDEN response.
+     */
+    @POST
+    @Path("/follow/bulk")
+    @RateLimited
+    public Uni<Response> followUsers(@HeaderParam("X-user-id") UUID userId, List<RelationEdge> edges) {
+        return bulkRelationService
+                .followAll(userId, edges)
+                .map(report -> Response
+                        .ok(report)
+                        .build())
+                .onFailure(BadRequestException.class)
+                .recoverWithItem(e -> error(Response.Status.BAD_REQUEST, e))
+                .onFailure(ForbiddenException.class)
+                .recoverWithItem(e -> error(Response.Status.FORBIDDEN, e));
+    }
+
+    /**
+     * Blocks users in bulk, from a single user.
+     * Every edge must start from the user of the request, and at most {@link BulkRelationService#MAX_EDGES} edges are accepted.
+     * Unknown users are skipped, as are invalid, duplicated and existing edges.
+     *
+     * @param userId the UUID of the user sending the request.
+     * @param edges  the edges to create, from the user to each blocked user.
+     * @return an OK response with the report of the request, or a BAD_REQUEST/FORBIDDEN response.
+     */
+    @POST
+    @Path("/block/bulk")
+    @RateLimited
+    public Uni<Response> blockUsers(@HeaderParam("X-user-id") UUID userId, List<RelationEdge> edges) {
+        return bulkRelationService
+                .blockAll(userId, edges)
+                .map(report -> Response
+                        .ok(report)
+                        .build())
+                .onFailure(BadRequestException.class)
+                .recoverWithItem(e -> error(Response.Status.BAD_REQUEST, e))
+                .onFailure(ForbiddenException.class)
+                .recoverWithItem(e -> error(Response.Status.FORBIDDEN, e));
     }
 
     /**
-     * Retrieves the posts liked by a user.
+     * Retrieves a page of the posts liked by a user, most recently liked first.
      *
      * @param userId the UUID of the user.
-     * @return a list of liked posts or a NOT_FOUND response if the user is not found.
+     * @param cursor the cursor returned with the previous page, absent for the first page.
+     * @param size   the number of posts per page, at most 200.
+     * @return a page of liked posts, or a BAD_REQUEST/NOT_FOUND response.
      */
     @GET
     @Path("/{userId}/likes")
-    public Response getLikedPosts(@PathParam("userId") UUID userId) {
-        try {
-            return Response
-                    .ok(usersService.getLikedPosts(userId))
-                    .build();
-        } catch (NotFoundException e) {
-            return Response
-                    .status(Response.Status.NOT_FOUND)
-                    .entity(Map.of("error", e.getMessage()))
-                    .build();
-        }
+    public Uni<Response> getLikedPosts(@PathParam("userId") UUID userId, @QueryParam("cursor") String cursor,
+                                 @QueryParam("size") @DefaultValue("50") int size) {
+        return page(cursor, size, after -> usersService.getLikedPosts(userId, after, size));
     }
 
     /**
-     * Retrieves the users followed by a specific user.
+     * Retrieves a page of the users followed by a specific user, most recently followed first.
      *
      * @param userId the UUID of the user.
-     * @return a list of followees or a NOT_FOUND response if the user is not found.
+     * @param cursor the cursor returned with the previous page, absent for the first page.
+     * @param size   the number of users per page, at most 200.
+     * @return a page of followees, or a BAD_REQUEST/NOT_FOUND response.
      */
     @GET
     @Path("/{userId}/follows")
-    public Response getFollowees(@PathParam("userId") UUID userId) {
-        try {
-            return Response
-                    .ok(usersService.getFollowees(userId))
-                    .build();
-        } catch (NotFoundException e) {
-            return Response
-                    .status(Response.Status.NOT_FOUND)
-                    .entity(Map.of("error", e.getMessage()))
-                    .build();
-        }
+    public Uni<Response> getFollowees(@PathParam("userId") UUID userId, @QueryParam("cursor") String cursor,
+                                 @QueryParam("size") @DefaultValue("50") int size) {
+        return page(cursor, size, after -> usersService.getFollowees(userId, after, size));
     }
 
     /**
-     * Retrieves the followers of a specific user.
+     * Retrieves a page of the followers of a specific user, most recent first.
      *
      * @param userId the UUID of the user.
-     * @return a list of followers or a NOT_FOUND response if the user is not found.
+     * @param cursor the cursor returned with the previous page, absent for the first page.
+     * @param size   the number of users per page, at most 200.
+     * @return a page of followers, or a BAD_REQUEST/NOT_FOUND response.
      */
     @GET
     @Path("/{userId}/followers")
-    public Response getFollowers(@PathParam("userId") UUID userId) {
-        try {
-            return Response
-                    .ok(usersService.getFollowers(userId))
-                    .build();
-        } catch (NotFoundException e) {
-            return Response
-                    .status(Response.Status.NOT_FOUND)
-                    .entity(Map.of("error", e.getMessage()))
-                    .build();
-        }
+    public Uni<Response> getFollowers(@PathParam("userId") UUID userId, @QueryParam("cursor") String cursor,
+                                 @QueryParam("size") @DefaultValue("50") int size) {
+        return page(cursor, size, after -> usersService.getFollowers(userId, after, size));
     }
 
     /**
-     * Retrieves the users blocked by a specific user.
+     * Retrieves a page of the users blocked by a specific user, most recently blocked first.
      *
      * @param userId the UUID of the user.
-     * @return a list of blocked users or a NOT_FOUND response if the user is not found.
+     * @param cursor the cursor returned with the previous page, absent for the first page.
+     * @param size   the number of users per page, at most 200.
+     * @return a page of blocked users, or a BAD_REQUEST/NOT_FOUND response.
      */
     @GET
     @Path("/{userId}/blocks")
-    public Response getBlockedUsers(@PathParam("userId") UUID userId) {
-        try {
-            return Response
-                    .ok(usersService.getBlockedUsers(userId))
-                    .build();
-        } catch (NotFoundException e) {
-            return Response
-                    .status(Response.Status.NOT_FOUND)
-                    .entity(Map.of("error", e.getMessage()))
-                    .build();
+    public Uni<Response> getBlockedUsers(@PathParam("userId") UUID userId, @QueryParam("cursor") String cursor,
+                                 @QueryParam("size") @DefaultValue("50") int size) {
+        return page(cursor, size, after -> usersService.getBlockedUsers(userId, after, size));
+    }
+
+    /**
+     * Checks whether two users block each other, in either direction.
+     * Unknown users are reported as not blocked.
+     *
+     * @param userId      the UUID of the first user.
+     * @param otherUserId the UUID of the second user.
+     * @return the block relationships between the two users.
+     */
+    @GET
+    @Path("/{userId}/block-status/{otherUserId}")
+    public Uni<Response> getBlockStatus(@PathParam("userId") UUID userId, @PathParam("otherUserId") UUID otherUserId) {
+        return usersService
+                .getBlockStatus(userId, otherUserId)
+                .map(status -> Response
+                        .ok(status)
+                        .build());
+    }
+
+    /**
+     * Retrieves the relationships between a user and a list of other users, e.g. to render a page of users.
+     *
+     * @param userId    the UUID of the viewing user.
+     * @param targetIds the UUIDs of the other users, at most 200.
+     * @return an OK response with the relationships with each other user, or a BAD_REQUEST response if the list is missing, too long or has null ids.
+     */
+    @POST
+    @Path("/{userId}/relationships")
+    public Uni<Response> getRelationStates(@PathParam("userId") UUID userId, List<UUID> targetIds) {
+        if (targetIds == null || targetIds.size() > RelationState.MAX_TARGETS || targetIds.contains(null)) {
+            return Uni
+                    .createFrom()
+                    .item(Response
+                            .status(Response.Status.BAD_REQUEST)
+                            .entity(Map.of("error", "A list of at most " + RelationState.MAX_TARGETS + " user ids is expected"))
+                            .build());
         }
+        return usersService
+                .getRelationStates(userId, targetIds)
+                .map(states -> Response
+                        .ok(states)
+                        .build());
     }
 
     /**
-     * Retrieves the users who have blocked a specific user.
+     * Retrieves the number of followers of a user, and of users it follows.
      *
      * @param userId the UUID of the user.
-     * @return a list of users who blocked the specified user or a NOT_FOUND response if the user is not found.
+     * @return the counters of the user or a NOT_FOUND response if the user is not found.
+     */
+    @GET
+    @Path("/{userId}/counts")
+    public Uni<Response> getCounts(@PathParam("userId") UUID userId) {
+        return usersService
+                .getCounts(userId)
+                .map(counts -> Response
+                        .ok(counts)
+                        .build())
+                .onFailure(NotFoundException.class)
+                .recoverWithItem(e -> error(Response.Status.NOT_FOUND, e));
+    }
+
+    /**
+     * Retrieves a page of the users who have blocked a specific user, most recent blocks first.
+     *
+     * @param userId the UUID of the user.
+     * @param cursor the cursor returned with the previous page, absent for the first page.
+     * @param size   the number of users per page, at most 200.
+     * @return a page of users who blocked the specified user, or a BAD_REQUEST/NOT_FOUND response.
      */
     @GET
     @Path("/{userId}/blocked")
-    public Response getUsersWhoBlockedMe(@PathParam("userId") UUID userId) {
+    public Uni<Response> getUsersWhoBlockedMe(@PathParam("userId") UUID userId, @QueryParam("cursor") String cursor,
+                                 @QueryParam("size") @DefaultValue("50") int size) {
+        return page(cursor, size, after -> usersService.getUsersWhoBlockedMe(userId, after, size));
+    }
+
+    /**
+     * Validates the pagination parameters of a listing, then fetches the requested page.
+     */
+    private static Uni<Response> page(String cursor, int size, Function<RelationCursor, Uni<? extends RelationPage<?>>> fetch) {
+        if (size < 1 || size > RelationPage.MAX_SIZE) {
+            return Uni
+                    .createFrom()
+                    .item(Response
+                            .status(Response.Status.BAD_REQUEST)
+                            .entity(Map.of("error", "size must be between 1 and " + RelationPage.MAX_SIZE))
+                            .build());
+        }
+        RelationCursor after;
         try {
-            return Response
-                    .ok(usersService.getUsersWhoBlockedMe(userId))
-                    .build();
-        } catch (NotFoundException e) {
-            return Response
-                    .status(Response.Status.NOT_FOUND)
-                    .entity(Map.of("error", e.getMessage()))
-                    .build();
+            after = RelationCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            return Uni
+                    .createFrom()
+                    .item(error(Response.Status.BAD_REQUEST, e));
         }
+        return fetch
+                .apply(after)
+                .map(result -> Response
+                        .ok(result)
+                        .build())
+                .onFailure(NotFoundException.class)
+                .recoverWithItem(e -> error(Response.Status.NOT_FOUND, e));
+    }
+
+    private static Response error(Response.Status status, Throwable e) {
+        return Response
+                .status(status)
+                .entity(Map.of("error", e.getMessage()))
+                .build();
     }
 }
@@ -0,0 +1,28 @@
+package com.epita.controller.contract;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Represents the outcome of a bulk follow, block or like request.
+ */
+@Getter
+@AllArgsConstructor
+public class BulkRelationReport {
+
+    /**
+     * The number of edges in the request.
+     */
+    private long received;
+
+    private long created;
+
+    /**
+     * The number of edges skipped: invalid, duplicated, unknown, already existing or forbidden by a block.
+     */
+    private long skipped;
+
+    private long durationMs;
+
+    private double edgesPerSecond;
+}
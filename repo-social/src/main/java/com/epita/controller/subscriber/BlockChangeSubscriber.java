@@ -0,0 +1,47 @@
+package com.epita.controller.subscriber;
+
+import com.epita.repository.BlockChangePublisher;
+import com.epita.repository.entity.RelationEdge;
+import com.epita.service.BlockCache;
+import io.quarkus.redis.datasource.RedisDataSource;
+import io.quarkus.redis.datasource.pubsub.PubSubCommands;
+import io.quarkus.runtime.Startup;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.function.Consumer;
+
+/**
+ * Subscriber applying the block changes of every Repo-Social replica, this one included, to the block cache.
+ * It subscribes before the block filter is first built, so that no change made meanwhile is missed.
+ */
+@Startup
+@ApplicationScoped
+public class BlockChangeSubscriber implements Consumer<RelationEdge> {
+    private static final Logger LOG = LoggerFactory.getLogger(BlockChangeSubscriber.class);
+    private final PubSubCommands.RedisSubscriber subscriber;
+    private final BlockCache blockCache;
+
+    public BlockChangeSubscriber(final RedisDataSource ds, final BlockCache blockCache) {
+        this.blockCache = blockCache;
+        LOG.info("Subscribing to channel: {}", BlockChangePublisher.CHANNEL);
+        subscriber = ds
+                .pubsub(RelationEdge.class)
+                .subscribe(BlockChangePublisher.CHANNEL, this);
+        blockCache.rebuildFilter();
+    }
+
+    @Override
+    public void accept(final RelationEdge edge) {
+        LOG.debug("Received block change from user {} to user {}", edge.getFromId(), edge.getToId());
+        blockCache.onBlockChanged(edge);
+    }
+
+    @PreDestroy
+    public void terminate() {
+        LOG.info("Unsubscribing from channel: {}", BlockChangePublisher.CHANNEL);
+        subscriber.unsubscribe();
+    }
+}
@@ -0,0 +1,47 @@
+package com.epita.controller.subscriber;
+
+import com.epita.common.command.PostEventCommand;
+import com.epita.service.PostEventBuffer;
+import io.quarkus.redis.datasource.RedisDataSource;
+import io.quarkus.redis.datasource.pubsub.PubSubCommands;
+import io.quarkus.runtime.Startup;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.function.Consumer;
+
+/**
+ * Subscriber provisioning the posts of repo-post, with their authors, in the graph ahead of their first like.
+ * Events are applied in batches by the {@link PostEventBuffer}.
+ * Posts whose events are missed, e.g. while this service is down, are still provisioned on their first like.
+ */
+@Startup
+@ApplicationScoped
+public class PostEventSubscriber implements Consumer<PostEventCommand> {
+    private static final Logger LOG = LoggerFactory.getLogger(PostEventSubscriber.class);
+    private static final String CHANNEL = "post_events";
+    private final PubSubCommands.RedisSubscriber subscriber;
+    private final PostEventBuffer postEventBuffer;
+
+    public PostEventSubscriber(final RedisDataSource ds, final PostEventBuffer postEventBuffer) {
+        this.postEventBuffer = postEventBuffer;
+        LOG.info("Subscribing to channel: {}", CHANNEL);
+        subscriber = ds
+                .pubsub(PostEventCommand.class)
+                .subscribe(CHANNEL, this);
+    }
+
+    @Override
+    public void accept(final PostEventCommand event) {
+        LOG.debug("Received {} event for post {}", event.getType(), event.getPostId());
+        postEventBuffer.add(event);
+    }
+
+    @PreDestroy
+    public void terminate() {
+        LOG.info("Unsubscribing from channel: {}", CHANNEL);
+        subscriber.unsubscribe();
+    }
+}
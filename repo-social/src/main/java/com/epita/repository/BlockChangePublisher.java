@@ -0,0 +1,53 @@
+package com.epita.repository;
+
+import com.epita.repository.entity.RelationEdge;
+import io.quarkus.redis.datasource.ReactiveRedisDataSource;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+/**
+ * Publisher announcing block and unblock mutations to every Repo-Social replica, so that they
+ * invalidate their block caches.
+ */
+@ApplicationScoped
+public class BlockChangePublisher {
+    private static final Logger LOG = LoggerFactory.getLogger(BlockChangePublisher.class);
+    public static final String CHANNEL = "social-block-changes";
+    private final ReactiveRedisDataSource reactiveDs;
+
+    public BlockChangePublisher(final ReactiveRedisDataSource reactiveDs) {
+        this.reactiveDs = reactiveDs;
+    }
+
+    /**
+     * Publishes the changed block relationships in one pipelined round trip.
+     *
+     * @param edges the block relationships created or removed, from blocker to blocked.
+     */
+    public Uni<Void> publishAll(final List<RelationEdge> edges) {
+        if (edges.isEmpty()) {
+            return Uni
+                    .createFrom()
+                    .voidItem();
+        }
+        LOG.debug("Publishing {} block changes to channel: {}", edges.size(), CHANNEL);
+        return reactiveDs
+                .withConnection(connection -> {
+                    var pubsub = connection.pubsub(RelationEdge.class);
+                    return Uni
+                            .join()
+                            .all(edges
+                                    .stream()
+                                    .map(edge -> pubsub.publish(CHANNEL, edge))
+                                    .toList())
+                            .andFailFast()
+                            .replaceWithVoid();
+                })
+                .onFailure()
+                .invoke(e -> LOG.error("Error while publishing {} block changes to channel: {}", edges.size(), CHANNEL, e));
+    }
+}
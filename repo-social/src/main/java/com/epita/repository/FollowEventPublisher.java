@@ -1,33 +1,64 @@
 package com.epita.repository;
 
 import com.epita.repository.entity.FollowEvent;
+import io.quarkus.redis.datasource.ReactiveRedisDataSource;
+import io.quarkus.redis.datasource.pubsub.ReactivePubSubCommands;
+import io.smallrye.mutiny.Uni;
 import jakarta.enterprise.context.ApplicationScoped;
-
-import io.quarkus.redis.datasource.RedisDataSource;
-import io.quarkus.redis.datasource.pubsub.PubSubCommands;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.List;
+
 @ApplicationScoped
 public class FollowEventPublisher {
     private static final Logger LOG = LoggerFactory.getLogger(FollowEventPublisher.class);
     private static final String CHANNEL = "queue-follow-events";
-    private final PubSubCommands<FollowEvent> publisher;
+    private final ReactivePubSubCommands<FollowEvent> publisher;
+    private final ReactiveRedisDataSource reactiveDs;
 
-    public FollowEventPublisher(final RedisDataSource ds) {
+    public FollowEventPublisher(final ReactiveRedisDataSource reactiveDs) {
         LOG.info("Initializing FollowEventPublisher.");
-        publisher = ds.pubsub(FollowEvent.class);
+        this.reactiveDs = reactiveDs;
+        publisher = reactiveDs.pubsub(FollowEvent.class);
         LOG.info("FollowEventPublisher initialized successfully.");
     }
 
-    public void publish(final FollowEvent message) {
+    public Uni<Void> publish(final FollowEvent message) {
         LOG.info("Publishing FollowEvent to channel: {}. Event: {}", CHANNEL, message);
-        try {
-            publisher.publish(CHANNEL, message);
-            LOG.info("Successfully published FollowEvent to channel: {}", CHANNEL);
-        } catch (Exception e) {
-            LOG.error("Error while publishing FollowEvent to channel: {}", CHANNEL, e);
-            throw e;
+        return publisher
+                .publish(CHANNEL, message)
+                .invoke(() -> LOG.info("Successfully published FollowEvent to channel: {}", CHANNEL))
+                .onFailure()
+                .invoke(e -> LOG.error("Error while publishing FollowEvent to channel: {}", CHANNEL, e));
+    }
+
+    /**
+     * Publishes several events in one pipelined round trip.
+     * All commands go through the same connection, so subscribers receive them in order.
+     *
+     * @param messages the events to publish, in order.
+     */
+    public Uni<Void> publishAll(final List<FollowEvent> messages) {
+        if (messages.isEmpty()) {
+            return Uni
+                    .createFrom()
+                    .voidItem();
         }
+        LOG.info("Publishing {} FollowEvents to channel: {}", messages.size(), CHANNEL);
+        return reactiveDs
+                .withConnection(connection -> {
+                    var pubsub = connection.pubsub(FollowEvent.class);
+                    return Uni
+                            .join()
+                            .all(messages
+                                    .stream()
+                                    .map(message -> pubsub.publish(CHANNEL, message))
+                                    .toList())
+                            .andFailFast()
+                            .replaceWithVoid();
+                })
+                .onFailure()
+                .invoke(e -> LOG.error("Error while publishing {} FollowEvents to channel: {}", messages.size(), CHANNEL, e));
     }
-}
\ No newline at end of file
+}
@@ -1,38 +1,64 @@
 package com.epita.repository;
 
 import com.epita.repository.entity.LikeEvent;
+import io.quarkus.redis.datasource.ReactiveRedisDataSource;
+import io.quarkus.redis.datasource.pubsub.ReactivePubSubCommands;
+import io.smallrye.mutiny.Uni;
 import jakarta.enterprise.context.ApplicationScoped;
-
-import io.quarkus.redis.datasource.RedisDataSource;
-import io.quarkus.redis.datasource.pubsub.PubSubCommands;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.List;
+
 @ApplicationScoped
 public class LikeEventPublisher {
     private static final Logger LOG = LoggerFactory.getLogger(LikeEventPublisher.class);
     private static final String CHANNEL = "queue-likes-events";
-    private final PubSubCommands<LikeEvent> publisher;
+    private final ReactivePubSubCommands<LikeEvent> publisher;
+    private final ReactiveRedisDataSource reactiveDs;
 
-    public LikeEventPublisher(final RedisDataSource ds) {
+    public LikeEventPublisher(final ReactiveRedisDataSource reactiveDs) {
         LOG.info("Initializing LikeEventPublisher.");
-        try {
-            publisher = ds.pubsub(LikeEvent.class);
-            LOG.info("LikeEventPublisher initialized successfully.");
-        } catch (Exception e) {
-            LOG.error("Error while initializing LikeEventPublisher.", e);
-            throw e;
-        }
+        this.reactiveDs = reactiveDs;
+        publisher = reactiveDs.pubsub(LikeEvent.class);
+        LOG.info("LikeEventPublisher initialized successfully.");
     }
 
-    public void publish(final LikeEvent message) {
+    public Uni<Void> publish(final LikeEvent message) {
         LOG.info("Publishing LikeEvent to channel: {}. Event: {}", CHANNEL, message);
-        try {
-            publisher.publish(CHANNEL, message);
-            LOG.info("Successfully published LikeEvent to channel: {}", CHANNEL);
-        } catch (Exception e) {
-            LOG.error("Error while publishing LikeEvent to channel: {}", CHANNEL, e);
-            throw e;
+        return publisher
+                .publish(CHANNEL, message)
+                .invoke(() -> LOG.info("Successfully published LikeEvent to channel: {}", CHANNEL))
+                .onFailure()
+                .invoke(e -> LOG.error("Error while publishing LikeEvent to channel: {}", CHANNEL, e));
+    }
+
+    /**
+     * Publishes several events in one pipelined round trip.
+     * All commands go through the same connection, so subscribers receive them in order.
+     *
+     * @param messages the events to publish, in order.
+     */
+    public Uni<Void> publishAll(final List<LikeEvent> messages) {
+        if (messages.isEmpty()) {
+            return Uni
+                    .createFrom()
+                    .voidItem();
         }
+        LOG.info("Publishing {} LikeEvents to channel: {}", messages.size(), CHANNEL);
+        return reactiveDs
+                .withConnection(connection -> {
+                    var pubsub = connection.pubsub(LikeEvent.class);
+                    return Uni
+                            .join()
+                            .all(messages
+                                    .stream()
+                                    .map(message -> pubsub.publish(CHANNEL, message))
+                                    .toList())
+                            .andFailFast()
+                            .replaceWithVoid();
+                })
+                .onFailure()
+                .invoke(e -> LOG.error("Error while publishing {} LikeEvents to channel: {}", messages.size(), CHANNEL, e));
     }
-}
\ No newline at end of file
+}
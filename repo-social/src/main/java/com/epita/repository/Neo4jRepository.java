@@ -1,613 +1,940 @@
 package com.epita.repository;
 
+import com.epita.common.api.response.BlockStatusResponse;
+import com.epita.repository.entity.BlockResult;
+import com.epita.repository.entity.PostCounts;
 import com.epita.repository.entity.PostsSocial;
+import com.epita.repository.entity.RelationChanges;
+import com.epita.repository.entity.RelationCursor;
+import com.epita.repository.entity.RelationEdge;
+import com.epita.repository.entity.RelationOutcome;
+import com.epita.repository.entity.RelationPage;
+import com.epita.repository.entity.RelationState;
+import com.epita.repository.entity.UserCounts;
 import com.epita.repository.entity.UsersSocial;
+import io.smallrye.mutiny.Uni;
 import jakarta.enterprise.context.ApplicationScoped;
-import jakarta.inject.Inject;
 import jakarta.ws.rs.InternalServerErrorException;
 import jakarta.ws.rs.NotFoundException;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.neo4j.driver.Driver;
-import org.neo4j.driver.GraphDatabase;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.SessionConfig;
+import org.neo4j.driver.Value;
+import org.neo4j.driver.async.AsyncSession;
+import org.neo4j.driver.async.AsyncTransactionCallback;
+import org.neo4j.driver.async.ResultCursor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
-
+import java.util.concurrent.CompletionStage;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Repository of the social graph.
+ * <p>
+ * Queries run on the asynchronous API of the driver managed by Quarkus: they never block the calling
+ * thread, and each one borrows a pooled connection for the duration of its transaction only.
+ */
 @ApplicationScoped
 public class Neo4jRepository {
     private static final Logger LOG = LoggerFactory.getLogger(Neo4jRepository.class);
 
-    @Inject
-    Driver neo4jDriver;
+    private final Driver neo4jDriver;
+
+    private final SessionConfig sessionConfig;
+
+    public Neo4jRepository(Driver neo4jDriver, @ConfigProperty(name = "epitweet.neo4j.fetch-size", defaultValue = "1000") int fetchSize) {
+        this.neo4jDriver = neo4jDriver;
+        this.sessionConfig = SessionConfig
+                .builder()
+                .withFetchSize(fetchSize)
+                .build();
+    }
+
+    /*
+     * Degree counters, updated by the statements writing the relationships they count. The number of
+     * users a user follows is a property of its node: only that user's commands change it, and they lock
+     * its node anyway. Follower and like counts are spread over COUNTER_STRIPES Counter nodes per user or
+     * post, each update picking a stripe at random, so that concurrent follows of a popular user or likes
+     * of a viral post seldom wait on the same lock. A stripe may go negative; the count is their sum.
+     */
+    private static final int COUNTER_STRIPES = 16;
+
+    private static String addToFollowees(String user, String delta) {
+        return "SET " + user + ".followeeCount = coalesce(" + user + ".followeeCount, 0) + " + delta + " ";
+    }
+
+    private static String addToStripe(String stripe, String node, String counter, String delta) {
+        return "MERGE (" + stripe + ":Counter {id: " + node + ".id + ':" + counter + ":' + toString(toInteger(rand() * " +
+                COUNTER_STRIPES + "))}) SET " + stripe + ".count = coalesce(" + stripe + ".count, 0) + " + delta + " ";
+    }
 
-    public Neo4jRepository() {
-        LOG.info("Initializing Neo4jRepository.");
-        this.neo4jDriver = GraphDatabase.driver("bolt://localhost:7687");
-        LOG.info("Neo4jRepository initialized successfully.");
+    private static String stripeIds(String nodeId, String counter) {
+        return "[i IN range(0, " + (COUNTER_STRIPES - 1) + ") | " + nodeId + " + ':" + counter + ":' + toString(i)]";
     }
 
-    public PostsSocial addPost(PostsSocial post) {
+    private static final String ADD_POST = "MERGE (n:PostsSocial {id: $post_id}) RETURN n";
+
+    public Uni<PostsSocial> addPost(PostsSocial post) {
         LOG.info("Adding post with ID: {}", post.getId());
-        try (var session = neo4jDriver.session()) {
-            String createCypher = "CREATE (n:PostsSocial {id: $post_id}) RETURN n";
-            var createdNode = session.executeWrite(tx -> tx
-                    .run(createCypher, Map.of("post_id", post
-                            .getId()
-                            .toString()))
-                    .single()
-                    .get("n"));
-            if (createdNode == null) {
-                LOG.error("Failed to create post node for ID: {}", post.getId());
-                throw new InternalServerErrorException("Neo4J error: Post Node could not be created");
-            }
-            LOG.info("Post with ID: {} added successfully.", post.getId());
-            return post;
-        } catch (Exception e) {
-            LOG.error("Error while adding post with ID: {}", post.getId(), e);
-            throw e;
-        }
-    }
-
-    public UsersSocial addUser(UsersSocial user) {
+        return writeSingle(ADD_POST, Map.of("post_id", post
+                .getId()
+                .toString()))
+                .map(record -> {
+                    if (record
+                            .get("n")
+                            .isNull()) {
+                        LOG.error("Failed to create post node for ID: {}", post.getId());
+                        throw new InternalServerErrorException("Neo4J error: Post Node could not be created");
+                    }
+                    LOG.info("Post with ID: {} added successfully.", post.getId());
+                    return post;
+                })
+                .onFailure()
+                .invoke(e -> LOG.error("Error while adding post with ID: {}", post.getId(), e));
+    }
+
+    private static final String UPSERT_POST = "MERGE (author:UsersSocial {id: $author_id}) " +
+            "MERGE (post:PostsSocial {id: $post_id}) " +
+            "SET post.authorId = $author_id " +
+            "RETURN post";
+
+    /**
+     * Provisions a post and its author, recording who the author is.
+     *
+     * @param post the post, with its author ID.
+     */
+    public Uni<PostsSocial> upsertPost(PostsSocial post) {
+        LOG.info("Upserting post with ID: {} by author ID: {}", post.getId(), post.getAuthorId());
+        return writeSingle(UPSERT_POST, Map.of(
+                "post_id", post
+                        .getId()
+                        .toString(),
+                "author_id", post
+                        .getAuthorId()
+                        .toString()))
+                .replaceWith(post)
+                .onFailure()
+                .invoke(e -> LOG.error("Error while upserting post with ID: {}", post.getId(), e));
+    }
+
+    /*
+     * Bulk provisioning of the posts of repo-post, applied from its post events.
+     */
+
+    private static final String UPSERT_POSTS = "UNWIND $posts as row " +
+            "MERGE (author:UsersSocial {id: row.author_id}) " +
+            "MERGE (post:PostsSocial {id: row.post_id}) " +
+            "SET post.authorId = row.author_id";
+
+    /**
+     * Provisions posts and their authors with a single statement, recording who the authors are.
+     *
+     * @param posts the posts, with their author IDs.
+     */
+    public Uni<Void> upsertPosts(List<PostsSocial> posts) {
+        LOG.info("Upserting {} posts", posts.size());
+        List<Map<String, Object>> rows = posts
+                .stream()
+                .map(post -> Map.<String, Object>of(
+                        "post_id", post
+                                .getId()
+                                .toString(),
+                        "author_id", post
+                                .getAuthorId()
+                                .toString()))
+                .toList();
+        return write(tx -> tx
+                .runAsync(UPSERT_POSTS, Map.of("posts", rows))
+                .thenCompose(ResultCursor::consumeAsync))
+                .replaceWithVoid()
+                .onFailure()
+                .invoke(e -> LOG.error("Error while upserting {} posts", posts.size(), e));
+    }
+
+    private static final String DELETE_POSTS = "UNWIND $post_ids as post_id " +
+            "MATCH (p:PostsSocial {id: post_id}) " +
+            "OPTIONAL MATCH (stripe:Counter) WHERE stripe.id IN " + stripeIds("p.id", "likes") + " DELETE stripe " +
+            "WITH DISTINCT p DETACH DELETE p";
+
+    /**
+     * Deletes posts with their likes and counters with a single statement. Unknown posts are ignored.
+     *
+     * @param posts the posts to delete.
+     */
+    public Uni<Void> deletePosts(List<PostsSocial> posts) {
+        LOG.info("Deleting {} posts", posts.size());
+        List<String> ids = posts
+                .stream()
+                .map(post -> post
+                        .getId()
+                        .toString())
+                .toList();
+        return write(tx -> tx
+                .runAsync(DELETE_POSTS, Map.of("post_ids", ids))
+                .thenCompose(ResultCursor::consumeAsync))
+                .replaceWithVoid()
+                .onFailure()
+                .invoke(e -> LOG.error("Error while deleting {} posts", posts.size(), e));
+    }
+
+    private static final String ADD_USER = "MERGE (n:UsersSocial {id: $user_id}) RETURN n";
+
+    public Uni<UsersSocial> addUser(UsersSocial user) {
         LOG.info("Adding user with ID: {}", user.getId());
-        try (var session = neo4jDriver.session()) {
-            String createCypher = "CREATE (n:UsersSocial {id: $user_id}) RETURN n";
-            var createdNode = session.executeWrite(tx -> tx
-                    .run(createCypher, Map.of("user_id", user
-                            .getId()
-                            .toString()))
-                    .single()
-                    .get("n"));
-            if (createdNode == null) {
-                LOG.error("Failed to create user node for ID: {}", user.getId());
-                throw new InternalServerErrorException("Neo4J error: User Node could not be created");
-            }
-            LOG.info("User with ID: {} added successfully.", user.getId());
-            return user;
-        } catch (Exception e) {
-            LOG.error("Error while adding user with ID: {}", user.getId(), e);
-            throw e;
-        }
-    }
-
-    public UsersSocial deleteUser(UsersSocial user) {
+        return writeSingle(ADD_USER, Map.of("user_id", user
+                .getId()
+                .toString()))
+                .map(record -> {
+                    if (record
+                            .get("n")
+                            .isNull()) {
+                        LOG.error("Failed to create user node for ID: {}", user.getId());
+                        throw new InternalServerErrorException("Neo4J error: User Node could not be created");
+                    }
+                    LOG.info("User with ID: {} added successfully.", user.getId());
+                    return user;
+                })
+                .onFailure()
+                .invoke(e -> LOG.error("Error while adding user with ID: {}", user.getId(), e));
+    }
+
+    private static final String DELETE_USER = "MATCH (u:UsersSocial {id: $user_id}) " +
+            "OPTIONAL MATCH (u)-[:FOLLOW]->(followee:UsersSocial) " +
+            "WITH u, collect(followee) as followees " +
+            "OPTIONAL MATCH (follower:UsersSocial)-[:FOLLOW]->(u) " +
+            "WITH u, followees, collect(follower) as followers " +
+            "OPTIONAL MATCH (u)-[:LIKE]->(post:PostsSocial) " +
+            "WITH u, followees, followers, collect(post) as posts " +
+            "FOREACH (followee IN followees | " + addToStripe("stripe", "followee", "followers", "-1") + ") " +
+            "FOREACH (follower IN followers | " + addToFollowees("follower", "-1") + ") " +
+            "FOREACH (post IN posts | " + addToStripe("stripe", "post", "likes", "-1") + ") " +
+            "WITH u OPTIONAL MATCH (stripe:Counter) WHERE stripe.id IN " + stripeIds("u.id", "followers") + " DELETE stripe " +
+            "WITH DISTINCT u DETACH DELETE u RETURN count(u) as deleted";
+
+    public Uni<UsersSocial> deleteUser(UsersSocial user) {
         LOG.info("Attempting to delete user with ID: {}", user.getId());
-        try (var session = neo4jDriver.session()) {
-            String deleteCypher = "MATCH (u:UsersSocial {id: $user_id}) DETACH DELETE u RETURN count(u) as deleted";
-            Integer deleted = session.executeWrite(tx -> {
-                var result = tx.run(deleteCypher, Map.of("user_id", user
-                        .getId()
-                        .toString()));
-                var record = result.single();
-                return record
-                        .get("deleted")
-                        .asInt();
-            });
-
-            if (deleted == 0) {
-                LOG.error("User with ID: {} not found for deletion.", user.getId());
-                throw new NotFoundException("User with id " + user.getId() + " not found");
-            }
-
-            LOG.info("Successfully deleted user with ID: {}", user.getId());
-            return user;
-        } catch (Exception e) {
-            LOG.error("Error while deleting user with ID: {}", user.getId(), e);
-            throw e;
-        }
-    }
-
-    public PostsSocial deletePost(PostsSocial post) {
+        return writeSingle(DELETE_USER, Map.of("user_id", user
+                .getId()
+                .toString()))
+                .map(record -> {
+                    if (record
+                            .get("deleted")
+                            .asInt() == 0) {
+                        LOG.error("User with ID: {} not found for deletion.", user.getId());
+                        throw new NotFoundException("User with id " + user.getId() + " not found");
+                    }
+                    LOG.info("Successfully deleted user with ID: {}", user.getId());
+                    return user;
+                })
+                .onFailure()
+                .invoke(e -> LOG.error("Error while deleting user with ID: {}", user.getId(), e));
+    }
+
+    private static final String DELETE_POST = "MATCH (p:PostsSocial {id: $post_id}) " +
+            "OPTIONAL MATCH (stripe:Counter) WHERE stripe.id IN " + stripeIds("p.id", "likes") + " DELETE stripe " +
+            "WITH DISTINCT p DETACH DELETE p RETURN count(p) as deleted";
+
+    public Uni<PostsSocial> deletePost(PostsSocial post) {
         LOG.info("Attempting to delete post with ID: {}", post.getId());
-        try (var session = neo4jDriver.session()) {
-            String deleteCypher = "MATCH (p:PostsSocial {id: $post_id}) DETACH DELETE p RETURN count(p) as deleted";
-            Integer deleted = session.executeWrite(tx -> {
-                var result = tx.run(deleteCypher, Map.of("post_id", post
-                        .getId()
-                        .toString()));
-                var record = result.single();
-                return record
-                        .get("deleted")
-                        .asInt();
-            });
-
-            if (deleted == 0) {
-                LOG.error("Post with ID: {} not found for deletion.", post.getId());
-                throw new NotFoundException("Post with id " + post.getId() + " not found");
-            }
-
-            LOG.info("Successfully deleted post with ID: {}", post.getId());
-            return post;
-        } catch (Exception e) {
-            LOG.error("Error while deleting post with ID: {}", post.getId(), e);
-            throw e;
-        }
-    }
-
-    public boolean userExists(UsersSocial user) {
+        return writeSingle(DELETE_POST, Map.of("post_id", post
+                .getId()
+                .toString()))
+                .map(record -> {
+                    if (record
+                            .get("deleted")
+                            .asInt() == 0) {
+                        LOG.error("Post with ID: {} not found for deletion.", post.getId());
+                        throw new NotFoundException("Post with id " + post.getId() + " not found");
+                    }
+                    LOG.info("Successfully deleted post with ID: {}", post.getId());
+                    return post;
+                })
+                .onFailure()
+                .invoke(e -> LOG.error("Error while deleting post with ID: {}", post.getId(), e));
+    }
+
+    private static final String USER_EXISTS = "MATCH (u:UsersSocial {id: $user_id}) RETURN count(u) > 0 as exists";
+
+    public Uni<Boolean> userExists(UsersSocial user) {
         LOG.debug("Checking if user exists with ID: {}", user.getId());
-        try (var session = neo4jDriver.session()) {
-            String existsCypher = "MATCH (u:UsersSocial {id: $user_id}) RETURN count(u) > 0 as exists";
-            boolean exists = session.executeRead(tx -> tx
-                    .run(existsCypher, Map.of("user_id", user
-                            .getId()
-                            .toString()))
-                    .single()
-                    .get("exists")
-                    .asBoolean());
-            LOG.debug("User existence check for ID: {} returned: {}", user.getId(), exists);
-            return exists;
-        } catch (Exception e) {
-            LOG.error("Error while checking user existence for ID: {}", user.getId(), e);
-            throw e;
-        }
-    }
-
-    public boolean postExists(PostsSocial post) {
+        return readSingle(USER_EXISTS, Map.of("user_id", user
+                .getId()
+                .toString()))
+                .map(record -> record
+                        .get("exists")
+                        .asBoolean())
+                .invoke(exists -> LOG.debug("User existence check for ID: {} returned: {}", user.getId(), exists))
+                .onFailure()
+                .invoke(e -> LOG.error("Error while checking user existence for ID: {}", user.getId(), e));
+    }
+
+    private static final String POST_EXISTS = "MATCH (p:PostsSocial {id: $post_id}) RETURN count(p) > 0 as exists";
+
+    public Uni<Boolean> postExists(PostsSocial post) {
         LOG.debug("Checking if post exists with ID: {}", post.getId());
-        try (var session = neo4jDriver.session()) {
-            String existsCypher = "MATCH (p:PostsSocial {id: $post_id}) RETURN count(p) > 0 as exists";
-            boolean exists = session.executeRead(tx -> tx
-                    .run(existsCypher, Map.of("post_id", post
-                            .getId()
-                            .toString()))
-                    .single()
-                    .get("exists")
-                    .asBoolean());
-            LOG.debug("Post existence check for ID: {} returned: {}", post.getId(), exists);
-            return exists;
-        } catch (Exception e) {
-            LOG.error("Error while checking post existence for ID: {}", post.getId(), e);
-            throw e;
-        }
-    }
-
-    public boolean createFollowRelation(UsersSocial user1, UsersSocial user2) {
-        LOG.info("Creating follow relationship from User ID: {} to User ID: {}", user1.getId(), user2.getId());
-        try (var session = neo4jDriver.session()) {
-            String createRelationCypher =
-                    "MATCH (user1:UsersSocial {id: $user1_id}), " +
-                            "(user2:UsersSocial {id: $user2_id}) " +
-                            "MERGE (user1)-[r:FOLLOW]->(user2) " +
-                            "RETURN r";
-            boolean result = session.executeWrite(tx -> {
-                try {
-                    var record = tx
-                            .run(createRelationCypher, Map.of(
-                                    "user1_id", user1
-                                            .getId()
-                                            .toString(),
-                                    "user2_id", user2
-                                            .getId()
-                                            .toString()))
-                            .single();
-                    return record != null;
-                } catch (Exception e) {
-                    LOG.error("Error creating follow relationship from User ID: {} to User ID: {}", user1.getId(), user2.getId(), e);
-                    return false;
-                }
-            });
-            if (result) {
-                LOG.info("Follow relationship created successfully from User ID: {} to User ID: {}", user1.getId(), user2.getId());
-            } else {
-                LOG.warn("Failed to create follow relationship from User ID: {} to User ID: {}", user1.getId(), user2.getId());
-            }
-            return result;
-        }
-    }
-
-    public boolean createBlockRelation(UsersSocial user1, UsersSocial user2) {
-        LOG.info("Creating block relationship from User ID: {} to User ID: {}", user1.getId(), user2.getId());
-        try (var session = neo4jDriver.session()) {
-            String createRelationCypher =
-                    "MATCH (user1:UsersSocial {id: $user1_id}), " +
-                            "(user2:UsersSocial {id: $user2_id}) " +
-                            "CREATE (user1)-[r:BLOCK]->(user2) " +
-                            "RETURN r";
-            boolean result = session.executeWrite(tx -> {
-                try {
-                    var record = tx
-                            .run(createRelationCypher, Map.of(
-                                    "user1_id", user1
-                                            .getId()
-                                            .toString(),
-                                    "user2_id", user2
-                                            .getId()
-                                            .toString()))
-                            .single();
-                    return record != null;
-                } catch (Exception e) {
-                    LOG.error("Error creating block relationship from User ID: {} to User ID: {}", user1.getId(), user2.getId(), e);
-                    return false;
-                }
-            });
-            if (result) {
-                LOG.info("Block relationship created successfully from User ID: {} to User ID: {}", user1.getId(), user2.getId());
-            } else {
-                LOG.warn("Failed to create block relationship from User ID: {} to User ID: {}", user1.getId(), user2.getId());
-            }
-            return result;
-        }
-    }
-
-    public boolean createLikeRelation(UsersSocial user, PostsSocial post) {
-        LOG.info("Creating like relationship from User ID: {} to Post ID: {}", user.getId(), post.getId());
-        try (var session = neo4jDriver.session()) {
-            String createRelationCypher =
-                    "MATCH (user:UsersSocial {id: $user_id}), " +
-                            "(post:PostsSocial {id: $post_id}) " +
-                            "CREATE (user)-[r:LIKE]->(post) " +
-                            "RETURN r";
-            boolean result = session.executeWrite(tx -> {
-                try {
-                    var record = tx
-                            .run(createRelationCypher, Map.of(
-                                    "user_id", user
-                                            .getId()
-                                            .toString(),
-                                    "post_id", post
-                                            .getId()
-                                            .toString()))
-                            .single();
-                    return record != null;
-                } catch (Exception e) {
-                    LOG.error("Error creating like relationship from User ID: {} to Post ID: {}", user.getId(), post.getId(), e);
-                    return false;
-                }
-            });
-            if (result) {
-                LOG.info("Like relationship created successfully from User ID: {} to Post ID: {}", user.getId(), post.getId());
-            } else {
-                LOG.warn("Failed to create like relationship from User ID: {} to Post ID: {}", user.getId(), post.getId());
-            }
-            return result;
-        }
-    }
-
-    public boolean removeFollowRelation(UsersSocial user1, UsersSocial user2) {
-        LOG.info("Removing follow relationship from User ID: {} to User ID: {}", user1.getId(), user2.getId());
-        try (var session = neo4jDriver.session()) {
-            String deleteRelationCypher =
-                    "MATCH (user1:UsersSocial {id: $user1_id})-[r:FOLLOW]->(user2:UsersSocial {id: $user2_id}) " +
-                            "DELETE r RETURN count(r) as deleted";
-            boolean deleted = session.executeWrite(tx -> tx
-                    .run(deleteRelationCypher, Map.of(
-                            "user1_id", user1
-                                    .getId()
-                                    .toString(),
-                            "user2_id", user2
-                                    .getId()
-                                    .toString()))
-                    .single()
-                    .get("deleted")
-                    .asInt() > 0);
-            if (deleted) {
-                LOG.info("Successfully removed follow relationship from User ID: {} to User ID: {}", user1.getId(), user2.getId());
-            } else {
-                LOG.warn("No follow relationship found to remove from User ID: {} to User ID: {}", user1.getId(), user2.getId());
-            }
-            return deleted;
-        } catch (Exception e) {
-            LOG.error("Error while removing follow relationship from User ID: {} to User ID: {}", user1.getId(), user2.getId(), e);
-            throw e;
-        }
-    }
-
-
-    public boolean removeBlockRelation(UsersSocial user1, UsersSocial user2) {
-        LOG.info("Removing block relationship from User ID: {} to User ID: {}", user1.getId(), user2.getId());
-        try (var session = neo4jDriver.session()) {
-            String deleteRelationCypher =
-                    "MATCH (user1:UsersSocial {id: $user1_id})-[r:BLOCK]->(user2:UsersSocial {id: $user2_id}) " +
-                            "DELETE r RETURN count(r) as deleted";
-            boolean deleted = session.executeWrite(tx -> tx
-                    .run(deleteRelationCypher, Map.of(
-                            "user1_id", user1
-                                    .getId()
-                                    .toString(),
-                            "user2_id", user2
-                                    .getId()
-                                    .toString()))
-                    .single()
-                    .get("deleted")
-                    .asInt() > 0);
-            if (deleted) {
-                LOG.info("Successfully removed block relationship from User ID: {} to User ID: {}", user1.getId(), user2.getId());
-            } else {
-                LOG.warn("No block relationship found to remove from User ID: {} to User ID: {}", user1.getId(), user2.getId());
-            }
-            return deleted;
-        } catch (Exception e) {
-            LOG.error("Error while removing block relationship from User ID: {} to User ID: {}", user1.getId(), user2.getId(), e);
-            throw e;
-        }
-    }
-
-    public boolean removeLikeRelation(UsersSocial user, PostsSocial post) {
-        LOG.info("Removing like relationship from User ID: {} to Post ID: {}", user.getId(), post.getId());
-        try (var session = neo4jDriver.session()) {
-            String deleteRelationCypher =
-                    "MATCH (user:UsersSocial {id: $user_id})-[r:LIKE]->(post:PostsSocial {id: $post_id}) " +
-                            "DELETE r RETURN count(r) as deleted";
-            boolean deleted = session.executeWrite(tx -> tx
-                    .run(deleteRelationCypher, Map.of(
-                            "user_id", user
-                                    .getId()
-                                    .toString(),
-                            "post_id", post
-                                    .getId()
-                                    .toString()))
-                    .single()
-                    .get("deleted")
-                    .asInt() > 0);
-            if (deleted) {
-                LOG.info("Successfully removed like relationship from User ID: {} to Post ID: {}", user.getId(), post.getId());
-            } else {
-                LOG.warn("No like relationship found to remove from User ID: {} to Post ID: {}", user.getId(), post.getId());
-            }
-            return deleted;
-        } catch (Exception e) {
-            LOG.error("Error while removing like relationship from User ID: {} to Post ID: {}", user.getId(), post.getId(), e);
-            throw e;
-        }
-    }
-
-    public boolean followRelationExists(UsersSocial user1, UsersSocial user2) {
-        LOG.debug("Checking if follow relationship exists from User ID: {} to User ID: {}", user1.getId(), user2.getId());
-        try (var session = neo4jDriver.session()) {
-            String checkRelationCypher =
-                    "MATCH (user1:UsersSocial {id: $user1_id})-[r:FOLLOW]->(user2:UsersSocial {id: $user2_id}) " +
-                            "RETURN count(r) > 0 as exists";
-            boolean exists = session.executeRead(tx -> tx
-                    .run(checkRelationCypher, Map.of(
-                            "user1_id", user1
-                                    .getId()
-                                    .toString(),
-                            "user2_id", user2
-                                    .getId()
-                                    .toString()))
-                    .single()
-                    .get("exists")
-                    .asBoolean());
-            LOG.debug("Follow relationship existence check returned: {}", exists);
-            return exists;
-        } catch (Exception e) {
-            LOG.error("Error while checking follow relationship existence from User ID: {} to User ID: {}", user1.getId(), user2.getId(), e);
-            throw e;
-        }
-    }
-
-    public boolean blockRelationExists(UsersSocial user1, UsersSocial user2) {
-        LOG.debug("Checking if block relationship exists from User ID: {} to User ID: {}", user1.getId(), user2.getId());
-        try (var session = neo4jDriver.session()) {
-            String checkRelationCypher =
-                    "MATCH (user1:UsersSocial {id: $user1_id})-[r:BLOCK]->(user2:UsersSocial {id: $user2_id}) " +
-                            "RETURN count(r) > 0 as exists";
-            boolean exists = session.executeRead(tx -> tx
-                    .run(checkRelationCypher, Map.of(
-                            "user1_id", user1
-                                    .getId()
-                                    .toString(),
-                            "user2_id", user2
-                                    .getId()
-                                    .toString()))
-                    .single()
-                    .get("exists")
-                    .asBoolean());
-            LOG.debug("Block relationship existence check returned: {}", exists);
-            return exists;
-        } catch (Exception e) {
-            LOG.error("Error while checking block relationship existence from User ID: {} to User ID: {}", user1.getId(), user2.getId(), e);
-            throw e;
-        }
-    }
-
-
-    public boolean likeRelationExists(UsersSocial user, PostsSocial post) {
-        LOG.debug("Checking if like relationship exists from User ID: {} to Post ID: {}", user.getId(), post.getId());
-        try (var session = neo4jDriver.session()) {
-            String checkRelationCypher =
-                    "MATCH (user:UsersSocial {id: $user_id})-[r:LIKE]->(post:PostsSocial {id: $post_id}) " +
-                            "RETURN count(r) > 0 as exists";
-            boolean exists = session.executeRead(tx -> tx
-                    .run(checkRelationCypher, Map.of(
-                            "user_id", user
-                                    .getId()
-                                    .toString(),
-                            "post_id", post
-                                    .getId()
-                                    .toString()))
-                    .single()
-                    .get("exists")
-                    .asBoolean());
-            LOG.debug("Like relationship existence check returned: {}", exists);
-            return exists;
-        } catch (Exception e) {
-            LOG.error("Error while checking like relationship existence from User ID: {} to Post ID: {}", user.getId(), post.getId(), e);
-            throw e;
-        }
-    }
-
-    public List<UsersSocial> getAllFollowersOfUser(UsersSocial user) {
-        LOG.info("Fetching all followers of User ID: {}", user.getId());
-        try (var session = neo4jDriver.session()) {
-            String getFollowersCypher =
-                    "MATCH (follower:UsersSocial)-[:FOLLOW]->(user:UsersSocial {id: $user_id}) " +
-                            "RETURN follower";
-            return session.executeRead(tx -> {
-                var result = tx.run(getFollowersCypher, Map.of("user_id", user
+        return readSingle(POST_EXISTS, Map.of("post_id", post
+                .getId()
+                .toString()))
+                .map(record -> record
+                        .get("exists")
+                        .asBoolean())
+                .invoke(exists -> LOG.debug("Post existence check for ID: {} returned: {}", post.getId(), exists))
+                .onFailure()
+                .invoke(e -> LOG.error("Error while checking post existence for ID: {}", post.getId(), e));
+    }
+
+    /**
+     * Reads the block relationships between two users in both directions with a single query.
+     * Unknown users have no block relationship.
+     */
+    private static final String GET_BLOCK_STATUS = "MATCH (user1:UsersSocial {id: $user1_id}), (user2:UsersSocial {id: $user2_id}) " +
+            "RETURN exists((user1)-[:BLOCK]->(user2)) as blocks, exists((user2)-[:BLOCK]->(user1)) as blocked_by";
+
+    public Uni<BlockStatusResponse> getBlockStatus(UsersSocial user1, UsersSocial user2) {
+        LOG.debug("Checking block relationships between User ID: {} and User ID: {}", user1.getId(), user2.getId());
+        return read(tx -> tx
+                .runAsync(GET_BLOCK_STATUS, Map.of(
+                        "user1_id", user1
+                                .getId()
+                                .toString(),
+                        "user2_id", user2
+                                .getId()
+                                .toString()))
+                .thenCompose(ResultCursor::nextAsync))
+                .map(record -> record == null ? new BlockStatusResponse(false, false) : new BlockStatusResponse(record
+                        .get("blocks")
+                        .asBoolean(), record
+                        .get("blocked_by")
+                        .asBoolean()))
+                .invoke(status -> LOG.debug("Block relationships check returned: blocks={}, blockedBy={}", status.isBlocks(),
+                        status.isBlockedBy()))
+                .onFailure()
+                .invoke(e -> LOG.error("Error while checking block relationships between User ID: {} and User ID: {}", user1.getId(),
+                        user2.getId(), e));
+    }
+
+    private static final String GET_BLOCKED_IDS = "MATCH (:UsersSocial {id: $user_id})-[:BLOCK]->(blocked:UsersSocial) " +
+            "RETURN collect(blocked.id) as blocked";
+
+    /**
+     * @return the ids of the users blocked by the user, empty if the user is not in the graph.
+     */
+    public Uni<Set<UUID>> getBlockedIds(UsersSocial user) {
+        LOG.debug("Fetching ids of users blocked by User ID: {}", user.getId());
+        return readSingle(GET_BLOCKED_IDS, Map.of("user_id", user
+                .getId()
+                .toString()))
+                .map(record -> Set.copyOf(record
+                        .get("blocked")
+                        .asList(value -> UUID.fromString(value.asString()))))
+                .onFailure()
+                .invoke(e -> LOG.error("Error while fetching ids of users blocked by User ID: {}", user.getId(), e));
+    }
+
+    /**
+     * Reads the relationships between a viewer and each target user with a single query, in the order of the targets.
+     * Unknown users have no relationship.
+     */
+    private static final String GET_RELATION_STATES = "OPTIONAL MATCH (viewer:UsersSocial {id: $viewer_id}) " +
+            "UNWIND $target_ids as target_id " +
+            "OPTIONAL MATCH (target:UsersSocial {id: target_id}) " +
+            "WITH target_id, viewer, target, viewer IS NOT NULL AND target IS NOT NULL as known " +
+            "RETURN target_id, " +
+            "known AND exists((viewer)-[:FOLLOW]->(target)) as following, " +
+            "known AND exists((target)-[:FOLLOW]->(viewer)) as followed_by, " +
+            "known AND exists((viewer)-[:BLOCK]->(target)) as blocking, " +
+            "known AND exists((target)-[:BLOCK]->(viewer)) as blocked_by";
+
+    public Uni<List<RelationState>> getRelationStates(UsersSocial viewer, List<UUID> targetIds) {
+        LOG.debug("Fetching relationships between User ID: {} and {} users", viewer.getId(), targetIds.size());
+        return read(tx -> tx
+                .runAsync(GET_RELATION_STATES, Map.of(
+                        "viewer_id", viewer
+                                .getId()
+                                .toString(),
+                        "target_ids", targetIds
+                                .stream()
+                                .map(UUID::toString)
+                                .toList()))
+                .thenCompose(cursor -> cursor.listAsync(record -> new RelationState(UUID.fromString(record
+                        .get("target_id")
+                        .asString()), record
+                        .get("following")
+                        .asBoolean(), record
+                        .get("followed_by")
+                        .asBoolean(), record
+                        .get("blocking")
+                        .asBoolean(), record
+                        .get("blocked_by")
+                        .asBoolean()))))
+                .onFailure()
+                .invoke(e -> LOG.error("Error while fetching relationships of User ID: {}", viewer.getId(), e));
+    }
+
+    /*
+     * Reads of every block relationship, to build the block filter of BlockCache. They are not part of
+     * queries(): they read the whole relationship type on purpose, the count from the count store.
+     */
+    private static final String COUNT_BLOCKS = "MATCH ()-[r:BLOCK]->() RETURN count(r) as blocks";
+
+    private static final String GET_ALL_BLOCKS = "MATCH (blocker:UsersSocial)-[:BLOCK]->(blocked:UsersSocial) " +
+            "RETURN blocker.id as from_id, blocked.id as to_id";
+
+    public Uni<Long> countBlocks() {
+        return readSingle(COUNT_BLOCKS, Map.of()).map(record -> record
+                .get("blocks")
+                .asLong());
+    }
+
+    /**
+     * Streams every block relationship to an action, without loading them all in memory.
+     * The read may be retried on transient errors: the action may see an edge more than once.
+     */
+    public Uni<Void> forEachBlock(Consumer<RelationEdge> action) {
+        LOG.info("Reading all block relationships");
+        return read(tx -> tx
+                .runAsync(GET_ALL_BLOCKS)
+                .thenCompose(cursor -> cursor.forEachAsync(record -> action.accept(toEdge(record)))))
+                .replaceWithVoid()
+                .onFailure()
+                .invoke(e -> LOG.error("Error while reading all block relationships", e));
+    }
+
+    /*
+     * Commands: each user-facing mutation is a single statement checking, writing and returning its outcome
+     * in one transaction. The acting user node is write-locked first (SET/REMOVE of a dummy property), so
+     * that concurrent commands touching it are serialized and the checks read the latest committed state.
+     */
+
+    private static final String FOLLOW = "OPTIONAL MATCH (follower:UsersSocial {id: $follower_id}) " +
+            "OPTIONAL MATCH (followee:UsersSocial {id: $followee_id}) " +
+            "SET follower._lock = true REMOVE follower._lock " +
+            "WITH follower, followee, CASE " +
+            "WHEN follower IS NULL OR followee IS NULL THEN 'USER_NOT_FOUND' " +
+            "WHEN exists((follower)-[:BLOCK]-(followee)) THEN 'BLOCKED' " +
+            "WHEN exists((follower)-[:FOLLOW]->(followee)) THEN 'UNCHANGED' " +
+            "ELSE 'CREATED' END as outcome " +
+            "FOREACH (ignored IN CASE WHEN outcome = 'CREATED' THEN [1] ELSE [] END | " +
+            "CREATE (follower)-[:FOLLOW {createdAt: timestamp()}]->(followee) " +
+            addToFollowees("follower", "1") + addToStripe("stripe", "followee", "followers", "1") + ") " +
+            "RETURN outcome";
+
+    public Uni<RelationOutcome> follow(UsersSocial follower, UsersSocial followee) {
+        LOG.info("Following User ID: {} by User ID: {}", followee.getId(), follower.getId());
+        return runCommand(FOLLOW, Map.of(
+                "follower_id", follower
                         .getId()
-                        .toString()));
-                List<UsersSocial> followers = new ArrayList<>();
-                while (result.hasNext()) {
-                    var record = result.next();
-                    var node = record
-                            .get("follower")
-                            .asNode();
-                    UsersSocial follower = new UsersSocial(UUID.fromString(node
-                            .get("id")
-                            .asString()));
-                    followers.add(follower);
-                }
-                LOG.info("Found {} followers for User ID: {}", followers.size(), user.getId());
-                return followers;
-            });
-        } catch (Exception e) {
-            LOG.error("Error while fetching followers for User ID: {}", user.getId(), e);
-            throw e;
-        }
-    }
-
-    public List<UsersSocial> getAllBlockersOfUser(UsersSocial user) {
-        LOG.info("Fetching all blockers of User ID: {}", user.getId());
-        try (var session = neo4jDriver.session()) {
-            String getBlockersCypher =
-                    "MATCH (blocker:UsersSocial)-[:BLOCK]->(user:UsersSocial {id: $user_id}) " +
-                            "RETURN blocker";
-            return session.executeRead(tx -> {
-                var result = tx.run(getBlockersCypher, Map.of("user_id", user
+                        .toString(),
+                "followee_id", followee
                         .getId()
                         .toString()));
-                List<UsersSocial> blockers = new ArrayList<>();
-                while (result.hasNext()) {
-                    var record = result.next();
-                    var node = record
-                            .get("blocker")
-                            .asNode();
-                    UsersSocial blocker = new UsersSocial(UUID.fromString(node
-                            .get("id")
-                            .asString()));
-                    blockers.add(blocker);
-                }
-                LOG.info("Found {} blockers for User ID: {}", blockers.size(), user.getId());
-                return blockers;
-            });
-        } catch (Exception e) {
-            LOG.error("Error while fetching blockers for User ID: {}", user.getId(), e);
-            throw e;
-        }
-    }
-
-    public List<UsersSocial> getAllLikersFromPost(PostsSocial post) {
-        LOG.info("Fetching all likers of Post ID: {}", post.getId());
-        try (var session = neo4jDriver.session()) {
-            String getLikersCypher =
-                    "MATCH (liker:UsersSocial)-[:LIKE]->(post:PostsSocial {id: $post_id}) " +
-                            "RETURN liker";
-            return session.executeRead(tx -> {
-                var result = tx.run(getLikersCypher, Map.of("post_id", post
+    }
+
+    private static final String UNFOLLOW = "OPTIONAL MATCH (follower:UsersSocial {id: $follower_id}) " +
+            "SET follower._lock = true REMOVE follower._lock " +
+            "WITH follower " +
+            "OPTIONAL MATCH (follower)-[r:FOLLOW]->(followee:UsersSocial {id: $followee_id}) " +
+            "WITH follower, followee, r, CASE WHEN r IS NULL THEN 'NOT_FOUND' ELSE 'REMOVED' END as outcome " +
+            "FOREACH (ignored IN CASE WHEN r IS NULL THEN [] ELSE [1] END | " +
+            addToFollowees("follower", "-1") + addToStripe("stripe", "followee", "followers", "-1") + ") " +
+            "DELETE r " +
+            "RETURN outcome";
+
+    public Uni<RelationOutcome> unfollow(UsersSocial follower, UsersSocial followee) {
+        LOG.info("Unfollowing User ID: {} by User ID: {}", followee.getId(), follower.getId());
+        return runCommand(UNFOLLOW, Map.of(
+                "follower_id", follower
+                        .getId()
+                        .toString(),
+                "followee_id", followee
                         .getId()
                         .toString()));
-                List<UsersSocial> likers = new ArrayList<>();
-                while (result.hasNext()) {
-                    var record = result.next();
-                    var node = record
-                            .get("liker")
-                            .asNode();
-                    UsersSocial liker = new UsersSocial(UUID.fromString(node
-                            .get("id")
-                            .asString()));
-                    likers.add(liker);
-                }
-                LOG.info("Found {} likers for Post ID: {}", likers.size(), post.getId());
-                return likers;
-            });
-        } catch (Exception e) {
-            LOG.error("Error while fetching likers for Post ID: {}", post.getId(), e);
-            throw e;
-        }
-    }
-
-    public List<UsersSocial> getAllFollowsOfUser(UsersSocial user) {
-        LOG.info("Fetching all users followed by User ID: {}", user.getId());
-        try (var session = neo4jDriver.session()) {
-            String getFollowsCypher =
-                    "MATCH (user:UsersSocial {id: $user_id})-[:FOLLOW]->(followee:UsersSocial) " +
-                            "RETURN followee";
-            return session.executeRead(tx -> {
-                var result = tx.run(getFollowsCypher, Map.of("user_id", user
+    }
+
+    /**
+     * Blocking also removes the follow relationships between both users, in both directions:
+     * both users are locked, as follows from either side are written.
+     */
+    private static final String BLOCK = "OPTIONAL MATCH (blocker:UsersSocial {id: $blocker_id}) " +
+            "OPTIONAL MATCH (blocked:UsersSocial {id: $blocked_id}) " +
+            "SET blocker._lock = true, blocked._lock = true REMOVE blocker._lock, blocked._lock " +
+            "WITH blocker, blocked " +
+            "OPTIONAL MATCH (blocker)-[follow:FOLLOW]-(blocked) " +
+            "WITH blocker, blocked, collect(follow) as follows " +
+            "WITH blocker, blocked, follows, [follow IN follows | startNode(follow).id] as unfollowers " +
+            "FOREACH (follow IN follows | " + addToFollowees("(startNode(follow))", "-1") +
+            addToStripe("stripe", "endNode(follow)", "followers", "-1") + "DELETE follow) " +
+            "WITH blocker, blocked, unfollowers, CASE " +
+            "WHEN blocker IS NULL OR blocked IS NULL THEN 'USER_NOT_FOUND' " +
+            "WHEN exists((blocker)-[:BLOCK]->(blocked)) THEN 'UNCHANGED' " +
+            "ELSE 'CREATED' END as outcome " +
+            "FOREACH (ignored IN CASE WHEN outcome = 'CREATED' THEN [1] ELSE [] END | " +
+            "CREATE (blocker)-[:BLOCK {createdAt: timestamp()}]->(blocked)) " +
+            "RETURN outcome, unfollowers";
+
+    public Uni<BlockResult> block(UsersSocial blocker, UsersSocial blocked) {
+        LOG.info("Blocking User ID: {} by User ID: {}", blocked.getId(), blocker.getId());
+        return writeSingle(BLOCK, Map.of(
+                "blocker_id", blocker
+                        .getId()
+                        .toString(),
+                "blocked_id", blocked
+                        .getId()
+                        .toString()))
+                .map(record -> new BlockResult(RelationOutcome.valueOf(record
+                        .get("outcome")
+                        .asString()), record
+                        .get("unfollowers")
+                        .asList(value -> UUID.fromString(value.asString()))))
+                .invoke(result -> LOG.info("Block of User ID: {} by User ID: {} returned: {}", blocked.getId(), blocker.getId(),
+                        result.getOutcome()))
+                .onFailure()
+                .invoke(e -> LOG.error("Error while blocking User ID: {} by User ID: {}", blocked.getId(), blocker.getId(), e));
+    }
+
+    private static final String UNBLOCK = "OPTIONAL MATCH (blocker:UsersSocial {id: $blocker_id}) " +
+            "SET blocker._lock = true REMOVE blocker._lock " +
+            "WITH blocker " +
+            "OPTIONAL MATCH (blocker)-[r:BLOCK]->(:UsersSocial {id: $blocked_id}) " +
+            "WITH r, CASE WHEN r IS NULL THEN 'NOT_FOUND' ELSE 'REMOVED' END as outcome " +
+            "DELETE r " +
+            "RETURN outcome";
+
+    public Uni<RelationOutcome> unblock(UsersSocial blocker, UsersSocial blocked) {
+        LOG.info("Unblocking User ID: {} by User ID: {}", blocked.getId(), blocker.getId());
+        return runCommand(UNBLOCK, Map.of(
+                "blocker_id", blocker
+                        .getId()
+                        .toString(),
+                "blocked_id", blocked
                         .getId()
                         .toString()));
-                List<UsersSocial> followees = new ArrayList<>();
-                while (result.hasNext()) {
-                    var record = result.next();
-                    var node = record
-                            .get("followee")
-                            .asNode();
-                    UsersSocial followee = new UsersSocial(UUID.fromString(node
-                            .get("id")
-                            .asString()));
-                    followees.add(followee);
-                }
-                LOG.info("Found {} followees for User ID: {}", followees.size(), user.getId());
-                return followees;
-            });
-        } catch (Exception e) {
-            LOG.error("Error while fetching followees for User ID: {}", user.getId(), e);
-            throw e;
-        }
-    }
-
-    public List<UsersSocial> getAllBlockedOfUser(UsersSocial user) {
-        LOG.info("Fetching all users blocked by User ID: {}", user.getId());
-        try (var session = neo4jDriver.session()) {
-            String getBlockedCypher =
-                    "MATCH (user:UsersSocial {id: $user_id})-[:BLOCK]->(blocked:UsersSocial) " +
-                            "RETURN blocked";
-            return session.executeRead(tx -> {
-                var result = tx.run(getBlockedCypher, Map.of("user_id", user
+    }
+
+    /**
+     * The author is read from the post node: a post missing from the graph, or provisioned before its
+     * author was recorded, is reported so that it is provisioned from repo-post first.
+     * A user missing from the graph cannot have blocked, or be blocked by, anyone.
+     */
+    private static final String LIKE = "OPTIONAL MATCH (user:UsersSocial {id: $user_id}) " +
+            "SET user._lock = true REMOVE user._lock " +
+            "WITH user " +
+            "OPTIONAL MATCH (post:PostsSocial {id: $post_id}) " +
+            "OPTIONAL MATCH (author:UsersSocial {id: post.authorId}) " +
+            "WITH user, author, post, CASE " +
+            "WHEN user IS NULL THEN 'USER_NOT_FOUND' " +
+            "WHEN post IS NULL OR post.authorId IS NULL THEN 'POST_NOT_FOUND' " +
+            "WHEN author IS NOT NULL AND exists((user)-[:BLOCK]-(author)) THEN 'BLOCKED' " +
+            "WHEN exists((user)-[:LIKE]->(post)) THEN 'UNCHANGED' " +
+            "ELSE 'CREATED' END as outcome " +
+            "FOREACH (ignored IN CASE WHEN outcome = 'CREATED' THEN [1] ELSE [] END | " +
+            "CREATE (user)-[:LIKE {createdAt: timestamp()}]->(post) " +
+            addToStripe("stripe", "post", "likes", "1") + ") " +
+            "RETURN outcome";
+
+    public Uni<RelationOutcome> like(UsersSocial user, PostsSocial post) {
+        LOG.info("Liking Post ID: {} by User ID: {}", post.getId(), user.getId());
+        return runCommand(LIKE, Map.of(
+                "user_id", user
+                        .getId()
+                        .toString(),
+                "post_id", post
                         .getId()
                         .toString()));
-                List<UsersSocial> blockedUsers = new ArrayList<>();
-                while (result.hasNext()) {
-                    var record = result.next();
-                    var node = record
-                            .get("blocked")
-                            .asNode();
-                    UsersSocial blockedUser = new UsersSocial(UUID.fromString(node
-                            .get("id")
-                            .asString()));
-                    blockedUsers.add(blockedUser);
-                }
-                LOG.info("Found {} blocked users for User ID: {}", blockedUsers.size(), user.getId());
-                return blockedUsers;
-            });
-        } catch (Exception e) {
-            LOG.error("Error while fetching blocked users for User ID: {}", user.getId(), e);
-            throw e;
-        }
-    }
-
-    public List<PostsSocial> getAllLikedPost(UsersSocial user) {
-        LOG.info("Fetching all posts liked by User ID: {}", user.getId());
-        try (var session = neo4jDriver.session()) {
-            String getLikedPostsCypher =
-                    "MATCH (user:UsersSocial {id: $user_id})-[:LIKE]->(post:PostsSocial) " +
-                            "RETURN post";
-            return session.executeRead(tx -> {
-                var result = tx.run(getLikedPostsCypher, Map.of("user_id", user
+    }
+
+    private static final String UNLIKE = "OPTIONAL MATCH (user:UsersSocial {id: $user_id}) " +
+            "SET user._lock = true REMOVE user._lock " +
+            "WITH user " +
+            "OPTIONAL MATCH (user)-[r:LIKE]->(post:PostsSocial {id: $post_id}) " +
+            "WITH post, r, CASE WHEN r IS NULL THEN 'NOT_FOUND' ELSE 'REMOVED' END as outcome " +
+            "FOREACH (ignored IN CASE WHEN r IS NULL THEN [] ELSE [1] END | " +
+            addToStripe("stripe", "post", "likes", "-1") + ") " +
+            "DELETE r " +
+            "RETURN outcome";
+
+    public Uni<RelationOutcome> unlike(UsersSocial user, PostsSocial post) {
+        LOG.info("Unliking Post ID: {} by User ID: {}", post.getId(), user.getId());
+        return runCommand(UNLIKE, Map.of(
+                "user_id", user
+                        .getId()
+                        .toString(),
+                "post_id", post
                         .getId()
                         .toString()));
-                List<PostsSocial> likedPosts = new ArrayList<>();
-                while (result.hasNext()) {
-                    var record = result.next();
-                    var node = record
-                            .get("post")
-                            .asNode();
-                    PostsSocial post = new PostsSocial(UUID.fromString(node
-                            .get("id")
-                            .asString()));
-                    likedPosts.add(post);
-                }
-                LOG.info("Found {} liked posts for User ID: {}", likedPosts.size(), user.getId());
-                return likedPosts;
-            });
-        } catch (Exception e) {
-            LOG.error("Error while fetching liked posts for User ID: {}", user.getId(), e);
-            throw e;
-        }
-    }
-}
\ No newline at end of file
+    }
+
+    private Uni<RelationOutcome> runCommand(String query, Map<String, Object> parameters) {
+        return writeSingle(query, parameters)
+                .map(record -> RelationOutcome.valueOf(record
+                        .get("outcome")
+                        .asString()))
+                .invoke(outcome -> LOG.info("Command with parameters {} returned: {}", parameters, outcome))
+                .onFailure()
+                .invoke(e -> LOG.error("Error while running command with parameters {}", parameters, e));
+    }
+
+    /*
+     * Bulk commands: a chunk of edges is applied by a single UNWIND statement in one transaction.
+     * Users and posts are expected verified beforehand; edges whose nodes are missing are skipped.
+     * Edges are expected deduplicated and without self-relationships.
+     */
+
+    private static final String FOLLOW_ALL = "UNWIND $edges as edge " +
+            "MATCH (follower:UsersSocial {id: edge.from_id}) " +
+            "MATCH (followee:UsersSocial {id: edge.to_id}) " +
+            "SET follower._lock = true REMOVE follower._lock " +
+            "WITH edge, follower, followee " +
+            "WHERE NOT exists((follower)-[:BLOCK]-(followee)) AND NOT exists((follower)-[:FOLLOW]->(followee)) " +
+            "CREATE (follower)-[:FOLLOW {createdAt: timestamp()}]->(followee) " +
+            addToFollowees("follower", "1") + addToStripe("stripe", "followee", "followers", "1") +
+            "RETURN edge.from_id as from_id, edge.to_id as to_id";
+
+    public Uni<RelationChanges> followAll(List<RelationEdge> edges) {
+        LOG.info("Following {} users in bulk", edges.size());
+        return runBulkCommand(FOLLOW_ALL, edges).map(created -> new RelationChanges(created, List.of()));
+    }
+
+    /**
+     * Blocks are created edge by edge, then the follow relationships between all the pairs of the chunk are
+     * collected once and removed: A blocking B and B blocking A in the same chunk remove their follows once.
+     * No row is returned when none of the users of the chunk exist.
+     */
+    private static final String BLOCK_ALL = "UNWIND $edges as edge " +
+            "MATCH (blocker:UsersSocial {id: edge.from_id}) " +
+            "MATCH (blocked:UsersSocial {id: edge.to_id}) " +
+            "SET blocker._lock = true, blocked._lock = true REMOVE blocker._lock, blocked._lock " +
+            "WITH edge, blocker, blocked, NOT exists((blocker)-[:BLOCK]->(blocked)) as created " +
+            "FOREACH (ignored IN CASE WHEN created THEN [1] ELSE [] END | " +
+            "CREATE (blocker)-[:BLOCK {createdAt: timestamp()}]->(blocked)) " +
+            "WITH collect(CASE WHEN created THEN [edge.from_id, edge.to_id] END) as created, collect([blocker, blocked]) as pairs " +
+            "UNWIND pairs as pair " +
+            "WITH created, pair[0] as blocker, pair[1] as blocked " +
+            "OPTIONAL MATCH (blocker)-[follow:FOLLOW]-(blocked) " +
+            "WITH created, collect(DISTINCT follow) as follows " +
+            "WITH created, follows, [follow IN follows | [startNode(follow).id, endNode(follow).id]] as unfollowed " +
+            "FOREACH (follow IN follows | " + addToFollowees("(startNode(follow))", "-1") +
+            addToStripe("stripe", "endNode(follow)", "followers", "-1") + "DELETE follow) " +
+            "RETURN created, unfollowed";
+
+    public Uni<RelationChanges> blockAll(List<RelationEdge> edges) {
+        LOG.info("Blocking {} users in bulk", edges.size());
+        return write(tx -> tx
+                .runAsync(BLOCK_ALL, Map.of("edges", toParameters(edges)))
+                .thenCompose(ResultCursor::nextAsync))
+                .map(record -> {
+                    if (record == null) {
+                        return new RelationChanges(List.of(), List.of());
+                    }
+                    List<RelationEdge> created = toEdges(record.get("created"));
+                    List<RelationEdge> removedFollows = toEdges(record.get("unfollowed"));
+                    LOG.info("Created {} block relationships, removed {} follow relationships", created.size(), removedFollows.size());
+                    return new RelationChanges(created, removedFollows);
+                })
+                .onFailure()
+                .invoke(e -> LOG.error("Error while blocking {} users in bulk", edges.size(), e));
+    }
+
+    private static List<RelationEdge> toEdges(Value pairs) {
+        return pairs
+                .asList(value -> value.asList(id -> UUID.fromString(id.asString())))
+                .stream()
+                .map(pair -> new RelationEdge(pair.get(0), pair.get(1)))
+                .toList();
+    }
+
+    private static final String LIKE_ALL = "UNWIND $edges as edge " +
+            "MATCH (user:UsersSocial {id: edge.from_id}) " +
+            "SET user._lock = true REMOVE user._lock " +
+            "WITH edge, user " +
+            "MATCH (post:PostsSocial {id: edge.to_id}) " +
+            "OPTIONAL MATCH (author:UsersSocial {id: post.authorId}) " +
+            "WITH edge, user, author, post " +
+            "WHERE NOT (author IS NOT NULL AND exists((user)-[:BLOCK]-(author))) AND NOT exists((user)-[:LIKE]->(post)) " +
+            "CREATE (user)-[:LIKE {createdAt: timestamp()}]->(post) " +
+            addToStripe("stripe", "post", "likes", "1") +
+            "RETURN edge.from_id as from_id, edge.to_id as to_id";
+
+    public Uni<RelationChanges> likeAll(List<RelationEdge> edges) {
+        LOG.info("Liking {} posts in bulk", edges.size());
+        return runBulkCommand(LIKE_ALL, edges).map(created -> new RelationChanges(created, List.of()));
+    }
+
+    private Uni<List<RelationEdge>> runBulkCommand(String query, List<RelationEdge> edges) {
+        return write(tx -> tx
+                .runAsync(query, Map.of("edges", toParameters(edges)))
+                .thenCompose(cursor -> cursor.listAsync(Neo4jRepository::toEdge)))
+                .invoke(created -> LOG.info("Created {} relationships out of {}", created.size(), edges.size()))
+                .onFailure()
+                .invoke(e -> LOG.error("Error while creating {} relationships in bulk", edges.size(), e));
+    }
+
+    private static List<Map<String, Object>> toParameters(List<RelationEdge> edges) {
+        return edges
+                .stream()
+                .map(edge -> Map.<String, Object>of(
+                        "from_id", edge
+                                .getFromId()
+                                .toString(),
+                        "to_id", edge
+                                .getToId()
+                                .toString()))
+                .toList();
+    }
+
+    private static RelationEdge toEdge(Record record) {
+        return new RelationEdge(UUID.fromString(record
+                .get("from_id")
+                .asString()), UUID.fromString(record
+                .get("to_id")
+                .asString()));
+    }
+
+    /*
+     * Listings are paginated by keyset on the creation time of the relationships, newest first, with
+     * the id of the other node as tie-breaker: a page never re-reads the relationships of the
+     * previous ones, however deep it is. The filter and the order apply to r.createdAt itself, backfilled
+     * to 0 for the relationships created before it was recorded, which sort last.
+     */
+    private static String page(String other) {
+        return "WHERE $after_created_at IS NULL OR r.createdAt < $after_created_at " +
+                "OR (r.createdAt = $after_created_at AND " + other + ".id < $after_id) " +
+                "RETURN " + other + ".id as id, r.createdAt as created_at ORDER BY r.createdAt DESC, " + other + ".id DESC LIMIT $limit";
+    }
+
+    private static final String GET_FOLLOWERS_OF_USER = "MATCH (follower:UsersSocial)-[r:FOLLOW]->(:UsersSocial {id: $user_id}) " +
+            page("follower");
+
+    public Uni<RelationPage<UsersSocial>> getFollowersOfUser(UsersSocial user, RelationCursor after, int size) {
+        LOG.info("Fetching followers of User ID: {}", user.getId());
+        return readPage(GET_FOLLOWERS_OF_USER, "user_id", user.getId(), after, size, UsersSocial::new)
+                .invoke(followers -> LOG.info("Found {} followers for User ID: {}", followers
+                        .getItems()
+                        .size(), user.getId()))
+                .onFailure()
+                .invoke(e -> LOG.error("Error while fetching followers for User ID: {}", user.getId(), e));
+    }
+
+    private static final String GET_BLOCKERS_OF_USER = "MATCH (blocker:UsersSocial)-[r:BLOCK]->(:UsersSocial {id: $user_id}) " +
+            page("blocker");
+
+    public Uni<RelationPage<UsersSocial>> getBlockersOfUser(UsersSocial user, RelationCursor after, int size) {
+        LOG.info("Fetching blockers of User ID: {}", user.getId());
+        return readPage(GET_BLOCKERS_OF_USER, "user_id", user.getId(), after, size, UsersSocial::new)
+                .invoke(blockers -> LOG.info("Found {} blockers for User ID: {}", blockers
+                        .getItems()
+                        .size(), user.getId()))
+                .onFailure()
+                .invoke(e -> LOG.error("Error while fetching blockers for User ID: {}", user.getId(), e));
+    }
+
+    private static final String GET_LIKERS_OF_POST = "MATCH (liker:UsersSocial)-[r:LIKE]->(:PostsSocial {id: $post_id}) " +
+            page("liker");
+
+    public Uni<RelationPage<UsersSocial>> getLikersOfPost(PostsSocial post, RelationCursor after, int size) {
+        LOG.info("Fetching likers of Post ID: {}", post.getId());
+        return readPage(GET_LIKERS_OF_POST, "post_id", post.getId(), after, size, UsersSocial::new)
+                .invoke(likers -> LOG.info("Found {} likers for Post ID: {}", likers
+                        .getItems()
+                        .size(), post.getId()))
+                .onFailure()
+                .invoke(e -> LOG.error("Error while fetching likers for Post ID: {}", post.getId(), e));
+    }
+
+    private static final String GET_FOLLOWS_OF_USER = "MATCH (:UsersSocial {id: $user_id})-[r:FOLLOW]->(followee:UsersSocial) " +
+            page("followee");
+
+    public Uni<RelationPage<UsersSocial>> getFollowsOfUser(UsersSocial user, RelationCursor after, int size) {
+        LOG.info("Fetching users followed by User ID: {}", user.getId());
+        return readPage(GET_FOLLOWS_OF_USER, "user_id", user.getId(), after, size, UsersSocial::new)
+                .invoke(followees -> LOG.info("Found {} followees for User ID: {}", followees
+                        .getItems()
+                        .size(), user.getId()))
+                .onFailure()
+                .invoke(e -> LOG.error("Error while fetching followees for User ID: {}", user.getId(), e));
+    }
+
+    private static final String GET_BLOCKED_OF_USER = "MATCH (:UsersSocial {id: $user_id})-[r:BLOCK]->(blocked:UsersSocial) " +
+            page("blocked");
+
+    public Uni<RelationPage<UsersSocial>> getBlockedOfUser(UsersSocial user, RelationCursor after, int size) {
+        LOG.info("Fetching users blocked by User ID: {}", user.getId());
+        return readPage(GET_BLOCKED_OF_USER, "user_id", user.getId(), after, size, UsersSocial::new)
+                .invoke(blocked -> LOG.info("Found {} blocked users for User ID: {}", blocked
+                        .getItems()
+                        .size(), user.getId()))
+                .onFailure()
+                .invoke(e -> LOG.error("Error while fetching blocked users for User ID: {}", user.getId(), e));
+    }
+
+    private static final String GET_LIKED_POSTS_OF_USER = "MATCH (:UsersSocial {id: $user_id})-[r:LIKE]->(post:PostsSocial) " +
+            page("post");
+
+    public Uni<RelationPage<PostsSocial>> getLikedPostsOfUser(UsersSocial user, RelationCursor after, int size) {
+        LOG.info("Fetching posts liked by User ID: {}", user.getId());
+        return readPage(GET_LIKED_POSTS_OF_USER, "user_id", user.getId(), after, size, PostsSocial::new)
+                .invoke(likedPosts -> LOG.info("Found {} liked posts for User ID: {}", likedPosts
+                        .getItems()
+                        .size(), user.getId()))
+                .onFailure()
+                .invoke(e -> LOG.error("Error while fetching liked posts for User ID: {}", user.getId(), e));
+    }
+
+    private static final String GET_USER_COUNTS = "MATCH (user:UsersSocial {id: $user_id}) " +
+            "OPTIONAL MATCH (stripe:Counter) WHERE stripe.id IN " + stripeIds("$user_id", "followers") + " " +
+            "RETURN coalesce(user.followeeCount, 0) as followees, coalesce(sum(stripe.count), 0) as followers";
+
+    /**
+     * @return the counters of the user, or null if the user is not in the graph.
+     */
+    public Uni<UserCounts> getUserCounts(UsersSocial user) {
+        LOG.debug("Fetching counters of User ID: {}", user.getId());
+        return read(tx -> tx
+                .runAsync(GET_USER_COUNTS, Map.of("user_id", user
+                        .getId()
+                        .toString()))
+                .thenCompose(ResultCursor::nextAsync))
+                .map(record -> record == null ? null : new UserCounts(record
+                        .get("followers")
+                        .asLong(), record
+                        .get("followees")
+                        .asLong()))
+                .onFailure()
+                .invoke(e -> LOG.error("Error while fetching counters of User ID: {}", user.getId(), e));
+    }
+
+    private static final String GET_POST_COUNTS = "MATCH (post:PostsSocial {id: $post_id}) " +
+            "OPTIONAL MATCH (stripe:Counter) WHERE stripe.id IN " + stripeIds("$post_id", "likes") + " " +
+            "RETURN post.id as id, coalesce(sum(stripe.count), 0) as likes";
+
+    /**
+     * @return the counters of the post, or null if the post is not in the graph.
+     */
+    public Uni<PostCounts> getPostCounts(PostsSocial post) {
+        LOG.debug("Fetching counters of Post ID: {}", post.getId());
+        return read(tx -> tx
+                .runAsync(GET_POST_COUNTS, Map.of("post_id", post
+                        .getId()
+                        .toString()))
+                .thenCompose(ResultCursor::nextAsync))
+                .map(record -> record == null ? null : new PostCounts(record
+                        .get("likes")
+                        .asLong()))
+                .onFailure()
+                .invoke(e -> LOG.error("Error while fetching counters of Post ID: {}", post.getId(), e));
+    }
+
+    /**
+     * Reads one page of a listing. One extra row is fetched to know whether a next page exists.
+     */
+    private <T> Uni<RelationPage<T>> readPage(String query, String anchorParameter, UUID anchorId, RelationCursor after, int size,
+                                              Function<UUID, T> toItem) {
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put(anchorParameter, anchorId.toString());
+        parameters.put("after_created_at", after == null ? null : after.getCreatedAt());
+        parameters.put("after_id", after == null ? null : after
+                .getId()
+                .toString());
+        parameters.put("limit", size + 1);
+        return read(tx -> tx
+                .runAsync(query, parameters)
+                .thenCompose(cursor -> cursor.listAsync(record -> new RelationCursor(record
+                        .get("created_at")
+                        .asLong(), UUID.fromString(record
+                        .get("id")
+                        .asString())))))
+                .map(rows -> {
+                    List<RelationCursor> page = rows.size() > size ? rows.subList(0, size) : rows;
+                    String nextCursor = rows.size() > size ? page
+                            .get(size - 1)
+                            .encode() : null;
+                    return new RelationPage<>(page
+                            .stream()
+                            .map(row -> toItem.apply(row.getId()))
+                            .toList(), nextCursor);
+                });
+    }
+
+    private Uni<Record> readSingle(String query, Map<String, Object> parameters) {
+        return read(tx -> tx
+                .runAsync(query, parameters)
+                .thenCompose(ResultCursor::singleAsync));
+    }
+
+    private Uni<Record> writeSingle(String query, Map<String, Object> parameters) {
+        return write(tx -> tx
+                .runAsync(query, parameters)
+                .thenCompose(ResultCursor::singleAsync));
+    }
+
+    private <T> Uni<T> read(AsyncTransactionCallback<CompletionStage<T>> work) {
+        return inSession(session -> session.executeReadAsync(work));
+    }
+
+    private <T> Uni<T> write(AsyncTransactionCallback<CompletionStage<T>> work) {
+        return inSession(session -> session.executeWriteAsync(work));
+    }
+
+    /**
+     * Runs some work in a new asynchronous session, closed whatever the outcome.
+     * Managed transactions are retried by the driver on transient errors, such as deadlocks between commands.
+     */
+    private <T> Uni<T> inSession(Function<AsyncSession, CompletionStage<T>> work) {
+        return Uni
+                .createFrom()
+                .deferred(() -> {
+                    AsyncSession session = neo4jDriver.session(AsyncSession.class, sessionConfig);
+                    return Uni
+                            .createFrom()
+                            .completionStage(() -> work.apply(session))
+                            .onTermination()
+                            .call(() -> Uni
+                                    .createFrom()
+                                    .completionStage(session.closeAsync()));
+                });
+    }
+
+    /**
+     * The queries of this repository by name, so that their plans can be checked against the schema.
+     */
+    public static Map<String, String> queries() {
+        return Map.ofEntries(
+                Map.entry("ADD_POST", ADD_POST),
+                Map.entry("UPSERT_POST", UPSERT_POST),
+                Map.entry("UPSERT_POSTS", UPSERT_POSTS),
+                Map.entry("DELETE_POSTS", DELETE_POSTS),
+                Map.entry("ADD_USER", ADD_USER),
+                Map.entry("DELETE_USER", DELETE_USER),
+                Map.entry("DELETE_POST", DELETE_POST),
+                Map.entry("USER_EXISTS", USER_EXISTS),
+                Map.entry("POST_EXISTS", POST_EXISTS),
+                Map.entry("GET_BLOCK_STATUS", GET_BLOCK_STATUS),
+                Map.entry("GET_BLOCKED_IDS", GET_BLOCKED_IDS),
+                Map.entry("GET_RELATION_STATES", GET_RELATION_STATES),
+                Map.entry("FOLLOW", FOLLOW),
+                Map.entry("UNFOLLOW", UNFOLLOW),
+                Map.entry("BLOCK", BLOCK),
+                Map.entry("UNBLOCK", UNBLOCK),
+                Map.entry("LIKE", LIKE),
+                Map.entry("UNLIKE", UNLIKE),
+                Map.entry("FOLLOW_ALL", FOLLOW_ALL),
+                Map.entry("BLOCK_ALL", BLOCK_ALL),
+                Map.entry("LIKE_ALL", LIKE_ALL),
+                Map.entry("GET_FOLLOWERS_OF_USER", GET_FOLLOWERS_OF_USER),
+                Map.entry("GET_BLOCKERS_OF_USER", GET_BLOCKERS_OF_USER),
+                Map.entry("GET_LIKERS_OF_POST", GET_LIKERS_OF_POST),
+                Map.entry("GET_FOLLOWS_OF_USER", GET_FOLLOWS_OF_USER),
+                Map.entry("GET_BLOCKED_OF_USER", GET_BLOCKED_OF_USER),
+                Map.entry("GET_LIKED_POSTS_OF_USER", GET_LIKED_POSTS_OF_USER),
+                Map.entry("GET_USER_COUNTS", GET_USER_COUNTS),
+                Map.entry("GET_POST_COUNTS", GET_POST_COUNTS));
+    }
+}
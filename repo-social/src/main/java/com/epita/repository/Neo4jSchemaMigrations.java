@@ -0,0 +1,265 @@
+package com.epita.repository;
+
+import io.quarkus.runtime.Startup;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Session;
+import org.neo4j.driver.summary.Plan;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Versioned schema migrations of the social graph, applied in order at startup.
+ * <p>
+ * Each applied migration is recorded as a {@code SchemaMigration} node, so that a migration runs
+ * once per database. Statements are idempotent ({@code IF NOT EXISTS}), so a migration interrupted
+ * halfway can safely run again.
+ * <p>
+ * Replicas starting together, e.g. during a rolling deploy, take a {@code SchemaMigrationLock} node
+ * before migrating: the lock is taken and the applied version read in the same transaction, so a
+ * single replica applies the missing migrations while the others wait, then find nothing left to apply.
+ * The lock expires if its holder dies halfway, and is renewed before each statement otherwise.
+ * <p>
+ * Once the schema is up to date, the plan of every query of {@link Neo4jRepository} is checked
+ * with {@code EXPLAIN}: each must start from an index seek, never from a label or full scan.
+ */
+@Startup
+@ApplicationScoped
+public class Neo4jSchemaMigrations {
+
+    private static final Logger LOG = LoggerFactory.getLogger(Neo4jSchemaMigrations.class);
+
+    private static final List<Migration> MIGRATIONS = List.of(
+            new Migration(1, "Merge duplicate UsersSocial and PostsSocial nodes", concat(
+                    mergeDuplicates("UsersSocial", List.of("FOLLOW", "BLOCK", "LIKE"), List.of("FOLLOW", "BLOCK")),
+                    mergeDuplicates("PostsSocial", List.of(), List.of("LIKE")))),
+            new Migration(2, "Unique ids of UsersSocial and PostsSocial nodes", List.of(
+                    "CREATE CONSTRAINT users_social_id IF NOT EXISTS FOR (u:UsersSocial) REQUIRE u.id IS UNIQUE",
+                    "CREATE CONSTRAINT posts_social_id IF NOT EXISTS FOR (p:PostsSocial) REQUIRE p.id IS UNIQUE")),
+            new Migration(3, "Creation date indexes of FOLLOW, BLOCK and LIKE relationships", List.of(
+                    "CREATE INDEX follow_created_at IF NOT EXISTS FOR ()-[r:FOLLOW]-() ON (r.createdAt)",
+                    "CREATE INDEX block_created_at IF NOT EXISTS FOR ()-[r:BLOCK]-() ON (r.createdAt)",
+                    "CREATE INDEX like_created_at IF NOT EXISTS FOR ()-[r:LIKE]-() ON (r.createdAt)")),
+            new Migration(4, "Follower, followee and like counters", List.of(
+                    "CREATE CONSTRAINT counter_id IF NOT EXISTS FOR (c:Counter) REQUIRE c.id IS UNIQUE",
+                    // Counters are recomputed from scratch, each into its first stripe.
+                    "MATCH (c:Counter) DETACH DELETE c",
+                    "MATCH (u:UsersSocial) SET u.followeeCount = size((u)-[:FOLLOW]->(:UsersSocial))",
+                    "MATCH (u:UsersSocial) WITH u, size((u)<-[:FOLLOW]-(:UsersSocial)) AS followers WHERE followers > 0 " +
+                            "CREATE (:Counter {id: u.id + ':followers:0', count: followers})",
+                    "MATCH (p:PostsSocial) WITH p, size((p)<-[:LIKE]-(:UsersSocial)) AS likes WHERE likes > 0 " +
+                            "CREATE (:Counter {id: p.id + ':likes:0', count: likes})")),
+            new Migration(5, "Creation date of FOLLOW, BLOCK and LIKE relationships created before it was recorded", List.of(
+                    // 0 keeps them last in the listings, newest first, as when they were read with coalesce.
+                    "MATCH ()-[r:FOLLOW]->() WHERE r.createdAt IS NULL SET r.createdAt = 0",
+                    "MATCH ()-[r:BLOCK]->() WHERE r.createdAt IS NULL SET r.createdAt = 0",
+                    "MATCH ()-[r:LIKE]->() WHERE r.createdAt IS NULL SET r.createdAt = 0")));
+
+    private static final Pattern PARAMETER = Pattern.compile("\\$(\\w+)");
+
+    private static final String LOCK_ID = "schema";
+    private static final Duration LOCK_TTL = Duration.ofMinutes(10);
+    private static final Duration LOCK_POLL_INTERVAL = Duration.ofSeconds(1);
+
+    /**
+     * The node is write-locked first, so that concurrent replicas read its owner one after the other.
+     */
+    private static final String ACQUIRE_LOCK = "MERGE (lock:SchemaMigrationLock {id: $id}) " +
+            "SET lock._lock = true REMOVE lock._lock " +
+            "WITH lock, lock.owner IS NULL OR lock.owner = $owner OR lock.expiresAt < datetime() as free " +
+            "FOREACH (ignored IN CASE WHEN free THEN [1] ELSE [] END | " +
+            "SET lock.owner = $owner, lock.expiresAt = datetime() + duration({seconds: $ttl})) " +
+            "WITH free " +
+            "OPTIONAL MATCH (m:SchemaMigration) " +
+            "RETURN free as acquired, coalesce(max(m.version), 0) as version";
+
+    private static final String RENEW_LOCK = "MATCH (lock:SchemaMigrationLock {id: $id, owner: $owner}) " +
+            "SET lock.expiresAt = datetime() + duration({seconds: $ttl})";
+
+    private static final String RELEASE_LOCK = "MATCH (lock:SchemaMigrationLock {id: $id, owner: $owner}) " +
+            "REMOVE lock.owner, lock.expiresAt";
+
+    private final String instanceId = UUID
+            .randomUUID()
+            .toString();
+
+    private final Driver neo4jDriver;
+
+    public Neo4jSchemaMigrations(final Driver neo4jDriver) {
+        this.neo4jDriver = neo4jDriver;
+        try {
+            migrate();
+            List<String> unindexed = findQueriesWithoutIndexSeek();
+            if (unindexed.isEmpty()) {
+                LOG.info("All {} repository queries start from an index seek.", Neo4jRepository
+                        .queries()
+                        .size());
+            } else {
+                LOG.warn("Repository queries not starting from an index seek: {}", unindexed);
+            }
+        } catch (Exception e) {
+            // Queries still work without the schema, only slower: do not prevent the service from starting.
+            LOG.error("Error while migrating the Neo4j schema", e);
+        }
+    }
+
+    /**
+     * Applies the migrations not applied yet, in version order, once the migration lock is taken.
+     * Waits while another replica holds the lock.
+     *
+     * @throws InterruptedException if interrupted while waiting for the lock.
+     */
+    public void migrate() throws InterruptedException {
+        int latest = MIGRATIONS
+                .get(MIGRATIONS.size() - 1)
+                .version();
+        Map<String, Object> lock = Map.of("id", LOCK_ID, "owner", instanceId, "ttl", LOCK_TTL.toSeconds());
+        try (var session = neo4jDriver.session()) {
+            session.executeWrite(tx -> tx
+                    .run("CREATE CONSTRAINT schema_migration_lock_id IF NOT EXISTS FOR (l:SchemaMigrationLock) REQUIRE l.id IS UNIQUE")
+                    .consume());
+            int current;
+            while (true) {
+                Record acquired = session.executeWrite(tx -> tx
+                        .run(ACQUIRE_LOCK, lock)
+                        .single());
+                current = acquired
+                        .get("version")
+                        .asInt();
+                if (acquired
+                        .get("acquired")
+                        .asBoolean()) {
+                    break;
+                }
+                if (current >= latest) {
+                    return;
+                }
+                LOG.info("Waiting for another instance to apply the Neo4j schema migrations");
+                Thread.sleep(LOCK_POLL_INTERVAL.toMillis());
+            }
+            try {
+                apply(session, current, lock);
+            } finally {
+                session.executeWrite(tx -> tx
+                        .run(RELEASE_LOCK, lock)
+                        .consume());
+            }
+        }
+    }
+
+    private static void apply(Session session, int current, Map<String, Object> lock) {
+        for (Migration migration : MIGRATIONS) {
+            if (migration.version() <= current) {
+                continue;
+            }
+            LOG.info("Applying Neo4j schema migration {}: {}", migration.version(), migration.description());
+            // Schema and data changes cannot share a transaction: one transaction per statement.
+            for (String statement : migration.statements()) {
+                session.executeWrite(tx -> tx
+                        .run(RENEW_LOCK, lock)
+                        .consume());
+                session.executeWrite(tx -> tx
+                        .run(statement)
+                        .consume());
+            }
+            session.executeWrite(tx -> tx
+                    .run("MERGE (m:SchemaMigration {version: $version}) " +
+                            "ON CREATE SET m.description = $description, m.appliedAt = datetime()", Map.of(
+                            "version", migration.version(),
+                            "description", migration.description()))
+                    .consume());
+        }
+    }
+
+    /**
+     * Explains every query of {@link Neo4jRepository} and keeps those whose plan does not use an
+     * index seek, or scans a whole label.
+     *
+     * @return the names of the offending queries, empty if all use an index seek.
+     */
+    public List<String> findQueriesWithoutIndexSeek() {
+        List<String> unindexed = new ArrayList<>();
+        try (var session = neo4jDriver.session()) {
+            Neo4jRepository
+                    .queries()
+                    .forEach((name, query) -> {
+                        // EXPLAIN only plans the query: parameters just need to be present, LIMIT needing a number.
+                        Map<String, Object> parameters = new HashMap<>();
+                        Matcher matcher = PARAMETER.matcher(query);
+                        while (matcher.find()) {
+                            parameters.put(matcher.group(1), matcher
+                                    .group(1)
+                                    .equals("limit") ? (Object) 1 : "");
+                        }
+                        Plan plan = session
+                                .run("EXPLAIN " + query, parameters)
+                                .consume()
+                                .plan();
+                        List<String> operators = new ArrayList<>();
+                        collectOperators(plan, operators);
+                        boolean seeks = operators
+                                .stream()
+                                .anyMatch(operator -> operator.contains("IndexSeek"));
+                        boolean scans = operators
+                                .stream()
+                                .anyMatch(operator -> operator.equals("NodeByLabelScan") || operator.equals("AllNodesScan"));
+                        if (!seeks || scans) {
+                            LOG.debug("Plan of query {}: {}", name, operators);
+                            unindexed.add(name);
+                        }
+                    });
+        }
+        return unindexed;
+    }
+
+    private static void collectOperators(Plan plan, List<String> operators) {
+        // Operator names may be suffixed with the runtime, e.g. "NodeUniqueIndexSeek@neo4j".
+        operators.add(plan
+                .operatorType()
+                .split("@")[0]);
+        plan
+                .children()
+                .forEach(child -> collectOperators(child, operators));
+    }
+
+    /**
+     * Statements merging the nodes of a label sharing the same id into one, moving their
+     * relationships to the kept node. Needed before the uniqueness constraints can be created.
+     */
+    private static List<String> mergeDuplicates(String label, List<String> outgoing, List<String> incoming) {
+        String duplicates = "MATCH (n:" + label + ") WITH n.id AS id, collect(n) AS nodes WHERE size(nodes) > 1 " +
+                "WITH head(nodes) AS keep, tail(nodes) AS duplicates UNWIND duplicates AS duplicate ";
+        List<String> statements = new ArrayList<>();
+        for (String type : outgoing) {
+            statements.add(duplicates +
+                    "MATCH (duplicate)-[r:" + type + "]->(other) WHERE other <> keep " +
+                    "MERGE (keep)-[moved:" + type + "]->(other) ON CREATE SET moved.createdAt = r.createdAt DELETE r");
+        }
+        for (String type : incoming) {
+            statements.add(duplicates +
+                    "MATCH (other)-[r:" + type + "]->(duplicate) WHERE other <> keep " +
+                    "MERGE (other)-[moved:" + type + "]->(keep) ON CREATE SET moved.createdAt = r.createdAt DELETE r");
+        }
+        statements.add(duplicates + "DETACH DELETE duplicate");
+        return statements;
+    }
+
+    private static List<String> concat(List<String> first, List<String> second) {
+        List<String> statements = new ArrayList<>(first);
+        statements.addAll(second);
+        return statements;
+    }
+
+    private record Migration(int version, String description, List<String> statements) {
+    }
+}
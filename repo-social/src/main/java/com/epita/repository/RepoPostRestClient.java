@@ -2,6 +2,7 @@ package com.epita.repository;
 
 import com.epita.repository.entity.RepoPostResponse;
 import com.epita.repository.entity.RepoPostUserResponse;
+import io.smallrye.mutiny.Uni;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.ws.rs.NotFoundException;
 import jakarta.ws.rs.client.Client;
@@ -22,61 +23,63 @@ public class RepoPostRestClient {
 
     private final Client client = ClientBuilder.newClient();
 
-    public RepoPostResponse getPostById(UUID postId) {
+    public Uni<RepoPostResponse> getPostById(UUID postId) {
         LOG.info("Fetching post with ID: {}", postId);
-        try {
-            Response response = client
-                    .target(REPO_POST_URL + "/posts/" + postId)
-                    .request(MediaType.APPLICATION_JSON)
-                    .get();
+        return Uni
+                .createFrom()
+                .completionStage(() -> client
+                        .target(REPO_POST_URL + "/posts/" + postId)
+                        .request(MediaType.APPLICATION_JSON)
+                        .rx()
+                        .get())
+                .map(response -> {
+                    if (response.getStatus() == Response.Status.NOT_FOUND.getStatusCode()) {
+                        LOG.error("Post with ID: {} not found", postId);
+                        throw new NotFoundException("Post not found");
+                    }
 
-            if (response.getStatus() == Response.Status.NOT_FOUND.getStatusCode()) {
-                LOG.error("Post with ID: {} not found", postId);
-                throw new NotFoundException("Post not found");
-            }
+                    if (response.getStatus() != Response.Status.OK.getStatusCode()) {
+                        LOG.error("Error fetching post with ID: {}. Status: {}", postId, response.getStatus());
+                        throw new RuntimeException("Error fetching post. Status: " + response.getStatus());
+                    }
 
-            if (response.getStatus() != Response.Status.OK.getStatusCode()) {
-                LOG.error("Error fetching post with ID: {}. Status: {}", postId, response.getStatus());
-                throw new RuntimeException("Error fetching post. Status: " + response.getStatus());
-            }
-
-            LOG.info("Successfully fetched post with ID: {}", postId);
-            return response.readEntity(RepoPostResponse.class);
-        } catch (NotFoundException e) {
-            LOG.error("Post with ID: {} not found", postId, e);
-            throw e;
-        } catch (Exception e) {
-            LOG.error("Error fetching post with ID: {}", postId, e);
-            throw new RuntimeException("Error fetching post from RepoPost service", e);
-        }
+                    LOG.info("Successfully fetched post with ID: {}", postId);
+                    return response.readEntity(RepoPostResponse.class);
+                })
+                .onFailure(e -> !(e instanceof NotFoundException))
+                .transform(e -> {
+                    LOG.error("Error fetching post with ID: {}", postId, e);
+                    return new RuntimeException("Error fetching post from RepoPost service", e);
+                });
     }
 
-    public RepoPostUserResponse getUserById(UUID userId) {
+    public Uni<RepoPostUserResponse> getUserById(UUID userId) {
         LOG.info("Fetching user with ID: {}", userId);
-        try {
-            Response response = client
-                    .target(REPO_POST_URL + "/users/" + userId)
-                    .request(MediaType.APPLICATION_JSON)
-                    .get();
-
-            if (response.getStatus() == Response.Status.NOT_FOUND.getStatusCode()) {
-                LOG.error("User with ID: {} not found", userId);
-                throw new NotFoundException("User not found");
-            }
+        return Uni
+                .createFrom()
+                .completionStage(() -> client
+                        .target(REPO_POST_URL + "/users/" + userId)
+                        .request(MediaType.APPLICATION_JSON)
+                        .rx()
+                        .get())
+                .map(response -> {
+                    if (response.getStatus() == Response.Status.NOT_FOUND.getStatusCode()) {
+                        LOG.error("User with ID: {} not found", userId);
+                        throw new NotFoundException("User not found");
+                    }
 
-            if (response.getStatus() != Response.Status.OK.getStatusCode()) {
-                LOG.error("Error fetching user with ID: {}. Status: {}", userId, response.getStatus());
-                throw new RuntimeException("Error fetching user. Status: " + response.getStatus());
-            }
+                    if (response.getStatus() != Response.Status.OK.getStatusCode()) {
+                        LOG.error("Error fetching user with ID: {}. Status: {}", userId, response.getStatus());
+                        throw new RuntimeException("Error fetching user. Status: " + response.getStatus());
+                    }
 
-            LOG.info("Successfully fetched user with ID: {}", userId);
-            return response.readEntity(RepoPostUserResponse.class);
-        } catch (NotFoundException e) {
-            LOG.error("User with ID: {} not found", userId, e);
-            throw e;
-        } catch (Exception e) {
-            LOG.error("Error fetching user with ID: {}", userId, e);
-            throw new RuntimeException("Error fetching user from RepoPost service", e);
-        }
+                    LOG.info("Successfully fetched user with ID: {}", userId);
+                    return response.readEntity(RepoPostUserResponse.class);
+                })
+                .onFailure(e -> !(e instanceof NotFoundException))
+                .transform(e -> {
+                    LOG.error("Error fetching user with ID: {}", userId, e);
+                    return new RuntimeException("Error fetching user from RepoPost service", e);
+                });
     }
 }
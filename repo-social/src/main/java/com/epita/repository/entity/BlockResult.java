@@ -0,0 +1,17 @@
+package com.epita.repository.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Outcome of a block command, with the followers whose follow relationship it removed.
+ */
+@Getter
+@AllArgsConstructor
+public class BlockResult {
+    private RelationOutcome outcome;
+    private List<UUID> unfollowerIds;
+}
@@ -0,0 +1,15 @@
+package com.epita.repository.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * Number of likes of a post.
+ */
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+public class PostCounts {
+    private long likes;
+}
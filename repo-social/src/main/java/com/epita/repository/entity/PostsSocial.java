@@ -1,5 +1,6 @@
 package com.epita.repository.entity;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.Setter;
@@ -12,7 +13,17 @@ import java.util.UUID;
 public class PostsSocial {
     private UUID id;
 
+    /**
+     * The ID of the author, known once the post is provisioned from repo-post.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private UUID authorId;
+
     public PostsSocial() {
         this.id = UUID.randomUUID();
     }
+
+    public PostsSocial(UUID id) {
+        this.id = id;
+    }
 }
@@ -0,0 +1,16 @@
+package com.epita.repository.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Relationships written by a bulk command: the ones it created, and the follow relationships it removed.
+ */
+@Getter
+@AllArgsConstructor
+public class RelationChanges {
+    private List<RelationEdge> created;
+    private List<RelationEdge> removedFollows;
+}
@@ -0,0 +1,45 @@
+package com.epita.repository.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Position in a relationship listing: the creation time of the last relationship returned, and the id
+ * of the node at its other end to break ties. Encoded as an opaque URL-safe string for clients.
+ */
+@Getter
+@AllArgsConstructor
+public class RelationCursor {
+    private long createdAt;
+    private UUID id;
+
+    public String encode() {
+        return Base64
+                .getUrlEncoder()
+                .withoutPadding()
+                .encodeToString((createdAt + ":" + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param cursor a cursor returned by {@link #encode()}, or null for the first page.
+     * @return the decoded cursor, or null for the first page.
+     * @throws IllegalArgumentException if the cursor is malformed.
+     */
+    public static RelationCursor decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            String[] parts = new String(Base64
+                    .getUrlDecoder()
+                    .decode(cursor), StandardCharsets.UTF_8).split(":", 2);
+            return new RelationCursor(Long.parseLong(parts[0]), UUID.fromString(parts[1]));
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.epita.repository.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.UUID;
+
+/**
+ * A relationship between two nodes: follower to followee, blocker to blocked, or user to liked post.
+ */
+@Setter
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode
+public class RelationEdge {
+    private UUID fromId;
+    private UUID toId;
+}
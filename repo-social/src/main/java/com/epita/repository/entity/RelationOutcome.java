@@ -0,0 +1,14 @@
+package com.epita.repository.entity;
+
+/**
+ * Outcome of a follow, block or like command, as returned by its Cypher statement.
+ */
+public enum RelationOutcome {
+    CREATED,
+    UNCHANGED,
+    REMOVED,
+    NOT_FOUND,
+    USER_NOT_FOUND,
+    POST_NOT_FOUND,
+    BLOCKED
+}
@@ -0,0 +1,21 @@
+package com.epita.repository.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * A page of a relationship listing, newest relationships first.
+ * The next page starts after {@link #nextCursor}, which is null on the last page.
+ */
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+public class RelationPage<T> {
+    public static final int MAX_SIZE = 200;
+
+    private List<T> items;
+    private String nextCursor;
+}
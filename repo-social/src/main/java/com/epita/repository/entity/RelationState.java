@@ -0,0 +1,23 @@
+package com.epita.repository.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+/**
+ * The relationships between a viewer and another user, in both directions.
+ */
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+public class RelationState {
+    public static final int MAX_TARGETS = 200;
+
+    private UUID userId;
+    private boolean following;
+    private boolean followedBy;
+    private boolean blocking;
+    private boolean blockedBy;
+}
@@ -0,0 +1,16 @@
+package com.epita.repository.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * Number of followers of a user, and of users it follows.
+ */
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+public class UserCounts {
+    private long followers;
+    private long followees;
+}
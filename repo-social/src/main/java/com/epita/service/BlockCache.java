@@ -0,0 +1,217 @@
+package com.epita.service;
+
+import com.epita.common.api.response.BlockStatusResponse;
+import com.epita.common.utils.BloomFilter;
+import com.epita.common.utils.ExpiringCache;
+import com.epita.repository.BlockChangePublisher;
+import com.epita.repository.Neo4jRepository;
+import com.epita.repository.entity.RelationEdge;
+import com.epita.repository.entity.UsersSocial;
+import io.quarkus.scheduler.Scheduled;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process cache of the block relationships, answering block checks without Neo4j most of the time.
+ * <p>
+ * A Bloom filter holds every block relationship: as almost no pair of users block each other, most
+ * checks are answered negatively by the filter alone. The others read the set of users blocked by the
+ * blocker, cached per user.
+ * <p>
+ * Block mutations are announced to every replica, which adds them to its filter and forgets the
+ * blocker's cached set. Unblocked relationships stay in the filter as false positives until it is
+ * rebuilt, which happens once it holds more relationships than it was sized for, and periodically.
+ * Announcements go through Redis pub/sub and may be lost, e.g. during a reconnection: the periodic
+ * rebuild and the lifetime of the cached sets bound how long a missed block goes unnoticed. A filter
+ * that could not be built, e.g. while Neo4j was starting, is built again until it succeeds.
+ */
+@ApplicationScoped
+public class BlockCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BlockCache.class);
+
+    /**
+     * How long a cached set is trusted, as its invalidation may be missed.
+     */
+    private static final Duration BLOCKED_IDS_TTL = Duration.ofMinutes(2);
+    private static final int MAX_CACHED_USERS = 100_000;
+    private static final long MIN_FILTER_KEYS = 100_000;
+    private static final double FILTER_FALSE_POSITIVE_RATE = 0.01;
+
+    @Inject
+    Neo4jRepository neo4jRepository;
+
+    @Inject
+    BlockChangePublisher blockChangePublisher;
+
+    private final ExpiringCache<UUID, Set<UUID>> blockedIds = new ExpiringCache<>(MAX_CACHED_USERS);
+
+    /**
+     * The filter of all block relationships, null until first built: checks then skip it.
+     */
+    private volatile BloomFilter filter;
+
+    /**
+     * The filter being built, which also receives the changes applied meanwhile.
+     */
+    private volatile BloomFilter nextFilter;
+
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+
+    /**
+     * Incremented on every change, so that a set read concurrently with a change is not cached.
+     */
+    private final AtomicLong changes = new AtomicLong();
+
+    /**
+     * Get the block relationships between two users, in both directions
+     *
+     * @param userId      The ID of the first user
+     * @param otherUserId The ID of the second user
+     * @return Whether the first user blocks, or is blocked by, the second one
+     */
+    public Uni<BlockStatusResponse> getBlockStatus(UUID userId, UUID otherUserId) {
+        return Uni
+                .combine()
+                .all()
+                .unis(blocks(userId, otherUserId), blocks(otherUserId, userId))
+                .asTuple()
+                .map(status -> new BlockStatusResponse(status.getItem1(), status.getItem2()));
+    }
+
+    /**
+     * @param blockerId The ID of the possible blocker
+     * @param blockedId The ID of the possibly blocked user
+     * @return Whether the first user blocks the second one
+     */
+    public Uni<Boolean> blocks(UUID blockerId, UUID blockedId) {
+        BloomFilter current = filter;
+        if (current != null && !current.mightContain(key(blockerId, blockedId))) {
+            return Uni
+                    .createFrom()
+                    .item(false);
+        }
+        return getBlockedIds(blockerId).map(ids -> ids.contains(blockedId));
+    }
+
+    private Uni<Set<UUID>> getBlockedIds(UUID blockerId) {
+        Set<UUID> cached = blockedIds.get(blockerId);
+        if (cached != null) {
+            return Uni
+                    .createFrom()
+                    .item(cached);
+        }
+        long version = changes.get();
+        return neo4jRepository
+                .getBlockedIds(new UsersSocial(blockerId))
+                .invoke(ids -> {
+                    if (changes.get() == version) {
+                        blockedIds.put(blockerId, ids, BLOCKED_IDS_TTL);
+                    }
+                });
+    }
+
+    /**
+     * Applies committed block mutations to this replica, then announces them to the others.
+     *
+     * @param edges the block relationships created or removed, from blocker to blocked.
+     */
+    public Uni<Void> publishChanges(List<RelationEdge> edges) {
+        edges.forEach(this::onBlockChanged);
+        return blockChangePublisher.publishAll(edges);
+    }
+
+    /**
+     * Applies a block relationship created or removed, here or by another replica.
+     *
+     * @param edge the block relationship, from blocker to blocked.
+     */
+    public void onBlockChanged(RelationEdge edge) {
+        long key = key(edge.getFromId(), edge.getToId());
+        BloomFilter next = nextFilter;
+        if (next != null) {
+            next.put(key);
+        }
+        BloomFilter current = filter;
+        if (current != null) {
+            current.put(key);
+        }
+        changes.incrementAndGet();
+        blockedIds.invalidate(edge.getFromId());
+        if (current != null && current.isSaturated()) {
+            rebuildFilter();
+        }
+    }
+
+    /**
+     * Builds a new filter from all the block relationships of the graph, in the background.
+     * Checks keep using the previous filter, if any, until the new one is complete.
+     */
+    public void rebuildFilter() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return;
+        }
+        long start = System.nanoTime();
+        neo4jRepository
+                .countBlocks()
+                .flatMap(count -> {
+                    // Sized for twice the current relationships, so that it takes a while to saturate.
+                    BloomFilter next = new BloomFilter(Math.max(MIN_FILTER_KEYS, count * 2), FILTER_FALSE_POSITIVE_RATE);
+                    nextFilter = next;
+                    return neo4jRepository
+                            .forEachBlock(edge -> next.put(key(edge.getFromId(), edge.getToId())))
+                            .invoke(() -> {
+                                // Swapped before nextFilter is cleared, so that no change is missed in between.
+                                filter = next;
+                                LOG.info("Built block filter of {} relationships in {} ms", count, Duration
+                                        .ofNanos(System.nanoTime() - start)
+                                        .toMillis());
+                            });
+                })
+                .onTermination()
+                .invoke(() -> {
+                    nextFilter = null;
+                    rebuilding.set(false);
+                })
+                .subscribe()
+                .with(ignored -> {
+                }, e -> LOG.error("Error while building the block filter", e));
+    }
+
+    /**
+     * Builds the filter again while it has never been built: checks read Neo4j until then.
+     */
+    @Scheduled(every = "10s", delayed = "10s")
+    public void retryFilterBuild() {
+        if (filter == null) {
+            LOG.info("Block filter not built yet, building it again");
+            rebuildFilter();
+        }
+    }
+
+    /**
+     * Rebuilds the filter periodically, so that a block announcement missed by this replica is not
+     * ignored for longer than the period, and unblocked relationships are dropped from the filter.
+     */
+    @Scheduled(every = "${epitweet.block-filter.refresh-every:2m}", delayed = "${epitweet.block-filter.refresh-every:2m}")
+    public void refreshFilter() {
+        if (filter != null) {
+            rebuildFilter();
+        }
+    }
+
+    private static long key(UUID blockerId, UUID blockedId) {
+        return (blockerId.getMostSignificantBits() ^ blockerId.getLeastSignificantBits()) * 31
+                + (blockedId.getMostSignificantBits() ^ blockedId.getLeastSignificantBits());
+    }
+}
@@ -0,0 +1,211 @@
+package com.epita.service;
+
+import com.epita.controller.contract.BulkRelationReport;
+import com.epita.repository.FollowEventPublisher;
+import com.epita.repository.LikeEventPublisher;
+import com.epita.repository.Neo4jRepository;
+import com.epita.repository.entity.FollowEvent;
+import com.epita.repository.entity.LikeEvent;
+import com.epita.repository.entity.PostsSocial;
+import com.epita.repository.entity.RelationChanges;
+import com.epita.repository.entity.RelationEdge;
+import com.epita.repository.entity.TypeFollow;
+import com.epita.repository.entity.TypeLikes;
+import com.epita.repository.entity.UsersSocial;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.ForbiddenException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Service applying follow, block and like relationships in bulk, e.g. to follow suggested accounts.
+ * <p>
+ * All the edges of a request start from its user, who may send at most {@link #MAX_EDGES} edges.
+ * Edges are deduplicated, and their users and posts checked against repo-post as for the single-edge
+ * endpoints, then written by one UNWIND statement in one transaction.
+ * Their events are published in one pipelined round trip once the transaction is committed.
+ */
+@ApplicationScoped
+public class BulkRelationService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BulkRelationService.class);
+
+    public static final int MAX_EDGES = 200;
+
+    private static final int VERIFY_CONCURRENCY = 16;
+
+    @Inject
+    Neo4jRepository neo4jRepository;
+
+    @Inject
+    FollowEventPublisher followEventPublisher;
+
+    @Inject
+    LikeEventPublisher likeEventPublisher;
+
+    @Inject
+    BlockCache blockCache;
+
+    @Inject
+    UsersService usersService;
+
+    @Inject
+    PostsService postsService;
+
+    /**
+     * Creates the follow relationships of the edges, from follower to followee.
+     * Edges between users blocking each other are skipped.
+     *
+     * @param userId the ID of the user sending the request, the follower of every edge.
+     * @param edges  the edges to create.
+     * @return the report of the request.
+     */
+    public Uni<BulkRelationReport> followAll(UUID userId, List<RelationEdge> edges) {
+        return apply("follow", userId, edges, this::userExists, neo4jRepository::followAll, changes -> followEventPublisher.publishAll(changes
+                .getCreated()
+                .stream()
+                .map(edge -> new FollowEvent(edge.getFromId(), TypeFollow.FOLLOW, edge.getToId()))
+                .toList()));
+    }
+
+    /**
+     * Creates the block relationships of the edges, from blocker to blocked.
+     * The follow relationships between both users are removed, and their unfollow events published.
+     *
+     * @param userId the ID of the user sending the request, the blocker of every edge.
+     * @param edges  the edges to create.
+     * @return the report of the request.
+     */
+    public Uni<BulkRelationReport> blockAll(UUID userId, List<RelationEdge> edges) {
+        return apply("block", userId, edges, this::userExists, neo4jRepository::blockAll, changes -> blockCache
+                .publishChanges(changes.getCreated())
+                .call(() -> followEventPublisher.publishAll(changes
+                        .getRemovedFollows()
+                        .stream()
+                        .map(edge -> new FollowEvent(edge.getFromId(), TypeFollow.UNFOLLOW, edge.getToId()))
+                        .toList())));
+    }
+
+    /**
+     * Creates the like relationships of the edges, from user to post.
+     * Posts whose author blocks, or is blocked by, the user are skipped.
+     *
+     * @param userId the ID of the user sending the request, the liker of every edge.
+     * @param edges  the edges to create.
+     * @return the report of the request.
+     */
+    public Uni<BulkRelationReport> likeAll(UUID userId, List<RelationEdge> edges) {
+        return apply("like", userId, edges, this::postExists, neo4jRepository::likeAll, changes -> {
+            Timestamp now = Timestamp.from(Instant.now());
+            return likeEventPublisher.publishAll(changes
+                    .getCreated()
+                    .stream()
+                    .map(edge -> new LikeEvent(edge.getFromId(), edge.getToId(), TypeLikes.LIKE, now))
+                    .toList());
+        });
+    }
+
+    private Uni<BulkRelationReport> apply(String relation, UUID userId, List<RelationEdge> edges, Function<UUID, Uni<Boolean>> toExists,
+                                          Function<List<RelationEdge>, Uni<RelationChanges>> write, Function<RelationChanges, Uni<Void>> publish) {
+        if (userId == null || edges == null || edges.size() > MAX_EDGES) {
+            return Uni
+                    .createFrom()
+                    .failure(new BadRequestException("A user and a list of at most " + MAX_EDGES + " edges are expected"));
+        }
+        if (edges
+                .stream()
+                .anyMatch(edge -> edge != null && edge.getFromId() != null && !edge
+                        .getFromId()
+                        .equals(userId))) {
+            return Uni
+                    .createFrom()
+                    .failure(new ForbiddenException("Edges must start from the user of the request"));
+        }
+        LOG.info("Starting bulk {} of {} edges", relation, edges.size());
+        long start = System.nanoTime();
+
+        Set<RelationEdge> valid = new LinkedHashSet<>();
+        for (RelationEdge edge : edges) {
+            if (edge != null && edge.getFromId() != null && edge.getToId() != null && !edge
+                    .getFromId()
+                    .equals(edge.getToId())) {
+                valid.add(edge);
+            }
+        }
+        Set<UUID> toIds = valid
+                .stream()
+                .map(RelationEdge::getToId)
+                .collect(Collectors.toSet());
+
+        // The edges are written in a single statement, their events published once committed.
+        return userExists(userId)
+                .flatMap(known -> known ? existing(toIds, toExists) : Uni
+                        .createFrom()
+                        .item(Set.<UUID>of()))
+                .flatMap(found -> {
+                    List<RelationEdge> known = valid
+                            .stream()
+                            .filter(edge -> found.contains(edge.getToId()))
+                            .toList();
+                    if (known.isEmpty()) {
+                        return Uni
+                                .createFrom()
+                                .item(0L);
+                    }
+                    return write
+                            .apply(known)
+                            .call(publish::apply)
+                            .map(changes -> (long) changes
+                                    .getCreated()
+                                    .size());
+                })
+                .map(created -> {
+                    long durationMs = Duration
+                            .ofNanos(System.nanoTime() - start)
+                            .toMillis();
+                    double edgesPerSecond = durationMs == 0 ? created : created * 1000.0 / durationMs;
+                    LOG.info("Bulk {} done: {} relationships created out of {} edges in {} ms ({} edges/s)", relation, created,
+                            edges.size(), durationMs, String.format("%.1f", edgesPerSecond));
+                    return new BulkRelationReport(edges.size(), created, edges.size() - created, durationMs, edgesPerSecond);
+                });
+    }
+
+    /**
+     * @return the IDs that exist, checked a few at a time.
+     */
+    private static Uni<Set<UUID>> existing(Set<UUID> ids, Function<UUID, Uni<Boolean>> exists) {
+        return Multi
+                .createFrom()
+                .iterable(ids)
+                .onItem()
+                .transformToUni(id -> exists
+                        .apply(id)
+                        .map(found -> found ? Set.of(id) : Set.<UUID>of()))
+                .merge(VERIFY_CONCURRENCY)
+                .collect()
+                .in(HashSet::new, Set::addAll);
+    }
+
+    private Uni<Boolean> userExists(UUID userId) {
+        return usersService.userExistVerify(new UsersSocial(userId));
+    }
+
+    private Uni<Boolean> postExists(UUID postId) {
+        return postsService.postExistVerify(new PostsSocial(postId));
+    }
+}
@@ -0,0 +1,80 @@
+package com.epita.service;
+
+import com.epita.common.utils.ExpiringCache;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * In-process cache of the users and posts known to exist, or not, so that existence checks rarely
+ * reach Neo4j and repo-post.
+ * <p>
+ * Existing IDs are cached for a while, unknown ones only briefly so that a user or post created in
+ * repo-post is soon usable here. Concurrent lookups of the same ID share a single lookup.
+ * Failed lookups are not cached.
+ */
+@ApplicationScoped
+public class ExistenceCache {
+
+    private static final Duration KNOWN_TTL = Duration.ofMinutes(10);
+    private static final Duration UNKNOWN_TTL = Duration.ofSeconds(5);
+    private static final int MAX_CACHED_IDS = 100_000;
+
+    private final Keyspace users = new Keyspace();
+    private final Keyspace posts = new Keyspace();
+
+    /**
+     * @param userId the ID of the user.
+     * @param lookup the lookup run when the existence of the user is not cached.
+     * @return whether the user exists.
+     */
+    public Uni<Boolean> userExists(UUID userId, Supplier<Uni<Boolean>> lookup) {
+        return users.exists(userId, lookup);
+    }
+
+    /**
+     * @param postId the ID of the post.
+     * @param lookup the lookup run when the existence of the post is not cached.
+     * @return whether the post exists.
+     */
+    public Uni<Boolean> postExists(UUID postId, Supplier<Uni<Boolean>> lookup) {
+        return posts.exists(postId, lookup);
+    }
+
+    /**
+     * Forgets the cached existence of a post, once it is created or deleted.
+     *
+     * @param postId the ID of the post.
+     */
+    public void forgetPost(UUID postId) {
+        posts.cache.invalidate(postId);
+    }
+
+    private static final class Keyspace {
+        private final ExpiringCache<UUID, Boolean> cache = new ExpiringCache<>(MAX_CACHED_IDS);
+        private final Map<UUID, Uni<Boolean>> inFlight = new ConcurrentHashMap<>();
+
+        Uni<Boolean> exists(UUID id, Supplier<Uni<Boolean>> lookup) {
+            Boolean cached = cache.get(id);
+            if (cached != null) {
+                return Uni
+                        .createFrom()
+                        .item(cached);
+            }
+            // Removed once done, successfully or not: later lookups then read the cache, or retry.
+            return inFlight.computeIfAbsent(id, key -> Uni
+                    .createFrom()
+                    .deferred(lookup::get)
+                    .invoke(exists -> cache.put(key, exists, exists ? KNOWN_TTL : UNKNOWN_TTL))
+                    .onTermination()
+                    .invoke(() -> inFlight.remove(key))
+                    .memoize()
+                    .indefinitely());
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.epita.service;
+
+import com.epita.common.command.PostEventCommand;
+import com.epita.repository.Neo4jRepository;
+import com.epita.repository.entity.PostsSocial;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory buffer applying the post events of repo-post to the graph in batches.
+ * <p>
+ * Events are queued as they are received, and flushed periodically by a single flush at a time: a
+ * batch costs one upsert and one delete statement, so that an import publishing thousands of posts
+ * does not open thousands of concurrent transactions. Only the last event of a post in a batch is
+ * applied. Batches that fail are queued again, as events are idempotent; pending events are lost if
+ * the instance crashes, and the posts are then provisioned on their first like instead.
+ * <p>
+ * The queue is bounded, so that events piling up while Neo4j is unavailable do not exhaust the heap:
+ * past its capacity, the oldest creation events are dropped, as their posts are provisioned on their
+ * first like anyway.
+ */
+@ApplicationScoped
+public class PostEventBuffer {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PostEventBuffer.class);
+
+    private static final int MAX_BATCH_SIZE = 1000;
+    static final int MAX_PENDING_EVENTS = 100_000;
+
+    private final ConcurrentLinkedDeque<PostEventCommand> pending = new ConcurrentLinkedDeque<>();
+
+    /**
+     * The number of pending events, as the size of the deque is not tracked by the deque itself.
+     */
+    private final AtomicInteger pendingCount = new AtomicInteger();
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    @Inject
+    Neo4jRepository neo4jRepository;
+
+    @Inject
+    ExistenceCache existenceCache;
+
+    /**
+     * Queues a post event, applied on the next flush. Events other than creations and deletions are ignored.
+     *
+     * @param event the post event.
+     */
+    public void add(PostEventCommand event) {
+        if (event.getType() == PostEventCommand.Type.CREATION || event.getType() == PostEventCommand.Type.DELETION) {
+            pending.add(event);
+            pendingCount.incrementAndGet();
+            trim();
+        }
+    }
+
+    /**
+     * Drops the oldest creation events while the queue is above its capacity. Deletions are only
+     * dropped if no creation is left, since a post they miss would stay in the graph.
+     */
+    private void trim() {
+        while (pendingCount.get() > MAX_PENDING_EVENTS) {
+            PostEventCommand removed = null;
+            Iterator<PostEventCommand> events = pending.iterator();
+            while (events.hasNext()) {
+                PostEventCommand event = events.next();
+                if (event.getType() == PostEventCommand.Type.CREATION) {
+                    events.remove();
+                    removed = event;
+                    break;
+                }
+            }
+            if (removed == null) {
+                removed = pending.pollFirst();
+            }
+            if (removed == null) {
+                return;
+            }
+            pendingCount.decrementAndGet();
+            dropped.incrementAndGet();
+        }
+    }
+
+    @Scheduled(every = "200ms", concurrentExecution = Scheduled.ConcurrentExecution.SKIP)
+    void flush() {
+        long droppedEvents = dropped.getAndSet(0);
+        if (droppedEvents > 0) {
+            LOG.warn("Post event queue full: dropped {} events, their posts are provisioned on their first like", droppedEvents);
+        }
+        while (!pending.isEmpty()) {
+            List<PostEventCommand> batch = new ArrayList<>(MAX_BATCH_SIZE);
+            PostEventCommand event;
+            while (batch.size() < MAX_BATCH_SIZE && (event = pending.poll()) != null) {
+                batch.add(event);
+                pendingCount.decrementAndGet();
+            }
+            if (!apply(batch)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return false if the batch failed and was queued again.
+     */
+    private boolean apply(List<PostEventCommand> batch) {
+        Map<UUID, PostEventCommand> latest = new LinkedHashMap<>();
+        batch.forEach(event -> latest.put(event.getPostId(), event));
+
+        List<PostsSocial> created = new ArrayList<>();
+        List<PostsSocial> deleted = new ArrayList<>();
+        latest
+                .values()
+                .forEach(event -> {
+                    if (event.getType() == PostEventCommand.Type.CREATION) {
+                        created.add(new PostsSocial(event.getPostId(), event.getUserId()));
+                    } else {
+                        deleted.add(new PostsSocial(event.getPostId()));
+                    }
+                });
+        try {
+            if (!created.isEmpty()) {
+                neo4jRepository
+                        .upsertPosts(created)
+                        .await()
+                        .indefinitely();
+            }
+            if (!deleted.isEmpty()) {
+                neo4jRepository
+                        .deletePosts(deleted)
+                        .await()
+                        .indefinitely();
+            }
+        } catch (Exception e) {
+            LOG.error("Error while applying {} post events, retrying on next flush: {}", batch.size(), e.getMessage());
+            // Queued again in front of the events received meanwhile, so that they are still applied in order.
+            for (int i = batch.size() - 1; i >= 0; i--) {
+                pending.addFirst(batch.get(i));
+                pendingCount.incrementAndGet();
+            }
+            trim();
+            return false;
+        } finally {
+            latest
+                    .keySet()
+                    .forEach(existenceCache::forgetPost);
+        }
+        LOG.debug("Applied {} post events: {} posts created, {} deleted", batch.size(), created.size(), deleted.size());
+        return true;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        LOG.info("Applying pending post events");
+        flush();
+    }
+}
@@ -4,6 +4,7 @@ import com.epita.repository.Neo4jRepository;
 import com.epita.repository.LikeEventPublisher;
 import com.epita.repository.RepoPostRestClient;
 import com.epita.repository.entity.*;
+import io.smallrye.mutiny.Uni;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.ForbiddenException;
@@ -12,7 +13,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.time.Instant;
-import java.util.List;
 import java.util.UUID;
 import java.sql.Timestamp;
 
@@ -34,166 +34,274 @@ public class PostsService {
     @Inject
     public RepoPostRestClient repoPostRestClient;
 
+    @Inject
+    public ExistenceCache existenceCache;
+
     /**
      * Like a post for a given user
      *
      * @param userId The ID of the user liking the post
      * @param postId The ID of the post to like
-     * @throws ForbiddenException If the user is blocked
-     * @throws NotFoundException  If the post does not exist
+     * @return A Uni failed with a ForbiddenException if the user is blocked,
+     * or with a NotFoundException if the post does not exist
      */
-    public void likePost(UUID userId, UUID postId) {
+    public Uni<Void> likePost(UUID userId, UUID postId) {
         LOG.info("Attempting to like post. User ID: {}, Post ID: {}", userId, postId);
         if (userId == null || postId == null) {
             LOG.error("Invalid request. User ID or Post ID is null.");
-            throw new IllegalArgumentException("Invalid request");
+            return Uni
+                    .createFrom()
+                    .failure(new IllegalArgumentException("Invalid request"));
         }
 
         UsersSocial user = new UsersSocial(userId);
         PostsSocial post = new PostsSocial(postId);
 
-        if (!postExistVerify(post)) {
-            LOG.error("Post not found. Post ID: {}", postId);
-            throw new NotFoundException("Post not found");
-        }
-
-        if (!userExistVerify(user)) {
-            LOG.error("User not found. User ID: {}", userId);
-            throw new NotFoundException("User not found");
-        }
-
-        if (isUserBlocked(user, postId)) {
-            LOG.error("User is blocked. User ID: {}, Post ID: {}", userId, postId);
-            throw new ForbiddenException("User is blocked");
-        }
-
-        if (neo4jRepository.likeRelationExists(user, post)) {
-            LOG.info("Like relationship already exists. User ID: {}, Post ID: {}", userId, postId);
-            return;
-        }
-
-        neo4jRepository.createLikeRelation(user, post);
-        LOG.info("Created like relationship. User ID: {}, Post ID: {}", userId, postId);
+        return like(user, post, 2)
+                .flatMap(outcome -> switch (outcome) {
+                    case BLOCKED -> {
+                        LOG.error("User is blocked. User ID: {}, Post ID: {}", userId, postId);
+                        yield Uni
+                                .createFrom()
+                                .failure(new ForbiddenException("User is blocked"));
+                    }
+                    case UNCHANGED -> {
+                        LOG.info("Like relationship already exists. User ID: {}, Post ID: {}", userId, postId);
+                        yield Uni
+                                .createFrom()
+                                .voidItem();
+                    }
+                    case CREATED -> {
+                        LOG.info("Created like relationship. User ID: {}, Post ID: {}", userId, postId);
+                        Timestamp e = Timestamp.from(Instant.now());
+                        LikeEvent event = new LikeEvent(userId, postId, TypeLikes.LIKE, e);
+                        yield likeEventPublisher
+                                .publish(event)
+                                .invoke(() -> LOG.info("Published like event. User ID: {}, Post ID: {}", userId, postId));
+                    }
+                    case POST_NOT_FOUND -> {
+                        LOG.error("Post not found. Post ID: {}", postId);
+                        yield Uni
+                                .createFrom()
+                                .failure(new NotFoundException("Post not found"));
+                    }
+                    default -> {
+                        LOG.error("User not found. User ID: {}", userId);
+                        yield Uni
+                                .createFrom()
+                                .failure(new NotFoundException("User not found"));
+                    }
+                });
+    }
 
-        Timestamp e = Timestamp.from(Instant.now());
-        LikeEvent event = new LikeEvent(userId, postId, TypeLikes.LIKE, e);
-        likeEventPublisher.publish(event);
-        LOG.info("Published like event. User ID: {}, Post ID: {}", userId, postId);
+    /**
+     * Likes a post, provisioning the user or the post first when the graph does not know them yet.
+     * The graph knows them beforehand in most cases, so that repo-post is not asked at all.
+     *
+     * @param retries how many missing nodes may still be provisioned: the user and the post.
+     */
+    private Uni<RelationOutcome> like(UsersSocial user, PostsSocial post, int retries) {
+        return neo4jRepository
+                .like(user, post)
+                .flatMap(outcome -> {
+                    if (retries == 0 || (outcome != RelationOutcome.USER_NOT_FOUND && outcome != RelationOutcome.POST_NOT_FOUND)) {
+                        return Uni
+                                .createFrom()
+                                .item(outcome);
+                    }
+                    Uni<Boolean> provisioned = outcome == RelationOutcome.USER_NOT_FOUND ? userExistVerify(user) : provisionPost(post);
+                    return provisioned.flatMap(exists -> exists ? like(user, post, retries - 1) : Uni
+                            .createFrom()
+                            .item(outcome));
+                });
     }
 
+    /**
+     * Provisions a post missed by the post events, or provisioned before its author was recorded.
+     *
+     * @return True if the post exists in repo-post, false otherwise.
+     */
+    private Uni<Boolean> provisionPost(PostsSocial post) {
+        LOG.debug("Provisioning post from repo-post. Post ID: {}", post.getId());
+        return repoPostRestClient
+                .getPostById(post.getId())
+                .onFailure(NotFoundException.class)
+                .recoverWithNull()
+                .flatMap(repoPost -> repoPost == null ? Uni
+                        .createFrom()
+                        .item(false) : neo4jRepository
+                        .upsertPost(new PostsSocial(post.getId(), repoPost.getAuthorId()))
+                        .replaceWith(true));
+    }
 
     /**
      * Unlike a post for a given user
      *
      * @param userId The ID of the user unliking the post
      * @param postId The ID of the post to unlike
-     * @throws NotFoundException If the like does not exist
+     * @return A Uni failed with a NotFoundException if the like does not exist
      */
-    public void unlikePost(UUID userId, UUID postId) {
+    public Uni<Void> unlikePost(UUID userId, UUID postId) {
         LOG.info("Attempting to unlike post. User ID: {}, Post ID: {}", userId, postId);
         if (userId == null || postId == null) {
             LOG.error("Invalid request. User ID or Post ID is null.");
-            throw new IllegalArgumentException("Invalid request");
+            return Uni
+                    .createFrom()
+                    .failure(new IllegalArgumentException("Invalid request"));
         }
 
         UsersSocial user = new UsersSocial(userId);
         PostsSocial post = new PostsSocial(postId);
 
-        if (!neo4jRepository.likeRelationExists(user, post)) {
-            LOG.error("Like relationship not found. User ID: {}, Post ID: {}", userId, postId);
-            throw new NotFoundException("Like not found");
-        }
-
-        neo4jRepository.removeLikeRelation(user, post);
-        LOG.info("Removed like relationship. User ID: {}, Post ID: {}", userId, postId);
+        return neo4jRepository
+                .unlike(user, post)
+                .flatMap(outcome -> {
+                    if (outcome == RelationOutcome.NOT_FOUND) {
+                        LOG.error("Like relationship not found. User ID: {}, Post ID: {}", userId, postId);
+                        return Uni
+                                .createFrom()
+                                .failure(new NotFoundException("Like not found"));
+                    }
+                    LOG.info("Removed like relationship. User ID: {}, Post ID: {}", userId, postId);
 
-        Timestamp e = Timestamp.from(Instant.now());
-        LikeEvent event = new LikeEvent(userId, postId, TypeLikes.UNLIKE, e);
-        likeEventPublisher.publish(event);
-        LOG.info("Published unlike event. User ID: {}, Post ID: {}", userId, postId);
+                    Timestamp e = Timestamp.from(Instant.now());
+                    LikeEvent event = new LikeEvent(userId, postId, TypeLikes.UNLIKE, e);
+                    return likeEventPublisher
+                            .publish(event)
+                            .invoke(() -> LOG.info("Published unlike event. User ID: {}, Post ID: {}", userId, postId));
+                });
     }
 
     /**
-     * Get all users who liked a specific post
+     * Get a page of the users who liked a specific post, most recent likes first
      *
      * @param postId The ID of the post
-     * @return List of user IDs who liked the post
-     * @throws NotFoundException If the post does not exist
+     * @param after  The position to start after, or null for the first page
+     * @param size   The maximum number of users in the page
+     * @return A page of the users who liked the post, or a Uni failed with a NotFoundException if the post does not exist
      */
-    public List<UsersSocial> getLikesOfPostId(UUID postId) {
+    public Uni<RelationPage<UsersSocial>> getLikesOfPostId(UUID postId, RelationCursor after, int size) {
         LOG.info("Fetching likes for post. Post ID: {}", postId);
         PostsSocial post = new PostsSocial(postId);
 
-        if (!postExistVerify(post)) {
-            LOG.error("Post not found. Post ID: {}", postId);
-            throw new NotFoundException("Post not found");
-        }
-
-        List<UsersSocial> likers = neo4jRepository.getAllLikersFromPost(post);
-        LOG.info("Found {} likers for Post ID: {}", likers.size(), postId);
-        return likers;
+        return postExistVerify(post)
+                .flatMap(exists -> {
+                    if (!exists) {
+                        LOG.error("Post not found. Post ID: {}", postId);
+                        return Uni
+                                .createFrom()
+                                .failure(new NotFoundException("Post not found"));
+                    }
+                    return neo4jRepository.getLikersOfPost(post, after, size);
+                });
     }
 
     /**
-     * Checks if a user is blocked by the author of a post.
+     * Get the number of likes of a post
      *
-     * @param userId1 The user performing the action.
-     * @param postId  The ID of the post.
-     * @return True if the user is blocked, false otherwise.
+     * @param postId The ID of the post
+     * @return The counters of the post, or a Uni failed with a NotFoundException if the post does not exist
      */
-    public Boolean isUserBlocked(UsersSocial userId1, UUID postId) {
-        LOG.debug("Checking if user is blocked. User ID: {}, Post ID: {}", userId1.getId(), postId);
-        RepoPostResponse userId = repoPostRestClient.getPostById(postId);
-        UsersSocial authorId = new UsersSocial(userId.getAuthorId());
-        boolean isBlocked = neo4jRepository.blockRelationExists(userId1, authorId) || neo4jRepository.blockRelationExists(authorId, userId1);
-        LOG.debug("Block check result for User ID: {}, Post ID: {}: {}", userId1.getId(), postId, isBlocked);
-        return isBlocked;
+    public Uni<PostCounts> getCounts(UUID postId) {
+        PostsSocial post = new PostsSocial(postId);
+        return neo4jRepository
+                .getPostCounts(post)
+                .onItem()
+                .ifNull()
+                .switchTo(() -> postExistVerify(post).flatMap(exists -> {
+                    if (!exists) {
+                        LOG.error("Post not found. Post ID: {}", postId);
+                        return Uni
+                                .createFrom()
+                                .failure(new NotFoundException("Post not found"));
+                    }
+                    return Uni
+                            .createFrom()
+                            .item(new PostCounts(0));
+                }));
     }
 
-
     /**
      * Verifies if a post exists in the repository.
      * If not, it attempts to fetch and add it to the repository.
+     * The answer is cached by the {@link ExistenceCache}.
      *
      * @param post The post to verify.
      * @return True if the post exists, false otherwise.
      */
-    public boolean postExistVerify(PostsSocial post) {
+    public Uni<Boolean> postExistVerify(PostsSocial post) {
+        return existenceCache.postExists(post.getId(), () -> lookUpPost(post));
+    }
+
+    private Uni<Boolean> lookUpPost(PostsSocial post) {
         LOG.debug("Verifying existence of post. Post ID: {}", post.getId());
-        if (!neo4jRepository.postExists(post)) {
-            if (repoPostRestClient.getPostById(post.getId()) == null) {
-                LOG.debug("Post not found. Post ID: {}", post.getId());
-                return false;
-            } else {
-                neo4jRepository.addPost(post);
-                LOG.debug("Post added to Neo4j. Post ID: {}", post.getId());
-                return true;
-            }
-        }
-        LOG.debug("Post already exists. Post ID: {}", post.getId());
-        return true;
+        return neo4jRepository
+                .postExists(post)
+                .flatMap(exists -> {
+                    if (exists) {
+                        LOG.debug("Post already exists. Post ID: {}", post.getId());
+                        return Uni
+                                .createFrom()
+                                .item(true);
+                    }
+                    return repoPostRestClient
+                            .getPostById(post.getId())
+                            .onFailure(NotFoundException.class)
+                            .recoverWithNull()
+                            .flatMap(repoPost -> {
+                                if (repoPost == null) {
+                                    LOG.debug("Post not found. Post ID: {}", post.getId());
+                                    return Uni
+                                            .createFrom()
+                                            .item(false);
+                                }
+                                return neo4jRepository
+                                        .upsertPost(new PostsSocial(post.getId(), repoPost.getAuthorId()))
+                                        .invoke(() -> LOG.debug("Post added to Neo4j. Post ID: {}", post.getId()))
+                                        .replaceWith(true);
+                            });
+                });
     }
 
     /**
      * Verifies if a user exists in the repository.
      * If not, it attempts to fetch and add the user to the repository.
+     * The answer is cached by the {@link ExistenceCache}.
      *
      * @param user The user to verify.
      * @return True if the user exists, false otherwise.
      */
-    public boolean userExistVerify(UsersSocial user) {
+    public Uni<Boolean> userExistVerify(UsersSocial user) {
+        return existenceCache.userExists(user.getId(), () -> lookUpUser(user));
+    }
+
+    private Uni<Boolean> lookUpUser(UsersSocial user) {
         LOG.debug("Verifying existence of user. User ID: {}", user.getId());
-        if (!neo4jRepository.userExists(user)) {
-            if (repoPostRestClient.getUserById(user.getId()) == null) {
-                LOG.debug("User not found. User ID: {}", user.getId());
-                return false;
-            } else {
-                neo4jRepository.addUser(user);
-                LOG.debug("User added to Neo4j. User ID: {}", user.getId());
-                return true;
-            }
-        }
-        LOG.debug("User already exists. User ID: {}", user.getId());
-        return true;
+        return neo4jRepository
+                .userExists(user)
+                .flatMap(exists -> {
+                    if (exists) {
+                        LOG.debug("User already exists. User ID: {}", user.getId());
+                        return Uni
+                                .createFrom()
+                                .item(true);
+                    }
+                    return repoPostRestClient
+                            .getUserById(user.getId())
+                            .onFailure(NotFoundException.class)
+                            .recoverWithNull()
+                            .flatMap(repoPostUser -> {
+                                if (repoPostUser == null) {
+                                    LOG.debug("User not found. User ID: {}", user.getId());
+                                    return Uni
+                                            .createFrom()
+                                            .item(false);
+                                }
+                                return neo4jRepository
+                                        .addUser(user)
+                                        .invoke(() -> LOG.debug("User added to Neo4j. User ID: {}", user.getId()))
+                                        .replaceWith(true);
+                            });
+                });
     }
-}
\ No newline at end of file
+}
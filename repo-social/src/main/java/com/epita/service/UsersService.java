@@ -1,9 +1,11 @@
 package com.epita.service;
 
+import com.epita.common.api.response.BlockStatusResponse;
 import com.epita.repository.FollowEventPublisher;
 import com.epita.repository.Neo4jRepository;
 import com.epita.repository.RepoPostRestClient;
 import com.epita.repository.entity.*;
+import io.smallrye.mutiny.Uni;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.ForbiddenException;
@@ -33,50 +35,79 @@ public class UsersService {
     @Inject
     public RepoPostRestClient repoPostRestClient;
 
+    @Inject
+    public BlockCache blockCache;
+
+    @Inject
+    public ExistenceCache existenceCache;
+
     /**
      * Follow a user
      *
      * @param followerId The ID of the user who wants to follow
      * @param followeeId The ID of the user to be followed
-     * @throws ForbiddenException If the user is blocked
-     * @throws NotFoundException  If the target user does not exist
-     * @throws ForbiddenException If followerId equals to followeeId
+     * @return A Uni failed with a ForbiddenException if the user is blocked or if followerId equals to followeeId,
+     * or with a NotFoundException if the target user does not exist
      */
-    public void followUser(UUID followerId, UUID followeeId) {
+    public Uni<Void> followUser(UUID followerId, UUID followeeId) {
         LOG.info("Attempting to follow user. Follower ID: {}, Followee ID: {}", followerId, followeeId);
         if (followerId.equals(followeeId)) {
             LOG.error("Follower ID and Followee ID cannot be the same.");
-            throw new ForbiddenException("FollowerId and FolloweeId cannot be the same");
-        }
-        try {
-            UsersSocial followee = new UsersSocial(followeeId);
-            UsersSocial follower = new UsersSocial(followerId);
-
-            if (!userExistVerify(follower) || !userExistVerify(followee)) {
-                LOG.error("User not found. Follower ID: {}, Followee ID: {}", followerId, followeeId);
-                throw new NotFoundException("User not found");
-            }
-
-            if (neo4jRepository.blockRelationExists(followee, follower) || neo4jRepository.blockRelationExists(follower, followee)) {
-                LOG.error("User is blocked. Follower ID: {}, Followee ID: {}", followerId, followeeId);
-                throw new ForbiddenException("User is blocked");
-            }
-
-            if (neo4jRepository.followRelationExists(follower, followee)) {
-                LOG.info("Already following. Follower ID: {}, Followee ID: {}", followerId, followeeId);
-                return;
-            }
-
-            neo4jRepository.createFollowRelation(follower, followee);
-            LOG.info("Created follow relationship. Follower ID: {}, Followee ID: {}", followerId, followeeId);
-
-            FollowEvent event = new FollowEvent(followerId, TypeFollow.FOLLOW, followeeId);
-            followEventPublisher.publish(event);
-            LOG.info("Published follow event. Follower ID: {}, Followee ID: {}", followerId, followeeId);
-        } catch (Exception e) {
-            LOG.error("Error while following user. Follower ID: {}, Followee ID: {}", followerId, followeeId, e);
-            throw e;
+            return Uni
+                    .createFrom()
+                    .failure(new ForbiddenException("FollowerId and FolloweeId cannot be the same"));
         }
+        UsersSocial followee = new UsersSocial(followeeId);
+        UsersSocial follower = new UsersSocial(followerId);
+
+        return neo4jRepository
+                .follow(follower, followee)
+                .flatMap(outcome -> {
+                    if (outcome != RelationOutcome.USER_NOT_FOUND) {
+                        return Uni
+                                .createFrom()
+                                .item(outcome);
+                    }
+                    // Users are added to the graph lazily: only then is repo-post asked about them.
+                    return usersExistVerify(follower, followee).flatMap(exist -> {
+                        if (!exist) {
+                            LOG.error("User not found. Follower ID: {}, Followee ID: {}", followerId, followeeId);
+                            return Uni
+                                    .createFrom()
+                                    .failure(new NotFoundException("User not found"));
+                        }
+                        return neo4jRepository.follow(follower, followee);
+                    });
+                })
+                .flatMap(outcome -> switch (outcome) {
+                    case BLOCKED -> {
+                        LOG.error("User is blocked. Follower ID: {}, Followee ID: {}", followerId, followeeId);
+                        yield Uni
+                                .createFrom()
+                                .failure(new ForbiddenException("User is blocked"));
+                    }
+                    case UNCHANGED -> {
+                        LOG.info("Already following. Follower ID: {}, Followee ID: {}", followerId, followeeId);
+                        yield Uni
+                                .createFrom()
+                                .voidItem();
+                    }
+                    case CREATED -> {
+                        LOG.info("Created follow relationship. Follower ID: {}, Followee ID: {}", followerId, followeeId);
+                        FollowEvent event = new FollowEvent(followerId, TypeFollow.FOLLOW, followeeId);
+                        yield followEventPublisher
+                                .publish(event)
+                                .invoke(() -> LOG.info("Published follow event. Follower ID: {}, Followee ID: {}", followerId, followeeId));
+                    }
+                    default -> {
+                        LOG.error("User not found. Follower ID: {}, Followee ID: {}", followerId, followeeId);
+                        yield Uni
+                                .createFrom()
+                                .failure(new NotFoundException("User not found"));
+                    }
+                })
+                .onFailure()
+                .invoke(e -> LOG.error("Error while following user. Follower ID: {}, Followee ID: {}", followerId, followeeId, e));
     }
 
 
@@ -85,33 +116,37 @@ public class UsersService {
      *
      * @param followerId The ID of the user who wants to unfollow
      * @param followeeId The ID of the user to be unfollowed
-     * @throws NotFoundException If the follow relationship does not exist
+     * @return A Uni failed with a NotFoundException if the follow relationship does not exist
      */
-    public void unfollowUser(UUID followerId, UUID followeeId) {
+    public Uni<Void> unfollowUser(UUID followerId, UUID followeeId) {
         LOG.info("Attempting to unfollow user. Follower ID: {}, Followee ID: {}", followerId, followeeId);
         if (followerId.equals(followeeId)) {
             LOG.error("Follower ID and Followee ID cannot be the same.");
-            throw new ForbiddenException("FollowerId and FolloweeId cannot be the same");
-        }
-        try {
-            UsersSocial followee = new UsersSocial(followeeId);
-            UsersSocial follower = new UsersSocial(followerId);
-
-            if (!neo4jRepository.followRelationExists(follower, followee)) {
-                LOG.error("Follow relationship not found. Follower ID: {}, Followee ID: {}", followerId, followeeId);
-                throw new NotFoundException("Follow relation not found");
-            }
-
-            neo4jRepository.removeFollowRelation(follower, followee);
-            LOG.info("Removed follow relationship. Follower ID: {}, Followee ID: {}", followerId, followeeId);
-
-            FollowEvent event = new FollowEvent(followerId, TypeFollow.UNFOLLOW, followeeId);
-            followEventPublisher.publish(event);
-            LOG.info("Published unfollow event. Follower ID: {}, Followee ID: {}", followerId, followeeId);
-        } catch (Exception e) {
-            LOG.error("Error while unfollowing user. Follower ID: {}, Followee ID: {}", followerId, followeeId, e);
-            throw e;
+            return Uni
+                    .createFrom()
+                    .failure(new ForbiddenException("FollowerId and FolloweeId cannot be the same"));
         }
+        UsersSocial followee = new UsersSocial(followeeId);
+        UsersSocial follower = new UsersSocial(followerId);
+
+        return neo4jRepository
+                .unfollow(follower, followee)
+                .flatMap(outcome -> {
+                    if (outcome == RelationOutcome.NOT_FOUND) {
+                        LOG.error("Follow relationship not found. Follower ID: {}, Followee ID: {}", followerId, followeeId);
+                        return Uni
+                                .createFrom()
+                                .failure(new NotFoundException("Follow relation not found"));
+                    }
+                    LOG.info("Removed follow relationship. Follower ID: {}, Followee ID: {}", followerId, followeeId);
+
+                    FollowEvent event = new FollowEvent(followerId, TypeFollow.UNFOLLOW, followeeId);
+                    return followEventPublisher
+                            .publish(event)
+                            .invoke(() -> LOG.info("Published unfollow event. Follower ID: {}, Followee ID: {}", followerId, followeeId));
+                })
+                .onFailure()
+                .invoke(e -> LOG.error("Error while unfollowing user. Follower ID: {}, Followee ID: {}", followerId, followeeId, e));
     }
 
     /**
@@ -119,44 +154,56 @@ public class UsersService {
      *
      * @param blockerId The ID of the user who wants to block
      * @param blockedId The ID of the user to be blocked
+     * @return A Uni failed with a NotFoundException if one of the users does not exist
      */
-    public void blockUser(UUID blockerId, UUID blockedId) {
+    public Uni<Void> blockUser(UUID blockerId, UUID blockedId) {
         LOG.info("Attempting to block user. Blocker ID: {}, Blocked ID: {}", blockerId, blockedId);
         if (blockerId.equals(blockedId)) {
             LOG.error("Blocker ID and Blocked ID cannot be the same.");
-            throw new ForbiddenException("BlockerId and BlockedId cannot be the same");
-        }
-        try {
-            UsersSocial blocker = new UsersSocial(blockerId);
-            UsersSocial blocked = new UsersSocial(blockedId);
-
-            if (!userExistVerify(blocker) || !userExistVerify(blocked)) {
-                LOG.error("User not found. Blocker ID: {}, Blocked ID: {}", blockerId, blockedId);
-                throw new NotFoundException("User not found");
-            }
-
-            if (neo4jRepository.followRelationExists(blocker, blocked) || neo4jRepository.followRelationExists(blocked, blocker)) {
-                neo4jRepository.removeFollowRelation(blocker, blocked);
-                neo4jRepository.removeFollowRelation(blocked, blocker);
-                LOG.info("Removed follow relationships between Blocker ID: {} and Blocked ID: {}", blockerId, blockedId);
-
-                FollowEvent event = new FollowEvent(blockerId, TypeFollow.UNFOLLOW, blockedId);
-                followEventPublisher.publish(event);
-                LOG.info("Published unfollow event for Blocker ID: {}, Blocked ID: {}", blockerId, blockedId);
-
-                event = new FollowEvent(blockedId, TypeFollow.UNFOLLOW, blockerId);
-                followEventPublisher.publish(event);
-                LOG.info("Published unfollow event for Blocked ID: {}, Blocker ID: {}", blockedId, blockerId);
-            }
-
-            if (!neo4jRepository.blockRelationExists(blocker, blocked)) {
-                neo4jRepository.createBlockRelation(blocker, blocked);
-                LOG.info("Created block relationship. Blocker ID: {}, Blocked ID: {}", blockerId, blockedId);
-            }
-        } catch (Exception e) {
-            LOG.error("Error while blocking user. Blocker ID: {}, Blocked ID: {}", blockerId, blockedId, e);
-            throw e;
+            return Uni
+                    .createFrom()
+                    .failure(new ForbiddenException("BlockerId and BlockedId cannot be the same"));
         }
+        UsersSocial blocker = new UsersSocial(blockerId);
+        UsersSocial blocked = new UsersSocial(blockedId);
+
+        return neo4jRepository
+                .block(blocker, blocked)
+                .flatMap(result -> {
+                    if (result.getOutcome() != RelationOutcome.USER_NOT_FOUND) {
+                        return Uni
+                                .createFrom()
+                                .item(result);
+                    }
+                    return usersExistVerify(blocker, blocked).flatMap(exist -> exist ? neo4jRepository.block(blocker, blocked) : Uni
+                            .createFrom()
+                            .item(result));
+                })
+                .flatMap(result -> {
+                    if (result.getOutcome() == RelationOutcome.USER_NOT_FOUND) {
+                        LOG.error("User not found. Blocker ID: {}, Blocked ID: {}", blockerId, blockedId);
+                        return Uni
+                                .createFrom()
+                                .failure(new NotFoundException("User not found"));
+                    }
+                    Uni<Void> blockChanged = Uni
+                            .createFrom()
+                            .voidItem();
+                    if (result.getOutcome() == RelationOutcome.CREATED) {
+                        LOG.info("Created block relationship. Blocker ID: {}, Blocked ID: {}", blockerId, blockedId);
+                        blockChanged = blockCache.publishChanges(List.of(new RelationEdge(blockerId, blockedId)));
+                    }
+
+                    // Only the follow relationships the block actually removed are announced.
+                    return blockChanged.call(() -> followEventPublisher.publishAll(result
+                            .getUnfollowerIds()
+                            .stream()
+                            .map(unfollowerId -> new FollowEvent(unfollowerId, TypeFollow.UNFOLLOW,
+                                    unfollowerId.equals(blockerId) ? blockedId : blockerId))
+                            .toList()));
+                })
+                .onFailure()
+                .invoke(e -> LOG.error("Error while blocking user. Blocker ID: {}, Blocked ID: {}", blockerId, blockedId, e));
     }
 
     /**
@@ -164,137 +211,206 @@ public class UsersService {
      *
      * @param blockerId The ID of the user who wants to unblock
      * @param blockedId The ID of the user to be unblocked
-     * @throws NotFoundException If the block relationship does not exist
+     * @return A Uni failed with a NotFoundException if the block relationship does not exist
      */
-    public void unblockUser(UUID blockerId, UUID blockedId) {
+    public Uni<Void> unblockUser(UUID blockerId, UUID blockedId) {
         LOG.info("Attempting to unblock user. Blocker ID: {}, Blocked ID: {}", blockerId, blockedId);
         if (blockerId.equals(blockedId)) {
             LOG.error("Blocker ID and Blocked ID cannot be the same.");
-            throw new ForbiddenException("BlockerId and BlockedId cannot be the same");
-        }
-        try {
-            UsersSocial blocker = new UsersSocial(blockerId);
-            UsersSocial blocked = new UsersSocial(blockedId);
-
-            if (!neo4jRepository.blockRelationExists(blocker, blocked)) {
-                LOG.error("Block relationship not found. Blocker ID: {}, Blocked ID: {}", blockerId, blockedId);
-                throw new NotFoundException("Block relation not found");
-            }
-
-            neo4jRepository.removeBlockRelation(blocker, blocked);
-            LOG.info("Removed block relationship. Blocker ID: {}, Blocked ID: {}", blockerId, blockedId);
-        } catch (Exception e) {
-            LOG.error("Error while unblocking user. Blocker ID: {}, Blocked ID: {}", blockerId, blockedId, e);
-            throw e;
+            return Uni
+                    .createFrom()
+                    .failure(new ForbiddenException("BlockerId and BlockedId cannot be the same"));
         }
+        UsersSocial blocker = new UsersSocial(blockerId);
+        UsersSocial blocked = new UsersSocial(blockedId);
+
+        return neo4jRepository
+                .unblock(blocker, blocked)
+                .flatMap(outcome -> {
+                    if (outcome == RelationOutcome.NOT_FOUND) {
+                        LOG.error("Block relationship not found. Blocker ID: {}, Blocked ID: {}", blockerId, blockedId);
+                        return Uni
+                                .createFrom()
+                                .<Void>failure(new NotFoundException("Block relation not found"));
+                    }
+                    LOG.info("Removed block relationship. Blocker ID: {}, Blocked ID: {}", blockerId, blockedId);
+                    return blockCache.publishChanges(List.of(new RelationEdge(blockerId, blockedId)));
+                })
+                .onFailure()
+                .invoke(e -> LOG.error("Error while unblocking user. Blocker ID: {}, Blocked ID: {}", blockerId, blockedId, e));
     }
 
     /**
-     * Get all posts liked by a user
+     * Get a page of the posts liked by a user, most recently liked first
      *
      * @param userId The ID of the user
-     * @return List of post IDs liked by the user
-     * @throws NotFoundException If the user does not exist
+     * @param after  The position to start after, or null for the first page
+     * @param size   The maximum number of posts in the page
+     * @return A page of the posts liked by the user, or a Uni failed with a NotFoundException if the user does not exist
      */
-    public List<PostsSocial> getLikedPosts(UUID userId) {
+    public Uni<RelationPage<PostsSocial>> getLikedPosts(UUID userId, RelationCursor after, int size) {
         UsersSocial user = new UsersSocial(userId);
-        // Check if user exists
-        if (!userExistVerify(user)) {
-            throw new NotFoundException("User not found");
-        }
-
-        // Find all posts with LIKES relationship from this user
-        return neo4jRepository.getAllLikedPost(user);
+        return whenUserExists(user).flatMap(ignored -> neo4jRepository.getLikedPostsOfUser(user, after, size));
     }
 
     /**
-     * Get all users followed by a user
+     * Get a page of the users followed by a user, most recently followed first
      *
      * @param userId The ID of the user
-     * @return List of user IDs followed by the user
-     * @throws NotFoundException If the user does not exist
+     * @param after  The position to start after, or null for the first page
+     * @param size   The maximum number of users in the page
+     * @return A page of the users followed by the user, or a Uni failed with a NotFoundException if the user does not exist
      */
-    public List<UsersSocial> getFollowees(UUID userId) {
+    public Uni<RelationPage<UsersSocial>> getFollowees(UUID userId, RelationCursor after, int size) {
         UsersSocial user = new UsersSocial(userId);
-        // Check if user exists
-        if (!userExistVerify(user)) {
-            throw new NotFoundException("User not found");
-        }
-
-        // Find all users with FOLLOWS relationship from this user
-        return neo4jRepository.getAllFollowsOfUser(user);
+        return whenUserExists(user).flatMap(ignored -> neo4jRepository.getFollowsOfUser(user, after, size));
     }
 
     /**
-     * Get all followers of a user
+     * Get a page of the followers of a user, most recent followers first
      *
      * @param userId The ID of the user
-     * @return List of user IDs following the user
-     * @throws NotFoundException If the user does not exist
+     * @param after  The position to start after, or null for the first page
+     * @param size   The maximum number of users in the page
+     * @return A page of the users following the user, or a Uni failed with a NotFoundException if the user does not exist
      */
-    public List<UsersSocial> getFollowers(UUID userId) {
+    public Uni<RelationPage<UsersSocial>> getFollowers(UUID userId, RelationCursor after, int size) {
         UsersSocial user = new UsersSocial(userId);
-        // Check if user exists
-        if (!userExistVerify(user)) {
-            throw new NotFoundException("User not found");
-        }
-        return neo4jRepository.getAllFollowersOfUser(user);
+        return whenUserExists(user).flatMap(ignored -> neo4jRepository.getFollowersOfUser(user, after, size));
     }
 
     /**
-     * Get all users blocked by a user
+     * Get a page of the users blocked by a user, most recently blocked first
      *
      * @param userId The ID of the user
-     * @return List of user IDs blocked by the user
-     * @throws NotFoundException If the user does not exist
+     * @param after  The position to start after, or null for the first page
+     * @param size   The maximum number of users in the page
+     * @return A page of the users blocked by the user, or a Uni failed with a NotFoundException if the user does not exist
      */
-    public List<UsersSocial> getBlockedUsers(UUID userId) {
+    public Uni<RelationPage<UsersSocial>> getBlockedUsers(UUID userId, RelationCursor after, int size) {
         UsersSocial user = new UsersSocial(userId);
-        // Check if user exists
-        if (!userExistVerify(user)) {
-            throw new NotFoundException("User not found");
-        }
+        return whenUserExists(user).flatMap(ignored -> neo4jRepository.getBlockedOfUser(user, after, size));
+    }
 
-        // Find all users with BLOCKS relationship from this user
-        return neo4jRepository.getAllBlockedOfUser(user);
+    /**
+     * Get a page of the users who blocked the specified user, most recent blocks first
+     *
+     * @param userId The ID of the user
+     * @param after  The position to start after, or null for the first page
+     * @param size   The maximum number of users in the page
+     * @return A page of the users who blocked the user, or a Uni failed with a NotFoundException if the user does not exist
+     */
+    public Uni<RelationPage<UsersSocial>> getUsersWhoBlockedMe(UUID userId, RelationCursor after, int size) {
+        UsersSocial user = new UsersSocial(userId);
+        return whenUserExists(user).flatMap(ignored -> neo4jRepository.getBlockersOfUser(user, after, size));
     }
 
     /**
-     * Get all users who blocked the specified user
+     * Get the number of followers of a user, and of users it follows
      *
      * @param userId The ID of the user
-     * @return List of user IDs who blocked the user
-     * @throws NotFoundException If the user does not exist
+     * @return The counters of the user, or a Uni failed with a NotFoundException if the user does not exist
      */
-    public List<UsersSocial> getUsersWhoBlockedMe(UUID userId) {
+    public Uni<UserCounts> getCounts(UUID userId) {
         UsersSocial user = new UsersSocial(userId);
-        // Check if user exists
-        if (!userExistVerify(user)) {
-            throw new NotFoundException("User not found");
+        return neo4jRepository
+                .getUserCounts(user)
+                .onItem()
+                .ifNull()
+                .switchTo(() -> whenUserExists(user).map(ignored -> new UserCounts(0, 0)));
+    }
+
+    /**
+     * Get the block relationships between two users, in both directions
+     *
+     * @param userId      The ID of the first user
+     * @param otherUserId The ID of the second user
+     * @return Whether the first user blocks, or is blocked by, the second one
+     */
+    public Uni<BlockStatusResponse> getBlockStatus(UUID userId, UUID otherUserId) {
+        // Unknown users simply have no block relationship: no need to check their existence first.
+        return blockCache.getBlockStatus(userId, otherUserId);
+    }
+
+    /**
+     * Get the relationships between a viewer and a list of users, e.g. to render a page of users
+     *
+     * @param viewerId  The ID of the viewer
+     * @param targetIds The IDs of the other users; duplicates are ignored
+     * @return The relationships with each other user, in the order of their first occurrence
+     */
+    public Uni<List<RelationState>> getRelationStates(UUID viewerId, List<UUID> targetIds) {
+        // Unknown users simply have no relationship: no need to check their existence first.
+        List<UUID> distinctIds = targetIds
+                .stream()
+                .distinct()
+                .toList();
+        if (distinctIds.isEmpty()) {
+            return Uni
+                    .createFrom()
+                    .item(List.of());
         }
-        return neo4jRepository.getAllBlockersOfUser(user);
+        return neo4jRepository.getRelationStates(new UsersSocial(viewerId), distinctIds);
     }
 
     /**
      * Verifies if a user exists in the repository.
      * If not, it attempts to fetch and add the user to the repository.
+     * The answer is cached by the {@link ExistenceCache}.
      *
      * @param user The user to verify.
      * @return True if the user exists, false otherwise.
      */
-    public boolean userExistVerify(UsersSocial user) {
+    public Uni<Boolean> userExistVerify(UsersSocial user) {
+        return existenceCache.userExists(user.getId(), () -> lookUpUser(user));
+    }
+
+    private Uni<Boolean> lookUpUser(UsersSocial user) {
         LOG.debug("Verifying existence of user with ID: {}", user.getId());
-        if (!neo4jRepository.userExists(user)) {
-            if (repoPostRestClient.getUserById(user.getId()) == null) {
-                LOG.debug("User with ID: {} does not exist.", user.getId());
-                return false;
-            } else {
-                neo4jRepository.addUser(user);
-                LOG.debug("User with ID: {} added to Neo4j.", user.getId());
-                return true;
-            }
-        }
-        LOG.debug("User with ID: {} already exists.", user.getId());
-        return true;
+        return neo4jRepository
+                .userExists(user)
+                .flatMap(exists -> {
+                    if (exists) {
+                        LOG.debug("User with ID: {} already exists.", user.getId());
+                        return Uni
+                                .createFrom()
+                                .item(true);
+                    }
+                    return repoPostRestClient
+                            .getUserById(user.getId())
+                            .onFailure(NotFoundException.class)
+                            .recoverWithNull()
+                            .flatMap(repoPostUser -> {
+                                if (repoPostUser == null) {
+                                    LOG.debug("User with ID: {} does not exist.", user.getId());
+                                    return Uni
+                                            .createFrom()
+                                            .item(false);
+                                }
+                                return neo4jRepository
+                                        .addUser(user)
+                                        .invoke(() -> LOG.debug("User with ID: {} added to Neo4j.", user.getId()))
+                                        .replaceWith(true);
+                            });
+                });
+    }
+
+    /**
+     * Verifies that both users exist, the second one only if the first one does.
+     *
+     * @return True if both users exist, false otherwise.
+     */
+    private Uni<Boolean> usersExistVerify(UsersSocial user1, UsersSocial user2) {
+        return userExistVerify(user1).flatMap(exists -> exists ? userExistVerify(user2) : Uni
+                .createFrom()
+                .item(false));
+    }
+
+    private Uni<UsersSocial> whenUserExists(UsersSocial user) {
+        return userExistVerify(user).flatMap(exists -> exists ? Uni
+                .createFrom()
+                .item(user) : Uni
+                .createFrom()
+                .failure(new NotFoundException("User not found")));
     }
-}
\ No newline at end of file
+}
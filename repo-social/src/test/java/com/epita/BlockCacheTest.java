@@ -0,0 +1,108 @@
+package com.epita;
+
+import com.epita.repository.BlockChangePublisher;
+import com.epita.repository.Neo4jRepository;
+import com.epita.repository.entity.RelationEdge;
+import com.epita.service.BlockCache;
+import io.smallrye.mutiny.Uni;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class BlockCacheTest {
+
+    @Mock
+    Neo4jRepository neo4jRepository;
+
+    @Mock
+    BlockChangePublisher blockChangePublisher;
+
+    @InjectMocks
+    BlockCache blockCache;
+
+    private final UUID blocker = UUID.randomUUID();
+    private final UUID blocked = UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(blockChangePublisher.publishAll(any())).thenReturn(Uni.createFrom().voidItem());
+        when(neo4jRepository.countBlocks()).thenReturn(Uni.createFrom().item(1L));
+        when(neo4jRepository.forEachBlock(any())).thenAnswer(invocation -> {
+            invocation.<Consumer<RelationEdge>>getArgument(0).accept(new RelationEdge(blocker, blocked));
+            return Uni.createFrom().voidItem();
+        });
+        when(neo4jRepository.getBlockedIds(any())).thenReturn(Uni.createFrom().item(Set.of(blocked)));
+    }
+
+    @Test
+    void blocks_shouldNotReadTheGraph_whenTheFilterRulesTheBlockOut() {
+        blockCache.rebuildFilter();
+
+        assertFalse(blockCache.blocks(blocked, blocker).await().indefinitely());
+        assertFalse(blockCache.blocks(UUID.randomUUID(), UUID.randomUUID()).await().indefinitely());
+        verify(neo4jRepository, never()).getBlockedIds(any());
+
+        assertTrue(blockCache.blocks(blocker, blocked).await().indefinitely());
+        assertTrue(blockCache.blocks(blocker, blocked).await().indefinitely());
+        verify(neo4jRepository, times(1)).getBlockedIds(any());
+    }
+
+    @Test
+    void publishChanges_shouldUpdateTheFilterAndForgetTheBlockerSet() {
+        blockCache.rebuildFilter();
+        UUID other = UUID.randomUUID();
+        assertFalse(blockCache.blocks(blocker, other).await().indefinitely());
+        assertTrue(blockCache.blocks(blocker, blocked).await().indefinitely());
+
+        when(neo4jRepository.getBlockedIds(any())).thenReturn(Uni.createFrom().item(Set.of(blocked, other)));
+        blockCache.publishChanges(List.of(new RelationEdge(blocker, other))).await().indefinitely();
+
+        assertTrue(blockCache.blocks(blocker, other).await().indefinitely());
+        verify(blockChangePublisher).publishAll(List.of(new RelationEdge(blocker, other)));
+    }
+
+    @Test
+    void retryFilterBuild_shouldBuildTheFilter_whenTheFirstBuildFailed() {
+        when(neo4jRepository.countBlocks())
+                .thenReturn(Uni.createFrom().failure(new IllegalStateException("Neo4j unavailable")), Uni.createFrom().item(1L));
+        blockCache.rebuildFilter();
+        assertFalse(blockCache.blocks(blocked, blocker).await().indefinitely());
+        verify(neo4jRepository, times(1)).getBlockedIds(any());
+
+        blockCache.retryFilterBuild();
+        blockCache.retryFilterBuild();
+
+        assertFalse(blockCache.blocks(blocked, blocker).await().indefinitely());
+        verify(neo4jRepository, times(1)).getBlockedIds(any());
+        verify(neo4jRepository, times(2)).countBlocks();
+    }
+
+    @Test
+    void refreshFilter_shouldPickUpABlockWhoseAnnouncementWasMissed() {
+        blockCache.rebuildFilter();
+        UUID other = UUID.randomUUID();
+        assertFalse(blockCache.blocks(other, blocked).await().indefinitely());
+
+        doAnswer(invocation -> {
+            invocation.<Consumer<RelationEdge>>getArgument(0).accept(new RelationEdge(blocker, blocked));
+            invocation.<Consumer<RelationEdge>>getArgument(0).accept(new RelationEdge(other, blocked));
+            return Uni.createFrom().voidItem();
+        }).when(neo4jRepository).forEachBlock(any());
+        blockCache.refreshFilter();
+
+        assertTrue(blockCache.blocks(other, blocked).await().indefinitely());
+        verify(neo4jRepository, times(2)).forEachBlock(any());
+    }
+}
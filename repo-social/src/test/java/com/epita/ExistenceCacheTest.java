@@ -0,0 +1,62 @@
+package com.epita;
+
+import com.epita.service.ExistenceCache;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.subscription.UniEmitter;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExistenceCacheTest {
+
+    private final ExistenceCache existenceCache = new ExistenceCache();
+
+    @Test
+    void userExists_shouldShareConcurrentLookups_andCacheTheAnswer() {
+        UUID userId = UUID.randomUUID();
+        AtomicInteger lookups = new AtomicInteger();
+        AtomicReference<UniEmitter<? super Boolean>> pending = new AtomicReference<>();
+
+        Uni<Boolean> first = existenceCache.userExists(userId, () -> {
+            lookups.incrementAndGet();
+            return Uni.createFrom().<Boolean>emitter(pending::set);
+        });
+        Uni<Boolean> second = existenceCache.userExists(userId, () -> {
+            lookups.incrementAndGet();
+            return Uni.createFrom().item(false);
+        });
+        AtomicReference<Boolean> firstResult = new AtomicReference<>();
+        AtomicReference<Boolean> secondResult = new AtomicReference<>();
+        first.subscribe().with(firstResult::set);
+        second.subscribe().with(secondResult::set);
+        pending.get().complete(true);
+
+        assertEquals(true, firstResult.get());
+        assertEquals(true, secondResult.get());
+        assertTrue(existenceCache.userExists(userId, () -> {
+            lookups.incrementAndGet();
+            return Uni.createFrom().item(false);
+        }).await().indefinitely());
+        assertEquals(1, lookups.get());
+    }
+
+    @Test
+    void postExists_shouldNotCacheFailedLookups() {
+        UUID postId = UUID.randomUUID();
+        AtomicInteger lookups = new AtomicInteger();
+
+        assertThrows(IllegalStateException.class, () -> existenceCache.postExists(postId, () -> {
+            lookups.incrementAndGet();
+            return Uni.createFrom().failure(new IllegalStateException("repo-post unavailable"));
+        }).await().indefinitely());
+        assertFalse(existenceCache.postExists(postId, () -> {
+            lookups.incrementAndGet();
+            return Uni.createFrom().item(false);
+        }).await().indefinitely());
+        assertEquals(2, lookups.get());
+    }
+}
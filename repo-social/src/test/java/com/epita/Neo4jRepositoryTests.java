@@ -1,10 +1,18 @@
 package com.epita;
 
 import com.epita.repository.Neo4jRepository;
+import com.epita.repository.Neo4jSchemaMigrations;
+import com.epita.repository.entity.BlockResult;
 import com.epita.repository.entity.PostsSocial;
+import com.epita.repository.entity.RelationChanges;
+import com.epita.repository.entity.RelationCursor;
+import com.epita.repository.entity.RelationEdge;
+import com.epita.repository.entity.RelationOutcome;
+import com.epita.repository.entity.RelationPage;
 import com.epita.repository.entity.UsersSocial;
 import jakarta.ws.rs.NotFoundException;
 import org.junit.jupiter.api.Test;
+import org.neo4j.driver.GraphDatabase;
 
 import java.util.List;
 import java.util.UUID;
@@ -13,22 +21,22 @@ import static org.junit.jupiter.api.Assertions.*;
 
 class Neo4jRepositoryTests {
 
-    private Neo4jRepository neo4jRepository = new Neo4jRepository();
+    private Neo4jRepository neo4jRepository = new Neo4jRepository(GraphDatabase.driver("bolt://localhost:7687"), 1000);
 
     @Test
     void testUserExists() {
         // Create a user and add it to the database
         UsersSocial user = new UsersSocial();
         user.setId(UUID.randomUUID());
-        neo4jRepository.addUser(user);
+        neo4jRepository.addUser(user).await().indefinitely();
 
         // Check if the user exists
-        boolean exists = neo4jRepository.userExists(user);
+        boolean exists = neo4jRepository.userExists(user).await().indefinitely();
 
         assertTrue(exists);
 
         // Cleanup
-        neo4jRepository.deleteUser(user);
+        neo4jRepository.deleteUser(user).await().indefinitely();
     }
 
     @Test
@@ -36,19 +44,112 @@ class Neo4jRepositoryTests {
         // Create a post and add it to the database
         PostsSocial post = new PostsSocial();
         post.setId(UUID.randomUUID());
-        neo4jRepository.addPost(post);
+        neo4jRepository.addPost(post).await().indefinitely();
 
         // Check if the post exists
-        boolean exists = neo4jRepository.postExists(post);
+        boolean exists = neo4jRepository.postExists(post).await().indefinitely();
 
         assertTrue(exists);
 
         // Cleanup
-        neo4jRepository.deletePost(post);
+        neo4jRepository.deletePost(post).await().indefinitely();
     }
 
     @Test
-    void testRemoveBlockRelation() {
+    void testFollowAndBlockCommands() {
+        UsersSocial user1 = new UsersSocial();
+        UsersSocial user2 = new UsersSocial();
+
+        // Unknown users are reported, not created
+        assertEquals(RelationOutcome.USER_NOT_FOUND, neo4jRepository.follow(user1, user2).await().indefinitely());
+
+        neo4jRepository.addUser(user1).await().indefinitely();
+        neo4jRepository.addUser(user2).await().indefinitely();
+
+        assertEquals(RelationOutcome.CREATED, neo4jRepository.follow(user1, user2).await().indefinitely());
+        assertEquals(RelationOutcome.UNCHANGED, neo4jRepository.follow(user1, user2).await().indefinitely());
+        assertEquals(1, neo4jRepository.getUserCounts(user1).await().indefinitely().getFollowees());
+        assertEquals(1, neo4jRepository.getUserCounts(user2).await().indefinitely().getFollowers());
+
+        // Blocking removes the follow and reports its follower
+        BlockResult block = neo4jRepository.block(user2, user1).await().indefinitely();
+        assertEquals(RelationOutcome.CREATED, block.getOutcome());
+        assertEquals(List.of(user1.getId()), block.getUnfollowerIds());
+        assertTrue(neo4jRepository.getFollowsOfUser(user1, null, 50).await().indefinitely().getItems().isEmpty());
+        assertEquals(RelationOutcome.BLOCKED, neo4jRepository.follow(user1, user2).await().indefinitely());
+        assertEquals(0, neo4jRepository.getUserCounts(user1).await().indefinitely().getFollowees());
+        assertEquals(0, neo4jRepository.getUserCounts(user2).await().indefinitely().getFollowers());
+
+        assertEquals(RelationOutcome.REMOVED, neo4jRepository.unblock(user2, user1).await().indefinitely());
+        assertEquals(RelationOutcome.NOT_FOUND, neo4jRepository.unblock(user2, user1).await().indefinitely());
+
+        // Cleanup
+        neo4jRepository.deleteUser(user1).await().indefinitely();
+        neo4jRepository.deleteUser(user2).await().indefinitely();
+    }
+
+    @Test
+    void testBulkFollowAndBlock() {
+        UsersSocial user1 = new UsersSocial();
+        UsersSocial user2 = new UsersSocial();
+        UsersSocial user3 = new UsersSocial();
+        List<RelationEdge> follows = List.of(
+                new RelationEdge(user1.getId(), user2.getId()),
+                new RelationEdge(user2.getId(), user1.getId()),
+                new RelationEdge(user1.getId(), user3.getId()));
+
+        // Edges of unknown users are skipped, existing follows are not created twice
+        assertEquals(0, neo4jRepository.followAll(follows).await().indefinitely().getCreated().size());
+        for (UsersSocial user : List.of(user1, user2, user3)) {
+            neo4jRepository.addUser(user).await().indefinitely();
+        }
+        assertEquals(3, neo4jRepository.followAll(follows).await().indefinitely().getCreated().size());
+        assertEquals(0, neo4jRepository.followAll(follows).await().indefinitely().getCreated().size());
+
+        RelationChanges blocks = neo4jRepository.blockAll(List.of(new RelationEdge(user1.getId(), user2.getId()))).await().indefinitely();
+        assertEquals(1, blocks.getCreated().size());
+        assertEquals(2, blocks.getRemovedFollows().size());
+        assertEquals(List.of(user3.getId()), neo4jRepository.getFollowsOfUser(user1, null, 50).await().indefinitely().getItems().stream().map(UsersSocial::getId).toList());
+        assertEquals(1, neo4jRepository.getUserCounts(user1).await().indefinitely().getFollowees());
+        assertEquals(0, neo4jRepository.getUserCounts(user1).await().indefinitely().getFollowers());
+        assertEquals(1, neo4jRepository.getUserCounts(user3).await().indefinitely().getFollowers());
+
+        // Cleanup
+        neo4jRepository.deleteUser(user1).await().indefinitely();
+        neo4jRepository.deleteUser(user2).await().indefinitely();
+        neo4jRepository.deleteUser(user3).await().indefinitely();
+    }
+
+    @Test
+    void testBulkBlockOfReversePairs() {
+        UsersSocial user1 = new UsersSocial();
+        UsersSocial user2 = new UsersSocial();
+        neo4jRepository.addUser(user1).await().indefinitely();
+        neo4jRepository.addUser(user2).await().indefinitely();
+        neo4jRepository.followAll(List.of(
+                new RelationEdge(user1.getId(), user2.getId()),
+                new RelationEdge(user2.getId(), user1.getId()))).await().indefinitely();
+
+        // Both users block each other in the same chunk: each follow is removed once
+        RelationChanges blocks = neo4jRepository.blockAll(List.of(
+                new RelationEdge(user1.getId(), user2.getId()),
+                new RelationEdge(user2.getId(), user1.getId()))).await().indefinitely();
+        assertEquals(2, blocks.getCreated().size());
+        assertEquals(2, blocks.getRemovedFollows().size());
+        assertEquals(2, blocks.getRemovedFollows().stream().distinct().count());
+        for (UsersSocial user : List.of(user1, user2)) {
+            assertTrue(neo4jRepository.getFollowsOfUser(user, null, 50).await().indefinitely().getItems().isEmpty());
+            assertEquals(0, neo4jRepository.getUserCounts(user).await().indefinitely().getFollowees());
+            assertEquals(0, neo4jRepository.getUserCounts(user).await().indefinitely().getFollowers());
+        }
+
+        // Cleanup
+        neo4jRepository.deleteUser(user1).await().indefinitely();
+        neo4jRepository.deleteUser(user2).await().indefinitely();
+    }
+
+    @Test
+    void testUnblock() {
         // Create two users
         UsersSocial user1 = new UsersSocial();
         user1.setId(UUID.randomUUID());
@@ -56,49 +157,49 @@ class Neo4jRepositoryTests {
         user2.setId(UUID.randomUUID());
 
         // Add users to the database
-        neo4jRepository.addUser(user1);
-        neo4jRepository.addUser(user2);
+        neo4jRepository.addUser(user1).await().indefinitely();
+        neo4jRepository.addUser(user2).await().indefinitely();
 
         // Create a block relation
-        neo4jRepository.createBlockRelation(user1, user2);
+        neo4jRepository.block(user1, user2).await().indefinitely();
 
         // Remove the block relation
-        boolean removed = neo4jRepository.removeBlockRelation(user1, user2);
-
-        assertTrue(removed);
+        assertEquals(RelationOutcome.REMOVED, neo4jRepository.unblock(user1, user2).await().indefinitely());
+        assertFalse(neo4jRepository.getBlockStatus(user1, user2).await().indefinitely().isBlocks());
 
         // Cleanup
-        neo4jRepository.deleteUser(user1);
-        neo4jRepository.deleteUser(user2);
+        neo4jRepository.deleteUser(user1).await().indefinitely();
+        neo4jRepository.deleteUser(user2).await().indefinitely();
     }
 
     @Test
-    void testRemoveLikeRelation() {
+    void testUnlike() {
         // Create a user and a post
         UsersSocial user = new UsersSocial();
         user.setId(UUID.randomUUID());
         PostsSocial post = new PostsSocial();
         post.setId(UUID.randomUUID());
+        post.setAuthorId(user.getId());
 
         // Add user and post to the database
-        neo4jRepository.addUser(user);
-        neo4jRepository.addPost(post);
+        neo4jRepository.addUser(user).await().indefinitely();
+        neo4jRepository.upsertPost(post).await().indefinitely();
 
         // Create a like relation
-        neo4jRepository.createLikeRelation(user, post);
+        neo4jRepository.like(user, post).await().indefinitely();
 
         // Remove the like relation
-        boolean removed = neo4jRepository.removeLikeRelation(user, post);
-
-        assertTrue(removed);
+        assertEquals(RelationOutcome.REMOVED, neo4jRepository.unlike(user, post).await().indefinitely());
+        assertEquals(RelationOutcome.NOT_FOUND, neo4jRepository.unlike(user, post).await().indefinitely());
+        assertEquals(0, neo4jRepository.getPostCounts(post).await().indefinitely().getLikes());
 
         // Cleanup
-        neo4jRepository.deleteUser(user);
-        neo4jRepository.deletePost(post);
+        neo4jRepository.deleteUser(user).await().indefinitely();
+        neo4jRepository.deletePost(post).await().indefinitely();
     }
 
     @Test
-    void testBlockRelationExists() {
+    void testBlock() {
         // Create two users
         UsersSocial user1 = new UsersSocial();
         user1.setId(UUID.randomUUID());
@@ -106,77 +207,80 @@ class Neo4jRepositoryTests {
         user2.setId(UUID.randomUUID());
 
         // Add users to the database
-        neo4jRepository.addUser(user1);
-        neo4jRepository.addUser(user2);
+        neo4jRepository.addUser(user1).await().indefinitely();
+        neo4jRepository.addUser(user2).await().indefinitely();
 
-        // Create a block relation
-        neo4jRepository.createBlockRelation(user1, user2);
+        // Create a block relation, only once
+        assertEquals(RelationOutcome.CREATED, neo4jRepository.block(user1, user2).await().indefinitely().getOutcome());
+        assertEquals(RelationOutcome.UNCHANGED, neo4jRepository.block(user1, user2).await().indefinitely().getOutcome());
 
         // Check if block relation exists
-        boolean exists = neo4jRepository.blockRelationExists(user1, user2);
-
-        assertTrue(exists);
+        assertTrue(neo4jRepository.getBlockStatus(user1, user2).await().indefinitely().isBlocks());
+        assertEquals(1, neo4jRepository.getBlockedOfUser(user1, null, 50).await().indefinitely().getItems().size());
 
         // Cleanup
-        neo4jRepository.deleteUser(user1);
-        neo4jRepository.deleteUser(user2);
+        neo4jRepository.deleteUser(user1).await().indefinitely();
+        neo4jRepository.deleteUser(user2).await().indefinitely();
     }
 
     @Test
-    void testLikeRelationExists() {
+    void testLike() {
         // Create a user and a post
         UsersSocial user = new UsersSocial();
         user.setId(UUID.randomUUID());
         PostsSocial post = new PostsSocial();
         post.setId(UUID.randomUUID());
+        post.setAuthorId(user.getId());
 
-        // Add user and post to the database
-        neo4jRepository.addUser(user);
-        neo4jRepository.addPost(post);
+        // Posts not provisioned yet cannot be liked
+        neo4jRepository.addUser(user).await().indefinitely();
+        assertEquals(RelationOutcome.POST_NOT_FOUND, neo4jRepository.like(user, post).await().indefinitely());
 
-        // Create a like relation
-        neo4jRepository.createLikeRelation(user, post);
+        // Create a like relation, only once
+        neo4jRepository.upsertPost(post).await().indefinitely();
+        assertEquals(RelationOutcome.CREATED, neo4jRepository.like(user, post).await().indefinitely());
+        assertEquals(RelationOutcome.UNCHANGED, neo4jRepository.like(user, post).await().indefinitely());
 
         // Check if like relation exists
-        boolean exists = neo4jRepository.likeRelationExists(user, post);
-
-        assertTrue(exists);
+        assertEquals(1, neo4jRepository.getPostCounts(post).await().indefinitely().getLikes());
+        assertEquals(List.of(post.getId()), neo4jRepository.getLikedPostsOfUser(user, null, 50).await().indefinitely().getItems().stream().map(PostsSocial::getId).toList());
 
         // Cleanup
-        neo4jRepository.deleteUser(user);
-        neo4jRepository.deletePost(post);
+        neo4jRepository.deleteUser(user).await().indefinitely();
+        neo4jRepository.deletePost(post).await().indefinitely();
     }
 
     @Test
     void testGetAllLikersFromPost() {
         // Create a post
-        PostsSocial post = new PostsSocial();
-        post.setId(UUID.randomUUID());
-        neo4jRepository.addPost(post);
-
         // Create two users who like the post
         UsersSocial liker1 = new UsersSocial();
         liker1.setId(UUID.randomUUID());
         UsersSocial liker2 = new UsersSocial();
         liker2.setId(UUID.randomUUID());
 
-        neo4jRepository.addUser(liker1);
-        neo4jRepository.addUser(liker2);
+        neo4jRepository.addUser(liker1).await().indefinitely();
+        neo4jRepository.addUser(liker2).await().indefinitely();
+
+        PostsSocial post = new PostsSocial();
+        post.setId(UUID.randomUUID());
+        post.setAuthorId(liker1.getId());
+        neo4jRepository.upsertPost(post).await().indefinitely();
 
         // Create like relations
-        neo4jRepository.createLikeRelation(liker1, post);
-        neo4jRepository.createLikeRelation(liker2, post);
+        neo4jRepository.like(liker1, post).await().indefinitely();
+        neo4jRepository.like(liker2, post).await().indefinitely();
 
         // Get all likers of the post
-        List<UsersSocial> likers = neo4jRepository.getAllLikersFromPost(post);
+        List<UsersSocial> likers = neo4jRepository.getLikersOfPost(post, null, 50).await().indefinitely().getItems();
 
         assertNotNull(likers);
         assertEquals(2, likers.size());
 
         // Cleanup
-        neo4jRepository.deleteUser(liker1);
-        neo4jRepository.deleteUser(liker2);
-        neo4jRepository.deletePost(post);
+        neo4jRepository.deleteUser(liker1).await().indefinitely();
+        neo4jRepository.deleteUser(liker2).await().indefinitely();
+        neo4jRepository.deletePost(post).await().indefinitely();
     }
 
     @Test
@@ -184,7 +288,7 @@ class Neo4jRepositoryTests {
         // Create a user
         UsersSocial user = new UsersSocial();
         user.setId(UUID.randomUUID());
-        neo4jRepository.addUser(user);
+        neo4jRepository.addUser(user).await().indefinitely();
 
         // Create two users to be followed
         UsersSocial followed1 = new UsersSocial();
@@ -192,23 +296,35 @@ class Neo4jRepositoryTests {
         UsersSocial followed2 = new UsersSocial();
         followed2.setId(UUID.randomUUID());
 
-        neo4jRepository.addUser(followed1);
-        neo4jRepository.addUser(followed2);
+        neo4jRepository.addUser(followed1).await().indefinitely();
+        neo4jRepository.addUser(followed2).await().indefinitely();
 
         // Create follow relations
-        neo4jRepository.createFollowRelation(user, followed1);
-        neo4jRepository.createFollowRelation(user, followed2);
+        neo4jRepository.follow(user, followed1).await().indefinitely();
+        neo4jRepository.follow(user, followed2).await().indefinitely();
 
         // Get all users followed by user
-        List<UsersSocial> follows = neo4jRepository.getAllFollowsOfUser(user);
+        List<UsersSocial> follows = neo4jRepository.getFollowsOfUser(user, null, 50).await().indefinitely().getItems();
 
         assertNotNull(follows);
         assertEquals(2, follows.size());
 
+        // Page through the follows one at a time
+        RelationPage<UsersSocial> firstPage = neo4jRepository.getFollowsOfUser(user, null, 1).await().indefinitely();
+        assertEquals(1, firstPage.getItems().size());
+        assertNotNull(firstPage.getNextCursor());
+        RelationPage<UsersSocial> secondPage = neo4jRepository
+                .getFollowsOfUser(user, RelationCursor.decode(firstPage.getNextCursor()), 1)
+                .await()
+                .indefinitely();
+        assertEquals(1, secondPage.getItems().size());
+        assertNull(secondPage.getNextCursor());
+        assertNotEquals(firstPage.getItems().get(0).getId(), secondPage.getItems().get(0).getId());
+
         // Cleanup
-        neo4jRepository.deleteUser(user);
-        neo4jRepository.deleteUser(followed1);
-        neo4jRepository.deleteUser(followed2);
+        neo4jRepository.deleteUser(user).await().indefinitely();
+        neo4jRepository.deleteUser(followed1).await().indefinitely();
+        neo4jRepository.deleteUser(followed2).await().indefinitely();
     }
 
     @Test
@@ -216,7 +332,7 @@ class Neo4jRepositoryTests {
         // Create a user
         UsersSocial user = new UsersSocial();
         user.setId(UUID.randomUUID());
-        neo4jRepository.addUser(user);
+        neo4jRepository.addUser(user).await().indefinitely();
 
         // Create two users to be blocked
         UsersSocial blocked1 = new UsersSocial();
@@ -224,23 +340,23 @@ class Neo4jRepositoryTests {
         UsersSocial blocked2 = new UsersSocial();
         blocked2.setId(UUID.randomUUID());
 
-        neo4jRepository.addUser(blocked1);
-        neo4jRepository.addUser(blocked2);
+        neo4jRepository.addUser(blocked1).await().indefinitely();
+        neo4jRepository.addUser(blocked2).await().indefinitely();
 
         // Create block relations
-        neo4jRepository.createBlockRelation(user, blocked1);
-        neo4jRepository.createBlockRelation(user, blocked2);
+        neo4jRepository.block(user, blocked1).await().indefinitely();
+        neo4jRepository.block(user, blocked2).await().indefinitely();
 
         // Get all users blocked by user
-        List<UsersSocial> blockedUsers = neo4jRepository.getAllBlockedOfUser(user);
+        List<UsersSocial> blockedUsers = neo4jRepository.getBlockedOfUser(user, null, 50).await().indefinitely().getItems();
 
         assertNotNull(blockedUsers);
         assertEquals(2, blockedUsers.size());
 
         // Cleanup
-        neo4jRepository.deleteUser(user);
-        neo4jRepository.deleteUser(blocked1);
-        neo4jRepository.deleteUser(blocked2);
+        neo4jRepository.deleteUser(user).await().indefinitely();
+        neo4jRepository.deleteUser(blocked1).await().indefinitely();
+        neo4jRepository.deleteUser(blocked2).await().indefinitely();
     }
 
     @Test
@@ -248,31 +364,33 @@ class Neo4jRepositoryTests {
         // Create a user
         UsersSocial user = new UsersSocial();
         user.setId(UUID.randomUUID());
-        neo4jRepository.addUser(user);
+        neo4jRepository.addUser(user).await().indefinitely();
 
         // Create two posts to be liked
         PostsSocial post1 = new PostsSocial();
         post1.setId(UUID.randomUUID());
+        post1.setAuthorId(user.getId());
         PostsSocial post2 = new PostsSocial();
         post2.setId(UUID.randomUUID());
+        post2.setAuthorId(user.getId());
 
-        neo4jRepository.addPost(post1);
-        neo4jRepository.addPost(post2);
+        neo4jRepository.upsertPost(post1).await().indefinitely();
+        neo4jRepository.upsertPost(post2).await().indefinitely();
 
         // Create like relations
-        neo4jRepository.createLikeRelation(user, post1);
-        neo4jRepository.createLikeRelation(user, post2);
+        neo4jRepository.like(user, post1).await().indefinitely();
+        neo4jRepository.like(user, post2).await().indefinitely();
 
         // Get all posts liked by user
-        List<PostsSocial> likedPosts = neo4jRepository.getAllLikedPost(user);
+        List<PostsSocial> likedPosts = neo4jRepository.getLikedPostsOfUser(user, null, 50).await().indefinitely().getItems();
 
         assertNotNull(likedPosts);
         assertEquals(2, likedPosts.size());
 
         // Cleanup
-        neo4jRepository.deleteUser(user);
-        neo4jRepository.deletePost(post1);
-        neo4jRepository.deletePost(post2);
+        neo4jRepository.deleteUser(user).await().indefinitely();
+        neo4jRepository.deletePost(post1).await().indefinitely();
+        neo4jRepository.deletePost(post2).await().indefinitely();
     }
 
     @Test
@@ -283,7 +401,7 @@ class Neo4jRepositoryTests {
 
         // Try to delete the non-existent user
         assertThrows(NotFoundException.class, () -> {
-            neo4jRepository.deleteUser(user);
+            neo4jRepository.deleteUser(user).await().indefinitely();
         });
     }
 
@@ -295,7 +413,7 @@ class Neo4jRepositoryTests {
 
         // Try to delete the non-existent post
         assertThrows(NotFoundException.class, () -> {
-            neo4jRepository.deletePost(post);
+            neo4jRepository.deletePost(post).await().indefinitely();
         });
     }
 
@@ -306,7 +424,7 @@ class Neo4jRepositoryTests {
         user.setId(UUID.randomUUID());
 
         // Check if the user exists
-        boolean exists = neo4jRepository.userExists(user);
+        boolean exists = neo4jRepository.userExists(user).await().indefinitely();
 
         assertFalse(exists);
     }
@@ -318,8 +436,18 @@ class Neo4jRepositoryTests {
         post.setId(UUID.randomUUID());
 
         // Check if the post exists
-        boolean exists = neo4jRepository.postExists(post);
+        boolean exists = neo4jRepository.postExists(post).await().indefinitely();
 
         assertFalse(exists);
     }
-}
\ No newline at end of file
+
+    @Test
+    void testEveryQueryUsesAnIndexSeek() {
+        // Applies the schema migrations, then explains every repository query
+        Neo4jSchemaMigrations schemaMigrations = new Neo4jSchemaMigrations(GraphDatabase.driver("bolt://localhost:7687"));
+
+        List<String> unindexed = schemaMigrations.findQueriesWithoutIndexSeek();
+
+        assertTrue(unindexed.isEmpty(), "Queries without index seek: " + unindexed);
+    }
+}
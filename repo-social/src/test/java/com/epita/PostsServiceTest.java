@@ -5,14 +5,18 @@ import com.epita.repository.Neo4jRepository;
 import com.epita.repository.RepoPostRestClient;
 import com.epita.repository.entity.LikeEvent;
 import com.epita.repository.entity.PostsSocial;
+import com.epita.repository.entity.RelationOutcome;
+import com.epita.repository.entity.RelationPage;
 import com.epita.repository.entity.RepoPostResponse;
 import com.epita.repository.entity.UsersSocial;
+import com.epita.service.ExistenceCache;
 import com.epita.service.PostsService;
 import com.epita.service.UsersService;
 import jakarta.ws.rs.NotFoundException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import io.smallrye.mutiny.Uni;
 import java.util.List;
 import java.util.UUID;
 
@@ -39,6 +43,10 @@ class PostsServiceTest {
         postsService.neo4jRepository = neo4jRepository;
         postsService.likeEventPublisher = likeEventPublisher;
         postsService.repoPostRestClient = repoPostRestClient;
+        postsService.existenceCache = new ExistenceCache();
+
+        when(likeEventPublisher.publish(any())).thenReturn(Uni.createFrom().voidItem());
+        when(neo4jRepository.addPost(any())).thenAnswer(invocation -> Uni.createFrom().item(invocation.<PostsSocial>getArgument(0)));
     }
 
     @Test
@@ -47,27 +55,58 @@ class PostsServiceTest {
         UUID postId = UUID.randomUUID();
 
         // Configure mocks for post not existing
-        when(neo4jRepository.postExists(any(PostsSocial.class))).thenReturn(false);
-        when(repoPostRestClient.getPostById(any(UUID.class))).thenReturn(null);
+        when(neo4jRepository.like(any(UsersSocial.class), any(PostsSocial.class))).thenReturn(Uni.createFrom().item(RelationOutcome.POST_NOT_FOUND));
+        when(repoPostRestClient.getPostById(any(UUID.class))).thenReturn(Uni.createFrom().nullItem());
 
         // Execute and verify exception
-        assertThrows(NotFoundException.class, () -> postsService.likePost(userId, postId));
+        assertThrows(NotFoundException.class, () -> postsService.likePost(userId, postId).await().indefinitely());
 
         // Verify interactions
-        verify(neo4jRepository, never()).createLikeRelation(any(UsersSocial.class), any(PostsSocial.class));
+        verify(neo4jRepository, never()).upsertPost(any(PostsSocial.class));
         verify(likeEventPublisher, never()).publish(any(LikeEvent.class));
     }
 
+    @Test
+    void likePost_shouldNotCallRepoPost_whenPostIsProvisioned() {
+        UUID userId = UUID.randomUUID();
+        UUID postId = UUID.randomUUID();
+
+        when(neo4jRepository.like(any(UsersSocial.class), any(PostsSocial.class))).thenReturn(Uni.createFrom().item(RelationOutcome.CREATED));
+
+        postsService.likePost(userId, postId).await().indefinitely();
+
+        verify(repoPostRestClient, never()).getPostById(any(UUID.class));
+        verify(likeEventPublisher).publish(any(LikeEvent.class));
+    }
+
+    @Test
+    void likePost_shouldProvisionPostWithAuthor_whenMissingFromGraph() {
+        UUID userId = UUID.randomUUID();
+        UUID postId = UUID.randomUUID();
+        UUID authorId = UUID.randomUUID();
+
+        when(neo4jRepository.like(any(UsersSocial.class), any(PostsSocial.class)))
+                .thenReturn(Uni.createFrom().item(RelationOutcome.POST_NOT_FOUND), Uni.createFrom().item(RelationOutcome.CREATED));
+        when(repoPostRestClient.getPostById(postId)).thenReturn(Uni.createFrom().item(new RepoPostResponse(postId, authorId, "text", null, null, null, null)));
+        when(neo4jRepository.upsertPost(any(PostsSocial.class))).thenAnswer(invocation -> Uni.createFrom().item(invocation.<PostsSocial>getArgument(0)));
+
+        postsService.likePost(userId, postId).await().indefinitely();
+
+        verify(neo4jRepository).upsertPost(argThat(post -> post.getId().equals(postId) && post.getAuthorId().equals(authorId)));
+        verify(neo4jRepository, times(2)).like(any(UsersSocial.class), any(PostsSocial.class));
+        verify(likeEventPublisher).publish(any(LikeEvent.class));
+    }
+
     @Test
     void likePost_shouldThrowIllegalArgumentException_whenParamsAreNull() {
         // Test null userId
-        assertThrows(IllegalArgumentException.class, () -> postsService.likePost(null, UUID.randomUUID()));
+        assertThrows(IllegalArgumentException.class, () -> postsService.likePost(null, UUID.randomUUID()).await().indefinitely());
 
         // Test null postId
-        assertThrows(IllegalArgumentException.class, () -> postsService.likePost(UUID.randomUUID(), null));
+        assertThrows(IllegalArgumentException.class, () -> postsService.likePost(UUID.randomUUID(), null).await().indefinitely());
 
         // Test both null
-        assertThrows(IllegalArgumentException.class, () -> postsService.likePost(null, null));
+        assertThrows(IllegalArgumentException.class, () -> postsService.likePost(null, null).await().indefinitely());
 
         // Verify no interactions with dependencies
         verifyNoInteractions(neo4jRepository, likeEventPublisher, usersService);
@@ -79,13 +118,13 @@ class PostsServiceTest {
         UUID postId = UUID.randomUUID();
 
         // Configure mocks
-        when(neo4jRepository.likeRelationExists(any(UsersSocial.class), any(PostsSocial.class))).thenReturn(true);
+        when(neo4jRepository.unlike(any(UsersSocial.class), any(PostsSocial.class))).thenReturn(Uni.createFrom().item(RelationOutcome.REMOVED));
 
         // Execute the method
-        postsService.unlikePost(userId, postId);
+        postsService.unlikePost(userId, postId).await().indefinitely();
 
         // Verify interactions
-        verify(neo4jRepository).removeLikeRelation(any(UsersSocial.class), any(PostsSocial.class));
+        verify(neo4jRepository).unlike(any(UsersSocial.class), any(PostsSocial.class));
         verify(likeEventPublisher).publish(any(LikeEvent.class));
     }
 
@@ -95,26 +134,25 @@ class PostsServiceTest {
         UUID postId = UUID.randomUUID();
 
         // Configure mocks
-        when(neo4jRepository.likeRelationExists(any(UsersSocial.class), any(PostsSocial.class))).thenReturn(false);
+        when(neo4jRepository.unlike(any(UsersSocial.class), any(PostsSocial.class))).thenReturn(Uni.createFrom().item(RelationOutcome.NOT_FOUND));
 
         // Execute and verify exception
-        assertThrows(NotFoundException.class, () -> postsService.unlikePost(userId, postId));
+        assertThrows(NotFoundException.class, () -> postsService.unlikePost(userId, postId).await().indefinitely());
 
-        // Verify no removal or publish happens
-        verify(neo4jRepository, never()).removeLikeRelation(any(UsersSocial.class), any(PostsSocial.class));
+        // Verify no publish happens
         verify(likeEventPublisher, never()).publish(any(LikeEvent.class));
     }
 
     @Test
     void unlikePost_shouldThrowIllegalArgumentException_whenParamsAreNull() {
         // Test null userId
-        assertThrows(IllegalArgumentException.class, () -> postsService.unlikePost(null, UUID.randomUUID()));
+        assertThrows(IllegalArgumentException.class, () -> postsService.unlikePost(null, UUID.randomUUID()).await().indefinitely());
 
         // Test null postId
-        assertThrows(IllegalArgumentException.class, () -> postsService.unlikePost(UUID.randomUUID(), null));
+        assertThrows(IllegalArgumentException.class, () -> postsService.unlikePost(UUID.randomUUID(), null).await().indefinitely());
 
         // Test both null
-        assertThrows(IllegalArgumentException.class, () -> postsService.unlikePost(null, null));
+        assertThrows(IllegalArgumentException.class, () -> postsService.unlikePost(null, null).await().indefinitely());
 
         // Verify no interactions with dependencies
         verifyNoInteractions(neo4jRepository, likeEventPublisher);
@@ -125,15 +163,15 @@ class PostsServiceTest {
         UUID postId = UUID.randomUUID();
 
         // Configure mocks
-        when(neo4jRepository.postExists(any(PostsSocial.class))).thenReturn(true);
-        when(neo4jRepository.getAllLikersFromPost(any(PostsSocial.class))).thenReturn(List.of(new UsersSocial()));
+        when(neo4jRepository.postExists(any(PostsSocial.class))).thenReturn(Uni.createFrom().item(true));
+        when(neo4jRepository.getLikersOfPost(any(PostsSocial.class), any(), anyInt())).thenReturn(Uni.createFrom().item(new RelationPage<>(List.of(new UsersSocial()), null)));
 
         // Execute the method
-        List<UsersSocial> result = postsService.getLikesOfPostId(postId);
+        RelationPage<UsersSocial> result = postsService.getLikesOfPostId(postId, null, 50).await().indefinitely();
 
         // Verify result and interactions
-        assertFalse(result.isEmpty());
-        verify(neo4jRepository).getAllLikersFromPost(any(PostsSocial.class));
+        assertFalse(result.getItems().isEmpty());
+        verify(neo4jRepository).getLikersOfPost(any(PostsSocial.class), any(), anyInt());
     }
 
     @Test
@@ -141,14 +179,14 @@ class PostsServiceTest {
         UUID postId = UUID.randomUUID();
 
         // Configure mocks for post not existing
-        when(neo4jRepository.postExists(any(PostsSocial.class))).thenReturn(false);
-        when(repoPostRestClient.getPostById(any(UUID.class))).thenReturn(null);
+        when(neo4jRepository.postExists(any(PostsSocial.class))).thenReturn(Uni.createFrom().item(false));
+        when(repoPostRestClient.getPostById(any(UUID.class))).thenReturn(Uni.createFrom().nullItem());
 
         // Execute and verify exception
-        assertThrows(NotFoundException.class, () -> postsService.getLikesOfPostId(postId));
+        assertThrows(NotFoundException.class, () -> postsService.getLikesOfPostId(postId, null, 50).await().indefinitely());
 
         // Verify interactions
-        verify(neo4jRepository, never()).getAllLikersFromPost(any(PostsSocial.class));
+        verify(neo4jRepository, never()).getLikersOfPost(any(PostsSocial.class), any(), anyInt());
     }
 
     @Test
@@ -156,10 +194,10 @@ class PostsServiceTest {
         PostsSocial post = new PostsSocial(UUID.randomUUID());
 
         // Configure mocks
-        when(neo4jRepository.postExists(any(PostsSocial.class))).thenReturn(true);
+        when(neo4jRepository.postExists(any(PostsSocial.class))).thenReturn(Uni.createFrom().item(true));
 
         // Execute and verify
-        assertTrue(postsService.postExistVerify(post));
+        assertTrue(postsService.postExistVerify(post).await().indefinitely());
 
         // Verify no call to client
         verify(repoPostRestClient, never()).getPostById(any(UUID.class));
@@ -168,17 +206,19 @@ class PostsServiceTest {
     @Test
     void postExistVerify_shouldReturnTrue_whenPostExistsInRestClient() {
         PostsSocial post = new PostsSocial(UUID.randomUUID());
-        RepoPostResponse response = new RepoPostResponse();
+        UUID authorId = UUID.randomUUID();
+        RepoPostResponse response = new RepoPostResponse(post.getId(), authorId, "text", null, null, null, null);
 
         // Configure mocks
-        when(neo4jRepository.postExists(any(PostsSocial.class))).thenReturn(false);
-        when(repoPostRestClient.getPostById(any(UUID.class))).thenReturn(response);
+        when(neo4jRepository.postExists(any(PostsSocial.class))).thenReturn(Uni.createFrom().item(false));
+        when(repoPostRestClient.getPostById(any(UUID.class))).thenReturn(Uni.createFrom().item(response));
+        when(neo4jRepository.upsertPost(any(PostsSocial.class))).thenAnswer(invocation -> Uni.createFrom().item(invocation.<PostsSocial>getArgument(0)));
 
         // Execute and verify
-        assertTrue(postsService.postExistVerify(post));
+        assertTrue(postsService.postExistVerify(post).await().indefinitely());
 
-        // Verify post is added to Neo4j
-        verify(neo4jRepository).addPost(post);
+        // Verify post is added to Neo4j with its author
+        verify(neo4jRepository).upsertPost(argThat(added -> added.getId().equals(post.getId()) && added.getAuthorId().equals(authorId)));
     }
 
     @Test
@@ -186,13 +226,13 @@ class PostsServiceTest {
         PostsSocial post = new PostsSocial(UUID.randomUUID());
 
         // Configure mocks
-        when(neo4jRepository.postExists(any(PostsSocial.class))).thenReturn(false);
-        when(repoPostRestClient.getPostById(any(UUID.class))).thenReturn(null);
+        when(neo4jRepository.postExists(any(PostsSocial.class))).thenReturn(Uni.createFrom().item(false));
+        when(repoPostRestClient.getPostById(any(UUID.class))).thenReturn(Uni.createFrom().nullItem());
 
         // Execute and verify
-        assertFalse(postsService.postExistVerify(post));
+        assertFalse(postsService.postExistVerify(post).await().indefinitely());
 
         // Verify post is not added to Neo4j
-        verify(neo4jRepository, never()).addPost(any(PostsSocial.class));
+        verify(neo4jRepository, never()).upsertPost(any(PostsSocial.class));
     }
 }
\ No newline at end of file
@@ -3,15 +3,25 @@ package com.epita;
 import com.epita.repository.FollowEventPublisher;
 import com.epita.repository.Neo4jRepository;
 import com.epita.repository.RepoPostRestClient;
+import com.epita.repository.entity.BlockResult;
 import com.epita.repository.entity.FollowEvent;
 import com.epita.repository.entity.PostsSocial;
+import com.epita.repository.entity.RelationOutcome;
+import com.epita.repository.entity.RelationEdge;
+import com.epita.repository.entity.RelationPage;
+import com.epita.repository.entity.RelationState;
+import com.epita.repository.entity.RepoPostUserResponse;
+import com.epita.repository.entity.UserCounts;
 import com.epita.repository.entity.UsersSocial;
+import com.epita.service.BlockCache;
+import com.epita.service.ExistenceCache;
 import com.epita.service.UsersService;
 import jakarta.ws.rs.ForbiddenException;
 import jakarta.ws.rs.NotFoundException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import io.smallrye.mutiny.Uni;
 import java.util.List;
 import java.util.UUID;
 
@@ -24,17 +34,26 @@ class UsersServiceTests {
     private Neo4jRepository neo4jRepository;
     private FollowEventPublisher followEventPublisher;
     private RepoPostRestClient repoPostRestClient;
+    private BlockCache blockCache;
 
     @BeforeEach
     void setUp() {
         neo4jRepository = mock(Neo4jRepository.class);
         followEventPublisher = mock(FollowEventPublisher.class);
         repoPostRestClient = mock(RepoPostRestClient.class);
+        blockCache = mock(BlockCache.class);
 
         usersService = new UsersService();
         usersService.neo4jRepository = neo4jRepository;
         usersService.followEventPublisher = followEventPublisher;
         usersService.repoPostRestClient = repoPostRestClient;
+        usersService.existenceCache = new ExistenceCache();
+        usersService.blockCache = blockCache;
+
+        when(followEventPublisher.publish(any())).thenReturn(Uni.createFrom().voidItem());
+        when(followEventPublisher.publishAll(any())).thenReturn(Uni.createFrom().voidItem());
+        when(blockCache.publishChanges(any())).thenReturn(Uni.createFrom().voidItem());
+        when(neo4jRepository.addUser(any())).thenAnswer(invocation -> Uni.createFrom().item(invocation.<UsersSocial>getArgument(0)));
     }
 
     @Test
@@ -42,34 +61,49 @@ class UsersServiceTests {
         UUID followerId = UUID.randomUUID();
         UUID followeeId = UUID.randomUUID();
 
-        when(neo4jRepository.userExists(any(UsersSocial.class))).thenReturn(true);
-        when(neo4jRepository.blockRelationExists(any(), any())).thenReturn(false);
-        when(neo4jRepository.followRelationExists(any(), any())).thenReturn(false);
-
+        when(neo4jRepository.follow(any(), any())).thenReturn(Uni.createFrom().item(RelationOutcome.CREATED));
 
-        usersService.followUser(followerId, followeeId);
+        usersService.followUser(followerId, followeeId).await().indefinitely();
 
-        verify(neo4jRepository).createFollowRelation(any(), any());
+        verify(neo4jRepository).follow(any(), any());
         verify(followEventPublisher).publish(any(FollowEvent.class));
     }
 
     @Test
     void followUser_shouldThrowNotFound_ifUserDoesNotExist() {
-        when(repoPostRestClient.getUserById(any(UUID.class))).thenReturn(null);
-        when(neo4jRepository.userExists(any(UsersSocial.class))).thenReturn(false);
-
+        when(neo4jRepository.follow(any(), any())).thenReturn(Uni.createFrom().item(RelationOutcome.USER_NOT_FOUND));
+        when(repoPostRestClient.getUserById(any(UUID.class))).thenReturn(Uni.createFrom().nullItem());
+        when(neo4jRepository.userExists(any(UsersSocial.class))).thenReturn(Uni.createFrom().item(false));
 
         assertThrows(NotFoundException.class,
-                () -> usersService.followUser(UUID.randomUUID(), UUID.randomUUID()));
+                () -> usersService.followUser(UUID.randomUUID(), UUID.randomUUID()).await().indefinitely());
+
+        verify(neo4jRepository).follow(any(), any());
+        verify(followEventPublisher, never()).publish(any(FollowEvent.class));
+    }
+
+    @Test
+    void followUser_shouldAddMissingUsersAndRetry() {
+        when(neo4jRepository.follow(any(), any())).thenReturn(Uni.createFrom().item(RelationOutcome.USER_NOT_FOUND),
+                Uni.createFrom().item(RelationOutcome.CREATED));
+        when(neo4jRepository.userExists(any(UsersSocial.class))).thenReturn(Uni.createFrom().item(false));
+        when(repoPostRestClient.getUserById(any(UUID.class))).thenReturn(Uni.createFrom().item(new RepoPostUserResponse()));
+
+        usersService.followUser(UUID.randomUUID(), UUID.randomUUID()).await().indefinitely();
+
+        verify(neo4jRepository, times(2)).addUser(any());
+        verify(neo4jRepository, times(2)).follow(any(), any());
+        verify(followEventPublisher).publish(any(FollowEvent.class));
     }
 
     @Test
     void followUser_shouldThrowForbidden_ifBlocked() {
-        when(neo4jRepository.userExists(any(UsersSocial.class))).thenReturn(true);
-        when(neo4jRepository.blockRelationExists(any(), any())).thenReturn(true);
+        when(neo4jRepository.follow(any(), any())).thenReturn(Uni.createFrom().item(RelationOutcome.BLOCKED));
 
         assertThrows(ForbiddenException.class,
-                () -> usersService.followUser(UUID.randomUUID(), UUID.randomUUID()));
+                () -> usersService.followUser(UUID.randomUUID(), UUID.randomUUID()).await().indefinitely());
+
+        verify(followEventPublisher, never()).publish(any(FollowEvent.class));
     }
 
     @Test
@@ -77,121 +111,152 @@ class UsersServiceTests {
         UUID followerId = UUID.randomUUID();
         UUID followeeId = UUID.randomUUID();
 
-        when(neo4jRepository.followRelationExists(any(), any())).thenReturn(true);
+        when(neo4jRepository.unfollow(any(), any())).thenReturn(Uni.createFrom().item(RelationOutcome.REMOVED));
 
-        usersService.unfollowUser(followerId, followeeId);
+        usersService.unfollowUser(followerId, followeeId).await().indefinitely();
 
-        verify(neo4jRepository).removeFollowRelation(any(), any());
+        verify(neo4jRepository).unfollow(any(), any());
         verify(followEventPublisher).publish(any(FollowEvent.class));
     }
 
     @Test
     void unfollowUser_shouldThrowNotFound_ifRelationDoesNotExist() {
-        when(neo4jRepository.followRelationExists(any(), any())).thenReturn(false);
+        when(neo4jRepository.unfollow(any(), any())).thenReturn(Uni.createFrom().item(RelationOutcome.NOT_FOUND));
 
         assertThrows(NotFoundException.class,
-                () -> usersService.unfollowUser(UUID.randomUUID(), UUID.randomUUID()));
+                () -> usersService.unfollowUser(UUID.randomUUID(), UUID.randomUUID()).await().indefinitely());
     }
 
     @Test
     void blockUser_shouldCreateBlockAndRemoveFollows() {
-        when(neo4jRepository.userExists(any(UsersSocial.class))).thenReturn(true);
-        when(neo4jRepository.followRelationExists(any(), any())).thenReturn(true);
-        when(neo4jRepository.blockRelationExists(any(), any())).thenReturn(false);
+        UUID blockerId = UUID.randomUUID();
+        UUID blockedId = UUID.randomUUID();
+        when(neo4jRepository.block(any(), any()))
+                .thenReturn(Uni.createFrom().item(new BlockResult(RelationOutcome.CREATED, List.of(blockerId, blockedId))));
 
-        usersService.blockUser(UUID.randomUUID(), UUID.randomUUID());
+        usersService.blockUser(blockerId, blockedId).await().indefinitely();
 
-        verify(neo4jRepository, times(2)).removeFollowRelation(any(), any());
-        verify(neo4jRepository).createBlockRelation(any(), any());
+        verify(neo4jRepository).block(any(), any());
+        verify(blockCache).publishChanges(List.of(new RelationEdge(blockerId, blockedId)));
+        verify(followEventPublisher).publishAll(argThat(events -> events.size() == 2));
     }
 
     @Test
     void blockUser_shouldThrowNotFound_ifUserMissing() {
-        when(neo4jRepository.userExists(any(UsersSocial.class))).thenReturn(false);
-        when(repoPostRestClient.getUserById(any(UUID.class))).thenReturn(null);
+        when(neo4jRepository.block(any(), any())).thenReturn(Uni.createFrom().item(new BlockResult(RelationOutcome.USER_NOT_FOUND, List.of())));
+        when(neo4jRepository.userExists(any(UsersSocial.class))).thenReturn(Uni.createFrom().item(false));
+        when(repoPostRestClient.getUserById(any(UUID.class))).thenReturn(Uni.createFrom().nullItem());
 
         assertThrows(NotFoundException.class,
-                () -> usersService.blockUser(UUID.randomUUID(), UUID.randomUUID()));
+                () -> usersService.blockUser(UUID.randomUUID(), UUID.randomUUID()).await().indefinitely());
     }
 
     @Test
     void unblockUser_shouldRemoveBlock() {
-        when(neo4jRepository.blockRelationExists(any(), any())).thenReturn(true);
+        when(neo4jRepository.unblock(any(), any())).thenReturn(Uni.createFrom().item(RelationOutcome.REMOVED));
 
-        usersService.unblockUser(UUID.randomUUID(), UUID.randomUUID());
+        usersService.unblockUser(UUID.randomUUID(), UUID.randomUUID()).await().indefinitely();
 
-        verify(neo4jRepository).removeBlockRelation(any(), any());
+        verify(neo4jRepository).unblock(any(), any());
     }
 
     @Test
     void unblockUser_shouldThrowNotFound_ifNoBlock() {
-        when(neo4jRepository.blockRelationExists(any(), any())).thenReturn(false);
+        when(neo4jRepository.unblock(any(), any())).thenReturn(Uni.createFrom().item(RelationOutcome.NOT_FOUND));
 
         assertThrows(NotFoundException.class,
-                () -> usersService.unblockUser(UUID.randomUUID(), UUID.randomUUID()));
+                () -> usersService.unblockUser(UUID.randomUUID(), UUID.randomUUID()).await().indefinitely());
     }
 
     @Test
     void getLikedPosts_shouldReturnList_ifUserExists() {
         UUID userId = UUID.randomUUID();
-        when(neo4jRepository.userExists(any(UsersSocial.class))).thenReturn(true);
-        when(neo4jRepository.getAllLikedPost(any())).thenReturn(List.of(new PostsSocial()));
+        when(neo4jRepository.userExists(any(UsersSocial.class))).thenReturn(Uni.createFrom().item(true));
+        when(neo4jRepository.getLikedPostsOfUser(any(), any(), anyInt())).thenReturn(Uni.createFrom().item(new RelationPage<>(List.of(new PostsSocial()), null)));
 
-        List<PostsSocial> posts = usersService.getLikedPosts(userId);
+        RelationPage<PostsSocial> posts = usersService.getLikedPosts(userId, null, 50).await().indefinitely();
 
-        assertFalse(posts.isEmpty());
+        assertFalse(posts.getItems().isEmpty());
     }
 
     @Test
     void getFollowees_shouldReturnList_ifUserExists() {
         UUID userId = UUID.randomUUID();
-        when(neo4jRepository.userExists(any(UsersSocial.class))).thenReturn(true);
-        when(neo4jRepository.getAllFollowsOfUser(any())).thenReturn(List.of(new UsersSocial()));
+        when(neo4jRepository.userExists(any(UsersSocial.class))).thenReturn(Uni.createFrom().item(true));
+        when(neo4jRepository.getFollowsOfUser(any(), any(), anyInt())).thenReturn(Uni.createFrom().item(new RelationPage<>(List.of(new UsersSocial()), null)));
 
-        List<UsersSocial> result = usersService.getFollowees(userId);
+        RelationPage<UsersSocial> result = usersService.getFollowees(userId, null, 50).await().indefinitely();
 
-        assertFalse(result.isEmpty());
+        assertFalse(result.getItems().isEmpty());
     }
 
     @Test
     void getFollowers_shouldReturnList_ifUserExists() {
         UUID userId = UUID.randomUUID();
-        when(neo4jRepository.userExists(any(UsersSocial.class))).thenReturn(true);
-        when(neo4jRepository.getAllFollowersOfUser(any())).thenReturn(List.of(new UsersSocial()));
+        when(neo4jRepository.userExists(any(UsersSocial.class))).thenReturn(Uni.createFrom().item(true));
+        when(neo4jRepository.getFollowersOfUser(any(), any(), anyInt())).thenReturn(Uni.createFrom().item(new RelationPage<>(List.of(new UsersSocial()), null)));
 
-        List<UsersSocial> result = usersService.getFollowers(userId);
+        RelationPage<UsersSocial> result = usersService.getFollowers(userId, null, 50).await().indefinitely();
 
-        assertFalse(result.isEmpty());
+        assertFalse(result.getItems().isEmpty());
     }
 
     @Test
     void getBlockedUsers_shouldReturnList_ifUserExists() {
         UUID userId = UUID.randomUUID();
-        when(neo4jRepository.userExists(any(UsersSocial.class))).thenReturn(true);
-        when(neo4jRepository.getAllBlockedOfUser(any())).thenReturn(List.of(new UsersSocial()));
+        when(neo4jRepository.userExists(any(UsersSocial.class))).thenReturn(Uni.createFrom().item(true));
+        when(neo4jRepository.getBlockedOfUser(any(), any(), anyInt())).thenReturn(Uni.createFrom().item(new RelationPage<>(List.of(new UsersSocial()), null)));
 
-        List<UsersSocial> result = usersService.getBlockedUsers(userId);
+        RelationPage<UsersSocial> result = usersService.getBlockedUsers(userId, null, 50).await().indefinitely();
 
-        assertFalse(result.isEmpty());
+        assertFalse(result.getItems().isEmpty());
     }
 
     @Test
     void getUsersWhoBlockedMe_shouldReturnList_ifUserExists() {
         UUID userId = UUID.randomUUID();
-        when(neo4jRepository.userExists(any(UsersSocial.class))).thenReturn(true);
-        when(neo4jRepository.getAllBlockersOfUser(any())).thenReturn(List.of(new UsersSocial()));
+        when(neo4jRepository.userExists(any(UsersSocial.class))).thenReturn(Uni.createFrom().item(true));
+        when(neo4jRepository.getBlockersOfUser(any(), any(), anyInt())).thenReturn(Uni.createFrom().item(new RelationPage<>(List.of(new UsersSocial()), null)));
+
+        RelationPage<UsersSocial> result = usersService.getUsersWhoBlockedMe(userId, null, 50).await().indefinitely();
+
+        assertFalse(result.getItems().isEmpty());
+    }
+
+    @Test
+    void getCounts_shouldReturnZeros_ifUserNotInGraphYet() {
+        UUID userId = UUID.randomUUID();
+        when(neo4jRepository.getUserCounts(any(UsersSocial.class))).thenReturn(Uni.createFrom().nullItem());
+        when(neo4jRepository.userExists(any(UsersSocial.class))).thenReturn(Uni.createFrom().item(false));
+        when(repoPostRestClient.getUserById(userId)).thenReturn(Uni.createFrom().item(new RepoPostUserResponse()));
 
-        List<UsersSocial> result = usersService.getUsersWhoBlockedMe(userId);
+        UserCounts counts = usersService.getCounts(userId).await().indefinitely();
 
-        assertFalse(result.isEmpty());
+        assertEquals(0, counts.getFollowers());
+        assertEquals(0, counts.getFollowees());
     }
 
     @Test
     void getFollowees_shouldThrowNotFound_ifUserMissing() {
-        when(neo4jRepository.userExists(any(UsersSocial.class))).thenReturn(false);
-        when(repoPostRestClient.getUserById(any(UUID.class))).thenReturn(null);
+        when(neo4jRepository.userExists(any(UsersSocial.class))).thenReturn(Uni.createFrom().item(false));
+        when(repoPostRestClient.getUserById(any(UUID.class))).thenReturn(Uni.createFrom().nullItem());
 
         assertThrows(NotFoundException.class,
-                () -> usersService.getFollowees(UUID.randomUUID()));
+                () -> usersService.getFollowees(UUID.randomUUID(), null, 50).await().indefinitely());
+    }
+
+    @Test
+    void getRelationStates_shouldQueryDistinctTargetsOnce() {
+        UUID viewerId = UUID.randomUUID();
+        UUID targetId = UUID.randomUUID();
+        UUID otherTargetId = UUID.randomUUID();
+        when(neo4jRepository.getRelationStates(any(UsersSocial.class), anyList())).thenReturn(Uni.createFrom().item(List.of(
+                new RelationState(targetId, true, false, false, false),
+                new RelationState(otherTargetId, false, false, true, false))));
+
+        List<RelationState> states = usersService.getRelationStates(viewerId, List.of(targetId, otherTargetId, targetId)).await().indefinitely();
+
+        assertEquals(2, states.size());
+        verify(neo4jRepository).getRelationStates(argThat(viewer -> viewer.getId().equals(viewerId)), eq(List.of(targetId, otherTargetId)));
     }
 }
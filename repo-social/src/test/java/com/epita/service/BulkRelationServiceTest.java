@@ -0,0 +1,101 @@
+package com.epita.service;
+
+import com.epita.controller.contract.BulkRelationReport;
+import com.epita.repository.FollowEventPublisher;
+import com.epita.repository.LikeEventPublisher;
+import com.epita.repository.Neo4jRepository;
+import com.epita.repository.entity.PostsSocial;
+import com.epita.repository.entity.RelationChanges;
+import com.epita.repository.entity.RelationEdge;
+import io.smallrye.mutiny.Uni;
+import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.ForbiddenException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class BulkRelationServiceTest {
+
+    @Mock
+    Neo4jRepository neo4jRepository;
+
+    @Mock
+    FollowEventPublisher followEventPublisher;
+
+    @Mock
+    LikeEventPublisher likeEventPublisher;
+
+    @Mock
+    BlockCache blockCache;
+
+    @Mock
+    UsersService usersService;
+
+    @Mock
+    PostsService postsService;
+
+    @InjectMocks
+    BulkRelationService bulkRelationService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(usersService.userExistVerify(any())).thenReturn(Uni.createFrom().item(true));
+        when(likeEventPublisher.publishAll(any())).thenReturn(Uni.createFrom().voidItem());
+    }
+
+    @Test
+    void followAll_shouldRejectTooManyEdges() {
+        UUID userId = UUID.randomUUID();
+        List<RelationEdge> edges = Collections.nCopies(BulkRelationService.MAX_EDGES + 1, new RelationEdge(userId, UUID.randomUUID()));
+
+        assertThrows(BadRequestException.class, () -> bulkRelationService.followAll(userId, edges).await().indefinitely());
+        verify(neo4jRepository, never()).followAll(any());
+    }
+
+    @Test
+    void blockAll_shouldRejectEdgesOfOtherUsers() {
+        UUID userId = UUID.randomUUID();
+        List<RelationEdge> edges = List.of(
+                new RelationEdge(userId, UUID.randomUUID()),
+                new RelationEdge(UUID.randomUUID(), userId));
+
+        assertThrows(ForbiddenException.class, () -> bulkRelationService.blockAll(userId, edges).await().indefinitely());
+        verify(neo4jRepository, never()).blockAll(any());
+    }
+
+    @Test
+    void likeAll_shouldSkipUnknownPosts() {
+        UUID userId = UUID.randomUUID();
+        UUID knownPostId = UUID.randomUUID();
+        UUID unknownPostId = UUID.randomUUID();
+        RelationEdge known = new RelationEdge(userId, knownPostId);
+        when(postsService.postExistVerify(any())).thenAnswer(invocation -> Uni
+                .createFrom()
+                .item(invocation
+                        .<PostsSocial>getArgument(0)
+                        .getId()
+                        .equals(knownPostId)));
+        when(neo4jRepository.likeAll(List.of(known))).thenReturn(Uni.createFrom().item(new RelationChanges(List.of(known), List.of())));
+
+        BulkRelationReport report = bulkRelationService
+                .likeAll(userId, List.of(known, new RelationEdge(userId, unknownPostId)))
+                .await()
+                .indefinitely();
+
+        assertEquals(2, report.getReceived());
+        assertEquals(1, report.getCreated());
+        verify(neo4jRepository).likeAll(List.of(known));
+        verify(likeEventPublisher).publishAll(any());
+    }
+}
@@ -0,0 +1,113 @@
+package com.epita.service;
+
+import com.epita.common.command.PostEventCommand;
+import com.epita.repository.Neo4jRepository;
+import com.epita.repository.entity.PostsSocial;
+import io.smallrye.mutiny.Uni;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class PostEventBufferTest {
+
+    @Mock
+    Neo4jRepository neo4jRepository;
+
+    @Mock
+    ExistenceCache existenceCache;
+
+    @InjectMocks
+    PostEventBuffer postEventBuffer;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(neo4jRepository.upsertPosts(any())).thenReturn(Uni.createFrom().voidItem());
+        when(neo4jRepository.deletePosts(any())).thenReturn(Uni.createFrom().voidItem());
+    }
+
+    @Test
+    void flush_shouldApplyOnlyTheLastEventOfEachPost() {
+        UUID deletedPost = UUID.randomUUID();
+        UUID createdPost = UUID.randomUUID();
+        UUID authorId = UUID.randomUUID();
+        postEventBuffer.add(event(PostEventCommand.Type.CREATION, deletedPost, authorId));
+        postEventBuffer.add(event(PostEventCommand.Type.CREATION, createdPost, authorId));
+        postEventBuffer.add(event(PostEventCommand.Type.LIKE, createdPost, authorId));
+        postEventBuffer.add(event(PostEventCommand.Type.DELETION, deletedPost, authorId));
+
+        postEventBuffer.flush();
+
+        verify(neo4jRepository).upsertPosts(argThat((List<PostsSocial> posts) -> posts.size() == 1 && posts
+                .get(0)
+                .getId()
+                .equals(createdPost) && posts
+                .get(0)
+                .getAuthorId()
+                .equals(authorId)));
+        verify(neo4jRepository).deletePosts(argThat((List<PostsSocial> posts) -> posts.size() == 1 && posts
+                .get(0)
+                .getId()
+                .equals(deletedPost)));
+        verify(existenceCache).forgetPost(deletedPost);
+        verify(existenceCache).forgetPost(createdPost);
+    }
+
+    @Test
+    void flush_shouldRetryFailedBatchOnNextFlush() {
+        UUID postId = UUID.randomUUID();
+        when(neo4jRepository.upsertPosts(any()))
+                .thenReturn(Uni.createFrom().failure(new IllegalStateException("Neo4j unavailable")), Uni.createFrom().voidItem());
+        postEventBuffer.add(event(PostEventCommand.Type.CREATION, postId, UUID.randomUUID()));
+
+        postEventBuffer.flush();
+        postEventBuffer.flush();
+        postEventBuffer.flush();
+
+        verify(neo4jRepository, times(2)).upsertPosts(any());
+    }
+
+    @Test
+    void add_shouldDropTheOldestCreations_whenTheQueueIsFull() {
+        UUID deletedPost = UUID.randomUUID();
+        UUID oldestPost = UUID.randomUUID();
+        UUID authorId = UUID.randomUUID();
+        List<UUID> upserted = new ArrayList<>();
+        when(neo4jRepository.upsertPosts(any())).thenAnswer(invocation -> {
+            invocation
+                    .<List<PostsSocial>>getArgument(0)
+                    .forEach(post -> upserted.add(post.getId()));
+            return Uni.createFrom().voidItem();
+        });
+        postEventBuffer.add(event(PostEventCommand.Type.DELETION, deletedPost, authorId));
+        postEventBuffer.add(event(PostEventCommand.Type.CREATION, oldestPost, authorId));
+        for (int i = 1; i < PostEventBuffer.MAX_PENDING_EVENTS; i++) {
+            postEventBuffer.add(event(PostEventCommand.Type.CREATION, UUID.randomUUID(), authorId));
+        }
+
+        postEventBuffer.flush();
+
+        assertEquals(PostEventBuffer.MAX_PENDING_EVENTS - 1, upserted.size());
+        assertFalse(upserted.contains(oldestPost));
+        verify(neo4jRepository).deletePosts(argThat((List<PostsSocial> posts) -> posts
+                .get(0)
+                .getId()
+                .equals(deletedPost)));
+    }
+
+    private static PostEventCommand event(PostEventCommand.Type type, UUID postId, UUID authorId) {
+        return new PostEventCommand(type, postId, authorId, Optional.empty(), LocalDateTime.now());
+    }
+}